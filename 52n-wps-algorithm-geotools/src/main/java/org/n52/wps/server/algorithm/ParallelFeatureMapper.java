@@ -0,0 +1,358 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.LocalAlgorithmRepository;
+import org.n52.wps.server.observerpattern.ISubject;
+import org.opengis.feature.simple.SimpleFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies a function to every feature of a collection on a shared, bounded
+ * {@link ForkJoinPool}. The results are returned in the order of the input
+ * features. Collections smaller than the parallel threshold are processed in
+ * the calling thread.
+ * 
+ * Progress is reported to an optional {@link ISubject} as percentage
+ * (<code>Integer</code>), at most once per percent. It is always reported
+ * from the calling thread, which polls the count of processed features while
+ * the workers run, so observers see the execution context of the caller. If
+ * the calling thread is interrupted or a feature fails, the workers stop
+ * before the next feature.
+ * 
+ * The pool is configured by the properties
+ * <code>featuremapper.parallelism</code> (default: number of processors) and
+ * <code>featuremapper.parallelThreshold</code> (default 1000) of the
+ * {@link LocalAlgorithmRepository}.
+ */
+public class ParallelFeatureMapper {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ParallelFeatureMapper.class);
+
+	public static final String PROPERTY_PARALLELISM = "featuremapper.parallelism";
+
+	public static final String PROPERTY_PARALLEL_THRESHOLD = "featuremapper.parallelThreshold";
+
+	private static final String SYSTEM_PROPERTY_ROOT = "org.n52.wps.server.algorithm";
+
+	private static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
+
+	/**
+	 * Number of tasks per worker thread the features are split into, to
+	 * balance uneven per feature costs.
+	 */
+	private static final int TASKS_PER_THREAD = 4;
+
+	/**
+	 * Milliseconds between two progress reports of the calling thread while
+	 * the workers run.
+	 */
+	private static final long PROGRESS_INTERVAL = 200;
+
+	private static ParallelFeatureMapper instance;
+
+	private final ForkJoinPool pool;
+
+	private final int parallelThreshold;
+
+	/**
+	 * A function applied to a single feature. Implementations are called
+	 * concurrently and must not modify shared state.
+	 */
+	public interface FeatureFunction<T> {
+
+		T apply(SimpleFeature feature) throws Exception;
+	}
+
+	public ParallelFeatureMapper(int parallelism, int parallelThreshold) {
+		this.pool = new ForkJoinPool(Math.max(1, parallelism));
+		this.parallelThreshold = Math.max(1, parallelThreshold);
+	}
+
+	/**
+	 * @return the mapper configured from the properties of the
+	 *         {@link LocalAlgorithmRepository}.
+	 */
+	public static synchronized ParallelFeatureMapper getInstance() {
+		if (instance == null) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			int parallelism = processors;
+			int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+			try {
+				PropertyUtil propertyUtil = new PropertyUtil(
+						WPSConfig.getInstance().getPropertiesForRepositoryClass(
+								LocalAlgorithmRepository.class.getCanonicalName()),
+						SYSTEM_PROPERTY_ROOT);
+				parallelism = (int) propertyUtil.extractLong(PROPERTY_PARALLELISM, processors);
+				parallelThreshold = (int) propertyUtil.extractLong(PROPERTY_PARALLEL_THRESHOLD,
+						DEFAULT_PARALLEL_THRESHOLD);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not read feature mapper configuration, using defaults.", e);
+			}
+			LOGGER.info("Feature mapper uses {} thread(s) for collections of more than {} features.",
+					parallelism, parallelThreshold);
+			instance = new ParallelFeatureMapper(parallelism, parallelThreshold);
+		}
+		return instance;
+	}
+
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+
+	/**
+	 * @return the features of the collection as list
+	 */
+	public static List<SimpleFeature> toList(FeatureCollection<?, ?> collection) {
+		List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+		FeatureIterator<?> iterator = collection.features();
+		try {
+			while (iterator.hasNext()) {
+				features.add((SimpleFeature) iterator.next());
+			}
+		} finally {
+			iterator.close();
+		}
+		return features;
+	}
+
+	public <T> List<T> map(FeatureCollection<?, ?> collection, FeatureFunction<T> function, ISubject progress) {
+		return map(toList(collection), function, progress);
+	}
+
+	/**
+	 * Applies the function to every feature.
+	 * 
+	 * @param progress
+	 *            subject to report the progress to, may be <code>null</code>
+	 * @return the results in the order of the features
+	 * @throws RuntimeException
+	 *             if the function failed for one of the features
+	 */
+	public <T> List<T> map(List<SimpleFeature> features, FeatureFunction<T> function, ISubject progress) {
+		Object[] results = new Object[features.size()];
+		Progress tracker = new Progress(features.size(), progress);
+		if (features.size() <= parallelThreshold) {
+			new MapTask<T>(features, function, results, 0, features.size(), features.size(), tracker).compute();
+		} else {
+			int taskSize = Math.max(1, features.size() / (pool.getParallelism() * TASKS_PER_THREAD));
+			ForkJoinTask<Void> task = pool.submit(new MapTask<T>(features, function, results, 0,
+					features.size(), taskSize, tracker));
+			try {
+				while (!await(task)) {
+					tracker.report();
+				}
+				tracker.report();
+			} catch (InterruptedException e) {
+				// interrupting the workers has no effect on fork join tasks,
+				// they check the flag between features instead
+				tracker.cancel();
+				task.cancel(true);
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while processing features.", e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException) e.getCause();
+				}
+				throw new RuntimeException("Error while processing features.", e.getCause());
+			}
+		}
+		@SuppressWarnings("unchecked")
+		List<T> list = (List<T>) Arrays.asList(results);
+		return list;
+	}
+
+	/**
+	 * @return false if the task did not complete within the progress
+	 *         interval
+	 */
+	private static boolean await(ForkJoinTask<Void> task) throws InterruptedException, ExecutionException {
+		try {
+			task.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+			return true;
+		} catch (TimeoutException e) {
+			return false;
+		}
+	}
+
+	private static class MapTask<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<SimpleFeature> features;
+
+		private final FeatureFunction<T> function;
+
+		private final Object[] results;
+
+		private final int from;
+
+		private final int to;
+
+		private final int taskSize;
+
+		private final Progress progress;
+
+		MapTask(List<SimpleFeature> features, FeatureFunction<T> function, Object[] results, int from, int to,
+				int taskSize, Progress progress) {
+			this.features = features;
+			this.function = function;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+			this.taskSize = taskSize;
+			this.progress = progress;
+		}
+
+		@Override
+		protected void compute() {
+			if (progress.isCancelled()) {
+				return;
+			}
+			if (to - from > taskSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new MapTask<T>(features, function, results, from, middle, taskSize, progress),
+						new MapTask<T>(features, function, results, middle, to, taskSize, progress));
+				return;
+			}
+			for (int i = from; i < to && !progress.isCancelled(); i++) {
+				if (Thread.currentThread().isInterrupted()) {
+					progress.cancel();
+					throw new RuntimeException("Interrupted while processing features.");
+				}
+				SimpleFeature feature = features.get(i);
+				try {
+					results[i] = function.apply(feature);
+				} catch (RuntimeException e) {
+					progress.cancel();
+					throw e;
+				} catch (Exception e) {
+					progress.cancel();
+					throw new RuntimeException("Error while processing feature " + feature.getID(), e);
+				}
+				progress.increment();
+			}
+		}
+	}
+
+	/**
+	 * Counts processed features, shared by all tasks of one mapping. Every
+	 * new percentage is reported once by the calling thread, the workers only
+	 * count and check whether the mapping was cancelled.
+	 */
+	private static class Progress {
+
+		private final int total;
+
+		private final ISubject subject;
+
+		private final AtomicInteger processed = new AtomicInteger();
+
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+
+		private final Thread caller = Thread.currentThread();
+
+		private int reported = -1;
+
+		Progress(int total, ISubject subject) {
+			this.total = total;
+			this.subject = subject;
+		}
+
+		void increment() {
+			processed.incrementAndGet();
+			if (Thread.currentThread() == caller) {
+				report();
+			}
+		}
+
+		void cancel() {
+			cancelled.set(true);
+		}
+
+		boolean isCancelled() {
+			return cancelled.get();
+		}
+
+		/**
+		 * Reports the current percentage if it changed, only called by the
+		 * calling thread.
+		 */
+		void report() {
+			if (subject == null) {
+				return;
+			}
+			int percentage = (int) (processed.get() * 100L / total);
+			if (percentage > reported) {
+				reported = percentage;
+				subject.update(Integer.valueOf(percentage));
+			}
+		}
+	}
+}
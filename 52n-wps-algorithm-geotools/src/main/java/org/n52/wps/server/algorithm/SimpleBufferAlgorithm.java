@@ -47,7 +47,7 @@
  */
 package org.n52.wps.server.algorithm;
 
-import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 import javax.xml.namespace.QName;
@@ -76,7 +76,6 @@ import org.n52.wps.server.AbstractAnnotatedAlgorithm;
 public class SimpleBufferAlgorithm extends AbstractAnnotatedAlgorithm {
 
     private static Logger LOGGER = LoggerFactory.getLogger(SimpleBufferAlgorithm.class);
-    private Double percentage;
 
     public SimpleBufferAlgorithm() {
         super();
@@ -103,29 +102,26 @@ public class SimpleBufferAlgorithm extends AbstractAnnotatedAlgorithm {
 
     @Execute
     public void runBuffer() {
-        //Collection resultColl = new ArrayList();
-        double i = 0;
-        int totalNumberOfFeatures = data.size();
         String uuid = UUID.randomUUID().toString();
         result = DefaultFeatureCollections.newCollection();
         SimpleFeatureType featureType = null;
-        LOGGER.debug("");
-        for (Iterator ia = data.iterator(); ia.hasNext();) {
-            /**
-             * ******* How to publish percentage results ************
-             */
-            i = i + 1;
-            percentage = (i / totalNumberOfFeatures) * 100;
-            this.update(new Integer(percentage.intValue()));
-
-            /**
-             * ******************
-             */
-            SimpleFeature feature = (SimpleFeature) ia.next();
+        List<SimpleFeature> features = ParallelFeatureMapper.toList(data);
+        // buffering is the expensive part, it runs in parallel and publishes
+        // the percentage of processed features
+        List<Geometry> buffered = ParallelFeatureMapper.getInstance().map(features,
+                new ParallelFeatureMapper.FeatureFunction<Geometry>() {
+                    @Override
+                    public Geometry apply(SimpleFeature feature) {
+                        return runBuffer((Geometry) feature.getDefaultGeometry(), width);
+                    }
+                }, this);
+
+        for (int i = 0; i < features.size(); i++) {
+            SimpleFeature feature = features.get(i);
             Geometry geometry = (Geometry) feature.getDefaultGeometry();
-            Geometry geometryBuffered = runBuffer(geometry, width);
+            Geometry geometryBuffered = buffered.get(i);
 
-            if (i == 1) {
+            if (i == 0) {
                 CoordinateReferenceSystem crs = feature.getFeatureType().getCoordinateReferenceSystem();
                 if (geometry.getUserData() instanceof CoordinateReferenceSystem) {
                     crs = ((CoordinateReferenceSystem) geometry.getUserData());
@@ -137,7 +133,7 @@ public class SimpleBufferAlgorithm extends AbstractAnnotatedAlgorithm {
             }
 
             if (geometryBuffered != null) {
-                SimpleFeature createdFeature = (SimpleFeature) GTHelper.createFeature("ID" + new Double(i).intValue(), geometryBuffered, (SimpleFeatureType) featureType, feature.getProperties());
+                SimpleFeature createdFeature = (SimpleFeature) GTHelper.createFeature("ID" + (i + 1), geometryBuffered, (SimpleFeatureType) featureType, feature.getProperties());
                 feature.setDefaultGeometry(geometryBuffered);
                 result.add(createdFeature);
             } else {
@@ -48,6 +48,7 @@
 package org.n52.wps.server.algorithm.convexhull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,11 +58,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.n52.wps.io.GTHelper;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+import org.n52.wps.server.algorithm.ParallelFeatureMapper;
 import org.opengis.feature.Feature;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -113,37 +114,28 @@ public class ConvexHullAlgorithm extends AbstractSelfDescribingAlgorithm {
 		FeatureCollection featureCollection = ((GTVectorDataBinding) firstInputData)
 				.getPayload();
 
-		FeatureIterator iter = featureCollection.features();
+		// the hull of all coordinates equals the hull of the vertices of the
+		// hulls of the single geometries, so the features are reduced in
+		// parallel first
+		List<Coordinate[]> hullCoordinates = ParallelFeatureMapper.getInstance().map(featureCollection,
+				new ParallelFeatureMapper.FeatureFunction<Coordinate[]>() {
+			public Coordinate[] apply(SimpleFeature feature) {
+				if (feature.getDefaultGeometry() == null) {
+					throw new NullPointerException(
+							"defaultGeometry is null in feature id: "
+									+ feature.getID());
+				}
+				return ((Geometry) feature.getDefaultGeometry()).convexHull().getCoordinates();
+			}
+		}, null);
 
 		List<Coordinate> coordinateList = new ArrayList<Coordinate>();
-		
-		int counter = 0;
-		
-		Geometry unifiedGeometry = null;
-		
-		while (iter.hasNext()) {
-			SimpleFeature  feature = (SimpleFeature) iter.next();
-
-			if (feature.getDefaultGeometry() == null) {
-				throw new NullPointerException(
-						"defaultGeometry is null in feature id: "
-								+ feature.getID());
-			}
-			
-			Geometry geom = (Geometry) feature.getDefaultGeometry();
-			
-			Coordinate[] coordinateArray = geom.getCoordinates();
-			for(Coordinate coordinate : coordinateArray){
-				coordinateList.add(coordinate);
-			}
-			
-		}	
-		
-		Coordinate[] coordinateArray = new Coordinate[coordinateList.size()];
-		
-		for(int i = 0; i<coordinateList.size(); i++){
-			coordinateArray[i] = coordinateList.get(i);
+		for (Coordinate[] coordinates : hullCoordinates) {
+			coordinateList.addAll(Arrays.asList(coordinates));
 		}
+
+		Coordinate[] coordinateArray = coordinateList.toArray(new Coordinate[coordinateList.size()]);
+
 		ConvexHull convexHull = new ConvexHull(coordinateArray, new GeometryFactory());		
 		
 		Geometry out = convexHull.getConvexHull();
@@ -58,14 +58,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.geotools.geometry.jts.JTS;
-import org.geotools.referencing.CRS;
 import org.n52.wps.io.GTHelper;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.io.data.binding.literal.LiteralStringBinding;
 import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+import org.n52.wps.server.algorithm.ParallelFeatureMapper;
 import org.opengis.feature.Feature;
 import org.opengis.feature.Property;
 import org.opengis.feature.simple.SimpleFeature;
@@ -73,9 +72,14 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.operation.MathTransform;
 
-import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
 
+/**
+ * Transforms the features of a collection from a source to a target
+ * reference system. Reference systems and transforms are taken from the
+ * {@link CRSCache}, large collections are transformed in parallel by the
+ * {@link ParallelFeatureMapper}.
+ */
 public class CoordinateTransformAlgorithm extends
 		AbstractSelfDescribingAlgorithm {
 	
@@ -144,8 +148,6 @@ public class CoordinateTransformAlgorithm extends
 		FeatureCollection<?, ?> featureCollection = ((GTVectorDataBinding) firstInputData)
 				.getPayload();
 
-		FeatureIterator<?> featureIterator = featureCollection.features();
-
 		List<IData> secondDataList = inputData
 				.get(inputIdentifierTargetReferenceSystem);		
 		if (secondDataList == null || secondDataList.size() != 1) {
@@ -162,7 +164,7 @@ public class CoordinateTransformAlgorithm extends
 
 		try {
 
-			toCRS = CRS.decode(crs);
+			toCRS = CRSCache.getCRS(crs);
 
 		} catch (Exception e) {
 			throw new RuntimeException(
@@ -191,52 +193,33 @@ public class CoordinateTransformAlgorithm extends
 
 		try {
 
-			fromCRS = CRS.decode(fromCRSString);
+			fromCRS = CRSCache.getCRS(fromCRSString);
 
 		} catch (Exception e) {
 			throw new RuntimeException(
-					"Could not determine target CRS. Valid EPSG code needed.",
+					"Could not determine source CRS. Valid EPSG code needed.",
 					e);
 		}
 
 		if (fromCRS == null) {
 			throw new RuntimeException(
-					"Could not determine target CRS. Valid EPSG code needed.");
+					"Could not determine source CRS. Valid EPSG code needed.");
 		}
 		
 
+		List<SimpleFeature> features = ParallelFeatureMapper.toList(featureCollection);
+
 		FeatureCollection fOut = DefaultFeatureCollections.newCollection();
 
 		try {
 
-			MathTransform tx = CRS.findMathTransform(fromCRS, toCRS, true);
-
-			int coordinates = 0;
-			
-			while (featureIterator.hasNext()) {
-
-				SimpleFeature feature = (SimpleFeature) featureIterator.next();
-
-				Geometry geometry = (Geometry) feature.getDefaultGeometry();
+			MathTransform tx = CRSCache.getMathTransform(fromCRSString, crs);
 
-				coordinates = coordinates + geometry.getCoordinates().length;
-				
-				Coordinate[] coords = geometry.getCoordinates();
-				
-				for (Coordinate coordinate : coords) {
-					Coordinate k = new Coordinate();
-					k = JTS.transform(coordinate, k, tx);
-//					System.out.println(k);
+			for (Feature newFeature : transform(features, tx, toCRS)) {
+				if (newFeature != null) {
+					fOut.add(newFeature);
 				}
-				
-				Geometry newGeometry = JTS.transform(geometry, tx);
-
-				Feature newFeature = createFeature(feature.getID(),
-						newGeometry, toCRS, feature.getProperties());
-
-				fOut.add(newFeature);
 			}
-						
 
 		} catch (Exception e) {
 			throw new RuntimeException("Error while transforming", e);
@@ -248,6 +231,25 @@ public class CoordinateTransformAlgorithm extends
 		return result;
 	}
 
+	private List<Feature> transform(List<SimpleFeature> features,
+			final MathTransform tx, CoordinateReferenceSystem toCRS) {
+		List<Geometry> geometries = ParallelFeatureMapper.getInstance().map(features,
+				new ParallelFeatureMapper.FeatureFunction<Geometry>() {
+			@Override
+			public Geometry apply(SimpleFeature feature) throws Exception {
+				return JTS.transform((Geometry) feature.getDefaultGeometry(), tx);
+			}
+		}, this);
+
+		List<Feature> result = new ArrayList<Feature>(features.size());
+		for (int i = 0; i < features.size(); i++) {
+			SimpleFeature feature = features.get(i);
+			result.add(createFeature(feature.getID(), geometries.get(i), toCRS,
+					feature.getProperties()));
+		}
+		return result;
+	}
+
 	private Feature createFeature(String id, Geometry geometry,
 			CoordinateReferenceSystem crs, Collection<Property> properties) {
 		String uuid = UUID.randomUUID().toString();
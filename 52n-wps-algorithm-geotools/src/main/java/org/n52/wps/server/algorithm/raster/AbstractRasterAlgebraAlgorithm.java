@@ -0,0 +1,179 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.GTRasterDataBinding;
+import org.n52.wps.io.data.binding.literal.LiteralDoubleBinding;
+import org.n52.wps.io.data.binding.literal.LiteralStringBinding;
+import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+
+/**
+ * Base class of the raster algebra processes, which combine rasters pixel by
+ * pixel with a {@link PixelFunction} on the {@link RasterAlgebraEngine}. The
+ * result is computed tile by tile while it is written.
+ * 
+ * Besides the rasters, all processes accept the optional inputs
+ * <code>noData</code>, the value written where there is no result (default
+ * <code>NaN</code>), and <code>extent</code>, either
+ * <code>intersection</code> (default) or <code>union</code> of the input
+ * envelopes.
+ */
+public abstract class AbstractRasterAlgebraAlgorithm extends AbstractSelfDescribingAlgorithm {
+
+	public static final String INPUT_NODATA = "noData";
+
+	public static final String INPUT_EXTENT = "extent";
+
+	public static final String OUTPUT_RESULT = "result";
+
+	public static final String EXTENT_INTERSECTION = "intersection";
+
+	public static final String EXTENT_UNION = "union";
+
+	/**
+	 * @return the identifiers of the inputs besides noData and extent
+	 */
+	protected abstract List<String> getOperandInputIdentifiers();
+
+	/**
+	 * @return the rasters to combine, in the order expected by the function
+	 */
+	protected abstract List<GridCoverage2D> getRasters(Map<String, List<IData>> inputData);
+
+	protected abstract PixelFunction getFunction(Map<String, List<IData>> inputData);
+
+	@Override
+	public Map<String, IData> run(Map<String, List<IData>> inputData) {
+		if(inputData == null){
+			throw new RuntimeException("Error while allocating input parameters");
+		}
+		List<GridCoverage2D> rasters = getRasters(inputData);
+		PixelFunction function = getFunction(inputData);
+
+		double noData = Double.NaN;
+		List<IData> noDataList = inputData.get(INPUT_NODATA);
+		if(noDataList != null && noDataList.size() == 1){
+			noData = ((LiteralDoubleBinding) noDataList.get(0)).getPayload();
+		}
+		boolean union = false;
+		List<IData> extentList = inputData.get(INPUT_EXTENT);
+		if(extentList != null && extentList.size() == 1){
+			String extent = ((LiteralStringBinding) extentList.get(0)).getPayload();
+			if(EXTENT_UNION.equalsIgnoreCase(extent)){
+				union = true;
+			}else if(!EXTENT_INTERSECTION.equalsIgnoreCase(extent)){
+				throw new RuntimeException("Invalid extent " + extent + ", expected " + EXTENT_INTERSECTION + " or " + EXTENT_UNION);
+			}
+		}
+
+		GridCoverage2D result;
+		try {
+			result = RasterAlgebraEngine.getInstance().combine(OUTPUT_RESULT, rasters, function, noData, union);
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+		HashMap<String,IData> resulthash = new HashMap<String,IData>();
+		resulthash.put(OUTPUT_RESULT, new GTRasterDataBinding(result));
+		return resulthash;
+	}
+
+	/**
+	 * @return the single raster of the input
+	 */
+	protected GridCoverage2D getRaster(Map<String, List<IData>> inputData, String identifier) {
+		List<IData> dataList = inputData.get(identifier);
+		if(dataList == null || dataList.size() != 1){
+			throw new RuntimeException("Error while allocating input parameters");
+		}
+		return (GridCoverage2D) dataList.get(0).getPayload();
+	}
+
+	public Class getInputDataType(String id) {
+		if(id.equals(INPUT_NODATA)){
+			return LiteralDoubleBinding.class;
+		}else if(id.equals(INPUT_EXTENT)){
+			return LiteralStringBinding.class;
+		}
+		return GTRasterDataBinding.class;
+	}
+
+	public Class getOutputDataType(String id) {
+		return GTRasterDataBinding.class;
+	}
+
+	@Override
+	public BigInteger getMinOccurs(String identifier) {
+		if(identifier.equals(INPUT_NODATA) || identifier.equals(INPUT_EXTENT)){
+			return BigInteger.ZERO;
+		}
+		return super.getMinOccurs(identifier);
+	}
+
+	@Override
+	public List<String> getInputIdentifiers() {
+		List<String> identifierList = new ArrayList<String>(getOperandInputIdentifiers());
+		identifierList.add(INPUT_NODATA);
+		identifierList.add(INPUT_EXTENT);
+		return identifierList;
+	}
+
+	@Override
+	public List<String> getOutputIdentifiers() {
+		List<String> identifierList = new ArrayList<String>();
+		identifierList.add(OUTPUT_RESULT);
+		return identifierList;
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.literal.LiteralStringBinding;
+
+/**
+ * Evaluates a {@link BandMathExpression} over the rasters given as
+ * <code>dataset</code>, which are referred to as <code>r1, r2, ...</code> in
+ * the order they are given, e.g. <code>(r1b4 - r1b3) / (r1b4 + r1b3)</code>.
+ */
+public class BandMathAlgorithm extends AbstractRasterAlgebraAlgorithm {
+
+	public static final String INPUT_DATASET = "dataset";
+
+	public static final String INPUT_EXPRESSION = "expression";
+
+	private static final int MAX_DATASETS = 16;
+
+	@Override
+	protected List<String> getOperandInputIdentifiers() {
+		List<String> identifierList = new ArrayList<String>();
+		identifierList.add(INPUT_DATASET);
+		identifierList.add(INPUT_EXPRESSION);
+		return identifierList;
+	}
+
+	@Override
+	protected List<GridCoverage2D> getRasters(Map<String, List<IData>> inputData) {
+		List<IData> dataList = inputData.get(INPUT_DATASET);
+		if(dataList == null || dataList.isEmpty()){
+			throw new RuntimeException("Error while allocating input parameters");
+		}
+		List<GridCoverage2D> rasters = new ArrayList<GridCoverage2D>();
+		for(IData data : dataList){
+			rasters.add((GridCoverage2D) data.getPayload());
+		}
+		return rasters;
+	}
+
+	@Override
+	protected PixelFunction getFunction(Map<String, List<IData>> inputData) {
+		List<IData> dataList = inputData.get(INPUT_EXPRESSION);
+		if(dataList == null || dataList.size() != 1){
+			throw new RuntimeException("Error while allocating input parameters");
+		}
+		try {
+			return new BandMathExpression(((LiteralStringBinding) dataList.get(0)).getPayload());
+		} catch (IllegalArgumentException e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public Class getInputDataType(String id) {
+		if(id.equals(INPUT_EXPRESSION)){
+			return LiteralStringBinding.class;
+		}
+		return super.getInputDataType(id);
+	}
+
+	@Override
+	public BigInteger getMaxOccurs(String identifier) {
+		if(identifier.equals(INPUT_DATASET)){
+			return BigInteger.valueOf(MAX_DATASETS);
+		}
+		return super.getMaxOccurs(identifier);
+	}
+}
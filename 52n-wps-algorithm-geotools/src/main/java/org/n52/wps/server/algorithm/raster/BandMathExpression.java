@@ -0,0 +1,408 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A band math expression, compiled once into a tree evaluated per pixel.
+ * 
+ * The expression combines numbers and variables with <code>+ - * / ^</code>,
+ * parentheses and the functions <code>abs, sqrt, exp, log, min, max</code>.
+ * The variable <code>r<i>n</i></code> refers to the current band of the
+ * <i>n</i>-th raster, so that e.g. <code>(r1 + r2) / 2</code> is applied
+ * band by band; <code>r<i>n</i>b<i>k</i></code> refers to band <i>k</i> of
+ * the <i>n</i>-th raster. Both are counted from 1. An expression referring
+ * to explicit bands only, e.g. <code>(r1b4 - r1b3) / (r1b4 + r1b3)</code>,
+ * results in a single band.
+ */
+public class BandMathExpression implements PixelFunction {
+
+	private final String expression;
+
+	private final Node root;
+
+	private final List<Variable> variables = new ArrayList<Variable>();
+
+	private int position;
+
+	public BandMathExpression(String expression) {
+		if (expression == null) {
+			throw new IllegalArgumentException("No expression given");
+		}
+		this.expression = expression;
+		this.root = parseSum();
+		skipWhitespace();
+		if (position < expression.length()) {
+			throw error("Unexpected '" + expression.charAt(position) + "'");
+		}
+		if (variables.isEmpty()) {
+			throw new IllegalArgumentException("The expression " + expression + " does not refer to a raster");
+		}
+	}
+
+	/**
+	 * @return the number of rasters the expression refers to, i.e. the
+	 *         highest raster index
+	 */
+	public int getSourceCount() {
+		int count = 0;
+		for (Variable variable : variables) {
+			count = Math.max(count, variable.source + 1);
+		}
+		return count;
+	}
+
+	@Override
+	public double evaluate(double[][] pixel, int band) {
+		return root.evaluate(pixel, band);
+	}
+
+	@Override
+	public int getBandCount(int[] sourceBands) {
+		int bands = Integer.MAX_VALUE;
+		boolean bandWise = false;
+		for (Variable variable : variables) {
+			if (variable.source >= sourceBands.length) {
+				throw new IllegalArgumentException("The expression refers to raster " + (variable.source + 1)
+						+ " but only " + sourceBands.length + " raster(s) are given");
+			}
+			if (variable.band < 0) {
+				bandWise = true;
+				bands = Math.min(bands, sourceBands[variable.source]);
+			} else if (variable.band >= sourceBands[variable.source]) {
+				throw new IllegalArgumentException("The expression refers to band " + (variable.band + 1)
+						+ " of raster " + (variable.source + 1) + " which has " + sourceBands[variable.source]
+						+ " band(s)");
+			}
+		}
+		return bandWise ? bands : 1;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	private interface Node {
+
+		double evaluate(double[][] pixel, int band);
+	}
+
+	private static class Constant implements Node {
+
+		private final double value;
+
+		Constant(double value) {
+			this.value = value;
+		}
+
+		@Override
+		public double evaluate(double[][] pixel, int band) {
+			return value;
+		}
+	}
+
+	private static class Variable implements Node {
+
+		private final int source;
+
+		/** the referenced band, or -1 for the current band */
+		private final int band;
+
+		Variable(int source, int band) {
+			this.source = source;
+			this.band = band;
+		}
+
+		@Override
+		public double evaluate(double[][] pixel, int band) {
+			return pixel[source][this.band < 0 ? band : this.band];
+		}
+	}
+
+	private static class Binary implements Node {
+
+		private final char operator;
+
+		private final Node left;
+
+		private final Node right;
+
+		Binary(char operator, Node left, Node right) {
+			this.operator = operator;
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		public double evaluate(double[][] pixel, int band) {
+			double a = left.evaluate(pixel, band);
+			double b = right.evaluate(pixel, band);
+			switch (operator) {
+			case '+':
+				return a + b;
+			case '-':
+				return a - b;
+			case '*':
+				return a * b;
+			case '/':
+				return a / b;
+			default:
+				return Math.pow(a, b);
+			}
+		}
+	}
+
+	private static class Negation implements Node {
+
+		private final Node operand;
+
+		Negation(Node operand) {
+			this.operand = operand;
+		}
+
+		@Override
+		public double evaluate(double[][] pixel, int band) {
+			return -operand.evaluate(pixel, band);
+		}
+	}
+
+	private static class Function implements Node {
+
+		private final String name;
+
+		private final Node[] arguments;
+
+		Function(String name, Node[] arguments) {
+			this.name = name;
+			this.arguments = arguments;
+		}
+
+		@Override
+		public double evaluate(double[][] pixel, int band) {
+			double value = arguments[0].evaluate(pixel, band);
+			if ("abs".equals(name)) {
+				return Math.abs(value);
+			} else if ("sqrt".equals(name)) {
+				return Math.sqrt(value);
+			} else if ("exp".equals(name)) {
+				return Math.exp(value);
+			} else if ("log".equals(name)) {
+				return Math.log(value);
+			}
+			boolean min = "min".equals(name);
+			for (int i = 1; i < arguments.length; i++) {
+				double argument = arguments[i].evaluate(pixel, band);
+				value = min ? Math.min(value, argument) : Math.max(value, argument);
+			}
+			return value;
+		}
+	}
+
+	// sum := product (('+' | '-') product)*
+	private Node parseSum() {
+		Node node = parseProduct();
+		while (true) {
+			if (accept('+')) {
+				node = new Binary('+', node, parseProduct());
+			} else if (accept('-')) {
+				node = new Binary('-', node, parseProduct());
+			} else {
+				return node;
+			}
+		}
+	}
+
+	// product := power (('*' | '/') power)*
+	private Node parseProduct() {
+		Node node = parsePower();
+		while (true) {
+			if (accept('*')) {
+				node = new Binary('*', node, parsePower());
+			} else if (accept('/')) {
+				node = new Binary('/', node, parsePower());
+			} else {
+				return node;
+			}
+		}
+	}
+
+	// power := unary ('^' power)?
+	private Node parsePower() {
+		Node node = parseUnary();
+		if (accept('^')) {
+			return new Binary('^', node, parsePower());
+		}
+		return node;
+	}
+
+	// unary := '-' unary | '+' unary | primary
+	private Node parseUnary() {
+		if (accept('-')) {
+			return new Negation(parseUnary());
+		}
+		if (accept('+')) {
+			return parseUnary();
+		}
+		return parsePrimary();
+	}
+
+	// primary := number | variable | name '(' sum (',' sum)* ')' | '(' sum ')'
+	private Node parsePrimary() {
+		skipWhitespace();
+		if (accept('(')) {
+			Node node = parseSum();
+			expect(')');
+			return node;
+		}
+		int start = position;
+		if (position < expression.length()
+				&& (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+			while (position < expression.length()
+					&& (Character.isDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+				position++;
+			}
+			if (position < expression.length() && Character.toLowerCase(expression.charAt(position)) == 'e') {
+				position++;
+				if (position < expression.length()
+						&& (expression.charAt(position) == '+' || expression.charAt(position) == '-')) {
+					position++;
+				}
+				while (position < expression.length() && Character.isDigit(expression.charAt(position))) {
+					position++;
+				}
+			}
+			try {
+				return new Constant(Double.parseDouble(expression.substring(start, position)));
+			} catch (NumberFormatException e) {
+				position = start;
+				throw error("Invalid number");
+			}
+		}
+		while (position < expression.length() && Character.isLetterOrDigit(expression.charAt(position))) {
+			position++;
+		}
+		if (start == position) {
+			throw error(position < expression.length() ? "Unexpected '" + expression.charAt(position) + "'"
+					: "Unexpected end of expression");
+		}
+		String name = expression.substring(start, position).toLowerCase(Locale.ROOT);
+		if (accept('(')) {
+			return parseFunction(name, start);
+		}
+		return parseVariable(name, start);
+	}
+
+	private Node parseFunction(String name, int start) {
+		List<Node> arguments = new ArrayList<Node>();
+		arguments.add(parseSum());
+		while (accept(',')) {
+			arguments.add(parseSum());
+		}
+		expect(')');
+		if ("abs".equals(name) || "sqrt".equals(name) || "exp".equals(name) || "log".equals(name)) {
+			if (arguments.size() != 1) {
+				position = start;
+				throw error("Function " + name + " takes one argument");
+			}
+		} else if (!"min".equals(name) && !"max".equals(name)) {
+			position = start;
+			throw error("Unknown function " + name);
+		}
+		return new Function(name, arguments.toArray(new Node[arguments.size()]));
+	}
+
+	private Node parseVariable(String name, int start) {
+		// r<n> or r<n>b<k>
+		int bandIndex = name.indexOf('b');
+		try {
+			if (name.charAt(0) == 'r') {
+				int source = Integer.parseInt(name.substring(1, bandIndex < 0 ? name.length() : bandIndex)) - 1;
+				int band = bandIndex < 0 ? -1 : Integer.parseInt(name.substring(bandIndex + 1)) - 1;
+				if (source >= 0 && (bandIndex < 0 || band >= 0)) {
+					Variable variable = new Variable(source, band);
+					variables.add(variable);
+					return variable;
+				}
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		position = start;
+		throw error("Unknown variable " + name);
+	}
+
+	private boolean accept(char c) {
+		skipWhitespace();
+		if (position < expression.length() && expression.charAt(position) == c) {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	private void expect(char c) {
+		if (!accept(c)) {
+			throw error("Expected '" + c + "'");
+		}
+	}
+
+	private void skipWhitespace() {
+		while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+			position++;
+		}
+	}
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at position " + (position + 1) + " of expression "
+				+ expression);
+	}
+}
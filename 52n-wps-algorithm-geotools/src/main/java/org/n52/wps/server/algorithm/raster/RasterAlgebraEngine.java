@@ -0,0 +1,321 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import java.awt.Color;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.DataBuffer;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+
+import org.geotools.coverage.Category;
+import org.geotools.coverage.GridSampleDimension;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.coverage.processing.Operations;
+import org.geotools.geometry.Envelope2D;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.resources.i18n.Vocabulary;
+import org.geotools.resources.i18n.VocabularyKeys;
+import org.geotools.util.NumberRange;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.io.JAIManager;
+import org.n52.wps.server.LocalAlgorithmRepository;
+import org.opengis.metadata.spatial.PixelOrientation;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.datum.PixelInCell;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Combines grid coverages pixel by pixel on a shared pool of worker threads.
+ * The output grid has the coordinate reference system, resolution and pixel
+ * alignment of the first coverage and covers the intersection (or union) of
+ * the envelopes of all coverages; the other coverages are reprojected if
+ * necessary and sampled at the output pixel centres. The output is a
+ * {@link RasterAlgebraImage} computed tile by tile while it is read.
+ * 
+ * The pool size, the output tile size and the number of tiles computed ahead
+ * of the consumer can be configured by the properties
+ * <code>rasteralgebra.poolSize</code> (default: number of processors),
+ * <code>rasteralgebra.tileSize</code> (default: the JAI tile size) and
+ * <code>rasteralgebra.readAhead</code> (default: twice the pool size) of the
+ * {@link LocalAlgorithmRepository}. At most twice the read ahead tiles plus
+ * one are held per output image.
+ */
+public class RasterAlgebraEngine {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(RasterAlgebraEngine.class);
+
+	public static final String PROPERTY_POOL_SIZE = "rasteralgebra.poolSize";
+
+	public static final String PROPERTY_TILE_SIZE = "rasteralgebra.tileSize";
+
+	public static final String PROPERTY_READ_AHEAD = "rasteralgebra.readAhead";
+
+	private static final String SYSTEM_PROPERTY_ROOT = "org.n52.wps.server.algorithm";
+
+	private static final int DEFAULT_TILE_SIZE = 512;
+
+	private static RasterAlgebraEngine instance;
+
+	private final ExecutorService executor;
+
+	private final int poolSize;
+
+	private final int tileSize;
+
+	private final int readAhead;
+
+	public RasterAlgebraEngine(int poolSize, int tileSize, int readAhead) {
+		this.poolSize = Math.max(1, poolSize);
+		// GeoTIFF tiles are multiples of 16 pixels
+		this.tileSize = Math.max(16, (tileSize + 15) / 16 * 16);
+		this.readAhead = Math.max(0, readAhead);
+		if (this.poolSize > 1) {
+			this.executor = Executors.newFixedThreadPool(this.poolSize,
+					new ThreadFactoryBuilder()
+							.setNameFormat("rasteralgebra-%d")
+							.setDaemon(true)
+							.build());
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * @return the engine configured from the properties of the
+	 *         {@link LocalAlgorithmRepository}.
+	 */
+	public static synchronized RasterAlgebraEngine getInstance() {
+		if (instance == null) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			int poolSize = processors;
+			int tileSize = DEFAULT_TILE_SIZE;
+			int readAhead = 2 * processors;
+			try {
+				tileSize = JAIManager.getInstance().getTileSize();
+				PropertyUtil propertyUtil = new PropertyUtil(
+						WPSConfig.getInstance().getPropertiesForRepositoryClass(
+								LocalAlgorithmRepository.class.getCanonicalName()),
+						SYSTEM_PROPERTY_ROOT);
+				poolSize = (int) propertyUtil.extractLong(PROPERTY_POOL_SIZE, processors);
+				tileSize = (int) propertyUtil.extractLong(PROPERTY_TILE_SIZE, tileSize);
+				readAhead = (int) propertyUtil.extractLong(PROPERTY_READ_AHEAD, 2 * poolSize);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not read raster algebra configuration, using defaults.", e);
+			}
+			instance = new RasterAlgebraEngine(poolSize, tileSize, readAhead);
+			LOGGER.info("Raster algebra engine uses {} thread(s), tiles of {} pixels and {} tile(s) read ahead.",
+					new Object[] {instance.poolSize, instance.tileSize, instance.readAhead});
+		}
+		return instance;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public int getReadAhead() {
+		return readAhead;
+	}
+
+	/**
+	 * Combines the coverages with the function.
+	 * 
+	 * @param noData
+	 *            the value written where the function has no result, e.g.
+	 *            because a source is NoData at that pixel
+	 * @param union
+	 *            if the output covers the union instead of the intersection
+	 *            of the envelopes
+	 * @throws IllegalArgumentException
+	 *             if the coverages do not overlap or the function does not
+	 *             apply to them
+	 */
+	public GridCoverage2D combine(String name, List<GridCoverage2D> coverages, PixelFunction function,
+			double noData, boolean union) {
+		if (coverages.isEmpty()) {
+			throw new IllegalArgumentException("No raster given");
+		}
+		GridCoverage2D first = coverages.get(0);
+		CoordinateReferenceSystem crs = first.getCoordinateReferenceSystem2D();
+		GridCoverage2D[] aligned = new GridCoverage2D[coverages.size()];
+		Rectangle2D extent = null;
+		for (int i = 0; i < aligned.length; i++) {
+			GridCoverage2D coverage = coverages.get(i);
+			if (crs != null && !CRS.equalsIgnoreMetadata(crs, coverage.getCoordinateReferenceSystem2D())) {
+				coverage = (GridCoverage2D) Operations.DEFAULT.resample(coverage, crs);
+			}
+			aligned[i] = coverage;
+			Envelope2D envelope = coverage.getEnvelope2D();
+			if (extent == null) {
+				extent = new Rectangle2D.Double(envelope.getMinX(), envelope.getMinY(), envelope.getWidth(),
+						envelope.getHeight());
+			} else if (union) {
+				Rectangle2D.union(extent, envelope, extent);
+			} else {
+				Rectangle2D.intersect(extent, envelope, extent);
+			}
+		}
+		if (extent.isEmpty()) {
+			throw new IllegalArgumentException("The rasters do not overlap");
+		}
+
+		// the output grid keeps the pixel alignment of the first raster
+		AffineTransform firstGridToCRS = getGridToCRS(aligned[0]);
+		Rectangle2D gridExtent;
+		try {
+			gridExtent = firstGridToCRS.createInverse().createTransformedShape(extent).getBounds2D();
+		} catch (NoninvertibleTransformException e) {
+			throw new IllegalArgumentException("Invalid grid geometry of the first raster", e);
+		}
+		int minX = (int) Math.floor(gridExtent.getMinX() + 1e-6);
+		int minY = (int) Math.floor(gridExtent.getMinY() + 1e-6);
+		int width = Math.max(1, (int) Math.ceil(gridExtent.getMaxX() - 1e-6) - minX);
+		int height = Math.max(1, (int) Math.ceil(gridExtent.getMaxY() - 1e-6) - minY);
+		AffineTransform gridToCRS = new AffineTransform(firstGridToCRS);
+		gridToCRS.translate(minX, minY);
+
+		RenderedImage[] sources = new RenderedImage[aligned.length];
+		AffineTransform[] outputToSource = new AffineTransform[aligned.length];
+		double[][] sourceNoData = new double[aligned.length][];
+		int dataType = DataBuffer.TYPE_FLOAT;
+		for (int i = 0; i < aligned.length; i++) {
+			sources[i] = aligned[i].getRenderedImage();
+			try {
+				outputToSource[i] = getGridToCRS(aligned[i]).createInverse();
+			} catch (NoninvertibleTransformException e) {
+				throw new IllegalArgumentException("Invalid grid geometry of raster " + (i + 1), e);
+			}
+			outputToSource[i].concatenate(gridToCRS);
+			sourceNoData[i] = getNoData(aligned[i]);
+			if (sources[i].getSampleModel().getDataType() == DataBuffer.TYPE_DOUBLE) {
+				dataType = DataBuffer.TYPE_DOUBLE;
+			}
+		}
+		TileKernel kernel = new TileKernel(sources, outputToSource, sourceNoData, function, noData);
+
+		SampleModel sampleModel = RasterFactory.createBandedSampleModel(dataType, tileSize, tileSize,
+				kernel.getBandCount());
+		ImageLayout layout = new ImageLayout(0, 0, width, height, 0, 0, tileSize, tileSize, sampleModel,
+				PlanarImage.createColorModel(sampleModel));
+		RasterAlgebraImage image = new RasterAlgebraImage(layout, kernel, executor, readAhead);
+
+		GridGeometry2D gridGeometry = new GridGeometry2D(new GridEnvelope2D(0, 0, width, height),
+				PixelInCell.CELL_CORNER, new AffineTransform2D(gridToCRS), crs, null);
+		LOGGER.debug("Combining {} raster(s) into {}x{} pixels with {}", new Object[] {aligned.length, width,
+				height, function});
+		return new GridCoverageFactory().create(name, image, gridGeometry,
+				createSampleDimensions(kernel.getBandCount(), noData), null, null);
+	}
+
+	private static AffineTransform getGridToCRS(GridCoverage2D coverage) {
+		MathTransform2D gridToCRS = coverage.getGridGeometry().getGridToCRS2D(PixelOrientation.UPPER_LEFT);
+		if (!(gridToCRS instanceof AffineTransform)) {
+			throw new IllegalArgumentException("Only rasters with an affine grid geometry are supported");
+		}
+		return (AffineTransform) gridToCRS;
+	}
+
+	/**
+	 * @return geophysics sample dimensions whose only category is the NoData
+	 *         value, or without categories if it is <code>NaN</code> which is
+	 *         NoData in floating point rasters anyway
+	 */
+	private static GridSampleDimension[] createSampleDimensions(int bandCount, double noData) {
+		GridSampleDimension[] sampleDimensions = new GridSampleDimension[bandCount];
+		for (int b = 0; b < bandCount; b++) {
+			String description = "band " + (b + 1);
+			if (Double.isNaN(noData)) {
+				sampleDimensions[b] = new GridSampleDimension(description);
+			} else {
+				Category noDataCategory = new Category(Vocabulary.formatInternational(VocabularyKeys.NODATA),
+						new Color[] {new Color(0, 0, 0, 0)}, NumberRange.create(noData, noData),
+						NumberRange.create(noData, noData));
+				sampleDimensions[b] = new GridSampleDimension(description, new Category[] {noDataCategory}, null)
+						.geophysics(true);
+			}
+		}
+		return sampleDimensions;
+	}
+
+	/**
+	 * @return the first NoData value of each band, <code>NaN</code> if there
+	 *         is none
+	 */
+	private static double[] getNoData(GridCoverage2D coverage) {
+		double[] noData = new double[coverage.getNumSampleDimensions()];
+		for (int b = 0; b < noData.length; b++) {
+			GridSampleDimension sampleDimension = coverage.getSampleDimension(b);
+			double[] values = sampleDimension.getNoDataValues();
+			noData[b] = values == null || values.length == 0 ? Double.NaN : values[0];
+		}
+		return noData;
+	}
+}
@@ -0,0 +1,183 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+
+/**
+ * The result of a raster algebra operation, computed tile by tile when it is
+ * read. Requesting a tile also queues the computation of the following tiles
+ * (in row major order) on the worker pool, so that a consumer reading the
+ * image tile by tile, like the GeoTIFF writer, keeps all workers busy. At
+ * most a fixed number of computed tiles is retained; the full image is never
+ * held in memory.
+ */
+public class RasterAlgebraImage extends PlanarImage {
+
+	/** marks the threads computing tiles, which compute nested requests inline */
+	private static final ThreadLocal<Boolean> COMPUTING = new ThreadLocal<Boolean>();
+
+	private final TileKernel kernel;
+
+	private final ExecutorService executor;
+
+	private final int readAhead;
+
+	private final int capacity;
+
+	/** queued and computed tiles by index, least recently used first */
+	private final LinkedHashMap<Integer, Future<Raster>> tiles;
+
+	/**
+	 * @param readAhead
+	 *            number of tiles queued ahead of the requested one
+	 */
+	public RasterAlgebraImage(ImageLayout layout, TileKernel kernel, ExecutorService executor, int readAhead) {
+		super(layout, null, null);
+		this.kernel = kernel;
+		this.executor = executor;
+		this.readAhead = Math.max(0, readAhead);
+		// the tiles ahead plus as many behind for consumers not reading in order
+		this.capacity = 2 * this.readAhead + 1;
+		this.tiles = new LinkedHashMap<Integer, Future<Raster>>(16, 0.75f, true);
+	}
+
+	@Override
+	public Raster getTile(int tileX, int tileY) {
+		if (tileX < getMinTileX() || tileX > getMaxTileX() || tileY < getMinTileY() || tileY > getMaxTileY()) {
+			return null;
+		}
+		int index = (tileY - getMinTileY()) * getNumXTiles() + (tileX - getMinTileX());
+		if (executor == null || COMPUTING.get() != null) {
+			return computeTile(index);
+		}
+		Future<Raster> tile;
+		synchronized (tiles) {
+			tile = schedule(index);
+			int count = getNumXTiles() * getNumYTiles();
+			for (int i = index + 1; i <= index + readAhead && i < count; i++) {
+				schedule(i);
+			}
+			// touch the requested tile last, it is the most recently used
+			tiles.get(Integer.valueOf(index));
+			Iterator<Map.Entry<Integer, Future<Raster>>> eldest = tiles.entrySet().iterator();
+			while (tiles.size() > capacity) {
+				eldest.next().getValue().cancel(false);
+				eldest.remove();
+			}
+		}
+		try {
+			return tile.get();
+		} catch (CancellationException e) {
+			// evicted by a concurrent reader before it was computed
+			return computeTile(index);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while computing raster tile", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException("Error while computing raster tile", e.getCause());
+		}
+	}
+
+	private Future<Raster> schedule(final int index) {
+		Integer key = Integer.valueOf(index);
+		Future<Raster> tile = tiles.get(key);
+		if (tile == null || tile.isCancelled()) {
+			tile = executor.submit(new Callable<Raster>() {
+				@Override
+				public Raster call() {
+					COMPUTING.set(Boolean.TRUE);
+					try {
+						return computeTile(index);
+					} finally {
+						COMPUTING.remove();
+					}
+				}
+			});
+			tiles.put(key, tile);
+		}
+		return tile;
+	}
+
+	private Raster computeTile(int index) {
+		int tileX = getMinTileX() + index % getNumXTiles();
+		int tileY = getMinTileY() + index / getNumXTiles();
+		WritableRaster tile = Raster.createWritableRaster(getSampleModel(), new Point(tileXToX(tileX),
+				tileYToY(tileY)));
+		kernel.compute(tile, new Rectangle(getMinX(), getMinY(), getWidth(), getHeight()));
+		return tile;
+	}
+
+	@Override
+	public synchronized void dispose() {
+		synchronized (tiles) {
+			for (Future<Raster> tile : tiles.values()) {
+				tile.cancel(false);
+			}
+			tiles.clear();
+		}
+		super.dispose();
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Computes one output tile of a raster algebra operation. Every source is
+ * aligned to the output grid by an affine transform from output to source
+ * pixel coordinates and sampled at the pixel centres (nearest neighbour), so
+ * that sources with differing envelopes or resolutions can be combined. Only
+ * the part of a source covering the tile is read.
+ * 
+ * Source samples equal to the NoData value of their band, <code>NaN</code>
+ * samples and samples outside of a source are passed to the
+ * {@link PixelFunction} as <code>NaN</code>.
+ */
+public class TileKernel {
+
+	private final RenderedImage[] sources;
+
+	private final AffineTransform[] outputToSource;
+
+	private final double[][] noData;
+
+	private final int[] sourceBands;
+
+	private final PixelFunction function;
+
+	private final int bands;
+
+	private final double outputNoData;
+
+	/**
+	 * @param sources
+	 *            the source images
+	 * @param outputToSource
+	 *            for each source, the transform from output to source pixel
+	 *            coordinates
+	 * @param noData
+	 *            for each source, the NoData value of each band,
+	 *            <code>NaN</code> or <code>null</code> if there is none
+	 * @param function
+	 *            the function computing the output bands
+	 * @param outputNoData
+	 *            the value written where the function has no result
+	 */
+	public TileKernel(RenderedImage[] sources, AffineTransform[] outputToSource, double[][] noData,
+			PixelFunction function, double outputNoData) {
+		this.sources = sources.clone();
+		this.outputToSource = new AffineTransform[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			this.outputToSource[i] = new AffineTransform(outputToSource[i]);
+		}
+		this.noData = noData.clone();
+		this.sourceBands = new int[sources.length];
+		for (int i = 0; i < sources.length; i++) {
+			this.sourceBands[i] = sources[i].getSampleModel().getNumBands();
+		}
+		this.function = function;
+		this.bands = function.getBandCount(sourceBands);
+		this.outputNoData = outputNoData;
+	}
+
+	/**
+	 * @return the number of output bands
+	 */
+	public int getBandCount() {
+		return bands;
+	}
+
+	public double getOutputNoData() {
+		return outputNoData;
+	}
+
+	/**
+	 * Computes the samples of the tile within the given output bounds.
+	 * Samples of the tile outside of the bounds are left unchanged.
+	 */
+	public void compute(WritableRaster tile, Rectangle outputBounds) {
+		Rectangle area = tile.getBounds().intersection(outputBounds);
+		if (area.isEmpty()) {
+			return;
+		}
+		int width = area.width;
+		int height = area.height;
+
+		// samples and source pixel index of every output pixel, per source
+		double[][][] samples = new double[sources.length][][];
+		int[][] index = new int[sources.length][];
+		for (int s = 0; s < sources.length; s++) {
+			index[s] = new int[width * height];
+			Rectangle sourceArea = getSourceArea(s, area);
+			if (sourceArea.isEmpty()) {
+				Arrays.fill(index[s], -1);
+				continue;
+			}
+			samples[s] = readSamples(s, sourceArea);
+			AffineTransform transform = outputToSource[s];
+			double[] point = new double[2];
+			int i = 0;
+			for (int y = area.y; y < area.y + height; y++) {
+				for (int x = area.x; x < area.x + width; x++, i++) {
+					point[0] = x + 0.5;
+					point[1] = y + 0.5;
+					transform.transform(point, 0, point, 0, 1);
+					int sx = (int) Math.floor(point[0]) - sourceArea.x;
+					int sy = (int) Math.floor(point[1]) - sourceArea.y;
+					index[s][i] = sx < 0 || sy < 0 || sx >= sourceArea.width || sy >= sourceArea.height ? -1
+							: sy * sourceArea.width + sx;
+				}
+			}
+		}
+
+		double[][] output = new double[bands][width * height];
+		double[][] pixel = new double[sources.length][];
+		for (int s = 0; s < sources.length; s++) {
+			pixel[s] = new double[sourceBands[s]];
+		}
+		for (int i = 0; i < width * height; i++) {
+			for (int s = 0; s < sources.length; s++) {
+				int sourceIndex = index[s][i];
+				for (int b = 0; b < sourceBands[s]; b++) {
+					pixel[s][b] = sourceIndex < 0 ? Double.NaN : samples[s][b][sourceIndex];
+				}
+			}
+			for (int b = 0; b < bands; b++) {
+				double value = function.evaluate(pixel, b);
+				output[b][i] = Double.isNaN(value) || Double.isInfinite(value) ? outputNoData : value;
+			}
+		}
+		for (int b = 0; b < bands; b++) {
+			tile.setSamples(area.x, area.y, width, height, b, output[b]);
+		}
+	}
+
+	/**
+	 * @return the source pixels covering the output area, clipped to the
+	 *         source bounds
+	 */
+	private Rectangle getSourceArea(int source, Rectangle area) {
+		double[] corners = new double[] {area.x, area.y, area.x + area.width, area.y, area.x,
+				area.y + area.height, area.x + area.width, area.y + area.height};
+		outputToSource[source].transform(corners, 0, corners, 0, 4);
+		double minX = Math.min(Math.min(corners[0], corners[2]), Math.min(corners[4], corners[6]));
+		double maxX = Math.max(Math.max(corners[0], corners[2]), Math.max(corners[4], corners[6]));
+		double minY = Math.min(Math.min(corners[1], corners[3]), Math.min(corners[5], corners[7]));
+		double maxY = Math.max(Math.max(corners[1], corners[3]), Math.max(corners[5], corners[7]));
+		int x = (int) Math.floor(minX);
+		int y = (int) Math.floor(minY);
+		Rectangle sourceArea = new Rectangle(x, y, (int) Math.ceil(maxX) - x, (int) Math.ceil(maxY) - y);
+		RenderedImage image = sources[source];
+		return sourceArea.intersection(new Rectangle(image.getMinX(), image.getMinY(), image.getWidth(),
+				image.getHeight()));
+	}
+
+	/**
+	 * @return the samples of each band of the source area, with NoData
+	 *         replaced by <code>NaN</code>
+	 */
+	private double[][] readSamples(int source, Rectangle sourceArea) {
+		Raster data = sources[source].getData(sourceArea);
+		double[][] samples = new double[sourceBands[source]][];
+		for (int b = 0; b < samples.length; b++) {
+			samples[b] = data.getSamples(sourceArea.x, sourceArea.y, sourceArea.width, sourceArea.height, b,
+					(double[]) null);
+			double bandNoData = noData[source] == null || b >= noData[source].length ? Double.NaN
+					: noData[source][b];
+			if (!Double.isNaN(bandNoData)) {
+				for (int i = 0; i < samples[b].length; i++) {
+					if (samples[b][i] == bandNoData) {
+						samples[b][i] = Double.NaN;
+					}
+				}
+			}
+		}
+		return samples;
+	}
+}
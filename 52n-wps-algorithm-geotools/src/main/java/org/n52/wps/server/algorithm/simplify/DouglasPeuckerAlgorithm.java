@@ -55,13 +55,13 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.IllegalAttributeException;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.io.data.binding.literal.LiteralDoubleBinding;
 import org.n52.wps.server.AbstractAlgorithm;
 import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+import org.n52.wps.server.algorithm.ParallelFeatureMapper;
 import org.opengis.feature.Feature;
 import org.opengis.feature.simple.SimpleFeature;
 
@@ -88,7 +88,6 @@ public class DouglasPeuckerAlgorithm extends AbstractSelfDescribingAlgorithm{
 		IData firstInputData = dataList.get(0);
 				
 		FeatureCollection featureCollection = ((GTVectorDataBinding) firstInputData).getPayload();
-		FeatureIterator iter = featureCollection.features();
 		
 		if( !inputData.containsKey("TOLERANCE")){
 			throw new RuntimeException("Error while allocating input parameters");
@@ -97,45 +96,27 @@ public class DouglasPeuckerAlgorithm extends AbstractSelfDescribingAlgorithm{
 		if(widthDataList == null || widthDataList.size() != 1){
 			throw new RuntimeException("Error while allocating input parameters");
 		}
-		Double tolerance = ((LiteralDoubleBinding) widthDataList.get(0)).getPayload();
+		final double tolerance = ((LiteralDoubleBinding) widthDataList.get(0)).getPayload();
 		
-		
-		while(iter.hasNext()) {
-			SimpleFeature f = (SimpleFeature) iter.next();
-			if(f.getDefaultGeometry() == null) {
-				LOGGER.debug("defaultGeometry is null in feature id:" + f.getID());
-				throw new NullPointerException("defaultGeometry is null in feature id: " + f.getID());
+		List<SimpleFeature> features = ParallelFeatureMapper.toList(featureCollection);
+		// simplify in parallel, the features are only updated afterwards
+		List<Geometry> simplified = ParallelFeatureMapper.getInstance().map(features,
+				new ParallelFeatureMapper.FeatureFunction<Geometry>() {
+			public Geometry apply(SimpleFeature f) {
+				if(f.getDefaultGeometry() == null) {
+					LOGGER.debug("defaultGeometry is null in feature id:" + f.getID());
+					throw new NullPointerException("defaultGeometry is null in feature id: " + f.getID());
+				}
+				return simplify((Geometry) f.getDefaultGeometry(), tolerance);
 			}
+		}, null);
+
+		for(int i = 0; i < features.size(); i++) {
+			SimpleFeature f = features.get(i);
 			Map<Object, Object> userData = f.getUserData();
-			
 			try{
-				Geometry in = (Geometry) f.getDefaultGeometry();
-				Geometry out = DouglasPeuckerSimplifier.simplify(in, tolerance);
-                /*
-                 * THIS PASSAGE WAS CONTRIBUTED BY GOBE HOBONA.
-                 *The simplification of MultiPolygons produces Polygon geometries. This becomes inconsistent with the original schema (which was of MultiPolygons).
-                 *To ensure that the output geometries match that of the original schema we add the Polygon(from the simplication) to a MultiPolygon object
-                 *
-                 *This is issue is known to affect MultiPolygon geometries only, other geometries need to be tested to ensure conformance with the original (input) schema
-                 */  
-                if(in.getGeometryType().equals("MultiPolygon") && out.getGeometryType().equals("Polygon"))
-                {                   
-                    MultiPolygon mp = (MultiPolygon)in;                                               
-                    Polygon[] p = {(Polygon)out};
-                    mp = new MultiPolygon(p,mp.getFactory());                   
-                    f.setDefaultGeometry(mp);
-                }
-                else if(in.getGeometryType().equals("MultiLineString") && out.getGeometryType().equals("LineString")) {
-                	MultiLineString ml = (MultiLineString)in;
-                	LineString[] l = {(LineString)out};
-                    ml = new MultiLineString(l,ml.getFactory());                   
-                    f.setDefaultGeometry(ml);
-                }
-                else {
-                	f.setDefaultGeometry(out);
-                }
-				Geometry g = (Geometry) f.getDefaultGeometry();
-				g.setUserData(userData);
+				f.setDefaultGeometry(simplified.get(i));
+				((Geometry)f.getDefaultGeometry()).setUserData(userData);
 			}
 			catch(IllegalAttributeException e) {
 				throw new RuntimeException("geometrytype of result is not matching", e);
@@ -147,6 +128,26 @@ public class DouglasPeuckerAlgorithm extends AbstractSelfDescribingAlgorithm{
 	}
 
 	
+	private Geometry simplify(Geometry in, double tolerance) {
+		Geometry out = DouglasPeuckerSimplifier.simplify(in, tolerance);
+		/*
+		 * THIS PASSAGE WAS CONTRIBUTED BY GOBE HOBONA.
+		 *The simplification of MultiPolygons produces Polygon geometries. This becomes inconsistent with the original schema (which was of MultiPolygons).
+		 *To ensure that the output geometries match that of the original schema we add the Polygon(from the simplication) to a MultiPolygon object
+		 *
+		 *This is issue is known to affect MultiPolygon geometries only, other geometries need to be tested to ensure conformance with the original (input) schema
+		 */
+		if(in.getGeometryType().equals("MultiPolygon") && out.getGeometryType().equals("Polygon")) {
+			Polygon[] p = {(Polygon)out};
+			return new MultiPolygon(p, in.getFactory());
+		}
+		else if(in.getGeometryType().equals("MultiLineString") && out.getGeometryType().equals("LineString")) {
+			LineString[] l = {(LineString)out};
+			return new MultiLineString(l, in.getFactory());
+		}
+		return out;
+	}
+
 	public List<String> getErrors() {
 		return errors;
 	}
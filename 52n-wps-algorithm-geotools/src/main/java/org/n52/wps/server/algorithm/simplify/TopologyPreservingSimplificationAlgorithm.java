@@ -55,13 +55,13 @@ import java.util.Map;
 
 
 import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.IllegalAttributeException;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.io.data.binding.literal.LiteralDoubleBinding;
 import org.n52.wps.server.AbstractAlgorithm;
 import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+import org.n52.wps.server.algorithm.ParallelFeatureMapper;
 import org.opengis.feature.Feature;
 import org.opengis.feature.simple.SimpleFeature;
 
@@ -92,45 +92,29 @@ AbstractSelfDescribingAlgorithm {
 		IData firstInputData = dataList.get(0);
 				
 		FeatureCollection featureCollection = ((GTVectorDataBinding) firstInputData).getPayload();
-		FeatureIterator iter = featureCollection.features();
 		
-		if( !inputData.containsKey("width")){
+		if( !inputData.containsKey("TOLERANCE")){
 			throw new RuntimeException("Error while allocating input parameters");
 		}
 		List<IData> widthDataList = inputData.get("TOLERANCE");
 		if(widthDataList == null || widthDataList.size() != 1){
 			throw new RuntimeException("Error while allocating input parameters");
 		}
-		Double tolerance = ((LiteralDoubleBinding) widthDataList.get(0)).getPayload();
-		while(iter.hasNext()) {
-			SimpleFeature f = (SimpleFeature) iter.next();
+		final double tolerance = ((LiteralDoubleBinding) widthDataList.get(0)).getPayload();
+		List<SimpleFeature> features = ParallelFeatureMapper.toList(featureCollection);
+		// simplify in parallel, the features are only updated afterwards
+		List<Geometry> simplified = ParallelFeatureMapper.getInstance().map(features,
+				new ParallelFeatureMapper.FeatureFunction<Geometry>() {
+			public Geometry apply(SimpleFeature f) {
+				return simplify((Geometry) f.getDefaultGeometry(), tolerance);
+			}
+		}, null);
+
+		for(int i = 0; i < features.size(); i++) {
+			SimpleFeature f = features.get(i);
 			Object userData = ((Geometry)f.getDefaultGeometry()).getUserData();
-			
 			try{
-				Geometry in = (Geometry)f.getDefaultGeometry();
-				Geometry out = TopologyPreservingSimplifier.simplify(in, tolerance);
-                /*
-                 * THIS PASSAGE WAS CONTRIBUTED BY GOBE HOBONA.
-                 *The simplification of MultiPolygons produces Polygon geometries. This becomes inconsistent with the original schema (which was of MultiPolygons).
-                 *To ensure that the output geometries match that of the original schema we add the Polygon(from the simplication) to a MultiPolygon object
-                 *
-                 *This is issue is known to affect MultiPolygon geometries only, other geometries need to be tested to ensure conformance with the original (input) schema
-                 */  
-                if(in.getGeometryType().equals("MultiPolygon") && out.getGeometryType().equals("Polygon"))
-                {                   
-                    MultiPolygon mp = (MultiPolygon)in;                                               
-                    Polygon[] p = {(Polygon)out};
-                    mp = new MultiPolygon(p,mp.getFactory());                   
-                    f.setDefaultGeometry(mp);
-                }
-                else if(in.getGeometryType().equals("MultiLineString") && out.getGeometryType().equals("LineString")) {
-                	MultiLineString ml = (MultiLineString)in;
-                	LineString[] l = {(LineString)out};
-                    ml = new MultiLineString(l,ml.getFactory());                   
-                    f.setDefaultGeometry(ml);
-                }
-                else
-                f.setDefaultGeometry(out);				
+				f.setDefaultGeometry(simplified.get(i));
 				((Geometry)f.getDefaultGeometry()).setUserData(userData);
 			}
 			catch(IllegalAttributeException e) {
@@ -142,6 +126,26 @@ AbstractSelfDescribingAlgorithm {
 		return result;
 	}
 
+	private Geometry simplify(Geometry in, double tolerance) {
+		Geometry out = TopologyPreservingSimplifier.simplify(in, tolerance);
+		/*
+		 * THIS PASSAGE WAS CONTRIBUTED BY GOBE HOBONA.
+		 *The simplification of MultiPolygons produces Polygon geometries. This becomes inconsistent with the original schema (which was of MultiPolygons).
+		 *To ensure that the output geometries match that of the original schema we add the Polygon(from the simplication) to a MultiPolygon object
+		 *
+		 *This is issue is known to affect MultiPolygon geometries only, other geometries need to be tested to ensure conformance with the original (input) schema
+		 */
+		if(in.getGeometryType().equals("MultiPolygon") && out.getGeometryType().equals("Polygon")) {
+			Polygon[] p = {(Polygon)out};
+			return new MultiPolygon(p, in.getFactory());
+		}
+		else if(in.getGeometryType().equals("MultiLineString") && out.getGeometryType().equals("LineString")) {
+			LineString[] l = {(LineString)out};
+			return new MultiLineString(l, in.getFactory());
+		}
+		return out;
+	}
+
 	public List<String> getErrors() {
 		return errors;
 	}
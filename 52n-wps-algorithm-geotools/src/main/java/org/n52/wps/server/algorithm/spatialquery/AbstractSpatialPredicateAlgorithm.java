@@ -0,0 +1,135 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.spatialquery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
+import org.n52.wps.io.data.binding.literal.LiteralBooleanBinding;
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicateEngine.Match;
+import org.opengis.feature.simple.SimpleFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Evaluates a {@link SpatialPredicate} for all pairs of features of the two
+ * input layers. <code>RESULT</code> is <code>true</code> if the predicate
+ * holds for at least one pair, for {@link SpatialPredicate#DISJOINT} if it
+ * holds for all pairs, i.e. no pair of features intersects.
+ * <code>MATCHES</code> contains the pairs for which the predicate holds and
+ * is only computed if it was requested. As almost all pairs are disjoint,
+ * the pairs returned for {@link SpatialPredicate#DISJOINT} are limited to
+ * {@link SpatialPredicateEngine#getMaxDisjointMatches()}.
+ */
+public abstract class AbstractSpatialPredicateAlgorithm extends AbstractSpatialQueryAlgorithm {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(AbstractSpatialPredicateAlgorithm.class);
+
+	private final SpatialPredicate predicate;
+
+	protected AbstractSpatialPredicateAlgorithm(SpatialPredicate predicate) {
+		this.predicate = predicate;
+	}
+
+	public SpatialPredicate getPredicate() {
+		return predicate;
+	}
+
+	public Class<?> getOutputDataType(String id) {
+		if (id.equalsIgnoreCase(outputID)) {
+			return LiteralBooleanBinding.class;
+		}
+		if (id.equalsIgnoreCase(outputIDMatches)) {
+			return GTVectorDataBinding.class;
+		}
+		return null;
+	}
+
+	@Override
+	public Map<String, IData> run(Map<String, List<IData>> inputData) {
+
+		List<SimpleFeature> firstFeatures = getFeatures(inputData, inputID1);
+		List<SimpleFeature> secondFeatures = getFeatures(inputData, inputID2);
+		List<Geometry> firstGeometries = getGeometries(firstFeatures);
+		List<Geometry> secondGeometries = getGeometries(secondFeatures);
+
+		boolean value;
+		List<Match> matches = null;
+		if (predicate == SpatialPredicate.DISJOINT) {
+			// the layers are disjoint unless the index finds an intersecting
+			// pair, without enumerating all disjoint pairs
+			value = !getEngine().anyMatch(firstGeometries, secondGeometries, SpatialPredicate.INTERSECTS);
+			if (isOutputRequested(outputIDMatches)) {
+				int maxMatches = getEngine().getMaxDisjointMatches();
+				matches = getEngine().match(firstGeometries, secondGeometries, predicate, maxMatches + 1);
+				if (matches.size() > maxMatches) {
+					LOGGER.warn("More than {} disjoint pairs found, returning only the first {}.", maxMatches,
+							maxMatches);
+					matches = matches.subList(0, maxMatches);
+				}
+			}
+		} else if (isOutputRequested(outputIDMatches)) {
+			matches = getEngine().match(firstGeometries, secondGeometries, predicate);
+			value = !matches.isEmpty();
+		} else {
+			value = getEngine().anyMatch(firstGeometries, secondGeometries, predicate);
+		}
+
+		HashMap<String, IData> result = new HashMap<String, IData>();
+		result.put(outputID, new LiteralBooleanBinding(value));
+		if (matches != null) {
+			result.put(outputIDMatches, createMatches(firstFeatures, secondFeatures, matches));
+		}
+		return result;
+	}
+}
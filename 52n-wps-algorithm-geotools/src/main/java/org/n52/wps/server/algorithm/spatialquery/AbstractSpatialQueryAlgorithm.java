@@ -0,0 +1,224 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.spatialquery;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.xml.namespace.QName;
+
+import net.opengis.wps.x100.OutputDefinitionType;
+
+import org.geotools.feature.DefaultFeatureCollections;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.NameImpl;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.io.GTHelper;
+import org.n52.wps.io.SchemaRepository;
+import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
+import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicateEngine.Match;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Base class of the spatial query algorithms. The algorithms relate all
+ * features of <code>LAYER1</code> to all features of <code>LAYER2</code>
+ * using the {@link SpatialPredicateEngine}. Besides the literal
+ * <code>RESULT</code> the matching feature pairs are returned as
+ * <code>MATCHES</code>, one feature per pair carrying the geometry of the
+ * first feature and the ids of both features.
+ */
+public abstract class AbstractSpatialQueryAlgorithm extends AbstractSelfDescribingAlgorithm {
+
+	protected final String inputID1 = "LAYER1";
+	protected final String inputID2 = "LAYER2";
+	protected final String outputID = "RESULT";
+	protected final String outputIDMatches = "MATCHES";
+
+	public static final String FIRST_ID_ATTRIBUTE = "FIRST_ID";
+	public static final String SECOND_ID_ATTRIBUTE = "SECOND_ID";
+
+	private List<String> errors = new ArrayList<String>();
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	public Class<?> getInputDataType(String id) {
+		if (id.equalsIgnoreCase(inputID1) || id.equalsIgnoreCase(inputID2)) {
+			return GTVectorDataBinding.class;
+		}
+		return null;
+	}
+
+	@Override
+	public List<String> getInputIdentifiers() {
+		List<String> identifiers = new ArrayList<String>(2);
+		identifiers.add(inputID1);
+		identifiers.add(inputID2);
+		return identifiers;
+	}
+
+	@Override
+	public List<String> getOutputIdentifiers() {
+		List<String> identifiers = new ArrayList<String>(2);
+		identifiers.add(outputID);
+		identifiers.add(outputIDMatches);
+		return identifiers;
+	}
+
+	protected SpatialPredicateEngine getEngine() {
+		return SpatialPredicateEngine.getInstance();
+	}
+
+	/**
+	 * @return true if the client requested the given output or did not
+	 *         restrict the outputs at all
+	 */
+	protected boolean isOutputRequested(String id) {
+		List<OutputDefinitionType> outputs = ExecutionContextFactory.getContext().getOutputs();
+		if (outputs.isEmpty()) {
+			return true;
+		}
+		for (OutputDefinitionType output : outputs) {
+			if (output.getIdentifier() != null && id.equalsIgnoreCase(output.getIdentifier().getStringValue())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the features of the single vector input with the given id
+	 */
+	protected List<SimpleFeature> getFeatures(Map<String, List<IData>> inputData, String id) {
+		if (inputData == null || !inputData.containsKey(id)) {
+			throw new RuntimeException("Error while allocating input parameters");
+		}
+		List<IData> dataList = inputData.get(id);
+		if (dataList == null || dataList.size() != 1) {
+			throw new RuntimeException("Error while allocating input parameters");
+		}
+		FeatureCollection<?, ?> collection = ((GTVectorDataBinding) dataList.get(0)).getPayload();
+
+		List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+		FeatureIterator<?> iterator = collection.features();
+		try {
+			while (iterator.hasNext()) {
+				features.add((SimpleFeature) iterator.next());
+			}
+		} finally {
+			iterator.close();
+		}
+		if (features.isEmpty()) {
+			throw new RuntimeException("Error while iterating over features in layer " + id);
+		}
+		return features;
+	}
+
+	protected List<Geometry> getGeometries(List<SimpleFeature> features) {
+		List<Geometry> geometries = new ArrayList<Geometry>(features.size());
+		for (SimpleFeature feature : features) {
+			geometries.add((Geometry) feature.getDefaultGeometry());
+		}
+		return geometries;
+	}
+
+	/**
+	 * Creates the <code>MATCHES</code> output: one feature per matching pair
+	 * with the geometry of the feature of the first layer and the ids of both
+	 * features.
+	 */
+	protected GTVectorDataBinding createMatches(List<SimpleFeature> firstFeatures,
+			List<SimpleFeature> secondFeatures, List<Match> matches) {
+		FeatureCollection<SimpleFeatureType, SimpleFeature> collection = DefaultFeatureCollections.newCollection();
+
+		String uuid = UUID.randomUUID().toString();
+		SimpleFeatureType featureType = createMatchFeatureType(firstFeatures.get(0), uuid);
+		QName qname = GTHelper.createGML3SchemaForFeatureType(featureType);
+		SchemaRepository.registerSchemaLocation(qname.getNamespaceURI(), qname.getLocalPart());
+
+		SimpleFeatureBuilder builder = new SimpleFeatureBuilder(featureType);
+		for (int i = 0; i < matches.size(); i++) {
+			Match match = matches.get(i);
+			SimpleFeature first = firstFeatures.get(match.getFirst());
+			SimpleFeature second = secondFeatures.get(match.getSecond());
+			builder.add(first.getDefaultGeometry());
+			builder.add(first.getID());
+			builder.add(second.getID());
+			collection.add(builder.buildFeature(uuid + "_" + i));
+		}
+		return new GTVectorDataBinding(collection);
+	}
+
+	private SimpleFeatureType createMatchFeatureType(SimpleFeature template, String uuid) {
+		String namespace = "http://www.52north.org/" + uuid;
+		CoordinateReferenceSystem crs = template.getFeatureType().getCoordinateReferenceSystem();
+
+		SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+		if (crs != null) {
+			typeBuilder.setCRS(crs);
+		}
+		typeBuilder.setNamespaceURI(namespace);
+		typeBuilder.setName(new NameImpl(namespace, "Feature-" + uuid));
+		typeBuilder.add("GEOMETRY", Geometry.class);
+		typeBuilder.add(FIRST_ID_ATTRIBUTE, String.class);
+		typeBuilder.add(SECOND_ID_ATTRIBUTE, String.class);
+		return typeBuilder.buildFeatureType();
+	}
+}
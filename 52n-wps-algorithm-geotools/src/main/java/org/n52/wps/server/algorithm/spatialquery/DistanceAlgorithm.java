@@ -47,116 +47,90 @@
  */
 package org.n52.wps.server.algorithm.spatialquery;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.geotools.feature.FeatureCollection;
-import org.geotools.feature.FeatureIterator;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.io.data.binding.literal.LiteralDoubleBinding;
-import org.n52.wps.server.AbstractSelfDescribingAlgorithm;
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicateEngine.Match;
 import org.opengis.feature.simple.SimpleFeature;
 
 import com.vividsolutions.jts.geom.Geometry;
 
 /**
+ * Computes the minimum distance between the features of the two layers.
+ * <code>MATCHES</code> contains the pairs of features within the optional
+ * <code>DISTANCE</code>, or the closest pairs if no distance is given.
+ * 
  * @author Benjamin Pross (bpross-52n) 
  *
  */
-public class DistanceAlgorithm extends AbstractSelfDescribingAlgorithm {
+public class DistanceAlgorithm extends AbstractSpatialQueryAlgorithm {
 
-	Logger LOGGER = LoggerFactory.getLogger(DistanceAlgorithm.class);
-	private final String inputID1 = "LAYER1";
-	private final String inputID2 = "LAYER2";
-	private final String outputID = "RESULT";
-	private List<String> errors = new ArrayList<String>();
+	private final String inputIDDistance = "DISTANCE";
 
-	public List<String> getErrors() {
-		return errors;
+	@Override
+	public Class<?> getInputDataType(String id) {
+		if (id.equalsIgnoreCase(inputIDDistance)) {
+			return LiteralDoubleBinding.class;
+		}
+		return super.getInputDataType(id);
 	}
 
-	public Class<GTVectorDataBinding> getInputDataType(String id) {
-		if (id.equalsIgnoreCase(inputID1) || id.equalsIgnoreCase(inputID2)) {
+	public Class<?> getOutputDataType(String id) {
+		if (id.equalsIgnoreCase(outputID)) {
+			return LiteralDoubleBinding.class;
+		}
+		if (id.equalsIgnoreCase(outputIDMatches)) {
 			return GTVectorDataBinding.class;
 		}
 		return null;
 	}
 
-	public Class<LiteralDoubleBinding> getOutputDataType(String id) {
-		if(id.equalsIgnoreCase(outputID)){
-			return LiteralDoubleBinding.class;
+	@Override
+	public List<String> getInputIdentifiers() {
+		List<String> identifiers = super.getInputIdentifiers();
+		identifiers.add(inputIDDistance);
+		return identifiers;
+	}
+
+	@Override
+	public BigInteger getMinOccurs(String identifier) {
+		if (identifier.equalsIgnoreCase(inputIDDistance)) {
+			return BigInteger.ZERO;
 		}
-		return null;
+		return super.getMinOccurs(identifier);
 	}
 
 	@Override
 	public Map<String, IData> run(Map<String, List<IData>> inputData) {
 
-		if(inputData==null || !inputData.containsKey(inputID1)){
-			throw new RuntimeException("Error while allocating input parameters");
-		}
-		if(inputData==null || !inputData.containsKey(inputID2)){
-			throw new RuntimeException("Error while allocating input parameters");
-		}
-		List<IData> firstDataList = inputData.get(inputID1);
-		if(firstDataList == null || firstDataList.size() != 1){
-			throw new RuntimeException("Error while allocating input parameters");
-		}
-		IData firstInputData = firstDataList.get(0);
-				
-		FeatureCollection<?, ?> firstCollection = ((GTVectorDataBinding) firstInputData).getPayload();
+		List<SimpleFeature> firstFeatures = getFeatures(inputData, inputID1);
+		List<SimpleFeature> secondFeatures = getFeatures(inputData, inputID2);
+		List<Geometry> firstGeometries = getGeometries(firstFeatures);
+		List<Geometry> secondGeometries = getGeometries(secondFeatures);
 
-		List<IData> secondDataList = inputData.get(inputID2);
-		if(secondDataList == null || secondDataList.size() != 1){
-			throw new RuntimeException("Error while allocating input parameters");
-		}
-		IData secondInputData = secondDataList.get(0);
-				
-		FeatureCollection<?, ?> secondCollection = ((GTVectorDataBinding) secondInputData).getPayload();
-		
-		FeatureIterator<?> firstIterator = firstCollection.features();
-		
-		FeatureIterator<?> secondIterator = secondCollection.features();
-		
-		if(!firstIterator.hasNext()){
-			throw new RuntimeException("Error while iterating over features in layer 1");
+		double distance = getEngine().minimumDistance(firstGeometries, secondGeometries);
+
+		double matchDistance = distance;
+		List<IData> distanceList = inputData.get(inputIDDistance);
+		if (distanceList != null && distanceList.size() == 1) {
+			matchDistance = ((LiteralDoubleBinding) distanceList.get(0)).getPayload();
 		}
-		
-		if(!secondIterator.hasNext()){
-			throw new RuntimeException("Error while iterating over features in layer 2");
+		List<Match> matches;
+		if (Double.isNaN(matchDistance)) {
+			matches = new ArrayList<Match>();
+		} else {
+			matches = getEngine().matchWithinDistance(firstGeometries, secondGeometries, matchDistance);
 		}
-		
-		SimpleFeature firstFeature = (SimpleFeature) firstIterator.next();
-		
-		SimpleFeature secondFeature = (SimpleFeature) secondIterator.next();
-		
-		double distance = ((Geometry)firstFeature.getDefaultGeometry()).distance((Geometry)secondFeature.getDefaultGeometry());
-		
-		HashMap<String, IData> result = new HashMap<String, IData>();
 
-		result.put(outputID,
-				new LiteralDoubleBinding(distance));
+		HashMap<String, IData> result = new HashMap<String, IData>();
+		result.put(outputID, new LiteralDoubleBinding(distance));
+		result.put(outputIDMatches, createMatches(firstFeatures, secondFeatures, matches));
 		return result;
 	}
-
-	@Override
-	public List<String> getInputIdentifiers() {
-		List<String> identifiers = new ArrayList<String>(2);
-		identifiers.add(inputID1);
-		identifiers.add(inputID2);
-		return identifiers;
-	}
-
-	@Override
-	public List<String> getOutputIdentifiers() {
-		List<String> identifiers = new ArrayList<String>(1);
-		identifiers.add(outputID);
-		return identifiers;
-	}
-
 }
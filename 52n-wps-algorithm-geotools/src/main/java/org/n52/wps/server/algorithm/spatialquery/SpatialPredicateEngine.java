@@ -0,0 +1,514 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.spatialquery;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.LocalAlgorithmRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.index.strtree.STRtree;
+
+/**
+ * Evaluates spatial predicates and distances between all geometries of two
+ * layers. The geometries of the second layer are indexed in an
+ * {@link STRtree}, the geometries of the first layer are prepared and matched
+ * against the index candidates. The first layer is split into partitions
+ * which are evaluated on a shared pool of worker threads; results are always
+ * returned in the order of the first layer.
+ * 
+ * The pool size and the partition size can be configured by the properties
+ * <code>spatialquery.poolSize</code> and
+ * <code>spatialquery.partitionSize</code> of the
+ * {@link LocalAlgorithmRepository}, the number of pairs returned for
+ * {@link SpatialPredicate#DISJOINT} by
+ * <code>spatialquery.maxDisjointMatches</code>.
+ */
+public class SpatialPredicateEngine {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(SpatialPredicateEngine.class);
+
+	public static final String PROPERTY_POOL_SIZE = "spatialquery.poolSize";
+
+	public static final String PROPERTY_PARTITION_SIZE = "spatialquery.partitionSize";
+
+	public static final String PROPERTY_MAX_DISJOINT_MATCHES = "spatialquery.maxDisjointMatches";
+
+	private static final String SYSTEM_PROPERTY_ROOT = "org.n52.wps.server.algorithm";
+
+	private static final int DEFAULT_PARTITION_SIZE = 1000;
+
+	private static final int DEFAULT_MAX_DISJOINT_MATCHES = 100000;
+
+	private static SpatialPredicateEngine instance;
+
+	private final ExecutorService executor;
+
+	private final int poolSize;
+
+	private final int partitionSize;
+
+	private final int maxDisjointMatches;
+
+	public SpatialPredicateEngine(int poolSize, int partitionSize) {
+		this(poolSize, partitionSize, DEFAULT_MAX_DISJOINT_MATCHES);
+	}
+
+	public SpatialPredicateEngine(int poolSize, int partitionSize, int maxDisjointMatches) {
+		this.poolSize = Math.max(1, poolSize);
+		this.partitionSize = Math.max(1, partitionSize);
+		this.maxDisjointMatches = Math.max(0, maxDisjointMatches);
+		if (this.poolSize > 1) {
+			this.executor = Executors.newFixedThreadPool(this.poolSize,
+					new ThreadFactoryBuilder()
+							.setNameFormat("spatialquery-%d")
+							.setDaemon(true)
+							.build());
+		} else {
+			this.executor = null;
+		}
+	}
+
+	/**
+	 * @return the engine configured from the properties of the
+	 *         {@link LocalAlgorithmRepository}.
+	 */
+	public static synchronized SpatialPredicateEngine getInstance() {
+		if (instance == null) {
+			int processors = Runtime.getRuntime().availableProcessors();
+			int poolSize = processors;
+			int partitionSize = DEFAULT_PARTITION_SIZE;
+			int maxDisjointMatches = DEFAULT_MAX_DISJOINT_MATCHES;
+			try {
+				PropertyUtil propertyUtil = new PropertyUtil(
+						WPSConfig.getInstance().getPropertiesForRepositoryClass(
+								LocalAlgorithmRepository.class.getCanonicalName()),
+						SYSTEM_PROPERTY_ROOT);
+				poolSize = (int) propertyUtil.extractLong(PROPERTY_POOL_SIZE, processors);
+				partitionSize = (int) propertyUtil.extractLong(PROPERTY_PARTITION_SIZE, DEFAULT_PARTITION_SIZE);
+				maxDisjointMatches = (int) propertyUtil.extractLong(PROPERTY_MAX_DISJOINT_MATCHES,
+						DEFAULT_MAX_DISJOINT_MATCHES);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not read spatial query configuration, using defaults.", e);
+			}
+			LOGGER.info("Spatial query engine uses {} thread(s) and partitions of {} geometries.",
+					poolSize, partitionSize);
+			instance = new SpatialPredicateEngine(poolSize, partitionSize, maxDisjointMatches);
+		}
+		return instance;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public int getPartitionSize() {
+		return partitionSize;
+	}
+
+	/**
+	 * @return the maximum number of pairs returned for
+	 *         {@link SpatialPredicate#DISJOINT}, which holds for almost all
+	 *         pairs of two layers
+	 */
+	public int getMaxDisjointMatches() {
+		return maxDisjointMatches;
+	}
+
+	/**
+	 * Finds all pairs <code>(first, second)</code> for which the predicate
+	 * holds.
+	 * 
+	 * @return the matching pairs, ordered by the index of the first and then
+	 *         of the second geometry
+	 */
+	public List<Match> match(List<Geometry> first, List<Geometry> second, SpatialPredicate predicate) {
+		return match(first, second, predicate, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finds at most <code>maxMatches</code> pairs
+	 * <code>(first, second)</code> for which the predicate holds. The
+	 * partitions stop as soon as that many pairs have been found, so which
+	 * pairs are returned if there are more is unspecified.
+	 * 
+	 * @return the matching pairs, ordered by the index of the first and then
+	 *         of the second geometry
+	 */
+	public List<Match> match(final List<Geometry> first, final List<Geometry> second,
+			final SpatialPredicate predicate, final int maxMatches) {
+		final STRtree index = buildIndex(second);
+		final AtomicInteger found = new AtomicInteger();
+		return concat(evaluate(first, new PartitionEvaluator<List<Match>>() {
+			@Override
+			public List<Match> evaluate(int from, int to) {
+				List<Match> matches = new ArrayList<Match>();
+				PreparedGeometryFactory factory = new PreparedGeometryFactory();
+				for (int i = from; i < to && found.get() < maxMatches; i++) {
+					Geometry geometry = first.get(i);
+					if (geometry == null) {
+						continue;
+					}
+					PreparedGeometry prepared = factory.create(geometry);
+					BitSet candidates = queryCandidates(index, geometry.getEnvelopeInternal());
+					if (predicate.requiresInteraction()) {
+						for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+							if (predicate.evaluate(prepared, second.get(j))
+									&& !add(matches, new Match(i, j))) {
+								return matches;
+							}
+						}
+					} else {
+						for (int j = 0; j < second.size(); j++) {
+							if (second.get(j) != null
+									&& (!candidates.get(j) || predicate.evaluate(prepared, second.get(j)))
+									&& !add(matches, new Match(i, j))) {
+								return matches;
+							}
+						}
+					}
+				}
+				return matches;
+			}
+
+			private boolean add(List<Match> matches, Match match) {
+				// unbounded queries skip the counter shared by all partitions
+				if (maxMatches < Integer.MAX_VALUE && found.incrementAndGet() > maxMatches) {
+					return false;
+				}
+				matches.add(match);
+				return true;
+			}
+		}));
+	}
+
+	/**
+	 * Tests whether the predicate holds for at least one pair
+	 * <code>(first, second)</code>, stopping at the first one found.
+	 */
+	public boolean anyMatch(List<Geometry> first, List<Geometry> second, SpatialPredicate predicate) {
+		return !match(first, second, predicate, 1).isEmpty();
+	}
+
+	/**
+	 * Finds all pairs <code>(first, second)</code> whose distance is less than
+	 * or equal to the given distance.
+	 */
+	public List<Match> matchWithinDistance(final List<Geometry> first, final List<Geometry> second,
+			final double distance) {
+		final STRtree index = buildIndex(second);
+		return concat(evaluate(first, new PartitionEvaluator<List<Match>>() {
+			@Override
+			public List<Match> evaluate(int from, int to) {
+				List<Match> matches = new ArrayList<Match>();
+				for (int i = from; i < to; i++) {
+					Geometry geometry = first.get(i);
+					if (geometry == null) {
+						continue;
+					}
+					Envelope envelope = new Envelope(geometry.getEnvelopeInternal());
+					envelope.expandBy(distance);
+					BitSet candidates = queryCandidates(index, envelope);
+					for (int j = candidates.nextSetBit(0); j >= 0; j = candidates.nextSetBit(j + 1)) {
+						if (geometry.isWithinDistance(second.get(j), distance)) {
+							matches.add(new Match(i, j));
+						}
+					}
+				}
+				return matches;
+			}
+		}));
+	}
+
+	/**
+	 * Computes the minimum distance between any geometry of the first and any
+	 * geometry of the second layer.
+	 * 
+	 * @return the minimum distance or {@link Double#NaN} if one of the layers
+	 *         contains no geometry
+	 */
+	public double minimumDistance(final List<Geometry> first, final List<Geometry> second) {
+		final STRtree index = buildIndex(second);
+		if (index.size() == 0) {
+			return Double.NaN;
+		}
+		List<Double> distances = evaluate(first, new PartitionEvaluator<Double>() {
+			@Override
+			public Double evaluate(int from, int to) {
+				double minimum = Double.NaN;
+				for (int i = from; i < to; i++) {
+					Geometry geometry = first.get(i);
+					if (geometry == null) {
+						continue;
+					}
+					minimum = nearest(index, second, geometry, minimum);
+					if (minimum == 0) {
+						break;
+					}
+				}
+				return minimum;
+			}
+		});
+		double minimum = Double.NaN;
+		for (Double distance : distances) {
+			if (!distance.isNaN() && (Double.isNaN(minimum) || distance < minimum)) {
+				minimum = distance;
+			}
+		}
+		return minimum;
+	}
+
+	/**
+	 * Finds all matching pairs by testing every pair without an index. Only
+	 * meant as reference for tests and benchmarks.
+	 */
+	public static List<Match> matchNaive(List<Geometry> first, List<Geometry> second,
+			SpatialPredicate predicate) {
+		List<Match> matches = new ArrayList<Match>();
+		PreparedGeometryFactory factory = new PreparedGeometryFactory();
+		for (int i = 0; i < first.size(); i++) {
+			if (first.get(i) == null) {
+				continue;
+			}
+			PreparedGeometry prepared = factory.create(first.get(i));
+			for (int j = 0; j < second.size(); j++) {
+				if (second.get(j) != null && predicate.evaluate(prepared, second.get(j))) {
+					matches.add(new Match(i, j));
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Computes the minimum distance by testing every pair without an index.
+	 * Only meant as reference for tests and benchmarks.
+	 */
+	public static double minimumDistanceNaive(List<Geometry> first, List<Geometry> second) {
+		double minimum = Double.NaN;
+		for (Geometry a : first) {
+			for (Geometry b : second) {
+				if (a != null && b != null) {
+					double distance = a.distance(b);
+					if (Double.isNaN(minimum) || distance < minimum) {
+						minimum = distance;
+					}
+				}
+			}
+		}
+		return minimum;
+	}
+
+	private double nearest(STRtree index, List<Geometry> second, Geometry geometry, double bound) {
+		Envelope envelope = geometry.getEnvelopeInternal();
+		double minimum = bound;
+		if (Double.isNaN(minimum)) {
+			// seed the search radius with the distance to the first candidate
+			int seed = queryCandidates(index, envelope).nextSetBit(0);
+			if (seed < 0) {
+				seed = firstNonNull(second);
+			}
+			minimum = geometry.distance(second.get(seed));
+		}
+		Envelope search = new Envelope(envelope);
+		search.expandBy(minimum);
+		BitSet candidates = queryCandidates(index, search);
+		for (int j = candidates.nextSetBit(0); j >= 0 && minimum > 0; j = candidates.nextSetBit(j + 1)) {
+			Geometry candidate = second.get(j);
+			if (envelope.distance(candidate.getEnvelopeInternal()) < minimum) {
+				minimum = Math.min(minimum, geometry.distance(candidate));
+			}
+		}
+		return minimum;
+	}
+
+	private static int firstNonNull(List<Geometry> geometries) {
+		for (int i = 0; i < geometries.size(); i++) {
+			if (geometries.get(i) != null) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static STRtree buildIndex(List<Geometry> geometries) {
+		STRtree index = new STRtree();
+		for (int i = 0; i < geometries.size(); i++) {
+			Geometry geometry = geometries.get(i);
+			if (geometry != null) {
+				index.insert(geometry.getEnvelopeInternal(), Integer.valueOf(i));
+			}
+		}
+		// building the tree is not thread safe, so do it before querying it
+		// concurrently
+		index.build();
+		return index;
+	}
+
+	private static BitSet queryCandidates(STRtree index, Envelope envelope) {
+		BitSet candidates = new BitSet();
+		for (Object item : index.query(envelope)) {
+			candidates.set(((Integer) item).intValue());
+		}
+		return candidates;
+	}
+
+	private <T> List<T> evaluate(List<Geometry> first, PartitionEvaluator<T> evaluator) {
+		List<T> results = new ArrayList<T>();
+		if (first.isEmpty()) {
+			return results;
+		}
+		if (executor == null || first.size() <= partitionSize) {
+			results.add(evaluator.evaluate(0, first.size()));
+			return results;
+		}
+		List<Future<T>> futures = new ArrayList<Future<T>>();
+		for (int from = 0; from < first.size(); from += partitionSize) {
+			final int start = from;
+			final int end = Math.min(first.size(), from + partitionSize);
+			final PartitionEvaluator<T> partitionEvaluator = evaluator;
+			futures.add(executor.submit(new Callable<T>() {
+				@Override
+				public T call() {
+					return partitionEvaluator.evaluate(start, end);
+				}
+			}));
+		}
+		try {
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			cancel(futures);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while evaluating spatial query.", e);
+		} catch (ExecutionException e) {
+			cancel(futures);
+			throw new RuntimeException("Error while evaluating spatial query.", e.getCause());
+		}
+		return results;
+	}
+
+	private static <T> void cancel(List<Future<T>> futures) {
+		for (Future<T> future : futures) {
+			future.cancel(true);
+		}
+	}
+
+	private static List<Match> concat(List<List<Match>> partitions) {
+		List<Match> matches = new ArrayList<Match>();
+		for (List<Match> partition : partitions) {
+			matches.addAll(partition);
+		}
+		return matches;
+	}
+
+	private interface PartitionEvaluator<T> {
+
+		T evaluate(int from, int to);
+	}
+
+	/**
+	 * A matching pair given by the index of the geometry in the first and in
+	 * the second layer.
+	 */
+	public static class Match {
+
+		private final int first;
+
+		private final int second;
+
+		public Match(int first, int second) {
+			this.first = first;
+			this.second = second;
+		}
+
+		public int getFirst() {
+			return first;
+		}
+
+		public int getSecond() {
+			return second;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * first + second;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Match)) {
+				return false;
+			}
+			Match other = (Match) obj;
+			return first == other.first && second == other.second;
+		}
+
+		@Override
+		public String toString() {
+			return "(" + first + ", " + second + ")";
+		}
+	}
+}
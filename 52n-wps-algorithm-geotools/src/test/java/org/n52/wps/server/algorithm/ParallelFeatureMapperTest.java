@@ -0,0 +1,226 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.wps.server.observerpattern.IObserver;
+import org.n52.wps.server.observerpattern.ISubject;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class ParallelFeatureMapperTest {
+
+    private static final int FEATURE_COUNT = 5000;
+
+    private List<SimpleFeature> features;
+
+    @Before
+    public void setUp() {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("Test");
+        typeBuilder.add("GEOMETRY", Point.class);
+        SimpleFeatureType featureType = typeBuilder.buildFeatureType();
+
+        GeometryFactory factory = new GeometryFactory();
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(featureType);
+        features = new ArrayList<SimpleFeature>();
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            builder.add(factory.createPoint(new Coordinate(i, i)));
+            features.add(builder.buildFeature("ID" + i));
+        }
+    }
+
+    @Test
+    public void testOrderIsPreserved() {
+        ParallelFeatureMapper mapper = new ParallelFeatureMapper(4, 100);
+        List<Double> xs = mapper.map(features, new ParallelFeatureMapper.FeatureFunction<Double>() {
+            @Override
+            public Double apply(SimpleFeature feature) {
+                return ((Geometry) feature.getDefaultGeometry()).getCoordinate().x;
+            }
+        }, null);
+
+        assertEquals(FEATURE_COUNT, xs.size());
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            assertEquals(i, xs.get(i), 0);
+        }
+    }
+
+    @Test
+    public void testProgressIsThrottled() {
+        ParallelFeatureMapper mapper = new ParallelFeatureMapper(4, 100);
+        RecordingSubject subject = new RecordingSubject();
+        mapper.map(features, new ParallelFeatureMapper.FeatureFunction<Object>() {
+            @Override
+            public Object apply(SimpleFeature feature) {
+                return feature;
+            }
+        }, subject);
+
+        assertTrue(subject.states.size() <= 101);
+        assertTrue(subject.states.contains(Integer.valueOf(100)));
+    }
+
+    @Test
+    public void testProgressIsReportedByCallingThread() {
+        ParallelFeatureMapper mapper = new ParallelFeatureMapper(4, 100);
+        RecordingSubject subject = new RecordingSubject();
+        mapper.map(features, new ParallelFeatureMapper.FeatureFunction<Object>() {
+            @Override
+            public Object apply(SimpleFeature feature) throws Exception {
+                Thread.sleep(0, 100000);
+                return feature;
+            }
+        }, subject);
+
+        assertFalse(subject.threads.isEmpty());
+        for (Thread thread : subject.threads) {
+            assertSame(Thread.currentThread(), thread);
+        }
+    }
+
+    @Test
+    public void testInterruptStopsWorkers() throws Exception {
+        final ParallelFeatureMapper mapper = new ParallelFeatureMapper(4, 100);
+        final AtomicInteger processed = new AtomicInteger();
+        Thread caller = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    mapper.map(features, new ParallelFeatureMapper.FeatureFunction<Object>() {
+                        @Override
+                        public Object apply(SimpleFeature feature) throws Exception {
+                            processed.incrementAndGet();
+                            Thread.sleep(1);
+                            return feature;
+                        }
+                    }, null);
+                } catch (RuntimeException e) {
+                    // expected
+                }
+            }
+        };
+        caller.start();
+        Thread.sleep(100);
+        caller.interrupt();
+        caller.join();
+
+        // features already being processed may still finish
+        Thread.sleep(100);
+        int stopped = processed.get();
+        Thread.sleep(200);
+        assertEquals(stopped, processed.get());
+        assertTrue(stopped < FEATURE_COUNT);
+    }
+
+    @Test
+    public void testFailureIsPropagated() {
+        ParallelFeatureMapper mapper = new ParallelFeatureMapper(4, 100);
+        try {
+            mapper.map(features, new ParallelFeatureMapper.FeatureFunction<Object>() {
+                @Override
+                public Object apply(SimpleFeature feature) throws Exception {
+                    if (feature.getID().equals("ID4711")) {
+                        throw new Exception("failed");
+                    }
+                    return feature;
+                }
+            }, null);
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("ID4711"));
+        }
+    }
+
+    private static class RecordingSubject implements ISubject {
+
+        private final List<Object> states = new ArrayList<Object>();
+
+        private final List<Thread> threads = new ArrayList<Thread>();
+
+        private Object state;
+
+        @Override
+        public void addObserver(IObserver o) {
+        }
+
+        @Override
+        public void removeObserver(IObserver o) {
+        }
+
+        @Override
+        public Object getState() {
+            return state;
+        }
+
+        @Override
+        public void update(Object state) {
+            this.state = state;
+            states.add(state);
+            threads.add(Thread.currentThread());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class BandMathExpressionTest {
+
+    private static final double[][] PIXEL = new double[][] { {1, 2, 3, 4}, {10, 20, 30, 40}};
+
+    @Test
+    public void testOperatorPrecedence() {
+        assertEquals(7.0, new BandMathExpression("r1 + 2 * 3").evaluate(PIXEL, 0), 0.0);
+        assertEquals(9.0, new BandMathExpression("(r1 + 2) * 3").evaluate(PIXEL, 0), 0.0);
+        assertEquals(-8.0, new BandMathExpression("-2 ^ 3 * r1").evaluate(PIXEL, 0), 0.0);
+        assertEquals(2.0, new BandMathExpression("2 ^ 3 ^ 0 * r1").evaluate(PIXEL, 0), 0.0);
+        assertEquals(0.5, new BandMathExpression("5e-1 * r1").evaluate(PIXEL, 0), 0.0);
+    }
+
+    @Test
+    public void testBandWiseVariables() {
+        BandMathExpression expression = new BandMathExpression("(r1 + r2) / 2");
+        assertEquals(2, expression.getSourceCount());
+        assertEquals(5.5, expression.evaluate(PIXEL, 0), 0.0);
+        assertEquals(22.0, expression.evaluate(PIXEL, 3), 0.0);
+        assertEquals(3, expression.getBandCount(new int[] {4, 3}));
+    }
+
+    @Test
+    public void testExplicitBands() {
+        BandMathExpression expression = new BandMathExpression("(R1B4 - r1b3) / (r1b4 + r1b3)");
+        assertEquals(1, expression.getSourceCount());
+        assertEquals(1.0 / 7.0, expression.evaluate(PIXEL, 0), 1e-12);
+        assertEquals(1, expression.getBandCount(new int[] {4}));
+    }
+
+    @Test
+    public void testFunctions() {
+        assertEquals(30.0, new BandMathExpression("max(r1, r2, abs(-30))").evaluate(PIXEL, 1), 0.0);
+        assertEquals(2.0, new BandMathExpression("min(r1, r2)").evaluate(PIXEL, 1), 0.0);
+        assertEquals(3.0, new BandMathExpression("sqrt(r1b1 * 9)").evaluate(PIXEL, 0), 0.0);
+        assertEquals(1.0, new BandMathExpression("log(exp(r1))").evaluate(PIXEL, 0), 1e-12);
+    }
+
+    @Test
+    public void testNoDataPropagates() {
+        double[][] pixel = new double[][] { {Double.NaN}, {1}};
+        assertTrue(Double.isNaN(new BandMathExpression("max(r1, r2)").evaluate(pixel, 0)));
+        assertTrue(Double.isNaN(RasterAlgebraOperation.MIN.evaluate(pixel, 0)));
+    }
+
+    @Test
+    public void testInvalidExpressions() {
+        String[] invalid = new String[] {"", "1 + 2", "r1 +", "(r1", "r0", "r1b", "x1", "foo(r1)",
+                "abs(r1, r2)", "r1 r2"};
+        for (String expression : invalid) {
+            try {
+                new BandMathExpression(expression);
+                fail("expected IllegalArgumentException for " + expression);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testUnknownBand() {
+        try {
+            new BandMathExpression("r1b5 + r2").getBandCount(new int[] {4, 1});
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("band 5"));
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.raster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BandedSampleModel;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+
+import org.junit.Test;
+
+public class TileKernelTest {
+
+    /**
+     * @return a single band image of the given size with the value
+     *         <code>offset + x + 10 * y</code> at each pixel
+     */
+    private static BufferedImage createImage(int width, int height, int offset) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_USHORT_GRAY);
+        WritableRaster raster = image.getRaster();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.setSample(x, y, 0, offset + x + 10 * y);
+            }
+        }
+        return image;
+    }
+
+    private static WritableRaster createTile(int x, int y, int size) {
+        return Raster.createWritableRaster(new BandedSampleModel(DataBuffer.TYPE_DOUBLE, size, size, 1),
+                new Point(x, y));
+    }
+
+    @Test
+    public void testAlignedSources() {
+        TileKernel kernel = new TileKernel(new RenderedImage[] {createImage(8, 8, 0), createImage(8, 8, 100)},
+                new AffineTransform[] {new AffineTransform(), new AffineTransform()}, new double[2][],
+                RasterAlgebraOperation.ADD, -1);
+        WritableRaster tile = createTile(4, 4, 4);
+        kernel.compute(tile, new Rectangle(0, 0, 8, 8));
+        assertEquals(100 + 2 * (4 + 40), tile.getSampleDouble(4, 4, 0), 0.0);
+        assertEquals(100 + 2 * (7 + 70), tile.getSampleDouble(7, 7, 0), 0.0);
+    }
+
+    @Test
+    public void testShiftedAndScaledSource() {
+        // the second source starts two output pixels to the right and has half the resolution
+        AffineTransform shifted = AffineTransform.getScaleInstance(0.5, 0.5);
+        shifted.translate(-2, 0);
+        TileKernel kernel = new TileKernel(new RenderedImage[] {createImage(8, 8, 0), createImage(4, 4, 100)},
+                new AffineTransform[] {new AffineTransform(), shifted}, new double[2][],
+                RasterAlgebraOperation.SUBTRACT, -1);
+        WritableRaster tile = createTile(0, 0, 8);
+        kernel.compute(tile, new Rectangle(0, 0, 8, 8));
+        // outside of the second source
+        assertEquals(-1, tile.getSampleDouble(1, 0, 0), 0.0);
+        // output (5, 3) is pixel (1, 1) of the second source
+        assertEquals((5 + 30) - (100 + 1 + 10), tile.getSampleDouble(5, 3, 0), 0.0);
+    }
+
+    @Test
+    public void testNoData() {
+        BufferedImage first = createImage(4, 4, 0);
+        first.getRaster().setSample(1, 1, 0, 99);
+        TileKernel kernel = new TileKernel(new RenderedImage[] {first, createImage(4, 4, 0)},
+                new AffineTransform[] {new AffineTransform(), new AffineTransform()},
+                new double[][] { {99}, null}, RasterAlgebraOperation.MAX, Double.NaN);
+        WritableRaster tile = createTile(0, 0, 4);
+        kernel.compute(tile, new Rectangle(0, 0, 4, 4));
+        assertTrue(Double.isNaN(tile.getSampleDouble(1, 1, 0)));
+        assertEquals(12, tile.getSampleDouble(2, 1, 0), 0.0);
+    }
+
+    @Test
+    public void testDivisionByZeroIsNoData() {
+        TileKernel kernel = new TileKernel(new RenderedImage[] {createImage(4, 4, 1), createImage(4, 4, 0)},
+                new AffineTransform[] {new AffineTransform(), new AffineTransform()}, new double[2][],
+                RasterAlgebraOperation.DIVIDE, -9999);
+        WritableRaster tile = createTile(0, 0, 4);
+        kernel.compute(tile, new Rectangle(0, 0, 4, 4));
+        assertEquals(-9999, tile.getSampleDouble(0, 0, 0), 0.0);
+        assertEquals(2.0, tile.getSampleDouble(1, 0, 0), 0.0);
+    }
+
+    @Test
+    public void testTileBeyondOutputBounds() {
+        TileKernel kernel = new TileKernel(new RenderedImage[] {createImage(6, 6, 0), createImage(6, 6, 0)},
+                new AffineTransform[] {new AffineTransform(), new AffineTransform()}, new double[2][],
+                RasterAlgebraOperation.MULTIPLY, -1);
+        WritableRaster tile = createTile(4, 4, 4);
+        kernel.compute(tile, new Rectangle(0, 0, 6, 6));
+        assertEquals(55 * 55, tile.getSampleDouble(5, 5, 0), 0.0);
+        // left untouched
+        assertEquals(0, tile.getSampleDouble(7, 7, 0), 0.0);
+    }
+}
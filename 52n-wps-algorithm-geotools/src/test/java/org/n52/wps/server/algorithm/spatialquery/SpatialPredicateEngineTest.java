@@ -0,0 +1,190 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.algorithm.spatialquery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicateEngine.Match;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Compares the indexed evaluation of the {@link SpatialPredicateEngine} with
+ * the naive evaluation of all pairs.
+ */
+public class SpatialPredicateEngineTest {
+
+    private static final int LAYER_SIZE = 500;
+
+    private final GeometryFactory factory = new GeometryFactory();
+
+    @Test
+    public void testMatchEqualsNaiveMatch() {
+        Random random = new Random(52);
+        List<Geometry> first = createGeometries(random, LAYER_SIZE);
+        List<Geometry> second = createGeometries(random, LAYER_SIZE);
+        // small partitions to spread the evaluation over the worker threads
+        SpatialPredicateEngine engine = new SpatialPredicateEngine(4, 37);
+
+        for (SpatialPredicate predicate : SpatialPredicate.values()) {
+            List<Match> expected = SpatialPredicateEngine.matchNaive(first, second, predicate);
+            List<Match> actual = engine.match(first, second, predicate);
+            assertEquals(predicate.name(), expected, actual);
+        }
+        assertFalse(engine.match(first, second, SpatialPredicate.INTERSECTS).isEmpty());
+    }
+
+    @Test
+    public void testMatchSingleThreaded() {
+        Random random = new Random(7);
+        List<Geometry> first = createGeometries(random, 100);
+        List<Geometry> second = createGeometries(random, 100);
+        SpatialPredicateEngine engine = new SpatialPredicateEngine(1, 10);
+
+        assertEquals(SpatialPredicateEngine.matchNaive(first, second, SpatialPredicate.INTERSECTS),
+                engine.match(first, second, SpatialPredicate.INTERSECTS));
+    }
+
+    @Test
+    public void testAnyMatch() {
+        Random random = new Random(52);
+        List<Geometry> first = createGeometries(random, LAYER_SIZE);
+        List<Geometry> second = createGeometries(random, LAYER_SIZE);
+        SpatialPredicateEngine engine = new SpatialPredicateEngine(4, 37);
+
+        for (SpatialPredicate predicate : SpatialPredicate.values()) {
+            assertEquals(predicate.name(), !SpatialPredicateEngine.matchNaive(first, second, predicate).isEmpty(),
+                    engine.anyMatch(first, second, predicate));
+        }
+        List<Geometry> apart = new ArrayList<Geometry>();
+        for (int i = 0; i < LAYER_SIZE; i++) {
+            apart.add(createRectangle(random, 2000, 1000));
+        }
+        assertFalse(engine.anyMatch(first, apart, SpatialPredicate.INTERSECTS));
+    }
+
+    @Test
+    public void testMatchBounded() {
+        Random random = new Random(52);
+        List<Geometry> first = createGeometries(random, LAYER_SIZE);
+        List<Geometry> second = createGeometries(random, LAYER_SIZE);
+        SpatialPredicateEngine engine = new SpatialPredicateEngine(4, 37);
+
+        List<Match> all = SpatialPredicateEngine.matchNaive(first, second, SpatialPredicate.DISJOINT);
+        List<Match> bounded = engine.match(first, second, SpatialPredicate.DISJOINT, 1000);
+        assertEquals(1000, bounded.size());
+        assertTrue(all.containsAll(bounded));
+        for (int i = 1; i < bounded.size(); i++) {
+            assertTrue(bounded.get(i - 1).getFirst() <= bounded.get(i).getFirst());
+        }
+        assertEquals(all, engine.match(first, second, SpatialPredicate.DISJOINT, all.size()));
+    }
+
+    @Test
+    public void testMinimumDistanceEqualsNaiveDistance() {
+        Random random = new Random(52);
+        List<Geometry> first = createGeometries(random, LAYER_SIZE);
+        List<Geometry> second = new ArrayList<Geometry>();
+        for (int i = 0; i < LAYER_SIZE; i++) {
+            second.add(createRectangle(random, 2000, 1000));
+        }
+        SpatialPredicateEngine engine = new SpatialPredicateEngine(4, 37);
+
+        assertEquals(SpatialPredicateEngine.minimumDistanceNaive(first, second),
+                engine.minimumDistance(first, second), 1e-9);
+    }
+
+    @Test
+    public void testMatchWithinDistance() {
+        Random random = new Random(52);
+        List<Geometry> first = createGeometries(random, LAYER_SIZE);
+        List<Geometry> second = createGeometries(random, LAYER_SIZE);
+        SpatialPredicateEngine engine = new SpatialPredicateEngine(4, 37);
+
+        List<Match> expected = new ArrayList<Match>();
+        for (int i = 0; i < first.size(); i++) {
+            for (int j = 0; j < second.size(); j++) {
+                if (first.get(i).isWithinDistance(second.get(j), 5)) {
+                    expected.add(new Match(i, j));
+                }
+            }
+        }
+        assertEquals(expected, engine.matchWithinDistance(first, second, 5));
+    }
+
+    private List<Geometry> createGeometries(Random random, int count) {
+        List<Geometry> geometries = new ArrayList<Geometry>(count);
+        for (int i = 0; i < count; i++) {
+            if (i % 5 == 0) {
+                geometries.add(factory.createPoint(new Coordinate(random.nextInt(1000), random.nextInt(1000))));
+            } else {
+                geometries.add(createRectangle(random, 0, 1000));
+            }
+        }
+        return geometries;
+    }
+
+    private Geometry createRectangle(Random random, int offset, int extent) {
+        // integer coordinates so that touching and equal geometries occur
+        int x = offset + random.nextInt(extent);
+        int y = offset + random.nextInt(extent);
+        int width = 1 + random.nextInt(40);
+        int height = 1 + random.nextInt(40);
+        return factory.toGeometry(new Envelope(x, x + width, y, y + height));
+    }
+}
@@ -34,4 +34,9 @@ public @interface Algorithm {
     String version();
     boolean storeSupported() default true;
     boolean statusSupported() default true;
+    /**
+     * Marks an algorithm whose outputs only depend on its inputs, so results
+     * of identical Execute requests may be reused.
+     */
+    boolean deterministic() default false;
 }
@@ -24,10 +24,14 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import org.n52.wps.algorithm.annotation.AnnotationBinding.InputBinding;
 import org.n52.wps.algorithm.annotation.AnnotationBinding.OutputBinding;
 import org.n52.wps.algorithm.annotation.AnnotationBinding.ExecuteMethodBinding;
@@ -88,15 +92,43 @@ public class AnnotatedAlgorithmIntrospector {
         PROCESS_PARSER = new ExecuteAnnotationParser();
     }
     
-    private final static Map<Class<?>, AnnotatedAlgorithmIntrospector> INTROSPECTOR_MAP =
-            new HashMap<Class<?>, AnnotatedAlgorithmIntrospector>();
-    public static synchronized AnnotatedAlgorithmIntrospector getInstrospector(Class<?> algorithmClass) {
-        AnnotatedAlgorithmIntrospector introspector = INTROSPECTOR_MAP.get(algorithmClass);
-        if (introspector == null) {
-            introspector = new AnnotatedAlgorithmIntrospector(algorithmClass);
-            INTROSPECTOR_MAP.put(algorithmClass, introspector);
+    // each class is introspected once, by the first caller, while callers
+    // for other classes proceed concurrently
+    private final static ConcurrentMap<Class<?>, FutureTask<AnnotatedAlgorithmIntrospector>> INTROSPECTOR_MAP =
+            new ConcurrentHashMap<Class<?>, FutureTask<AnnotatedAlgorithmIntrospector>>();
+    public static AnnotatedAlgorithmIntrospector getInstrospector(final Class<?> algorithmClass) {
+        FutureTask<AnnotatedAlgorithmIntrospector> introspection = INTROSPECTOR_MAP.get(algorithmClass);
+        if (introspection == null) {
+            FutureTask<AnnotatedAlgorithmIntrospector> newIntrospection = new FutureTask<AnnotatedAlgorithmIntrospector>(
+                    new Callable<AnnotatedAlgorithmIntrospector>() {
+                        @Override
+                        public AnnotatedAlgorithmIntrospector call() {
+                            return new AnnotatedAlgorithmIntrospector(algorithmClass);
+                        }
+                    });
+            introspection = INTROSPECTOR_MAP.putIfAbsent(algorithmClass, newIntrospection);
+            if (introspection == null) {
+                introspection = newIntrospection;
+                newIntrospection.run();
+            }
+        }
+        try {
+            return introspection.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while introspecting " + algorithmClass.getCanonicalName(), e);
+        } catch (ExecutionException e) {
+            // failures are not cached, the next caller tries again
+            INTROSPECTOR_MAP.remove(algorithmClass, introspection);
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
         }
-        return introspector;
     }
     
     private Class<?> algorithmClass;
@@ -155,7 +187,8 @@ public class AnnotatedAlgorithmIntrospector {
                 abstrakt(algorithm.abstrakt()).
                 version(algorithm.version()).
                 storeSupported(algorithm.storeSupported()).
-                statusSupported(algorithm.statusSupported());
+                statusSupported(algorithm.statusSupported()).
+                deterministic(algorithm.deterministic());
         
         parseElements(algorithmClass.getDeclaredMethods(),
                 INPUT_METHOD_PARSERS,
@@ -185,10 +218,14 @@ public class AnnotatedAlgorithmIntrospector {
             throw new RuntimeException("No execute method binding for class " + this.algorithmClass.getCanonicalName());
         }
 
+        // compile the member access once, the introspector is cached per class
+        executeMethodBinding.compile();
         for (InputBinding<?,?> inputBinding : inputBindingMap.values()) {
+            inputBinding.compile();
             algorithmBuilder.addInputDescriptor(inputBinding.getDescriptor());
         }
         for (OutputBinding<?,?> outputBinding : outputBindingMap.values()) {
+            outputBinding.compile();
             algorithmBuilder.addOutputDescriptor(outputBinding.getDescriptor());
         }
         algorithmDescriptor = algorithmBuilder.build();
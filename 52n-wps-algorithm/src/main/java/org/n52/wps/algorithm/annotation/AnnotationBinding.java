@@ -16,10 +16,12 @@
  */
 package org.n52.wps.algorithm.annotation;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
@@ -37,15 +39,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Binds an annotated member of an algorithm class. The access to the member
+ * is compiled once into a {@link MethodHandle} (see {@link #compile()}), so
+ * that executing the algorithm does not go through reflection.
  *
  * @author tkunicki
  */
 public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
 
     private final static Logger LOGGER = LoggerFactory.getLogger(AnnotationBinding.class);
+
+    // (Object)void, (Object,Object)void and (Object)Object
+    private final static MethodType EXECUTE_TYPE = MethodType.methodType(void.class, Object.class);
+    private final static MethodType SET_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    private final static MethodType GET_TYPE = MethodType.methodType(Object.class, Object.class);
     
     private M member;
 
+    private volatile MethodHandle handle;
+
     public AnnotationBinding(M member) {
         this.member = member;
     }
@@ -59,6 +71,28 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
     }
     
     public abstract boolean validate();
+
+    /**
+     * Compiles the access to the member, once. Called by the
+     * {@link AnnotatedAlgorithmIntrospector} for the bindings it keeps,
+     * otherwise on first use.
+     * 
+     * @return the method handle accessing the member with generic types
+     */
+    public MethodHandle compile() {
+        MethodHandle compiled = handle;
+        if (compiled == null) {
+            try {
+                compiled = createHandle(MethodHandles.publicLookup());
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException("Unable to access " + getMember(), ex);
+            }
+            handle = compiled;
+        }
+        return compiled;
+    }
+
+    protected abstract MethodHandle createHandle(MethodHandles.Lookup lookup) throws IllegalAccessException;
     
     public static class ExecuteMethodBinding extends AnnotationBinding<Method> {
 
@@ -84,15 +118,16 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
             return true;
         }
         
+        @Override
+        protected MethodHandle createHandle(MethodHandles.Lookup lookup) throws IllegalAccessException {
+            return lookup.unreflect(getMember()).asType(EXECUTE_TYPE);
+        }
+        
         public void execute(Object annotatedInstance) {
+            MethodHandle execute = compile();
             try {
-                getMember().invoke(annotatedInstance);
-            }catch (IllegalAccessException ex) {
-                throw new RuntimeException("Internal error executing process", ex);
-            } catch (IllegalArgumentException ex) {
-                throw new RuntimeException("Internal error executing process", ex);
-            } catch (InvocationTargetException ex) {
-                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                execute.invokeExact(annotatedInstance);
+            } catch (Throwable cause) {
                 throw new RuntimeException(cause.getMessage(), cause);
             }
         }
@@ -101,6 +136,9 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
     public static abstract class DataBinding<M extends AccessibleObject & Member, D extends BoundDescriptor> extends AnnotationBinding<M> {
         
         private D descriptor;
+
+        // derived from the member's type, which does not change
+        private Boolean typeEnum;
         
         public DataBinding(M member) {
             super(member);
@@ -135,12 +173,18 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         }
 
         public boolean isTypeEnum() {
-            Type inputType = getType();
-            return (inputType instanceof Class<?>) && ((Class<?>) inputType).isEnum();
+            if (typeEnum == null) {
+                Type inputType = getType();
+                typeEnum = (inputType instanceof Class<?>) && ((Class<?>) inputType).isEnum();
+            }
+            return typeEnum;
         }
     }
 
     public static abstract class InputBinding<M extends AccessibleObject & Member, D extends InputDescriptor> extends DataBinding<M,D> {
+
+        // derived from the member's type, which does not change
+        private Boolean memberTypeList;
         
         public InputBinding(M member) {
             super(member);
@@ -169,16 +213,19 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         }
 
         public boolean isMemberTypeList() {
-            Type memberType = getMemberType();
-            if (memberType instanceof Class<?>) {
-                return List.class.isAssignableFrom((Class<?>) memberType);
-            } else if (memberType instanceof ParameterizedType) {
-                Class<?> rawClass = (Class<?>) ((ParameterizedType) memberType).getRawType();
-                return List.class.isAssignableFrom(rawClass);
-            } else {
-                LOGGER.error("Unable to infer concrete type information for " + getMember());
+            if (memberTypeList == null) {
+                Type memberType = getMemberType();
+                if (memberType instanceof Class<?>) {
+                    memberTypeList = List.class.isAssignableFrom((Class<?>) memberType);
+                } else if (memberType instanceof ParameterizedType) {
+                    Class<?> rawClass = (Class<?>) ((ParameterizedType) memberType).getRawType();
+                    memberTypeList = List.class.isAssignableFrom(rawClass);
+                } else {
+                    LOGGER.error("Unable to infer concrete type information for " + getMember());
+                    memberTypeList = false;
+                }
             }
-            return false;
+            return memberTypeList;
         }
         
         protected boolean checkType() {
@@ -225,32 +272,45 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         public Object unbindInput(List<IData> boundValueList) {
             Object value = null;
             if (boundValueList != null && boundValueList.size() > 0) {
+                Class<? extends Enum> enumClass = isTypeEnum() ? (Class<? extends Enum>) getType() : null;
                 if (isMemberTypeList()) {
                     List valueList = new ArrayList(boundValueList.size());
                     for (IData bound : boundValueList) {
                         value = bound.getPayload();
-                        if (isTypeEnum()) {
-                            value = Enum.valueOf((Class<? extends Enum>)getType(), (String)value);
+                        if (enumClass != null) {
+                            value = Enum.valueOf(enumClass, (String)value);
                         }
                         valueList.add(value);
                     }
                     value = valueList;
                 } else if (boundValueList.size() == 1) {
                     value = boundValueList.get(0).getPayload();
-                    if (isTypeEnum()) {
-                        value = Enum.valueOf((Class<? extends Enum>)getType(), (String)value);
+                    if (enumClass != null) {
+                        value = Enum.valueOf(enumClass, (String)value);
                     }
                 }
             }
             return value;
         }
         
-        public abstract void set(Object annotatedObject, List<IData> boundInputList);
+        public void set(Object annotatedObject, List<IData> boundInputList) {
+            Object value = unbindInput(boundInputList);
+            MethodHandle set = compile();
+            try {
+                set.invokeExact(annotatedObject, value);
+            } catch (Throwable cause) {
+                throw wrapInputException(cause);
+            }
+        }
+
+        protected abstract RuntimeException wrapInputException(Throwable cause);
     }
 
     public static abstract class OutputBinding<M extends AccessibleObject & Member,  D extends OutputDescriptor> extends DataBinding<M,D> {
         
         private Constructor<? extends IData> bindingConstructor;
+
+        private volatile MethodHandle bindingConstructorHandle;
         
         public OutputBinding(M member) {
             super(member);
@@ -259,26 +319,46 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         protected boolean checkType( ) {
             return getConstructor() != null;
         }
+
+        @Override
+        public MethodHandle compile() {
+            if (bindingConstructorHandle == null) {
+                try {
+                    bindingConstructorHandle = MethodHandles.publicLookup().unreflectConstructor(getConstructor())
+                            .asType(MethodType.methodType(IData.class, Object.class));
+                } catch (IllegalAccessException ex) {
+                    throw new RuntimeException("Unable to access " + getConstructor(), ex);
+                }
+            }
+            return super.compile();
+        }
         
         public IData bindOutputValue(Object outputValue) {
+            compile();
+            if (isTypeEnum()) {
+                outputValue = ((Enum<?>)outputValue).name();
+            }
             try {
-                if (isTypeEnum()) {
-                    outputValue = ((Enum<?>)outputValue).name();
-                }
-                return getConstructor().newInstance(outputValue);
-            } catch (InstantiationException ex) {
-                throw new RuntimeException("Internal error processing outputs", ex);
-            } catch (SecurityException ex) {
-                throw new RuntimeException("Internal error processing outputs", ex);
-            } catch (IllegalAccessException ex) {
+                return (IData) bindingConstructorHandle.invokeExact(outputValue);
+            } catch (ClassCastException ex) {
                 throw new RuntimeException("Internal error processing outputs", ex);
-            } catch (InvocationTargetException ex) {
-                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+            } catch (Throwable cause) {
                 throw new RuntimeException(cause.getMessage(), cause);
             }
         }
         
-        public abstract IData get(Object annotatedInstance);
+        public IData get(Object annotatedInstance) {
+            MethodHandle get = compile();
+            Object value;
+            try {
+                value = get.invokeExact(annotatedInstance);
+            } catch (Throwable cause) {
+                throw wrapOutputException(cause);
+            }
+            return value == null ? null : bindOutputValue(value);
+        }
+
+        protected abstract RuntimeException wrapOutputException(Throwable cause);
         
         private synchronized Constructor<? extends IData> getConstructor() {
             if (bindingConstructor == null ){
@@ -329,14 +409,13 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         }
         
         @Override
-        public void set(Object annotatedObject, List<IData> boundInputList) {
-            try {
-                getMember().set(annotatedObject, unbindInput(boundInputList));
-            } catch (IllegalArgumentException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            } catch (IllegalAccessException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            }
+        protected MethodHandle createHandle(MethodHandles.Lookup lookup) throws IllegalAccessException {
+            return lookup.unreflectSetter(getMember()).asType(SET_TYPE);
+        }
+
+        @Override
+        protected RuntimeException wrapInputException(Throwable cause) {
+            return new RuntimeException("Internal error processing inputs", cause);
         }
     }
 
@@ -370,17 +449,13 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         }
         
         @Override
-        public void set(Object annotatedObject, List<IData> boundInputList) {
-            try {
-                getMember().invoke(annotatedObject, unbindInput(boundInputList));
-            } catch (IllegalAccessException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            } catch (IllegalArgumentException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            } catch (InvocationTargetException ex) {
-                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
-                throw new RuntimeException(cause.getMessage(), cause);
-            }
+        protected MethodHandle createHandle(MethodHandles.Lookup lookup) throws IllegalAccessException {
+            return lookup.unreflect(getMember()).asType(SET_TYPE);
+        }
+
+        @Override
+        protected RuntimeException wrapInputException(Throwable cause) {
+            return new RuntimeException(cause.getMessage(), cause);
         }
     }
 
@@ -409,16 +484,13 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         }
         
         @Override
-        public IData get(Object annotatedInstance) {
-            Object value;
-            try {
-                value = getMember().get(annotatedInstance);
-            } catch (IllegalArgumentException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            } catch (IllegalAccessException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            }
-            return value == null ? null : bindOutputValue(value);
+        protected MethodHandle createHandle(MethodHandles.Lookup lookup) throws IllegalAccessException {
+            return lookup.unreflectGetter(getMember()).asType(GET_TYPE);
+        }
+
+        @Override
+        protected RuntimeException wrapOutputException(Throwable cause) {
+            return new RuntimeException("Internal error processing inputs", cause);
         }
     }
 
@@ -452,19 +524,13 @@ public abstract class AnnotationBinding<M extends AccessibleObject & Member> {
         }
         
         @Override
-        public IData get(Object annotatedInstance) {
-            Object value;
-            try {
-                value = getMember().invoke(annotatedInstance);
-            } catch (IllegalAccessException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            } catch (IllegalArgumentException ex) {
-                throw new RuntimeException("Internal error processing inputs", ex);
-            } catch (InvocationTargetException ex) {
-                Throwable cause = ex.getCause() == null ? ex : ex.getCause();
-                throw new RuntimeException(cause.getMessage(), cause);
-            }
-            return value == null ? null : bindOutputValue(value);
+        protected MethodHandle createHandle(MethodHandles.Lookup lookup) throws IllegalAccessException {
+            return lookup.unreflect(getMember()).asType(GET_TYPE);
+        }
+
+        @Override
+        protected RuntimeException wrapOutputException(Throwable cause) {
+            return new RuntimeException(cause.getMessage(), cause);
         }
     }
     
@@ -18,7 +18,6 @@ package org.n52.wps.server;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
 import java.util.List;
 
 import net.opengis.ows.x11.AllowedValuesDocument.AllowedValues;
@@ -54,6 +53,7 @@ import org.n52.wps.io.ParserFactory;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.server.observerpattern.IObserver;
 import org.n52.wps.server.observerpattern.ISubject;
+import org.n52.wps.server.observerpattern.ObserverList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -323,6 +323,14 @@ public abstract class AbstractDescriptorAlgorithm implements IAlgorithm, ISubjec
         return valid;
     }
 
+    /**
+     * @return <code>true</code> if the algorithm is declared deterministic, so
+     *         results of identical requests may be reused
+     */
+    public boolean isDeterministic() {
+        return getAlgorithmDescriptor().getDeterministic();
+    }
+
     protected final synchronized AlgorithmDescriptor getAlgorithmDescriptor() {
         if (descriptor == null) {
             descriptor = createAlgorithmDescriptor();
@@ -352,8 +360,8 @@ public abstract class AbstractDescriptorAlgorithm implements IAlgorithm, ISubjec
         }
     }
 
-    private List observers = new ArrayList();
-    private Object state = null;
+    private final ObserverList observers = new ObserverList();
+    private volatile Object state = null;
 
     @Override
     public Object getState() {
@@ -377,11 +385,7 @@ public abstract class AbstractDescriptorAlgorithm implements IAlgorithm, ISubjec
     }
 
     public void notifyObservers() {
-        Iterator i = observers.iterator();
-        while (i.hasNext()) {
-            IObserver o = (IObserver) i.next();
-            o.update(this);
-        }
+        observers.notifyObservers(this);
     }
 
     List<String> errorList = new ArrayList();
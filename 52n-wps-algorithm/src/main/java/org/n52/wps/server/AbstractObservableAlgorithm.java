@@ -18,9 +18,6 @@ package org.n52.wps.server;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
 
 import net.opengis.wps.x100.ProcessDescriptionType;
 import net.opengis.wps.x100.ProcessDescriptionsDocument;
@@ -31,6 +28,7 @@ import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlOptions;
 import org.n52.wps.server.observerpattern.IObserver;
 import org.n52.wps.server.observerpattern.ISubject;
+import org.n52.wps.server.observerpattern.ObserverList;
 
 public abstract class AbstractObservableAlgorithm implements IAlgorithm, ISubject{
 
@@ -108,9 +106,9 @@ public abstract class AbstractObservableAlgorithm implements IAlgorithm, ISubjec
 		return this.wkName;
 	}
 	
-	private List observers = new ArrayList();
+	private final ObserverList observers = new ObserverList();
 
-	private Object state = null;
+	private volatile Object state = null;
 
 	public Object getState() {
 	  return state;
@@ -130,10 +128,6 @@ public abstract class AbstractObservableAlgorithm implements IAlgorithm, ISubjec
 	 }
 
 	 public void notifyObservers() {
-	   Iterator i = observers.iterator();
-	   while (i.hasNext()) {
-	     IObserver o = (IObserver) i.next();
-	     o.update(this);
-	   }
+	   observers.notifyObservers(this);
 	 }
 }
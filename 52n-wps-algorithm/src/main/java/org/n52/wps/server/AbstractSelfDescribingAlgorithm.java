@@ -19,7 +19,6 @@ package org.n52.wps.server;
 import java.lang.reflect.Constructor;
 import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import net.opengis.ows.x11.DomainMetadataType;
@@ -51,6 +50,7 @@ import org.n52.wps.io.data.IComplexData;
 import org.n52.wps.io.data.ILiteralData;
 import org.n52.wps.server.observerpattern.IObserver;
 import org.n52.wps.server.observerpattern.ISubject;
+import org.n52.wps.server.observerpattern.ObserverList;
 
 
 public abstract class AbstractSelfDescribingAlgorithm extends AbstractAlgorithm implements ISubject{
@@ -265,9 +265,9 @@ public abstract class AbstractSelfDescribingAlgorithm extends AbstractAlgorithm
 	
 
 	
-	private List<IObserver> observers = new ArrayList<IObserver>();
+	private final ObserverList observers = new ObserverList();
 
-	private Object state = null;
+	private volatile Object state = null;
 
 	public Object getState() {
 	  return state;
@@ -287,11 +287,7 @@ public abstract class AbstractSelfDescribingAlgorithm extends AbstractAlgorithm
 	 }
 
 	 public void notifyObservers() {
-	   Iterator<IObserver> i = observers.iterator();
-	   while (i.hasNext()) {
-	     IObserver o = (IObserver) i.next();
-	     o.update(this);
-	   }
+	   observers.notifyObservers(this);
 	 }
 	 
 	 @Override
@@ -0,0 +1,37 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.server;
+
+/**
+ * An algorithm that can stop a running execution when its request is
+ * dismissed, e.g. by killing a subprocess or closing a connection to a
+ * backend. Algorithms that do not implement it are only interrupted.
+ * 
+ * {@link #cancel()} is called from another thread while {@link #run(java.util.Map)}
+ * executes. The {@link org.n52.wps.commons.context.ExecutionContext} of the
+ * cancelled execution is registered for the calling thread, so that instances
+ * shared by concurrent executions can find out which one to stop.
+ */
+public interface ICancellableAlgorithm extends IAlgorithm {
+
+	/**
+	 * Stops the execution and releases its resources. Must not block for long
+	 * and must be safe to call when the execution has already finished.
+	 */
+	void cancel();
+
+}
@@ -16,10 +16,15 @@
  */
 package org.n52.wps.algorithm.annotation;
 
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 import org.hamcrest.CoreMatchers;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.n52.wps.server.StringReverseAnnotatedAlgorithm;
 
 public class AnnotatedAlgorithmIntrospectorTest {
 
@@ -33,4 +38,22 @@ public class AnnotatedAlgorithmIntrospectorTest {
         thrown.expectMessage(CoreMatchers.containsString("No execute method binding"));
         instance = new AnnotatedAlgorithmIntrospector(ClassWithNoExecuteAnnotation.class);
     }
+
+    @Test
+    public void testGetIntrospectorIsCached() {
+        assertSame(AnnotatedAlgorithmIntrospector.getInstrospector(StringReverseAnnotatedAlgorithm.class),
+                AnnotatedAlgorithmIntrospector.getInstrospector(StringReverseAnnotatedAlgorithm.class));
+    }
+
+    @Test
+    public void testGetIntrospectorFailureIsNotCached() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                AnnotatedAlgorithmIntrospector.getInstrospector(ClassWithNoExecuteAnnotation.class);
+                fail("expected RuntimeException");
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage().contains("No execute method binding"));
+            }
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.algorithm.annotation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.n52.test.mock.MockEnum;
+import org.n52.wps.algorithm.annotation.AnnotationBinding.ExecuteMethodBinding;
+import org.n52.wps.algorithm.annotation.AnnotationBinding.InputFieldBinding;
+import org.n52.wps.algorithm.annotation.AnnotationBinding.InputMethodBinding;
+import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.literal.LiteralStringBinding;
+
+public class AnnotationBindingTest {
+
+    public static class Sample {
+
+        public String stringField;
+        public List<String> stringListField;
+        public MockEnum enumField;
+
+        public void setEnum(MockEnum enumParameter) {
+            this.enumField = enumParameter;
+        }
+
+        public void execute() {
+            throw new IllegalStateException("execute failed");
+        }
+    }
+
+    @Test
+    public void testInputFieldBinding() throws Exception {
+        Sample sample = new Sample();
+        InputFieldBinding binding = new InputFieldBinding(Sample.class.getField("stringField"));
+        binding.set(sample, Collections.<IData>singletonList(new LiteralStringBinding("value")));
+        assertEquals("value", sample.stringField);
+    }
+
+    @Test
+    public void testInputListFieldBinding() throws Exception {
+        Sample sample = new Sample();
+        InputFieldBinding binding = new InputFieldBinding(Sample.class.getField("stringListField"));
+        binding.set(sample, Arrays.<IData>asList(new LiteralStringBinding("a"), new LiteralStringBinding("b")));
+        assertEquals(Arrays.asList("a", "b"), sample.stringListField);
+    }
+
+    @Test
+    public void testInputMethodBindingWithEnum() throws Exception {
+        Sample sample = new Sample();
+        InputMethodBinding binding = new InputMethodBinding(Sample.class.getMethod("setEnum", MockEnum.class));
+        binding.set(sample, Collections.<IData>singletonList(new LiteralStringBinding("VALUE2")));
+        assertEquals(MockEnum.VALUE2, sample.enumField);
+    }
+
+    @Test
+    public void testExecuteMethodBindingRethrowsCause() throws Exception {
+        ExecuteMethodBinding binding = new ExecuteMethodBinding(Sample.class.getMethod("execute"));
+        try {
+            binding.execute(new Sample());
+            fail("expected RuntimeException");
+        } catch (RuntimeException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+            assertEquals("execute failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCompileOnce() throws Exception {
+        InputFieldBinding binding = new InputFieldBinding(Sample.class.getField("stringField"));
+        assertSame(binding.compile(), binding.compile());
+    }
+}
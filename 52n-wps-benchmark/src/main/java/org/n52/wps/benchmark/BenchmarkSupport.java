@@ -0,0 +1,290 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.opengis.wps.x100.ComplexDataType;
+import net.opengis.wps.x100.DataInputsType;
+import net.opengis.wps.x100.DocumentOutputDefinitionType;
+import net.opengis.wps.x100.ExecuteDocument;
+import net.opengis.wps.x100.ExecuteDocument.Execute;
+import net.opengis.wps.x100.InputType;
+import net.opengis.wps.x100.OutputDefinitionType;
+import net.opengis.wps.x100.ResponseDocumentType;
+import net.opengis.wps.x100.ResponseFormType;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.io.IGenerator;
+import org.n52.wps.io.data.IData;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Configuration and synthetic data shared by the benchmarks. All data is
+ * generated from a fixed seed, so runs with the same parameters process the
+ * same input.
+ */
+public final class BenchmarkSupport {
+
+	public static final String CONFIG = "/org/n52/wps/benchmark/wps_config.xml";
+
+	public static final long SEED = 52;
+
+	public static final String ECHO_PROCESS = "org.n52.wps.server.algorithm.test.EchoProcess";
+
+	private static final String DATABASE_PATH_PROPERTY = "org.n52.wps.server.database.path";
+
+	private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+	private static File databaseDirectory;
+
+	private BenchmarkSupport() {
+	}
+
+	/**
+	 * Loads the benchmark configuration and points the results database to a
+	 * fresh temporary directory that is deleted when the JVM exits.
+	 */
+	public static synchronized void initialize() throws IOException, XmlException {
+		if (databaseDirectory != null) {
+			return;
+		}
+		// same as WebProcessingService, CRS are handled lon/lat
+		System.setProperty("org.geotools.referencing.forceXY", "true");
+		databaseDirectory = File.createTempFile("52n-wps-benchmark", "");
+		databaseDirectory.delete();
+		databaseDirectory.mkdirs();
+		System.setProperty(DATABASE_PATH_PROPERTY, databaseDirectory.getAbsolutePath());
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				FileUtils.deleteQuietly(databaseDirectory);
+			}
+		});
+		InputStream config = BenchmarkSupport.class.getResourceAsStream(CONFIG);
+		try {
+			WPSConfig.forceInitialization(config);
+		} finally {
+			IOUtils.closeQuietly(config);
+		}
+	}
+
+	public static synchronized File getDatabaseDirectory() {
+		return databaseDirectory;
+	}
+
+	/**
+	 * Creates polygon features with a name and a value attribute.
+	 * 
+	 * @param features
+	 *            number of features
+	 * @param vertices
+	 *            number of vertices of the exterior ring of each polygon
+	 */
+	public static ListFeatureCollection createFeatureCollection(int features, int vertices) {
+		SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+		typeBuilder.setName("BenchmarkFeature");
+		typeBuilder.setNamespaceURI("http://www.52north.org/wps/benchmark");
+		typeBuilder.setCRS(DefaultGeographicCRS.WGS84);
+		typeBuilder.add("the_geom", Polygon.class);
+		typeBuilder.add("name", String.class);
+		typeBuilder.add("value", Double.class);
+		SimpleFeatureType type = typeBuilder.buildFeatureType();
+
+		Random random = new Random(SEED);
+		SimpleFeatureBuilder featureBuilder = new SimpleFeatureBuilder(type);
+		List<SimpleFeature> list = new ArrayList<SimpleFeature>(features);
+		for (int i = 0; i < features; i++) {
+			featureBuilder.add(createPolygon(random, vertices));
+			featureBuilder.add("feature " + i);
+			featureBuilder.add(random.nextDouble() * 1000);
+			list.add(featureBuilder.buildFeature("BenchmarkFeature." + i));
+		}
+		return new ListFeatureCollection(type, list);
+	}
+
+	/**
+	 * Creates a layer of rectangles and points on integer coordinates in
+	 * [0, extent), so that touching and equal geometries occur.
+	 */
+	public static List<Geometry> createGeometries(int count, int extent, long seed) {
+		Random random = new Random(seed);
+		List<Geometry> geometries = new ArrayList<Geometry>(count);
+		for (int i = 0; i < count; i++) {
+			int x = random.nextInt(extent);
+			int y = random.nextInt(extent);
+			if (i % 5 == 0) {
+				geometries.add(GEOMETRY_FACTORY.createPoint(new Coordinate(x, y)));
+			} else {
+				int width = 1 + random.nextInt(40);
+				int height = 1 + random.nextInt(40);
+				geometries.add(GEOMETRY_FACTORY.toGeometry(new Envelope(x, x + width, y, y + height)));
+			}
+		}
+		return geometries;
+	}
+
+	/**
+	 * Creates a single band float coverage of <code>size</code> x
+	 * <code>size</code> cells covering the whole globe.
+	 */
+	public static GridCoverage2D createCoverage(int size) {
+		Random random = new Random(SEED);
+		float[][] matrix = new float[size][size];
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				matrix[row][column] = random.nextFloat() * 100;
+			}
+		}
+		ReferencedEnvelope envelope = new ReferencedEnvelope(-180, 180, -90, 90, DefaultGeographicCRS.WGS84);
+		return new GridCoverageFactory().create("benchmark", matrix, envelope);
+	}
+
+	/**
+	 * Creates an Execute request for the echo test process.
+	 * 
+	 * @param elements
+	 *            number of elements of the inline XML input, without a complex
+	 *            input if zero
+	 * @param rawData
+	 *            whether the complex output is requested as raw data instead
+	 *            of a response document
+	 */
+	public static ExecuteDocument createEchoRequest(int elements, boolean rawData) throws XmlException {
+		ExecuteDocument document = ExecuteDocument.Factory.newInstance();
+		Execute execute = document.addNewExecute();
+		execute.setService("WPS");
+		execute.setVersion("1.0.0");
+		execute.addNewIdentifier().setStringValue(ECHO_PROCESS);
+		DataInputsType inputs = execute.addNewDataInputs();
+		InputType literal = inputs.addNewInput();
+		literal.addNewIdentifier().setStringValue("literalInput");
+		literal.addNewData().addNewLiteralData().setStringValue("benchmark");
+		if (elements > 0) {
+			StringBuilder payload = new StringBuilder("<values xmlns=\"http://www.52north.org/wps/benchmark\">");
+			for (int i = 0; i < elements; i++) {
+				payload.append("<value id=\"").append(i).append("\">").append(i * 0.5).append("</value>");
+			}
+			payload.append("</values>");
+			InputType complex = inputs.addNewInput();
+			complex.addNewIdentifier().setStringValue("complexInput");
+			ComplexDataType data = complex.addNewData().addNewComplexData();
+			data.set(XmlObject.Factory.parse(payload.toString()));
+			data.setMimeType("text/xml");
+		}
+		ResponseFormType responseForm = execute.addNewResponseForm();
+		if (rawData) {
+			OutputDefinitionType output = responseForm.addNewRawDataOutput();
+			output.addNewIdentifier().setStringValue(elements > 0 ? "complexOutput" : "literalOutput");
+			if (elements > 0) {
+				output.setMimeType("text/xml");
+			}
+		} else {
+			ResponseDocumentType responseDocument = responseForm.addNewResponseDocument();
+			responseDocument.addNewOutput().addNewIdentifier().setStringValue("literalOutput");
+			if (elements > 0) {
+				DocumentOutputDefinitionType output = responseDocument.addNewOutput();
+				output.addNewIdentifier().setStringValue("complexOutput");
+				output.setMimeType("text/xml");
+			}
+		}
+		return document;
+	}
+
+	/**
+	 * Encodes data with a generator, to be used as parser input.
+	 */
+	public static byte[] generate(IGenerator generator, IData data, String mimeType, String schema) throws IOException {
+		InputStream stream = generator.generateStream(data, mimeType, schema);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			IOUtils.copy(stream, out);
+			return out.toByteArray();
+		} finally {
+			IOUtils.closeQuietly(stream);
+		}
+	}
+
+	private static Polygon createPolygon(Random random, int vertices) {
+		double centerX = random.nextDouble() * 340 - 170;
+		double centerY = random.nextDouble() * 160 - 80;
+		double radius = 0.01 + random.nextDouble() * 5;
+		Coordinate[] ring = new Coordinate[vertices + 1];
+		for (int i = 0; i < vertices; i++) {
+			double angle = 2 * Math.PI * i / vertices;
+			ring[i] = new Coordinate(centerX + radius * Math.cos(angle), centerY + radius * Math.sin(angle));
+		}
+		ring[vertices] = new Coordinate(ring[0]);
+		return GEOMETRY_FACTORY.createPolygon(GEOMETRY_FACTORY.createLinearRing(ring), null);
+	}
+
+}
@@ -0,0 +1,129 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
+import org.n52.wps.io.datahandler.generator.GML3BasicGenerator;
+import org.n52.wps.io.datahandler.generator.GeoJSONGenerator;
+import org.n52.wps.io.datahandler.parser.GML3BasicParser;
+import org.n52.wps.io.datahandler.parser.GeoJSONParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the vector data handlers on synthetic polygon layers. The inputs
+ * of the parsers are produced by the corresponding generators during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FeatureIOBenchmark {
+
+	private static final String GML3_SCHEMA = "http://schemas.opengis.net/gml/3.1.1/base/feature.xsd";
+
+	private static final String GEOJSON = "application/geojson";
+
+	@Param({ "100", "1000", "10000" })
+	public int features;
+
+	@Param({ "16" })
+	public int vertices;
+
+	private GTVectorDataBinding collection;
+
+	private byte[] gml3;
+
+	private byte[] geoJSON;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSupport.initialize();
+		collection = new GTVectorDataBinding(BenchmarkSupport.createFeatureCollection(features, vertices));
+		gml3 = BenchmarkSupport.generate(new GML3BasicGenerator(), collection, "text/xml", GML3_SCHEMA);
+		geoJSON = BenchmarkSupport.generate(new GeoJSONGenerator(), collection, GEOJSON, null);
+	}
+
+	@Benchmark
+	public IData parseGML3(ExecutionContextState context) {
+		return new GML3BasicParser().parse(new ByteArrayInputStream(gml3), "text/xml", GML3_SCHEMA);
+	}
+
+	@Benchmark
+	public void generateGML3(ExecutionContextState context, Blackhole blackhole) throws IOException {
+		blackhole.consume(BenchmarkSupport.generate(new GML3BasicGenerator(), collection, "text/xml", GML3_SCHEMA));
+	}
+
+	@Benchmark
+	public IData parseGeoJSON(ExecutionContextState context) {
+		return new GeoJSONParser().parse(new ByteArrayInputStream(geoJSON), GEOJSON, null);
+	}
+
+	@Benchmark
+	public void generateGeoJSON(ExecutionContextState context, Blackhole blackhole) throws IOException {
+		blackhole.consume(BenchmarkSupport.generate(new GeoJSONGenerator(), collection, GEOJSON, null));
+	}
+
+}
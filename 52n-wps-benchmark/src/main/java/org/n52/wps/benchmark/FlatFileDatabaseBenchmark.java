@@ -0,0 +1,133 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.FileUtils;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.IDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.base.Charsets;
+
+/**
+ * Measures storing responses and complex outputs in the default
+ * FlatFileDatabase, which writes below a temporary directory that is emptied
+ * after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatFileDatabaseBenchmark {
+
+	/** approximate size of the stored documents in bytes */
+	@Param({ "1024", "1048576" })
+	public int size;
+
+	private final AtomicLong ids = new AtomicLong();
+
+	private IDatabase database;
+
+	private byte[] response;
+
+	@Setup
+	public void setUp() throws Exception {
+		BenchmarkSupport.initialize();
+		database = DatabaseFactory.getDatabase();
+		StringBuilder builder = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+		builder.append("<wps:ExecuteResponse xmlns:wps=\"http://www.opengis.net/wps/1.0.0\"><wps:ProcessOutputs>");
+		int i = 0;
+		while (builder.length() < size) {
+			builder.append("<wps:Output><wps:Data><wps:LiteralData>").append(i++).append("</wps:LiteralData></wps:Data></wps:Output>");
+		}
+		builder.append("</wps:ProcessOutputs></wps:ExecuteResponse>");
+		response = builder.toString().getBytes(Charsets.UTF_8);
+	}
+
+	@TearDown(Level.Iteration)
+	public void clean() throws IOException {
+		File[] files = BenchmarkSupport.getDatabaseDirectory().listFiles();
+		if (files != null) {
+			for (File file : files) {
+				FileUtils.deleteQuietly(file);
+			}
+		}
+	}
+
+	@Benchmark
+	public String storeResponse() {
+		return database.storeResponse("benchmark-" + ids.incrementAndGet(), new ByteArrayInputStream(response));
+	}
+
+	@Benchmark
+	public String storeComplexValue() {
+		return database.storeComplexValue("benchmark-" + ids.incrementAndGet(), new ByteArrayInputStream(response),
+				"ComplexDataResponse", "text/xml");
+	}
+
+}
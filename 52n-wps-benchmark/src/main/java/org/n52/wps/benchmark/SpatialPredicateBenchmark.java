@@ -0,0 +1,123 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicate;
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicateEngine;
+import org.n52.wps.server.algorithm.spatialquery.SpatialPredicateEngine.Match;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Compares the indexed evaluation of the spatial query algorithms, on one
+ * and on all processors, with the nested loop over all pairs. Both layers
+ * have <code>layerSize</code> geometries; the 10000 case is the 10k x 10k
+ * comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SpatialPredicateBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int layerSize;
+
+	@Param({ "INTERSECTS", "TOUCHES" })
+	public SpatialPredicate predicate;
+
+	private List<Geometry> first;
+
+	private List<Geometry> second;
+
+	private SpatialPredicateEngine singleThreaded;
+
+	private SpatialPredicateEngine parallel;
+
+	@Setup
+	public void setUp() {
+		// keep the density constant, about 100 x 100 units per geometry
+		int extent = (int) Math.sqrt(layerSize) * 100;
+		first = BenchmarkSupport.createGeometries(layerSize, extent, BenchmarkSupport.SEED);
+		second = BenchmarkSupport.createGeometries(layerSize, extent, BenchmarkSupport.SEED + 1);
+		singleThreaded = new SpatialPredicateEngine(1, 1000);
+		parallel = new SpatialPredicateEngine(Runtime.getRuntime().availableProcessors(), 1000);
+	}
+
+	@Benchmark
+	public List<Match> naive() {
+		return SpatialPredicateEngine.matchNaive(first, second, predicate);
+	}
+
+	@Benchmark
+	public List<Match> indexed() {
+		return singleThreaded.match(first, second, predicate);
+	}
+
+	@Benchmark
+	public List<Match> indexedParallel() {
+		return parallel.match(first, second, predicate);
+	}
+
+}
@@ -53,6 +53,8 @@ import net.opengis.wps.x100.ResponseFormType;
 import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlObject;
 import org.apache.xmlbeans.XmlString;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.GeneratorFactory;
 import org.n52.wps.io.IGenerator;
 import org.n52.wps.io.IOHandler;
@@ -125,6 +127,13 @@ public class ExecuteRequestBuilder {
 		InputType input = execute.getExecute().getDataInputs().addNewInput();
 		input.addNewIdentifier().setStringValue(
 				inputDesc.getIdentifier().getStringValue());
+		// generators may need temporary files, which are deleted once the
+		// data has been copied into the request
+		ExecutionContext context = null;
+		if (ExecutionContextFactory.getContext(false) == null) {
+			context = new ExecutionContext();
+			ExecutionContextFactory.registerContext(context);
+		}
 		// encoding is UTF-8 (or nothing and we default to UTF-8)
 		// everything that goes to this condition should be inline xml data
 		try {
@@ -146,6 +155,11 @@ public class ExecuteRequestBuilder {
 		} catch (IOException e) {
 			throw new IllegalArgumentException(
 					"error reading generator output", e);
+		} finally {
+			if (context != null) {
+				ExecutionContextFactory.unregisterContext();
+				context.dispose();
+			}
 		}
 			
 	}
@@ -46,6 +46,8 @@ import net.opengis.wps.x100.OutputDescriptionType;
 import net.opengis.wps.x100.ProcessDescriptionType;
 
 import org.n52.wps.commons.XMLUtil;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.IParser;
 import org.n52.wps.io.data.IData;
 import org.slf4j.Logger;
@@ -67,6 +69,9 @@ public class ExecuteResponseAnalyser {
 	ExecuteDocument exec;
 	Object response;
 	
+	/** holds temporary files backing the parsed outputs */
+	private final ExecutionContext context = new ExecutionContext();
+	
 	public ExecuteResponseAnalyser(ExecuteDocument exec, Object response, ProcessDescriptionType processDesc) throws WPSClientException {
 		this.processDesc = processDesc;
 		this.exec= exec;
@@ -76,6 +81,14 @@ public class ExecuteResponseAnalyser {
 		this.response = response;
 	}
 	
+	/**
+	 * Deletes the temporary files backing the outputs parsed by this
+	 * analyser. The parsed data must not be used afterwards.
+	 */
+	public void dispose() {
+		context.dispose();
+	}
+	
 	
 /**
  * delivers the parsed ComplexData by name
@@ -240,10 +253,20 @@ public class ExecuteResponseAnalyser {
 		
 		
 		if(parser != null) {
-			if(encoding != null && encoding.equalsIgnoreCase("base64")){
-				return parser.parseBase64(is, mimeType, schema);
-			}else{
-				return parser.parse(is, mimeType, schema);
+			boolean registered = ExecutionContextFactory.getContext(false) == null;
+			if(registered){
+				ExecutionContextFactory.registerContext(context);
+			}
+			try {
+				if(encoding != null && encoding.equalsIgnoreCase("base64")){
+					return parser.parseBase64(is, mimeType, schema);
+				}else{
+					return parser.parse(is, mimeType, schema);
+				}
+			} finally {
+				if(registered){
+					ExecutionContextFactory.unregisterContext();
+				}
 			}
 		}
 		RuntimeException rte = new RuntimeException("Could not find suitable parser");		
@@ -16,6 +16,7 @@
  */
 package org.n52.wps.commons.context;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -27,6 +28,8 @@ public class ExecutionContext {
 
     private String tempFolderName;
     private List<OutputDefinitionType> outputDefinitionTypes;
+    private ScratchSpace scratchSpace;
+    private boolean scratchSpaceAvailable = true;
 
     public ExecutionContext() {
         this(Arrays.asList(new OutputDefinitionType[0]));
@@ -43,8 +46,52 @@ public class ExecutionContext {
     }
 
     public String getTempDirectoryPath() {
+        try {
+            return getScratchSpace().getDirectory().getAbsolutePath();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the scratch space for temporary files of this execution, which
+     *         is deleted by {@link #dispose()}
+     * @throws IllegalStateException
+     *             if this is the default context, which is never disposed
+     */
+    public synchronized ScratchSpace getScratchSpace() {
+        if (!scratchSpaceAvailable) {
+            throw new IllegalStateException("No execution context is registered for thread "
+                    + Thread.currentThread().getName() + ", temporary files are only available within an execution");
+        }
+        if (scratchSpace == null) {
+            scratchSpace = ScratchSpaceManager.getInstance().createScratchSpace(tempFolderName);
+        }
+        return scratchSpace;
+    }
+
+    /**
+     * @return false for the default context, which has no scratch space
+     */
+    public synchronized boolean hasScratchSpace() {
+        return scratchSpaceAvailable;
+    }
+
+    /**
+     * Releases the resources of this execution, deleting its temporary files.
+     */
+    public synchronized void dispose() {
+        if (scratchSpace != null) {
+            scratchSpace.dispose();
+        }
+    }
 
-        return System.getProperty("java.io.tmpdir") + this.tempFolderName;
+    /**
+     * Used for the default context, whose temporary files would never be
+     * deleted.
+     */
+    synchronized void disableScratchSpace() {
+        scratchSpaceAvailable = false;
     }
 
     public List<OutputDefinitionType> getOutputs() {
@@ -42,9 +42,16 @@ public class ExecutionContextFactory {
         return executionContext;
     }
 
+    /**
+     * The default context is used by threads without a registered context.
+     * It has no scratch space: temporary files must be created within an
+     * execution that disposes them, see
+     * {@link ExecutionContext#getScratchSpace()}.
+     */
     public synchronized static ExecutionContext getDefault() {
         if (defaultContext == null) {
             defaultContext = new ExecutionContext();
+            defaultContext.disableScratchSpace();
         }
         return defaultContext;
     }
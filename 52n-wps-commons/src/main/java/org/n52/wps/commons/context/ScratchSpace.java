@@ -0,0 +1,214 @@
+/**
+ * ﻿Copyright (C) 2006 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.commons.context;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Temporary files and directories of a single request. Everything handed out
+ * or tracked by a scratch space is deleted when it is disposed, which happens
+ * once the request has completed or failed.
+ * 
+ * @see ExecutionContext#getScratchSpace()
+ */
+public class ScratchSpace {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScratchSpace.class);
+
+	private final ScratchSpaceManager manager;
+
+	private final File directory;
+
+	/** files created elsewhere that are deleted with this scratch space */
+	private final List<File> trackedFiles = new CopyOnWriteArrayList<File>();
+
+	/** resources closed before the files of this scratch space are deleted */
+	private final List<Closeable> resources = new CopyOnWriteArrayList<Closeable>();
+
+	private volatile boolean disposed;
+
+	/** the usage included in the total of the manager, guarded by this */
+	private long accountedUsage;
+
+	ScratchSpace(ScratchSpaceManager manager, File directory) {
+		this.manager = manager;
+		this.directory = directory;
+	}
+
+	/**
+	 * @return the directory holding the files of this scratch space, created
+	 *         if necessary
+	 */
+	public synchronized File getDirectory() throws IOException {
+		if (disposed) {
+			throw new IOException("Scratch space " + directory + " has already been disposed");
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create scratch space " + directory);
+		}
+		return directory;
+	}
+
+	/**
+	 * Creates an empty file, see
+	 * {@link File#createTempFile(String, String, File)}.
+	 * 
+	 * @throws IOException
+	 *             if the file could not be created or a quota is exhausted
+	 */
+	public synchronized File createFile(String prefix, String suffix) throws IOException {
+		manager.checkQuota(this);
+		return File.createTempFile(prefix, suffix, getDirectory());
+	}
+
+	/**
+	 * Creates an empty directory.
+	 * 
+	 * @throws IOException
+	 *             if the directory could not be created or a quota is
+	 *             exhausted
+	 */
+	public synchronized File createDirectory(String prefix) throws IOException {
+		manager.checkQuota(this);
+		File created = new File(getDirectory(), prefix + UUID.randomUUID());
+		if (!created.mkdir()) {
+			throw new IOException("Could not create directory " + created);
+		}
+		return created;
+	}
+
+	/**
+	 * Deletes the given file or directory together with this scratch space.
+	 * Meant for temporary files that could not be created through this
+	 * scratch space.
+	 */
+	public synchronized void track(File file) {
+		if (disposed) {
+			delete(file);
+		} else {
+			trackedFiles.add(file);
+		}
+	}
+
+	/**
+	 * Closes the given resource when this scratch space is disposed, before
+	 * its files are deleted. Meant for readers that keep files of this scratch
+	 * space open as long as the data read from them is in use.
+	 */
+	public synchronized void register(Closeable resource) {
+		if (disposed) {
+			close(resource);
+		} else {
+			resources.add(resource);
+		}
+	}
+
+	/**
+	 * Measures the disk space currently used. Does not lock this scratch
+	 * space, so that quota checks of other scratch spaces never wait for it.
+	 * 
+	 * @return the bytes used by the files of this scratch space
+	 */
+	public long getUsage() {
+		if (disposed) {
+			return 0;
+		}
+		long usage = sizeOf(directory);
+		for (File file : trackedFiles) {
+			usage += sizeOf(file);
+		}
+		return usage;
+	}
+
+	/**
+	 * Records the usage measured by the manager. Called while holding the lock
+	 * of this scratch space.
+	 * 
+	 * @return the change since the last measurement
+	 */
+	long account(long usage) {
+		long delta = usage - accountedUsage;
+		accountedUsage = usage;
+		return delta;
+	}
+
+	/**
+	 * Deletes all files and directories of this scratch space.
+	 */
+	public synchronized void dispose() {
+		if (disposed) {
+			return;
+		}
+		disposed = true;
+		for (Closeable resource : resources) {
+			close(resource);
+		}
+		resources.clear();
+		for (File file : trackedFiles) {
+			delete(file);
+		}
+		trackedFiles.clear();
+		delete(directory);
+		manager.released(this);
+	}
+
+	private static long sizeOf(File file) {
+		if (file.isDirectory()) {
+			long size = 0;
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					size += sizeOf(child);
+				}
+			}
+			return size;
+		}
+		return file.length();
+	}
+
+	private static void close(Closeable resource) {
+		try {
+			resource.close();
+		} catch (IOException e) {
+			LOGGER.warn("Could not close {}: {}", resource, e.getMessage());
+		} catch (RuntimeException e) {
+			LOGGER.warn("Could not close " + resource, e);
+		}
+	}
+
+	private static void delete(File file) {
+		if (file.isDirectory()) {
+			File[] children = file.listFiles();
+			if (children != null) {
+				for (File child : children) {
+					delete(child);
+				}
+			}
+		}
+		if (file.exists() && !file.delete()) {
+			LOGGER.warn("Could not delete temporary file {}", file);
+		}
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * ﻿Copyright (C) 2006 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.commons.context;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out {@link ScratchSpace}s for temporary files and directories and
+ * enforces the configured disk quotas: a quota per scratch space (that is,
+ * per request) and a global quota over all scratch spaces in use. Quotas are
+ * given in bytes, a negative value disables them.
+ * 
+ * The current usage is available through {@link #getUsage()}. It is a
+ * running total of the usage each scratch space had at its last allocation:
+ * a scratch space measures its own files when it allocates, so files written
+ * after their allocation are counted from the next allocation of the same
+ * scratch space on, and no allocation has to measure the others. Scratch
+ * spaces that are still in use at shutdown are deleted then.
+ */
+public class ScratchSpaceManager {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ScratchSpaceManager.class);
+
+	public static final String PROPERTY_DIRECTORY = "scratch.directory";
+
+	public static final String PROPERTY_REQUEST_QUOTA = "scratch.requestQuota";
+
+	public static final String PROPERTY_GLOBAL_QUOTA = "scratch.globalQuota";
+
+	private static final String DEFAULT_DIRECTORY = "52n-wps-scratch";
+
+	private static ScratchSpaceManager instance;
+
+	private final File baseDirectory;
+
+	private final long requestQuota;
+
+	private final long globalQuota;
+
+	private final Set<ScratchSpace> scratchSpaces = new HashSet<ScratchSpace>();
+
+	/** sum of the usage of all scratch spaces in use at their last allocation */
+	private final AtomicLong usage = new AtomicLong();
+
+	public static synchronized ScratchSpaceManager getInstance() {
+		if (instance == null) {
+			String directory = new File(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY).getAbsolutePath();
+			long requestQuota = -1;
+			long globalQuota = -1;
+			try {
+				Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+				PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+				directory = propertyUtil.extractString(PROPERTY_DIRECTORY, directory);
+				requestQuota = propertyUtil.extractLong(PROPERTY_REQUEST_QUOTA, requestQuota);
+				globalQuota = propertyUtil.extractLong(PROPERTY_GLOBAL_QUOTA, globalQuota);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not read scratch space configuration, using defaults: {}", e.getMessage());
+			}
+			instance = new ScratchSpaceManager(new File(directory), requestQuota, globalQuota);
+			Runtime.getRuntime().addShutdownHook(new Thread("scratch-space-cleanup") {
+				@Override
+				public void run() {
+					instance.disposeAll();
+				}
+			});
+		}
+		return instance;
+	}
+
+	public ScratchSpaceManager(File baseDirectory, long requestQuota, long globalQuota) {
+		this.baseDirectory = baseDirectory;
+		this.requestQuota = requestQuota;
+		this.globalQuota = globalQuota;
+		LOGGER.info("Scratch space in {}, request quota {}, global quota {}", baseDirectory, requestQuota, globalQuota);
+	}
+
+	/**
+	 * @param name
+	 *            unique name of the scratch space, used as directory name
+	 */
+	public ScratchSpace createScratchSpace(String name) {
+		ScratchSpace scratchSpace = new ScratchSpace(this, new File(baseDirectory, name));
+		synchronized (scratchSpaces) {
+			scratchSpaces.add(scratchSpace);
+		}
+		return scratchSpace;
+	}
+
+	/**
+	 * @return the bytes used by all scratch spaces in use, as measured at
+	 *         their last allocation
+	 */
+	public long getUsage() {
+		return usage.get();
+	}
+
+	/**
+	 * @return the number of scratch spaces in use
+	 */
+	public int getActiveCount() {
+		synchronized (scratchSpaces) {
+			return scratchSpaces.size();
+		}
+	}
+
+	public File getBaseDirectory() {
+		return baseDirectory;
+	}
+
+	public long getRequestQuota() {
+		return requestQuota;
+	}
+
+	public long getGlobalQuota() {
+		return globalQuota;
+	}
+
+	/**
+	 * Called by a scratch space before it allocates a file or directory.
+	 * 
+	 * @throws IOException
+	 *             if a quota is exhausted
+	 */
+	void checkQuota(ScratchSpace scratchSpace) throws IOException {
+		long spaceUsage = scratchSpace.getUsage();
+		long globalUsage = usage.addAndGet(scratchSpace.account(spaceUsage));
+		if (requestQuota >= 0 && spaceUsage >= requestQuota) {
+			throw new IOException("Scratch space quota of " + requestQuota + " bytes per request exceeded (" + spaceUsage + " bytes in use)");
+		}
+		if (globalQuota >= 0) {
+			if (globalUsage >= globalQuota) {
+				throw new IOException("Global scratch space quota of " + globalQuota + " bytes exceeded (" + globalUsage + " bytes in use)");
+			}
+		}
+	}
+
+	void released(ScratchSpace scratchSpace) {
+		synchronized (scratchSpaces) {
+			scratchSpaces.remove(scratchSpace);
+		}
+		usage.addAndGet(scratchSpace.account(0));
+	}
+
+	private void disposeAll() {
+		List<ScratchSpace> remaining;
+		synchronized (scratchSpaces) {
+			remaining = new ArrayList<ScratchSpace>(scratchSpaces);
+		}
+		for (ScratchSpace scratchSpace : remaining) {
+			scratchSpace.dispose();
+		}
+	}
+}
@@ -132,6 +132,9 @@ public class ExceptionReport extends Exception {
 		case NO_APPLICABLE_CODE:
 			return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 			
+		case SERVER_BUSY:
+			return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+			
 		default:
 			return HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
 		}		
@@ -0,0 +1,47 @@
+/**
+ * ﻿Copyright (C) 2006 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.server;
+
+/**
+ * A {@link ExceptionReport} with the code {@link #SERVER_BUSY} that also tells
+ * the client how long it should wait before retrying the request. The web
+ * service reports this as a <code>Retry-After</code> header.
+ */
+public class ServerBusyException extends ExceptionReport {
+
+	private static final long serialVersionUID = -3017548741205731645L;
+
+	private final long retryAfterSeconds;
+
+	public ServerBusyException(String message, long retryAfterSeconds) {
+		super(message, SERVER_BUSY);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	public ServerBusyException(String message, long retryAfterSeconds, Throwable e) {
+		super(message, SERVER_BUSY, e);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * @return the number of seconds after which the client may retry, or a
+	 *         value &lt;= 0 if no hint is available
+	 */
+	public long getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * ﻿Copyright (C) 2006 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.server.observerpattern;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The observers of an {@link ISubject}. Subjects are notified from the thread
+ * executing them while observers are added and removed by other threads, so
+ * the observers are kept in a copy-on-write list that is iterated without
+ * locking.
+ */
+public class ObserverList {
+
+    private final List<IObserver> observers = new CopyOnWriteArrayList<IObserver>();
+
+    public void add(IObserver o) {
+        observers.add(o);
+    }
+
+    public void remove(IObserver o) {
+        observers.remove(o);
+    }
+
+    public void notifyObservers(ISubject subject) {
+        for (IObserver o : observers) {
+            o.update(subject);
+        }
+    }
+}
@@ -92,6 +92,10 @@ public class ExecutionContextTest {
         assertNotNull(ec.getOutputs());
         assertEquals(0, ec.getOutputs().size());
     }
-    
 
+    @Test(expected = IllegalStateException.class)
+    public void testDefaultContextHasNoScratchSpace() {
+        ExecutionContextFactory.unregisterContext();
+        ExecutionContextFactory.getContext().getScratchSpace();
+    }
 }
@@ -0,0 +1,156 @@
+/**
+ * ﻿Copyright (C) 2006 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * To change this template, choose Tools | Templates
+ * and open the template in the editor.
+ */
+package org.n52.wps.commons.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScratchSpaceTest {
+
+    private File baseDirectory;
+
+    @Before
+    public void setUp() {
+        baseDirectory = new File(System.getProperty("java.io.tmpdir"), "scratch-test-" + UUID.randomUUID());
+    }
+
+    @After
+    public void tearDown() {
+        baseDirectory.delete();
+    }
+
+    @Test
+    public void testDisposeDeletesFiles() throws IOException {
+        ScratchSpaceManager manager = new ScratchSpaceManager(baseDirectory, -1, -1);
+        ScratchSpace scratchSpace = manager.createScratchSpace("request");
+        File file = scratchSpace.createFile("test", ".tmp");
+        File directory = scratchSpace.createDirectory("dir");
+        File nested = new File(directory, "nested.tmp");
+        write(nested, 10);
+        assertTrue(file.isFile());
+        assertTrue(nested.isFile());
+        assertEquals(1, manager.getActiveCount());
+
+        scratchSpace.dispose();
+        assertFalse(file.exists());
+        assertFalse(directory.exists());
+        assertFalse(new File(baseDirectory, "request").exists());
+        assertEquals(0, manager.getActiveCount());
+    }
+
+    @Test
+    public void testDisposeClosesResources() throws IOException {
+        ScratchSpaceManager manager = new ScratchSpaceManager(baseDirectory, -1, -1);
+        ScratchSpace scratchSpace = manager.createScratchSpace("request");
+        final List<String> closed = new ArrayList<String>();
+        scratchSpace.register(new Closeable() {
+            public void close() {
+                closed.add("first");
+            }
+        });
+        assertTrue(closed.isEmpty());
+
+        scratchSpace.dispose();
+        assertEquals(Arrays.asList("first"), closed);
+
+        // registered after disposal: closed at once
+        scratchSpace.register(new Closeable() {
+            public void close() {
+                closed.add("second");
+            }
+        });
+        assertEquals(Arrays.asList("first", "second"), closed);
+    }
+
+    @Test
+    public void testRequestQuota() throws IOException {
+        ScratchSpaceManager manager = new ScratchSpaceManager(baseDirectory, 100, -1);
+        ScratchSpace scratchSpace = manager.createScratchSpace("request");
+        try {
+            write(scratchSpace.createFile("test", ".tmp"), 150);
+            try {
+                scratchSpace.createFile("test", ".tmp");
+                fail("request quota not enforced");
+            } catch (IOException e) {
+                // expected
+            }
+            assertEquals(150, scratchSpace.getUsage());
+            assertEquals(150, manager.getUsage());
+        } finally {
+            scratchSpace.dispose();
+        }
+    }
+
+    @Test
+    public void testGlobalQuota() throws IOException {
+        ScratchSpaceManager manager = new ScratchSpaceManager(baseDirectory, -1, 100);
+        ScratchSpace first = manager.createScratchSpace("first");
+        ScratchSpace second = manager.createScratchSpace("second");
+        try {
+            write(first.createFile("test", ".tmp"), 150);
+            // the bytes are counted from the next allocation of the first space
+            second.createFile("test", ".tmp");
+            assertEquals(0, manager.getUsage());
+            try {
+                first.createFile("again", ".tmp");
+                fail("global quota not enforced");
+            } catch (IOException e) {
+                // expected
+            }
+            assertEquals(150, manager.getUsage());
+            try {
+                second.createFile("again", ".tmp");
+                fail("global quota not enforced");
+            } catch (IOException e) {
+                // expected
+            }
+        } finally {
+            first.dispose();
+            second.dispose();
+        }
+        assertEquals(0, manager.getUsage());
+    }
+
+    private static void write(File file, int length) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -36,6 +36,9 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -376,6 +379,30 @@ public abstract class AbstractDatabase implements IDatabase{
 		return -1;
 	}
 	
+    @Override
+	public String getDigestForStoreResponse(String id) {
+		return null;
+	}
+
+    @Override
+	public IJobQueue getJobQueue() {
+		return null;
+	}
+
+	// only visible to this instance, databases shared by several instances
+	// have to store the marks
+	private final Set<String> cancelled = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Override
+	public void markCancelled(String id) {
+		cancelled.add(id);
+	}
+
+    @Override
+	public boolean isCancelled(String id) {
+		return cancelled.contains(id);
+	}
+
     @Override
 	public boolean deleteStoredResponse(String id) {
 		return false;
@@ -0,0 +1,93 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive lock on a file, guarding changes to blobs that are shared with
+ * instances in other JVMs using the same directory. Closing it releases the
+ * lock.
+ */
+final class BlobLock implements Closeable {
+
+    // file locks are held by the whole JVM, threads and instances within the
+    // same JVM have to exclude each other before taking one
+    private static final ReentrantLock JVM_LOCK = new ReentrantLock();
+
+    private final FileChannel channel;
+
+    private BlobLock(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Waits until the lock on the file is acquired, creating the file if
+     * necessary.
+     */
+    static BlobLock acquire(File lockFile) throws IOException {
+        JVM_LOCK.lock();
+        FileChannel channel = null;
+        try {
+            lockFile.getParentFile().mkdirs();
+            channel = new RandomAccessFile(lockFile, "rw").getChannel();
+            channel.lock();
+            return new BlobLock(channel);
+        }
+        catch (IOException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            JVM_LOCK.unlock();
+            throw e;
+        }
+        catch (RuntimeException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            JVM_LOCK.unlock();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        }
+        finally {
+            JVM_LOCK.unlock();
+        }
+    }
+}
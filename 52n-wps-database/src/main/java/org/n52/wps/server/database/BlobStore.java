@@ -0,0 +1,152 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.base.Joiner;
+
+/**
+ * Content addressed files shared by stored results with identical values.
+ * Every result referring to a blob is recorded as an empty file in the
+ * blob's reference directory, the blob is deleted with its last reference.
+ * 
+ * Blobs are spread over subdirectories named after the first two characters
+ * of their name. Changes to a subdirectory are made under a {@link BlobLock}
+ * on a file in it, so instances in other JVMs using the same directory do not delete a
+ * blob that is just being referenced again.
+ */
+final class BlobStore {
+
+    private static final String SUFFIX_REFERENCES = "refs";
+
+    private static final String LOCK_FILE = "lock";
+
+    private static final Joiner JOINER = Joiner.on(".");
+
+    private final File directory;
+
+    BlobStore(File directory) {
+        this.directory = directory;
+    }
+
+    File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return a new temporary file to write a value to before it is added
+     */
+    File createTempFile() throws IOException {
+        directory.mkdirs();
+        return File.createTempFile("blob", ".tmp", directory);
+    }
+
+    /**
+     * Makes the temporary file the blob with the given name, unless the blob
+     * exists already, and records the reference of the result to it. The
+     * temporary file is gone afterwards, even if adding fails.
+     * 
+     * @return the blob file
+     */
+    File add(String blobName, File tempFile, String resultId) throws IOException {
+        File blobFile = getFile(blobName);
+        File referencesDirectory = getReferencesDirectory(blobName);
+        try {
+            BlobLock lock = lock(blobName);
+            try {
+                if ( !blobFile.exists() && !tempFile.renameTo(blobFile)) {
+                    throw new IOException("Unable to move " + tempFile.getPath() + " to " + blobFile.getPath());
+                }
+                referencesDirectory.mkdirs();
+                File referenceFile = new File(referencesDirectory, resultId);
+                if ( !referenceFile.createNewFile() && !referenceFile.exists()) {
+                    throw new IOException("Unable to create " + referenceFile.getPath());
+                }
+            }
+            finally {
+                lock.close();
+            }
+        }
+        finally {
+            // still there if the value is identical to an existing blob
+            tempFile.delete();
+        }
+        return blobFile;
+    }
+
+    /**
+     * Removes the reference of the result to the blob and deletes the blob if
+     * no other result refers to it.
+     * 
+     * @return true if the blob was deleted
+     */
+    boolean release(String blobName, String resultId) throws IOException {
+        File referencesDirectory = getReferencesDirectory(blobName);
+        BlobLock lock = lock(blobName);
+        try {
+            new File(referencesDirectory, resultId).delete();
+            String[] references = referencesDirectory.list();
+            if (references != null && references.length > 0) {
+                return false;
+            }
+            getFile(blobName).delete();
+            referencesDirectory.delete();
+            return true;
+        }
+        finally {
+            lock.close();
+        }
+    }
+
+    /**
+     * @return the number of results referring to the blob
+     */
+    int getReferenceCount(String blobName) {
+        String[] references = getReferencesDirectory(blobName).list();
+        return references == null ? 0 : references.length;
+    }
+
+    File getFile(String blobName) {
+        return new File(getSubdirectory(blobName), blobName);
+    }
+
+    private File getReferencesDirectory(String blobName) {
+        return new File(getSubdirectory(blobName), JOINER.join(blobName, SUFFIX_REFERENCES));
+    }
+
+    private File getSubdirectory(String blobName) {
+        return new File(directory, blobName.substring(0, 2));
+    }
+
+    private BlobLock lock(String blobName) throws IOException {
+        return BlobLock.acquire(new File(getSubdirectory(blobName), LOCK_FILE));
+    }
+}
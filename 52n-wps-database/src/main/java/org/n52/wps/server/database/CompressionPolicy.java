@@ -0,0 +1,262 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides how a complex value is encoded when it is stored, based on its MIME
+ * type. Rules are given as a comma separated list of
+ * <code>pattern=encoding[:level]</code>, where the pattern is a MIME type,
+ * <code>type/*</code> or <code>*</code>, the encoding is a
+ * {@link ContentEncoding} name or <code>probe</code>, and the level is a
+ * compression level from 1 to 9. The first matching rule applies; configured
+ * rules are checked before the built-in ones, which store already compressed
+ * formats as they are, compress text and XML, and probe everything else.
+ * <p>
+ * Probing compresses a sample from the start of the value with the fastest
+ * level and compresses the value only if the sample shrinks below the
+ * configured ratio. GeoTIFFs, for example, may or may not be compressed
+ * internally.
+ */
+public class CompressionPolicy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompressionPolicy.class);
+
+    public static final String PROBE = "probe";
+
+    static final String DEFAULT_RULES = "application/x-zipped-shp=identity, application/zip=identity, "
+            + "application/x-zip-compressed=identity, application/gzip=identity, application/x-gzip=identity, "
+            + "image/png=identity, image/jpeg=identity, image/jpg=identity, image/gif=identity, "
+            + "image/jp2=identity, video/*=identity, audio/*=identity, "
+            + "text/*=gzip, application/xml=gzip, application/json=gzip, application/x-ogc-gml=gzip, "
+            + "*=probe";
+
+    private final List<Rule> rules;
+
+    private final int defaultLevel;
+
+    private final int probeSize;
+
+    private final double probeRatio;
+
+    /**
+     * @param rules
+     *            configured rules, may be <code>null</code>
+     * @param defaultLevel
+     *            compression level of rules without a level
+     * @param probeSize
+     *            number of bytes sampled by a probe
+     * @param probeRatio
+     *            a value is compressed if a probe shrinks its sample to this
+     *            fraction or less
+     */
+    public CompressionPolicy(String rules, int defaultLevel, int probeSize, double probeRatio) {
+        List<Rule> parsed = new ArrayList<Rule>();
+        if (rules != null) {
+            parsed.addAll(parseRules(rules));
+        }
+        parsed.addAll(parseRules(DEFAULT_RULES));
+        this.rules = Collections.unmodifiableList(parsed);
+        this.defaultLevel = defaultLevel;
+        this.probeSize = probeSize;
+        this.probeRatio = probeRatio;
+    }
+
+    /**
+     * A policy that stores every value as it is.
+     */
+    public static CompressionPolicy identity() {
+        return new CompressionPolicy("*=identity", Deflater.DEFAULT_COMPRESSION, 0, 0);
+    }
+
+    private static List<Rule> parseRules(String value) {
+        List<Rule> rules = new ArrayList<Rule>();
+        for (String entry : value.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            if (separator < 1) {
+                LOGGER.warn("Ignoring invalid compression rule '{}'", entry);
+                continue;
+            }
+            String pattern = entry.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+            String encodingName = entry.substring(separator + 1).trim();
+            int level = -1;
+            int levelSeparator = encodingName.indexOf(':');
+            try {
+                if (levelSeparator > 0) {
+                    level = Integer.parseInt(encodingName.substring(levelSeparator + 1).trim());
+                    encodingName = encodingName.substring(0, levelSeparator).trim();
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Ignoring invalid compression rule '{}'", entry);
+                continue;
+            }
+            ContentEncoding encoding = null;
+            if (!PROBE.equalsIgnoreCase(encodingName)) {
+                encoding = ContentEncoding.forName(encodingName);
+                if (encoding == null) {
+                    LOGGER.warn("Ignoring compression rule '{}' with unknown encoding", entry);
+                    continue;
+                }
+            }
+            rules.add(new Rule(pattern, encoding, level));
+        }
+        return rules;
+    }
+
+    /**
+     * Chooses the encoding of a value. If the rule for the MIME type asks for
+     * a probe, a sample is read from the stream, which therefore has to
+     * support {@link InputStream#mark(int)}; the stream is reset afterwards.
+     */
+    public Choice choose(String mimeType, InputStream in) throws IOException {
+        Rule rule = findRule(mimeType);
+        int level = rule.level < 0 ? defaultLevel : rule.level;
+        if (rule.encoding != null) {
+            return new Choice(rule.encoding, level);
+        }
+        return new Choice(probe(in) ? ContentEncoding.GZIP : ContentEncoding.IDENTITY, level);
+    }
+
+    Rule findRule(String mimeType) {
+        String type = mimeType == null ? "" : mimeType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters);
+        }
+        type = type.trim();
+        for (Rule rule : rules) {
+            if (rule.matches(type)) {
+                return rule;
+            }
+        }
+        // unreachable, the default rules end with "*"
+        return new Rule("*", null, -1);
+    }
+
+    /**
+     * @return <code>true</code> if a sample of the stream compresses well
+     */
+    boolean probe(InputStream in) throws IOException {
+        if (probeSize <= 0 || !in.markSupported()) {
+            return true;
+        }
+        byte[] sample = new byte[probeSize];
+        int length = 0;
+        in.mark(probeSize);
+        try {
+            int n;
+            while (length < sample.length && (n = in.read(sample, length, sample.length - length)) != -1) {
+                length += n;
+            }
+        } finally {
+            in.reset();
+        }
+        if (length == 0) {
+            return false;
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(sample, 0, length);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                deflater.deflate(buffer);
+            }
+            return deflater.getBytesWritten() <= probeRatio * length;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static final class Rule {
+
+        private final String pattern;
+
+        private final ContentEncoding encoding;
+
+        private final int level;
+
+        Rule(String pattern, ContentEncoding encoding, int level) {
+            this.pattern = pattern;
+            this.encoding = encoding;
+            this.level = level;
+        }
+
+        boolean matches(String type) {
+            if (pattern.equals("*")) {
+                return true;
+            }
+            if (pattern.endsWith("/*")) {
+                return type.startsWith(pattern.substring(0, pattern.length() - 1));
+            }
+            return pattern.equals(type);
+        }
+
+        ContentEncoding getEncoding() {
+            return encoding;
+        }
+    }
+
+    /**
+     * The encoding and compression level chosen for a value.
+     */
+    public static final class Choice {
+
+        private final ContentEncoding encoding;
+
+        private final int level;
+
+        Choice(ContentEncoding encoding, int level) {
+            this.encoding = encoding;
+            this.level = level;
+        }
+
+        public ContentEncoding getEncoding() {
+            return encoding;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+    }
+}
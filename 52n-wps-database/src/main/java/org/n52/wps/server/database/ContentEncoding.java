@@ -0,0 +1,147 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodings of stored complex values. The names are the HTTP content-coding
+ * tokens.
+ */
+public enum ContentEncoding {
+
+    IDENTITY("identity", null) {
+        @Override
+        public OutputStream encode(OutputStream out, int level) {
+            return out;
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return in;
+        }
+    },
+
+    GZIP("gzip", "gz") {
+        @Override
+        public OutputStream encode(OutputStream out, final int level) throws IOException {
+            return new GZIPOutputStream(out, BUFFER_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream in) throws IOException {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        }
+    },
+
+    DEFLATE("deflate", "zz") {
+        @Override
+        public OutputStream encode(OutputStream out, int level) {
+            final Deflater deflater = new Deflater(level);
+            return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream decode(InputStream in) {
+            return new InflaterInputStream(in);
+        }
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String name;
+
+    private final String fileSuffix;
+
+    private ContentEncoding(String name, String fileSuffix) {
+        this.name = name;
+        this.fileSuffix = fileSuffix;
+    }
+
+    /**
+     * @return the content-coding token, e.g. <code>gzip</code>
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the suffix appended to the names of files stored with this
+     *         encoding, or <code>null</code> if none is appended
+     */
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+
+    /**
+     * Wraps a stream to write encoded data to.
+     * 
+     * @param level
+     *            compression level between 1 (fastest) and 9 (smallest)
+     */
+    public abstract OutputStream encode(OutputStream out, int level) throws IOException;
+
+    /**
+     * Wraps a stream to read data in this encoding from.
+     */
+    public abstract InputStream decode(InputStream in) throws IOException;
+
+    /**
+     * @return the encoding with the given content-coding token, or
+     *         <code>null</code> if it is unknown
+     */
+    public static ContentEncoding forName(String name) {
+        for (ContentEncoding encoding : values()) {
+            if (encoding.name.equalsIgnoreCase(name.trim())) {
+                return encoding;
+            }
+        }
+        return null;
+    }
+}
@@ -221,6 +221,26 @@ public class DatabaseFactory implements IDatabase
 		return DatabaseFactory.database.getContentLengthForStoreResponse(id);
 	}
 
+    @Override
+	public String getDigestForStoreResponse(String id) {
+		return DatabaseFactory.database.getDigestForStoreResponse(id);
+	}
+
+    @Override
+	public IJobQueue getJobQueue() {
+		return DatabaseFactory.database.getJobQueue();
+	}
+
+    @Override
+	public void markCancelled(String id) {
+		DatabaseFactory.database.markCancelled(id);
+	}
+
+    @Override
+	public boolean isCancelled(String id) {
+		return DatabaseFactory.database.isCancelled(id);
+	}
+
     @Override
 	public boolean deleteStoredResponse(String id) {
 		return DatabaseFactory.database.deleteStoredResponse(id);
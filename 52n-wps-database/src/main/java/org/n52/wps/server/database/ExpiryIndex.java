@@ -0,0 +1,221 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of stored entries ordered by the time they expire. Every entry is an
+ * empty file in a bucket directory named after the end of the time slot it
+ * expires in, so that finding the due entries only reads the buckets that
+ * are due instead of walking all stored entries, and adding or removing an
+ * entry does not touch any other.
+ * 
+ * Due entries stay in the index until they are removed, which is done once
+ * what they refer to has been deleted.
+ */
+final class ExpiryIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExpiryIndex.class);
+
+    private static final String ENCODING = "UTF-8";
+
+    // present while every stored entry is in the index
+    private static final String COMPLETE_FILE = "complete";
+
+    private final File directory;
+
+    private final long bucketMillis;
+
+    /**
+     * @param directory the directory holding the buckets
+     * @param bucketMillis the width of the time slot of a bucket, entries may
+     *            be reported due up to this late
+     */
+    ExpiryIndex(File directory, long bucketMillis) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("bucketMillis must be positive");
+        }
+        this.directory = directory;
+        this.bucketMillis = bucketMillis;
+        directory.mkdirs();
+    }
+
+    /**
+     * Records that entries are stored without being added to the index in
+     * the given directory, so that its next user indexes all stored entries.
+     */
+    static void markIncomplete(File directory) {
+        new File(directory, COMPLETE_FILE).delete();
+    }
+
+    /**
+     * @return true if every stored entry has been added to this index
+     */
+    boolean isComplete() {
+        return new File(directory, COMPLETE_FILE).exists();
+    }
+
+    void markComplete() throws IOException {
+        new File(directory, COMPLETE_FILE).createNewFile();
+    }
+
+    /**
+     * Adds an entry, adding it again to another bucket keeps both.
+     */
+    synchronized void add(String entry, long expiresAtMillis) throws IOException {
+        File bucketDirectory = generateBucketDirectory((expiresAtMillis / bucketMillis + 1) * bucketMillis);
+        File entryFile = new File(bucketDirectory, URLEncoder.encode(entry, ENCODING));
+        bucketDirectory.mkdirs();
+        if ( !entryFile.createNewFile() && !entryFile.exists()) {
+            throw new IOException("Unable to create " + entryFile.getPath());
+        }
+    }
+
+    /**
+     * Returns entries of the buckets that are due, the oldest buckets first,
+     * without removing them.
+     *
+     * @param currentTimeMillis the current time
+     * @param maxEntries the maximum number of entries to return
+     */
+    synchronized List<Entry> findDue(long currentTimeMillis, int maxEntries) throws IOException {
+        List<Entry> entries = new ArrayList<Entry>();
+        for (long bucket : findBuckets()) {
+            if (bucket > currentTimeMillis || entries.size() >= maxEntries) {
+                break;
+            }
+            File bucketDirectory = generateBucketDirectory(bucket);
+            String[] names = bucketDirectory.list();
+            if (names == null) {
+                continue;
+            }
+            if (names.length == 0) {
+                // left behind by an interrupted removal
+                bucketDirectory.delete();
+                continue;
+            }
+            Arrays.sort(names);
+            for (int i = 0; i < names.length && entries.size() < maxEntries; i++) {
+                entries.add(new Entry(URLDecoder.decode(names[i], ENCODING), new File(bucketDirectory, names[i])));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes an entry returned by {@link #findDue(long, int)}.
+     */
+    synchronized void remove(Entry entry) throws IOException {
+        if ( !entry.file.delete() && entry.file.exists()) {
+            throw new IOException("Unable to delete " + entry.file.getPath());
+        }
+        File bucketDirectory = entry.file.getParentFile();
+        String[] names = bucketDirectory.list();
+        if (names != null && names.length == 0) {
+            bucketDirectory.delete();
+        }
+    }
+
+    /**
+     * Moves an entry returned by {@link #findDue(long, int)} to the bucket of
+     * the given time.
+     */
+    synchronized void postpone(Entry entry, long expiresAtMillis) throws IOException {
+        add(entry.getName(), expiresAtMillis);
+        remove(entry);
+    }
+
+    /**
+     * @return the number of buckets
+     */
+    synchronized int getBucketCount() {
+        return findBuckets().length;
+    }
+
+    private long[] findBuckets() {
+        String[] names = directory.list();
+        if (names == null) {
+            return new long[0];
+        }
+        long[] buckets = new long[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (name.equals(COMPLETE_FILE)) {
+                continue;
+            }
+            try {
+                buckets[count] = Long.parseLong(name);
+                count++;
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Ignoring unexpected file {} in expiry index", name);
+            }
+        }
+        buckets = Arrays.copyOf(buckets, count);
+        Arrays.sort(buckets);
+        return buckets;
+    }
+
+    private File generateBucketDirectory(long bucket) {
+        return new File(directory, Long.toString(bucket));
+    }
+
+    /**
+     * An entry found in the index.
+     */
+    static final class Entry {
+
+        private final String name;
+
+        private final File file;
+
+        private Entry(String name, File file) {
+            this.name = name;
+            this.file = file;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
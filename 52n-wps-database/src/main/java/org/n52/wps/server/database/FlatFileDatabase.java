@@ -28,6 +28,7 @@
  */
 package org.n52.wps.server.database;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -36,15 +37,16 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.DigestInputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.UUID;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 import org.apache.commons.io.IOUtils;
 import org.n52.wps.DatabaseDocument.Database;
@@ -71,7 +73,13 @@ public final class FlatFileDatabase implements IDatabase {
     private final static String KEY_DATABASE_WIPE_ENABLED = "wipe.enabled";
     private final static String KEY_DATABASE_WIPE_PERIOD = "wipe.period";
     private final static String KEY_DATABASE_WIPE_THRESHOLD = "wipe.threshold";
+    private final static String KEY_DATABASE_WIPE_BATCH_SIZE = "wipe.batchSize";
+    private final static String KEY_DATABASE_WIPE_LIMIT = "wipe.limit";
     private final static String KEY_DATABASE_COMPLEX_GZIP = "complex.gzip";
+    private final static String KEY_DATABASE_COMPLEX_COMPRESSION = "complex.compression";
+    private final static String KEY_DATABASE_COMPLEX_COMPRESSION_LEVEL = "complex.compression.level";
+    private final static String KEY_DATABASE_COMPLEX_COMPRESSION_PROBE_SIZE = "complex.compression.probeSize";
+    private final static String KEY_DATABASE_COMPLEX_COMPRESSION_PROBE_RATIO = "complex.compression.probeRatio";
     
     private final static String DEFAULT_DATABASE_PATH = 
             Joiner.on(File.separator).join(
@@ -81,15 +89,31 @@ public final class FlatFileDatabase implements IDatabase {
     private final static boolean DEFAULT_DATABASE_WIPE_ENABLED = true;
     private final static long DEFAULT_DATABASE_WIPE_PERIOD = 1000 * 60 * 60;  // P1H
     private final static long DEFAULT_DATABASE_WIPE_THRESHOLD = 1000 * 60 * 60 * 24 * 7; // P7D
+    private final static int DEFAULT_DATABASE_WIPE_BATCH_SIZE = 1000;
+    private final static int DEFAULT_DATABASE_WIPE_LIMIT = 100000;
     private final static boolean DEFAULT_DATABASE_COMPLEX_GZIP = true; // P7D
+    private final static int DEFAULT_DATABASE_COMPLEX_COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    private final static int DEFAULT_DATABASE_COMPLEX_COMPRESSION_PROBE_SIZE = 64 * 1024;
+    private final static double DEFAULT_DATABASE_COMPLEX_COMPRESSION_PROBE_RATIO = 0.9;
     
     private final static String SUFFIX_MIMETYPE = "mime-type";
     private final static String SUFFIX_CONTENT_LENGTH = "content-length";
+    private final static String SUFFIX_CONTENT_ENCODING = "content-encoding";
+    private final static String SUFFIX_DIGEST = "digest";
     private final static String SUFFIX_XML = "xml";
     private final static String SUFFIX_TEMP = "tmp";
-    private final static String SUFFIX_GZIP = "gz";
     private final static String SUFFIX_PROPERTIES = "properties";
 
+    private final static String CANCELLED_FILE = "cancelled";
+
+    private final static String BLOB_DIRECTORY = "blobs";
+    private final static String EXPIRY_DIRECTORY = "expiry";
+    private final static String JOB_DIRECTORY = "jobs";
+
+    // kinds of entries in the expiry index
+    private final static String EXPIRY_FILE = "file ";
+    private final static String EXPIRY_COMPLEX = "complex ";
+
     // If the delimiter changes, examine Patterns below.
     private final static Joiner JOINER = Joiner.on(".");
 
@@ -114,10 +138,21 @@ public final class FlatFileDatabase implements IDatabase {
 
     protected final String baseResultURL;
 
-    protected final boolean gzipComplexValues;
+    protected final CompressionPolicy compressionPolicy;
+
+    protected final int compressionProbeSize;
 
     protected final Object storeResponseSerialNumberLock;
 
+    protected final BlobStore blobStore;
+
+    // null if wiping is disabled
+    protected final ExpiryIndex expiryIndex;
+
+    protected final long wipeThresholdMillis;
+
+    private IJobQueue jobQueue;
+
     protected final boolean indentXML = true;
 
     protected final Timer wipeTimer;
@@ -140,21 +175,43 @@ public final class FlatFileDatabase implements IDatabase {
             LOGGER.info("Results database does not exist, creating.", baseDirectoryPath);
             baseDirectory.mkdirs();
         }
+        blobStore = new BlobStore(new File(baseDirectory, BLOB_DIRECTORY));
 
         if (propertyUtil.extractBoolean(KEY_DATABASE_WIPE_ENABLED, DEFAULT_DATABASE_WIPE_ENABLED)) {
             
             long periodMillis = propertyUtil.extractPeriodAsMillis(KEY_DATABASE_WIPE_PERIOD, DEFAULT_DATABASE_WIPE_PERIOD);
-            long thresholdMillis = propertyUtil.extractPeriodAsMillis(KEY_DATABASE_WIPE_THRESHOLD, DEFAULT_DATABASE_WIPE_THRESHOLD);
+            wipeThresholdMillis = propertyUtil.extractPeriodAsMillis(KEY_DATABASE_WIPE_THRESHOLD, DEFAULT_DATABASE_WIPE_THRESHOLD);
+            int batchSize = (int) propertyUtil.extractLong(KEY_DATABASE_WIPE_BATCH_SIZE, DEFAULT_DATABASE_WIPE_BATCH_SIZE);
+            int limit = (int) propertyUtil.extractLong(KEY_DATABASE_WIPE_LIMIT, DEFAULT_DATABASE_WIPE_LIMIT);
+
+            // entries stored before the index existed, or while wiping was
+            // disabled, are indexed by a single scan on the first run of the
+            // wiper
+            expiryIndex = new ExpiryIndex(new File(baseDirectory, EXPIRY_DIRECTORY), periodMillis);
 
             wipeTimer = new Timer(getClass().getSimpleName() + " File Wiper", true);
-            wipeTimer.scheduleAtFixedRate(new FlatFileDatabase.WipeTimerTask(thresholdMillis), 0, periodMillis);
+            wipeTimer.scheduleAtFixedRate(new FlatFileDatabase.WipeTimerTask(batchSize, limit), 0, periodMillis);
             LOGGER.info("Started {} file wiper timer; period {} ms, threshold {} ms",
-                    new Object[] {getDatabaseName(),periodMillis,thresholdMillis});
+                    new Object[] {getDatabaseName(),periodMillis,wipeThresholdMillis});
         } else {
             wipeTimer = null;
+            expiryIndex = null;
+            ExpiryIndex.markIncomplete(new File(baseDirectory, EXPIRY_DIRECTORY));
+            wipeThresholdMillis = DEFAULT_DATABASE_WIPE_THRESHOLD;
         }
 
-        gzipComplexValues = propertyUtil.extractBoolean(KEY_DATABASE_COMPLEX_GZIP, DEFAULT_DATABASE_COMPLEX_GZIP);
+        // complex.gzip is kept as the switch for compression as a whole
+        compressionProbeSize = (int) propertyUtil.extractLong(KEY_DATABASE_COMPLEX_COMPRESSION_PROBE_SIZE,
+                DEFAULT_DATABASE_COMPLEX_COMPRESSION_PROBE_SIZE);
+        if (propertyUtil.extractBoolean(KEY_DATABASE_COMPLEX_GZIP, DEFAULT_DATABASE_COMPLEX_GZIP)) {
+            compressionPolicy = new CompressionPolicy(
+                    propertyUtil.extractString(KEY_DATABASE_COMPLEX_COMPRESSION, null),
+                    (int) propertyUtil.extractLong(KEY_DATABASE_COMPLEX_COMPRESSION_LEVEL, DEFAULT_DATABASE_COMPLEX_COMPRESSION_LEVEL),
+                    compressionProbeSize,
+                    propertyUtil.extractDouble(KEY_DATABASE_COMPLEX_COMPRESSION_PROBE_RATIO, DEFAULT_DATABASE_COMPLEX_COMPRESSION_PROBE_RATIO));
+        } else {
+            compressionPolicy = CompressionPolicy.identity();
+        }
 
         storeResponseSerialNumberLock = new Object();
     }
@@ -173,7 +230,9 @@ public final class FlatFileDatabase implements IDatabase {
     public void insertRequest(String id, InputStream inputStream, boolean xml) {
         // store request in response directory...
         File responseDirectory = generateResponseDirectory(id);
-        responseDirectory.mkdir();
+        if (responseDirectory.mkdir()) {
+            scheduleExpiry(EXPIRY_FILE + id);
+        }
         BufferedOutputStream outputStream = null;
         try {
             if (xml) {
@@ -195,7 +254,8 @@ public final class FlatFileDatabase implements IDatabase {
             }
         }
         catch (Exception e) {
-            LOGGER.error("Exception storing request for id {}: {}", id, e);
+            // the request is restored from here to be executed
+            throw new RuntimeException("Error storing request for id " + id, e);
         }
         finally {
             IOUtils.closeQuietly(inputStream);
@@ -231,8 +291,7 @@ public final class FlatFileDatabase implements IDatabase {
         if (responseFile != null && responseFile.exists()) {
             LOGGER.debug("Response file for {} is {}", id, responseFile.getPath());
             try {
-                return responseFile.getName().endsWith(SUFFIX_GZIP) ? new GZIPInputStream(new FileInputStream(responseFile))
-                                                                   : new FileInputStream(responseFile);
+                return getContentEncodingForStoreResponse(id).decode(new FileInputStream(responseFile));
             }
             catch (FileNotFoundException ex) {
                 // should never get here due to checks above...
@@ -276,14 +335,18 @@ public final class FlatFileDatabase implements IDatabase {
             }
         }
         else {
-            String mimeType = getMimeTypeForStoreResponse(id);
-            if (mimeType != null) {
-                // ignore gzipComplexValues in case file was stored when value
-                // was inconsistent with current value;
-                responseFile = generateComplexDataFile(id, mimeType, false);
+            String blobName = readBlobName(id);
+            if (blobName != null) {
+                responseFile = blobStore.getFile(blobName);
                 if ( !responseFile.exists()) {
-                    responseFile = generateComplexDataFile(id, mimeType, true);
+                    responseFile = null;
                 }
+                return responseFile;
+            }
+            // values stored before deduplication was introduced
+            String mimeType = getMimeTypeForStoreResponse(id);
+            if (mimeType != null) {
+                responseFile = generateComplexDataFile(id, mimeType, getContentEncodingForStoreResponse(id));
                 if ( !responseFile.exists()) {
                     responseFile = null;
                 }
@@ -304,23 +367,60 @@ public final class FlatFileDatabase implements IDatabase {
 
         String resultId = JOINER.join(id, UUID.randomUUID().toString());
         try {
-            File resultFile = generateComplexDataFile(resultId, mimeType, gzipComplexValues);
+            // buffered so that a probe can sample the value and reset
+            InputStream bufferedInputStream = new BufferedInputStream(resultInputStream,
+                    Math.max(8192, compressionProbeSize));
+            CompressionPolicy.Choice compression = compressionPolicy.choose(mimeType, bufferedInputStream);
+            ContentEncoding encoding = compression.getEncoding();
             File mimeTypeFile = generateComplexDataMimeTypeFile(resultId);
             File contentLengthFile = generateComplexDataContentLengthFile(resultId);
+            File contentEncodingFile = generateComplexDataContentEncodingFile(resultId);
+            File digestFile = generateComplexDataDigestFile(resultId);
+
+            // the value is written to a temporary file while its digest is
+            // computed, and becomes the blob for that digest unless an
+            // identical value has been stored before
+            File tempFile = blobStore.createTempFile();
 
-            LOGGER.debug("initiating storage of complex value for {} as {}", id, resultFile.getPath());
+            LOGGER.debug("initiating storage of complex value for {} as {}", id, tempFile.getPath());
 
             long contentLength = -1;
+            DigestInputStream digestInputStream = ContentDigest.digesting(bufferedInputStream);
 
+            String blobName;
+            File blobFile;
             OutputStream resultOutputStream = null;
             try {
-                resultOutputStream = gzipComplexValues ? new GZIPOutputStream(new FileOutputStream(resultFile))
-                                                      : new BufferedOutputStream(new FileOutputStream(resultFile));
-                contentLength = IOUtils.copyLarge(resultInputStream, resultOutputStream);
+                resultOutputStream = encoding.encode(new BufferedOutputStream(new FileOutputStream(tempFile)),
+                                                     compression.getLevel());
+                contentLength = IOUtils.copyLarge(digestInputStream, resultOutputStream);
+                resultOutputStream.close();
+                blobName = generateBlobName(ContentDigest.toHex(digestInputStream), encoding);
+                LOGGER.debug("complex value {} is stored as blob {}", resultId, blobName);
+                blobFile = blobStore.add(blobName, tempFile, resultId);
             }
             finally {
                 IOUtils.closeQuietly(resultInputStream);
                 IOUtils.closeQuietly(resultOutputStream);
+                tempFile.delete();
+            }
+
+            OutputStream digestOutputStream = null;
+            try {
+                digestOutputStream = new BufferedOutputStream(new FileOutputStream(digestFile));
+                IOUtils.write(blobName, digestOutputStream);
+            }
+            finally {
+                IOUtils.closeQuietly(digestOutputStream);
+            }
+
+            OutputStream contentEncodingOutputStream = null;
+            try {
+                contentEncodingOutputStream = new BufferedOutputStream(new FileOutputStream(contentEncodingFile));
+                IOUtils.write(encoding.getName(), contentEncodingOutputStream);
+            }
+            finally {
+                IOUtils.closeQuietly(contentEncodingOutputStream);
             }
 
             OutputStream mimeTypeOutputStream = null;
@@ -341,7 +441,9 @@ public final class FlatFileDatabase implements IDatabase {
                 IOUtils.closeQuietly(contentLengthOutputStream);
             }
 
-            LOGGER.debug("completed storage of complex value for {} as {}", id, resultFile.getPath());
+            scheduleExpiry(EXPIRY_COMPLEX + resultId);
+
+            LOGGER.debug("completed storage of complex value for {} as {}", id, blobFile.getPath());
 
         }
         catch (IOException e) {
@@ -358,7 +460,9 @@ public final class FlatFileDatabase implements IDatabase {
             File responseFile;
             synchronized (storeResponseSerialNumberLock) {
                 File responseDirectory = generateResponseDirectory(id);
-                responseDirectory.mkdir();
+                if (responseDirectory.mkdir()) {
+                    scheduleExpiry(EXPIRY_FILE + id);
+                }
                 int responseIndex = findLatestResponseIndex(responseDirectory, true);
                 if (responseIndex < 0) {
                     responseIndex = 0;
@@ -387,7 +491,9 @@ public final class FlatFileDatabase implements IDatabase {
                 // In order to allow the prior response to be available we write
                 // to a temp file and rename these when completed. Large responses
                 // can cause the call below to take a significant amount of time.
-                XMLUtil.copyXML(responseInputStream, responseOutputStream, indentXML);
+                // The response is stored as serialized by the server, so that it
+                // can be retrieved with a plain copy.
+                IOUtils.copyLarge(responseInputStream, responseOutputStream);
             }
             finally {
                 IOUtils.closeQuietly(responseInputStream);
@@ -475,9 +581,168 @@ public final class FlatFileDatabase implements IDatabase {
         }
     }
 
+    /**
+     * @return the encoding a stored response or complex value is stored in.
+     *         Values stored before the encoding was recorded are identified by
+     *         their file name.
+     */
+    public ContentEncoding getContentEncodingForStoreResponse(String id) {
+        File responseDirectory = generateResponseDirectory(id);
+        if (responseDirectory.exists()) {
+            return ContentEncoding.IDENTITY;
+        }
+        File contentEncodingFile = generateComplexDataContentEncodingFile(id);
+        if (contentEncodingFile.canRead()) {
+            InputStream contentEncodingInputStream = null;
+            try {
+                contentEncodingInputStream = new FileInputStream(contentEncodingFile);
+                ContentEncoding encoding = ContentEncoding.forName(IOUtils.toString(contentEncodingInputStream));
+                if (encoding != null) {
+                    return encoding;
+                }
+                LOGGER.error("Unknown content-encoding for response id {} in {}", id, contentEncodingFile.getAbsolutePath());
+            }
+            catch (IOException e) {
+                LOGGER.error("Unable to extract content-encoding for response id {} from {}, exception message: {}",
+                             new Object[] {id, contentEncodingFile.getAbsolutePath(), e.getMessage()});
+            }
+            finally {
+                IOUtils.closeQuietly(contentEncodingInputStream);
+            }
+        }
+        String mimeType = getMimeTypeForStoreResponse(id);
+        if (mimeType != null && generateComplexDataFile(id, mimeType, ContentEncoding.GZIP).exists()) {
+            return ContentEncoding.GZIP;
+        }
+        return ContentEncoding.IDENTITY;
+    }
+
+    @Override
+    public String getDigestForStoreResponse(String id) {
+        String blobName = readBlobName(id);
+        if (blobName == null) {
+            return null;
+        }
+        int suffix = blobName.indexOf('.');
+        return suffix < 0 ? blobName : blobName.substring(0, suffix);
+    }
+
+    private String readBlobName(String id) {
+        File digestFile = generateComplexDataDigestFile(id);
+        if (digestFile.canRead()) {
+            InputStream digestInputStream = null;
+            try {
+                digestInputStream = new FileInputStream(digestFile);
+                return IOUtils.toString(digestInputStream).trim();
+            }
+            catch (IOException e) {
+                LOGGER.error("Unable to extract digest for response id {} from {}, exception message: {}",
+                             new Object[] {id, digestFile.getAbsolutePath(), e.getMessage()});
+            }
+            finally {
+                IOUtils.closeQuietly(digestInputStream);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the reference of the result to its blob and deletes the blob
+     * if no other result refers to it.
+     * 
+     * @return false if the reference could not be removed
+     */
+    private boolean releaseBlobReference(String resultId) {
+        String blobName = readBlobName(resultId);
+        if (blobName == null) {
+            return true;
+        }
+        try {
+            if (blobStore.release(blobName, resultId)) {
+                LOGGER.debug("Deleted blob {}, it is no longer referenced", blobName);
+            }
+            return true;
+        }
+        catch (IOException e) {
+            LOGGER.warn("Could not release blob {} of {}", new Object[] {blobName, resultId, e});
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized IJobQueue getJobQueue() {
+        if (jobQueue == null) {
+            jobQueue = new FlatFileJobQueue(new File(baseDirectory, JOB_DIRECTORY));
+        }
+        return jobQueue;
+    }
+
+    private void scheduleExpiry(String entry) {
+        scheduleExpiry(entry, System.currentTimeMillis() + wipeThresholdMillis);
+    }
+
+    private void scheduleExpiry(String entry, long expiresAtMillis) {
+        if (expiryIndex != null) {
+            try {
+                expiryIndex.add(entry, expiresAtMillis);
+            }
+            catch (IOException e) {
+                LOGGER.warn("Could not add {} to the expiry index, it will not be wiped", entry, e);
+            }
+        }
+    }
+
+    /**
+     * Deletes a stored complex value, responses are left to the wiper.
+     */
     @Override
     public boolean deleteStoredResponse(String id) {
-        return false;
+        File digestFile = generateComplexDataDigestFile(id);
+        if (!digestFile.exists()) {
+            return false;
+        }
+        return deleteComplexValue(id);
+    }
+
+    /**
+     * @return true if the value is gone, the digest is kept until its blob
+     *         has been released
+     */
+    private boolean deleteComplexValue(String resultId) {
+        if ( !releaseBlobReference(resultId)) {
+            return false;
+        }
+        boolean deleted = true;
+        for (File file : new File[] {generateComplexDataMimeTypeFile(resultId),
+                                     generateComplexDataContentLengthFile(resultId),
+                                     generateComplexDataContentEncodingFile(resultId),
+                                     generateComplexDataDigestFile(resultId)}) {
+            if ( !file.delete() && file.exists()) {
+                deleted = false;
+            }
+        }
+        return deleted;
+    }
+
+    @Override
+    public void markCancelled(String id) {
+        // stored requests have their directory from the start
+        File responseDirectory = generateResponseDirectory(id);
+        if ( !responseDirectory.isDirectory()) {
+            LOGGER.warn("Not marking {} as cancelled, it is not a stored request", id);
+            return;
+        }
+        try {
+            new File(responseDirectory, CANCELLED_FILE).createNewFile();
+        }
+        catch (IOException e) {
+            throw new RuntimeException("Error marking " + id + " as cancelled", e);
+        }
+    }
+
+    @Override
+    public boolean isCancelled(String id) {
+        return new File(generateResponseDirectory(id), CANCELLED_FILE).exists();
     }
 
     private int findLatestResponseIndex(File responseDirectory, boolean includeTemp) {
@@ -512,9 +777,10 @@ public final class FlatFileDatabase implements IDatabase {
         return new File(baseDirectory, id);
     }
 
-    private File generateComplexDataFile(String id, String mimeType, boolean gzip) {
-        String fileName = gzip ? JOINER.join(id, MIMEUtil.getSuffixFromMIMEType(mimeType), SUFFIX_GZIP)
-                              : JOINER.join(id, MIMEUtil.getSuffixFromMIMEType(mimeType));
+    private File generateComplexDataFile(String id, String mimeType, ContentEncoding encoding) {
+        String fileName = encoding.getFileSuffix() != null
+                ? JOINER.join(id, MIMEUtil.getSuffixFromMIMEType(mimeType), encoding.getFileSuffix())
+                : JOINER.join(id, MIMEUtil.getSuffixFromMIMEType(mimeType));
         return new File(baseDirectory, fileName);
     }
 
@@ -526,45 +792,143 @@ public final class FlatFileDatabase implements IDatabase {
         return new File(baseDirectory, JOINER.join(id, SUFFIX_CONTENT_LENGTH));
     }
 
+    private File generateComplexDataContentEncodingFile(String id) {
+        return new File(baseDirectory, JOINER.join(id, SUFFIX_CONTENT_ENCODING));
+    }
+
+    private File generateComplexDataDigestFile(String id) {
+        return new File(baseDirectory, JOINER.join(id, SUFFIX_DIGEST));
+    }
+
+    private String generateBlobName(String digest, ContentEncoding encoding) {
+        return encoding.getFileSuffix() != null ? JOINER.join(digest, encoding.getFileSuffix()) : digest;
+    }
+
     private class WipeTimerTask extends TimerTask {
 
-        public final long thresholdMillis;
+        private final int batchSize;
 
-        WipeTimerTask(long thresholdMillis) {
-            this.thresholdMillis = thresholdMillis;
+        private final int limit;
+
+        WipeTimerTask(int batchSize, int limit) {
+            this.batchSize = batchSize;
+            this.limit = limit;
         }
 
         @Override
         public void run() {
-            wipe(baseDirectory, thresholdMillis);
+            if ( !expiryIndex.isComplete()) {
+                index(baseDirectory);
+            }
+            wipe();
         }
 
-        private void wipe(File rootFile, long thresholdMillis) {
-            // SimpleDataFormat is not thread-safe.
-            SimpleDateFormat iso8601DateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
-            long currentTimeMillis = System.currentTimeMillis();
-            LOGGER.info(getDatabaseName() + " file wiper, checking {} for files older than {} ms",
-                        rootFile.getAbsolutePath(),
-                        thresholdMillis);
-
+        /**
+         * Adds all entries below the root directory to the expiry index,
+         * expiring them relative to their last modification.
+         */
+        private void index(File rootFile) {
+            LOGGER.info(getDatabaseName() + " file wiper, indexing {}", rootFile.getAbsolutePath());
             File[] files = rootFile.listFiles();
             if (files != null) {
                 for (File file : files) {
-                    long lastModifiedMillis = file.lastModified();
-                    long ageMillis = currentTimeMillis - lastModifiedMillis;
-                    if (ageMillis > thresholdMillis) {
-                        LOGGER.info("Deleting {}, last modified date is {}",
-                                    file.getName(),
-                                    iso8601DateFormat.format(new Date(lastModifiedMillis)));
-                        delete(file);
-                        if (file.exists()) {
-                            LOGGER.warn("Deletion of {} failed", file.getName());
+                    if (file.equals(blobStore.getDirectory())
+                            || file.getName().equals(EXPIRY_DIRECTORY)
+                            || file.getName().equals(JOB_DIRECTORY)) {
+                        continue;
+                    }
+                    scheduleExpiry(EXPIRY_FILE + file.getName(), file.lastModified() + wipeThresholdMillis);
+                }
+            }
+            try {
+                expiryIndex.markComplete();
+            }
+            catch (IOException e) {
+                LOGGER.warn(getDatabaseName() + " file wiper, failed to mark the expiry index complete", e);
+            }
+        }
+
+        /**
+         * Deletes the due entries of the expiry index in batches, at most
+         * {@code limit} entries per run. Entries are removed from the index
+         * once deleted, entries that could not be deleted are retried on the
+         * next run.
+         */
+        private void wipe() {
+            long currentTimeMillis = System.currentTimeMillis();
+            LOGGER.info(getDatabaseName() + " file wiper, checking for entries older than {} ms", wipeThresholdMillis);
+            int count = 0;
+            try {
+                while (count < limit) {
+                    List<ExpiryIndex.Entry> entries = expiryIndex.findDue(currentTimeMillis,
+                                                                          Math.min(batchSize, limit - count));
+                    if (entries.isEmpty()) {
+                        break;
+                    }
+                    for (ExpiryIndex.Entry entry : entries) {
+                        long expiresAtMillis = expire(entry.getName(), currentTimeMillis);
+                        if (expiresAtMillis < 0) {
+                            expiryIndex.remove(entry);
+                        }
+                        else {
+                            expiryIndex.postpone(entry, expiresAtMillis);
                         }
                     }
+                    count += entries.size();
+                }
+            }
+            catch (IOException e) {
+                LOGGER.warn(getDatabaseName() + " file wiper, failed to update the expiry index", e);
+            }
+            LOGGER.info(getDatabaseName() + " file wiper, expired {} entries", count);
+        }
+
+        /**
+         * @return -1 if the entry is gone, otherwise the time at which it
+         *         expires again
+         */
+        private long expire(String entry, long currentTimeMillis) {
+            if (entry.startsWith(EXPIRY_COMPLEX)) {
+                String resultId = entry.substring(EXPIRY_COMPLEX.length());
+                LOGGER.debug("Deleting complex value {}", resultId);
+                if ( !deleteComplexValue(resultId)) {
+                    LOGGER.warn("Deletion of complex value {} failed", resultId);
+                    return currentTimeMillis;
                 }
-            } else {
-                LOGGER.warn("Cannot delete files, no files in root directory {}  > file list is null. ", rootFile.getAbsolutePath());
             }
+            else if (entry.startsWith(EXPIRY_FILE)) {
+                File file = new File(baseDirectory, entry.substring(EXPIRY_FILE.length()));
+                long lastModifiedMillis = file.lastModified();
+                if (lastModifiedMillis == 0) {
+                    // already gone
+                    return -1;
+                }
+                if (currentTimeMillis - lastModifiedMillis <= wipeThresholdMillis) {
+                    // responses of running processes are updated after they
+                    // have been indexed
+                    return lastModifiedMillis + wipeThresholdMillis;
+                }
+                // SimpleDataFormat is not thread-safe.
+                SimpleDateFormat iso8601DateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ");
+                LOGGER.info("Deleting {}, last modified date is {}",
+                            file.getName(),
+                            iso8601DateFormat.format(new Date(lastModifiedMillis)));
+                if (file.getName().endsWith("." + SUFFIX_DIGEST)) {
+                    String resultId = file.getName().substring(0, file.getName().length() - SUFFIX_DIGEST.length() - 1);
+                    if ( !releaseBlobReference(resultId)) {
+                        return currentTimeMillis;
+                    }
+                }
+                delete(file);
+                if (file.exists()) {
+                    LOGGER.warn("Deletion of {} failed", file.getName());
+                    return currentTimeMillis;
+                }
+            }
+            else {
+                LOGGER.warn("Ignoring unexpected expiry index entry {}", entry);
+            }
+            return -1;
         }
 
         private void delete(File file) {
@@ -0,0 +1,235 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Job queue of the {@link FlatFileDatabase}, one properties file per job.
+ * Changes are made while holding a lock on a file of the queue directory, so
+ * instances on one host, or sharing a file system that supports locks, can
+ * share the queue. Lease times are taken from the clock of each instance.
+ */
+final class FlatFileJobQueue implements IJobQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlatFileJobQueue.class);
+
+    private static final String SUFFIX_JOB = ".job";
+
+    private static final String LOCK_FILE = "queue.lock";
+
+    private static final String KEY_ENQUEUED = "enqueued";
+
+    private static final String KEY_OWNER = "owner";
+
+    private static final String KEY_LEASE_EXPIRES = "leaseExpires";
+
+    private static final String KEY_ATTEMPTS = "attempts";
+
+    private final File directory;
+
+    FlatFileJobQueue(File directory) {
+        this.directory = directory;
+        directory.mkdirs();
+    }
+
+    @Override
+    public void enqueue(String jobId) throws IOException {
+        Properties job = new Properties();
+        job.setProperty(KEY_ENQUEUED, Long.toString(System.currentTimeMillis()));
+        job.setProperty(KEY_ATTEMPTS, "0");
+        // file locks are held by the JVM, threads are excluded by the monitor
+        synchronized (this) {
+            try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+                write(jobId, job);
+            }
+        }
+    }
+
+    @Override
+    public JobLease claim(String owner, long leaseMillis) throws IOException {
+        synchronized (this) {
+            try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+                long currentTimeMillis = System.currentTimeMillis();
+                String claimedId = null;
+                Properties claimed = null;
+                long claimedEnqueued = Long.MAX_VALUE;
+                for (String jobId : listJobs()) {
+                    Properties job = read(jobId);
+                    if (job == null || !isAvailable(job, currentTimeMillis)) {
+                        continue;
+                    }
+                    long enqueued = Long.parseLong(job.getProperty(KEY_ENQUEUED));
+                    if (enqueued < claimedEnqueued
+                            || (enqueued == claimedEnqueued && jobId.compareTo(claimedId) < 0)) {
+                        claimedId = jobId;
+                        claimed = job;
+                        claimedEnqueued = enqueued;
+                    }
+                }
+                if (claimed == null) {
+                    return null;
+                }
+                int attempts = Integer.parseInt(claimed.getProperty(KEY_ATTEMPTS)) + 1;
+                claimed.setProperty(KEY_OWNER, owner);
+                claimed.setProperty(KEY_LEASE_EXPIRES, Long.toString(currentTimeMillis + leaseMillis));
+                claimed.setProperty(KEY_ATTEMPTS, Integer.toString(attempts));
+                write(claimedId, claimed);
+                return new JobLease(claimedId, owner, attempts);
+            }
+        }
+    }
+
+    @Override
+    public boolean renew(JobLease lease, long leaseMillis) throws IOException {
+        synchronized (this) {
+            try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+                Properties job = read(lease.getJobId());
+                if (job == null || !lease.getOwner().equals(job.getProperty(KEY_OWNER))) {
+                    return false;
+                }
+                job.setProperty(KEY_LEASE_EXPIRES, Long.toString(System.currentTimeMillis() + leaseMillis));
+                write(lease.getJobId(), job);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void complete(JobLease lease) throws IOException {
+        synchronized (this) {
+            try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+                Properties job = read(lease.getJobId());
+                if (job != null && lease.getOwner().equals(job.getProperty(KEY_OWNER))) {
+                    Files.delete(generateJobFile(lease.getJobId()).toPath());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void release(JobLease lease) throws IOException {
+        synchronized (this) {
+            try (FileChannel channel = openLockFile(); FileLock lock = channel.lock()) {
+                Properties job = read(lease.getJobId());
+                if (job != null && lease.getOwner().equals(job.getProperty(KEY_OWNER))) {
+                    job.remove(KEY_OWNER);
+                    job.remove(KEY_LEASE_EXPIRES);
+                    job.setProperty(KEY_ATTEMPTS, Integer.toString(lease.getAttempts() - 1));
+                    write(lease.getJobId(), job);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return listJobs().length;
+    }
+
+    private static boolean isAvailable(Properties job, long currentTimeMillis) {
+        String leaseExpires = job.getProperty(KEY_LEASE_EXPIRES);
+        return job.getProperty(KEY_OWNER) == null
+                || leaseExpires == null
+                || Long.parseLong(leaseExpires) <= currentTimeMillis;
+    }
+
+    private FileChannel openLockFile() throws IOException {
+        return FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private String[] listJobs() {
+        String[] names = directory.list();
+        if (names == null) {
+            return new String[0];
+        }
+        int count = 0;
+        for (String name : names) {
+            if (name.endsWith(SUFFIX_JOB)) {
+                names[count++] = name.substring(0, name.length() - SUFFIX_JOB.length());
+            }
+        }
+        String[] jobIds = new String[count];
+        System.arraycopy(names, 0, jobIds, 0, count);
+        return jobIds;
+    }
+
+    private File generateJobFile(String jobId) {
+        return new File(directory, jobId + SUFFIX_JOB);
+    }
+
+    private Properties read(String jobId) throws IOException {
+        File file = generateJobFile(jobId);
+        if (!file.exists()) {
+            return null;
+        }
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            Properties job = new Properties();
+            job.load(in);
+            if (job.getProperty(KEY_ENQUEUED) == null || job.getProperty(KEY_ATTEMPTS) == null) {
+                LOGGER.warn("Ignoring incomplete job file {}", file.getName());
+                return null;
+            }
+            return job;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private void write(String jobId, Properties job) throws IOException {
+        File file = generateJobFile(jobId);
+        File tempFile = new File(directory, jobId + SUFFIX_JOB + ".tmp");
+        OutputStream out = null;
+        try {
+            out = new FileOutputStream(tempFile);
+            job.store(out, null);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
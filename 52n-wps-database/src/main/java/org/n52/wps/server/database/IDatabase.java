@@ -86,10 +86,25 @@ public interface IDatabase {
 	
 	public long getContentLengthForStoreResponse(String id);
 	
+	// Returns the hex encoded SHA-256 digest of a stored complex value, or null
+	// if it is not known. Byte-identical values have the same digest, so it can
+	// serve as a strong ETag.
+	public String getDigestForStoreResponse(String id);
+	
 	public boolean deleteStoredResponse(String id);
     
     public File lookupRequestAsFile(String id);
 
 	public File lookupResponseAsFile(String id);
 	
+	// Returns the queue through which several instances sharing this database
+	// share the execution of stored requests, or null if it is not supported.
+	public IJobQueue getJobQueue();
+	
+	// Marks a stored request as cancelled, so that an instance executing or
+	// about to execute it stops.
+	public void markCancelled(String id);
+	
+	public boolean isCancelled(String id);
+	
 }
@@ -0,0 +1,80 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.IOException;
+
+/**
+ * A queue of stored requests waiting to be executed, shared by all instances
+ * using the same database. Jobs are identified by the id their request was
+ * inserted with. A worker claims a job with a lease that it has to renew while
+ * it executes the job; a job whose lease expires is handed out again.
+ */
+public interface IJobQueue {
+
+    /**
+     * Adds a job whose request has been inserted into the database.
+     */
+    void enqueue(String jobId) throws IOException;
+
+    /**
+     * Claims the job that has waited longest, including jobs whose lease has
+     * expired.
+     *
+     * @param owner identifies the claiming worker
+     * @param leaseMillis the duration of the lease
+     * @return the lease, or null if no job is available
+     */
+    JobLease claim(String owner, long leaseMillis) throws IOException;
+
+    /**
+     * Extends a lease.
+     *
+     * @return false if the lease has been lost, the job may then be executed
+     *         by another worker
+     */
+    boolean renew(JobLease lease, long leaseMillis) throws IOException;
+
+    /**
+     * Removes a job that has been executed.
+     */
+    void complete(JobLease lease) throws IOException;
+
+    /**
+     * Gives up a lease without counting it as attempt, the job becomes
+     * available right away.
+     */
+    void release(JobLease lease) throws IOException;
+
+    /**
+     * @return the number of queued and claimed jobs
+     */
+    int size() throws IOException;
+
+}
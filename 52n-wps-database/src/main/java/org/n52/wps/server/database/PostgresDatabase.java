@@ -41,6 +41,8 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -84,11 +86,17 @@ public class PostgresDatabase extends AbstractDatabase {
 	private static final String KEY_DATABASE_WIPE_ENABLED = "wipe.enabled";
 	private static final String KEY_DATABASE_WIPE_PERIOD = "wipe.period";
 	private static final String KEY_DATABASE_WIPE_THRESHOLD = "wipe.threshold";
+	private static final String KEY_DATABASE_WIPE_BATCH_SIZE = "wipe.batchSize";
+	private static final String KEY_DATABASE_WIPE_LIMIT = "wipe.limit";
 	private static final boolean DEFAULT_DATABASE_WIPE_ENABLED = true;
 	private static final long DEFAULT_DATABASE_WIPE_PERIOD = 1000 * 60 * 60; // default to running once an hour
 	private static final long DEFAULT_DATABASE_WIPE_THRESHOLD = 1000 * 60 * 60 * 24 * 7; // default to wipe things over a week old
+	private static final int DEFAULT_DATABASE_WIPE_BATCH_SIZE = 1000;
+	private static final int DEFAULT_DATABASE_WIPE_LIMIT = 100000;
 	private static final String FILE_URI_PREFIX = "file://";
 	private static final String SUFFIX_GZIP = "gz";
+	private static final String BLOB_DIRECTORY = "blobs";
+	private static final String BLOB_LOCK_FILE = "lock";
 	private static final String DEFAULT_BASE_DIRECTORY
 			= Joiner.on(File.separator).join(System.getProperty("java.io.tmpdir", "."), "Database", "Results");
 	private static final ServerDocument.Server server = WPSConfig.getInstance().getWPSConfig().getServer();
@@ -107,6 +115,8 @@ public class PostgresDatabase extends AbstractDatabase {
 
 	private static Timer wipeTimer;
 
+	private PostgresJobQueue jobQueue;
+
 	private static final String CREATE_RESULTS_TABLE_PSQL
 			= "CREATE TABLE RESULTS ("
 			+ "REQUEST_ID VARCHAR(100) NOT NULL PRIMARY KEY, "
@@ -115,6 +125,30 @@ public class PostgresDatabase extends AbstractDatabase {
 			+ "RESPONSE TEXT, "
 			+ "RESPONSE_MIMETYPE VARCHAR(100))";
 
+	// complex values stored on disk are deduplicated by digest, this table
+	// holds the references of the results to the blob files
+	private static final String CREATE_RESULT_BLOBS_TABLE_PSQL
+			= "CREATE TABLE RESULT_BLOBS ("
+			+ "REQUEST_ID VARCHAR(100) NOT NULL PRIMARY KEY, "
+			+ "BLOB_NAME VARCHAR(100) NOT NULL)";
+
+	private static final String CREATE_RESULT_BLOBS_INDEX_PSQL
+			= "CREATE INDEX RESULT_BLOBS_BLOB_NAME ON RESULT_BLOBS (BLOB_NAME)";
+
+	// lets the wiper find expired records without scanning the table
+	private static final String CREATE_RESULTS_REQUEST_DATE_INDEX_PSQL
+			= "CREATE INDEX RESULTS_REQUEST_DATE ON RESULTS (REQUEST_DATE)";
+
+	private static final String INSERT_RESULT_BLOB_PSQL = "INSERT INTO RESULT_BLOBS VALUES (?, ?)";
+
+	private static final String SELECT_RESULT_BLOB_PSQL = "SELECT BLOB_NAME FROM RESULT_BLOBS WHERE REQUEST_ID = ?";
+
+	// cancellations are kept as records of their own, so the wiper deletes
+	// them along with the results
+	private static final String CANCELLED_ID_PREFIX = "CANCELLED_";
+
+	private static final String SELECT_CANCELLED_PSQL = "SELECT 1 FROM RESULTS WHERE REQUEST_ID = ?";
+
 	public static synchronized PostgresDatabase getInstance() {
 		if (instance == null) {
 			instance = new PostgresDatabase();
@@ -154,8 +188,10 @@ public class PostgresDatabase extends AbstractDatabase {
 		if (propertyUtil.extractBoolean(KEY_DATABASE_WIPE_ENABLED, DEFAULT_DATABASE_WIPE_ENABLED)) {
 			long periodMillis = propertyUtil.extractPeriodAsMillis(KEY_DATABASE_WIPE_PERIOD, DEFAULT_DATABASE_WIPE_PERIOD);
 			long thresholdMillis = propertyUtil.extractPeriodAsMillis(KEY_DATABASE_WIPE_THRESHOLD, DEFAULT_DATABASE_WIPE_THRESHOLD);
+			int batchSize = (int) propertyUtil.extractLong(KEY_DATABASE_WIPE_BATCH_SIZE, DEFAULT_DATABASE_WIPE_BATCH_SIZE);
+			int limit = (int) propertyUtil.extractLong(KEY_DATABASE_WIPE_LIMIT, DEFAULT_DATABASE_WIPE_LIMIT);
 			wipeTimer = new Timer(PostgresDatabase.class.getSimpleName() + " Postgres Wiper", true);
-			wipeTimer.scheduleAtFixedRate(new PostgresDatabase.WipeTimerTask(thresholdMillis), 15000, periodMillis);
+			wipeTimer.scheduleAtFixedRate(new PostgresDatabase.WipeTimerTask(thresholdMillis, batchSize, limit), 15000, periodMillis);
 			LOGGER.info("Started {} Postgres wiper timer; period {} ms, threshold {} ms",
 					new Object[]{DATABASE_NAME, periodMillis, thresholdMillis});
 		} else {
@@ -190,6 +226,29 @@ public class PostgresDatabase extends AbstractDatabase {
 				}
 			}
 		}
+		try (Connection connection = connectionHandler.getConnection();
+				ResultSet rs = connection.getMetaData().getIndexInfo(null, null, "results", false, true)) {
+			boolean indexed = false;
+			while (rs.next()) {
+				indexed |= "results_request_date".equalsIgnoreCase(rs.getString("INDEX_NAME"));
+			}
+			if (!indexed) {
+				LOGGER.debug("Index RESULTS_REQUEST_DATE does not yet exist, creating it.");
+				try (Statement st = connection.createStatement()) {
+					st.executeUpdate(CREATE_RESULTS_REQUEST_DATE_INDEX_PSQL);
+				}
+			}
+		}
+		try (Connection connection = connectionHandler.getConnection();
+				ResultSet rs = connection.getMetaData().getTables(null, null, "result_blobs", new String[]{"TABLE"})) {
+			if (!rs.next()) {
+				LOGGER.debug("Table RESULT_BLOBS does not yet exist, creating it.");
+				try (Statement st = connection.createStatement()) {
+					st.executeUpdate(CREATE_RESULT_BLOBS_TABLE_PSQL);
+					st.executeUpdate(CREATE_RESULT_BLOBS_INDEX_PSQL);
+				}
+			}
+		}
 	}
 
 	@Override
@@ -215,9 +274,21 @@ public class PostgresDatabase extends AbstractDatabase {
 		return baseResultURL + id;
 	}
 
+	/**
+	 * Unlike results, a request that could not be inserted fails, it is
+	 * restored from the database to be executed.
+	 */
 	@Override
 	public void insertRequest(String id, InputStream inputStream, boolean xml) {
-		insertResultEntity(inputStream, "REQ_" + id, "ExecuteRequest", xml ? "text/xml" : "text/plain");
+		String recordId = "REQ_" + id;
+		String mimeType = xml ? "text/xml" : "text/plain";
+		synchronized (storeResponseSerialNumberLock) {
+			try {
+				insertRecord(inputStream, recordId, "ExecuteRequest", mimeType);
+			} catch (SQLException | IOException ex) {
+				throw new RuntimeException("Error storing request " + id, ex);
+			}
+		}
 	}
 
 	@Override
@@ -227,48 +298,44 @@ public class PostgresDatabase extends AbstractDatabase {
 
 	@Override
 	protected String insertResultEntity(InputStream stream, String id, String type, String mimeType) {
-		boolean compressData = !SAVE_RESULTS_TO_DB;
-		boolean proceed = true;
-		String data = "";
 		synchronized (storeResponseSerialNumberLock) {
-			if (!SAVE_RESULTS_TO_DB) {
-				try {
-					// The result contents won't be saved to the database, 
-					// only a pointer to the file system. I am therefore
-					// going to GZip the data to save space
-					data = writeInputStreamToDisk(id, stream, compressData);
-				} catch (IOException ex) {
-					LOGGER.error("Failed to write output data to disk", ex);
-					proceed = false;
-				}
+			try {
+				insertRecord(stream, id, type, mimeType);
+			} catch (SQLException | IOException ex) {
+				LOGGER.error(MessageFormat.format("Failed to insert data into database with  id of:{0}, type of: {1}, mimetype of: {2}", id, type, mimeType), ex);
 			}
+		}
+		return generateRetrieveResultURL(id);
+	}
 
-			if (proceed) {
-				try (Connection connection = getConnection();
-						PreparedStatement insertStatement = connection.prepareStatement(insertionString)) {
-
-					insertStatement.setString(INSERT_COLUMN_REQUEST_ID, id);
-					insertStatement.setTimestamp(INSERT_COLUMN_REQUEST_DATE, new Timestamp(Calendar.getInstance().getTimeInMillis()));
-					insertStatement.setString(INSERT_COLUMN_RESPONSE_TYPE, type);
-					insertStatement.setString(INSERT_COLUMN_MIME_TYPE, mimeType);
-
-					if (SAVE_RESULTS_TO_DB) {
-						// This is implemented because we need to handle the case of SAVE_RESULTS_TO_DB = true. However,
-						// this should not be used if you expect results to be large. 
-						// TODO- Remove and reimplement when setAsciiStream() has been properly implemented 
-						// @ https://github.com/pgjdbc/pgjdbc/blob/master/org/postgresql/jdbc4/AbstractJdbc4Statement.java
-						insertStatement.setString(INSERT_COLUMN_RESPONSE, IOUtils.toString(stream, DEFAULT_ENCODING));
-					} else {
-						insertStatement.setString(INSERT_COLUMN_RESPONSE, data);
-					}
-					insertStatement.executeUpdate();
-					LOGGER.debug(MessageFormat.format("Inserted data into database with id of:{0}, type of: {1}, mimetype of: {2}", id, type, mimeType));
-				} catch (SQLException | IOException ex) {
-					LOGGER.error(MessageFormat.format("Failed to insert data into database with  id of:{0}, type of: {1}, mimetype of: {2}", id, type, mimeType), ex);
-				}
+	private void insertRecord(InputStream stream, String id, String type, String mimeType) throws SQLException, IOException {
+		String data = "";
+		if (!SAVE_RESULTS_TO_DB) {
+			// The result contents won't be saved to the database, 
+			// only a pointer to the file system. I am therefore
+			// going to GZip the data to save space
+			data = writeInputStreamToDisk(id, stream, true);
+		}
+		try (Connection connection = getConnection();
+				PreparedStatement insertStatement = connection.prepareStatement(insertionString)) {
+
+			insertStatement.setString(INSERT_COLUMN_REQUEST_ID, id);
+			insertStatement.setTimestamp(INSERT_COLUMN_REQUEST_DATE, new Timestamp(Calendar.getInstance().getTimeInMillis()));
+			insertStatement.setString(INSERT_COLUMN_RESPONSE_TYPE, type);
+			insertStatement.setString(INSERT_COLUMN_MIME_TYPE, mimeType);
+
+			if (SAVE_RESULTS_TO_DB) {
+				// This is implemented because we need to handle the case of SAVE_RESULTS_TO_DB = true. However,
+				// this should not be used if you expect results to be large. 
+				// TODO- Remove and reimplement when setAsciiStream() has been properly implemented 
+				// @ https://github.com/pgjdbc/pgjdbc/blob/master/org/postgresql/jdbc4/AbstractJdbc4Statement.java
+				insertStatement.setString(INSERT_COLUMN_RESPONSE, IOUtils.toString(stream, DEFAULT_ENCODING));
+			} else {
+				insertStatement.setString(INSERT_COLUMN_RESPONSE, data);
 			}
+			insertStatement.executeUpdate();
+			LOGGER.debug(MessageFormat.format("Inserted data into database with id of:{0}, type of: {1}, mimetype of: {2}", id, type, mimeType));
 		}
-		return generateRetrieveResultURL(id);
 	}
 
 	/**
@@ -296,6 +363,164 @@ public class PostgresDatabase extends AbstractDatabase {
 		return createdFilePath.toUri().toString().replaceFirst(FILE_URI_PREFIX, "");
 	}
 
+	/**
+	 * Stores a complex value as a blob named after the digest of its content.
+	 * Byte-identical values share the blob, which is deleted by the wiper
+	 * with the last result referring to it.
+	 */
+	@Override
+	public String storeComplexValue(String id, InputStream stream, String type, String mimeType) {
+		if (SAVE_RESULTS_TO_DB) {
+			return super.storeComplexValue(id, stream, type, mimeType);
+		}
+		synchronized (storeResponseSerialNumberLock) {
+			Path tempPath = null;
+			try {
+				Path blobDirectory = Files.createDirectories(BASE_DIRECTORY.resolve(BLOB_DIRECTORY));
+				tempPath = Files.createTempFile(blobDirectory, "blob", ".tmp");
+				Path blobPath = blobDirectory.resolve(writeBlob(stream, tempPath));
+				String data = blobPath.toUri().toString().replaceFirst(FILE_URI_PREFIX, "");
+				// the wiper of another instance must not delete the blob
+				// between finding it and referencing it
+				try (BlobLock lock = lockBlobs();
+						Connection connection = getConnection();
+						PreparedStatement insertStatement = connection.prepareStatement(insertionString);
+						PreparedStatement blobStatement = connection.prepareStatement(INSERT_RESULT_BLOB_PSQL)) {
+					if (!Files.exists(blobPath)) {
+						Files.move(tempPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+					}
+					insertStatement.setString(INSERT_COLUMN_REQUEST_ID, id);
+					insertStatement.setTimestamp(INSERT_COLUMN_REQUEST_DATE, new Timestamp(Calendar.getInstance().getTimeInMillis()));
+					insertStatement.setString(INSERT_COLUMN_RESPONSE_TYPE, type);
+					insertStatement.setString(INSERT_COLUMN_RESPONSE, data);
+					insertStatement.setString(INSERT_COLUMN_MIME_TYPE, mimeType);
+					insertStatement.executeUpdate();
+					blobStatement.setString(1, id);
+					blobStatement.setString(2, blobPath.getFileName().toString());
+					blobStatement.executeUpdate();
+					LOGGER.debug(MessageFormat.format("Inserted complex value with id of:{0}, mimetype of: {1} as blob {2}", id, mimeType, blobPath.getFileName()));
+				}
+			} catch (SQLException | IOException ex) {
+				LOGGER.error(MessageFormat.format("Failed to insert complex value with id of:{0}, type of: {1}, mimetype of: {2}", id, type, mimeType), ex);
+			} finally {
+				deleteTempFile(tempPath);
+			}
+		}
+		return generateRetrieveResultURL(id);
+	}
+
+	/**
+	 * Writes the stream gzipped to the temporary file while digesting it.
+	 *
+	 * @return the name of the blob for the content
+	 */
+	private static String writeBlob(InputStream stream, Path tempPath) throws IOException {
+		DigestInputStream digestStream = ContentDigest.digesting(stream);
+		try (OutputStream os = new GZIPOutputStream(new FileOutputStream(tempPath.toFile()))) {
+			IOUtils.copyLarge(digestStream, os);
+		} finally {
+			IOUtils.closeQuietly(stream);
+		}
+		return Joiner.on(".").join(ContentDigest.toHex(digestStream), SUFFIX_GZIP);
+	}
+
+	/**
+	 * Locks the blobs against changes by other instances sharing the base
+	 * directory.
+	 */
+	private static BlobLock lockBlobs() throws IOException {
+		return BlobLock.acquire(BASE_DIRECTORY.resolve(BLOB_DIRECTORY).resolve(BLOB_LOCK_FILE).toFile());
+	}
+
+	private static void deleteTempFile(Path tempPath) {
+		if (tempPath != null) {
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch (IOException ex) {
+				LOGGER.warn("Could not delete temporary blob " + tempPath, ex);
+			}
+		}
+	}
+
+	@Override
+	public synchronized IJobQueue getJobQueue() {
+		if (jobQueue == null) {
+			try {
+				jobQueue = new PostgresJobQueue(connectionHandler);
+			} catch (SQLException ex) {
+				LOGGER.error("Could not initialize the job queue", ex);
+			}
+		}
+		return jobQueue;
+	}
+
+	@Override
+	public void markCancelled(String id) {
+		if (isCancelled(id)) {
+			return;
+		}
+		try (Connection connection = getConnection();
+				PreparedStatement insertStatement = connection.prepareStatement(insertionString)) {
+			insertStatement.setString(INSERT_COLUMN_REQUEST_ID, CANCELLED_ID_PREFIX + id);
+			insertStatement.setTimestamp(INSERT_COLUMN_REQUEST_DATE, new Timestamp(Calendar.getInstance().getTimeInMillis()));
+			insertStatement.setString(INSERT_COLUMN_RESPONSE_TYPE, "Cancellation");
+			insertStatement.setString(INSERT_COLUMN_RESPONSE, null);
+			insertStatement.setString(INSERT_COLUMN_MIME_TYPE, null);
+			insertStatement.executeUpdate();
+		} catch (SQLException ex) {
+			LOGGER.error("Could not mark " + id + " as cancelled", ex);
+		}
+	}
+
+	@Override
+	public boolean isCancelled(String id) {
+		try (Connection connection = getConnection();
+				PreparedStatement selectStatement = connection.prepareStatement(SELECT_CANCELLED_PSQL)) {
+			selectStatement.setString(1, CANCELLED_ID_PREFIX + id);
+			try (ResultSet rs = selectStatement.executeQuery()) {
+				return rs.next();
+			}
+		} catch (SQLException ex) {
+			LOGGER.error("Could not look up cancellation in database", ex);
+			return false;
+		}
+	}
+
+	/**
+	 * Deletes a stored complex value, its blob is deleted with the last
+	 * result referring to it.
+	 */
+	@Override
+	public boolean deleteStoredResponse(String id) {
+		synchronized (storeResponseSerialNumberLock) {
+			try (BlobLock lock = lockBlobs();
+					Connection connection = getConnection()) {
+				return ResultBlobs.deleteComplexValue(connection, BASE_DIRECTORY.resolve(BLOB_DIRECTORY), id);
+			} catch (SQLException | IOException ex) {
+				LOGGER.error("Could not delete stored value " + id, ex);
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public String getDigestForStoreResponse(String id) {
+		try (Connection connection = getConnection();
+				PreparedStatement selectStatement = connection.prepareStatement(SELECT_RESULT_BLOB_PSQL)) {
+			selectStatement.setString(1, id);
+			try (ResultSet rs = selectStatement.executeQuery()) {
+				if (rs.next()) {
+					String blobName = rs.getString(1);
+					int suffix = blobName.indexOf('.');
+					return suffix < 0 ? blobName : blobName.substring(0, suffix);
+				}
+			}
+		} catch (SQLException ex) {
+			LOGGER.error("Could not look up digest in database", ex);
+		}
+		return null;
+	}
+
 	@Override
 	public void updateResponse(String id, InputStream stream) {
 		boolean compressData = !SAVE_RESULTS_TO_DB;
@@ -440,15 +665,20 @@ public class PostgresDatabase extends AbstractDatabase {
 
 		private static final String DELETE_STATEMENT = "DELETE FROM RESULTS WHERE RESULTS.REQUEST_ID = ANY ( ? );";
 		private static final int DELETE_STATEMENT_LIST_PARAM_INDEX = 1;
-		private static final String LOOKUP_STATEMENT = "SELECT * FROM "
-				+ "(SELECT REQUEST_ID, EXTRACT(EPOCH FROM REQUEST_DATE) * 1000 AS TIMESTAMP FROM RESULTS) items WHERE TIMESTAMP < ?";
+		private static final String LOOKUP_STATEMENT = "SELECT REQUEST_ID FROM RESULTS "
+				+ "WHERE REQUEST_DATE < ? ORDER BY REQUEST_DATE LIMIT ?";
 		private static final int LOOKUP_STATEMENT_TIMESTAMP_PARAM_INDEX = 1;
+		private static final int LOOKUP_STATEMENT_LIMIT_PARAM_INDEX = 2;
 		private static final int LOOKUP_STATEMENT_REQUEST_ID_COLUMN_INDEX = 1;
 		private final long thresholdMillis;
+		private final int batchSize;
+		private final int limit;
 		private final String databaseName = getDatabaseName();
 
-		WipeTimerTask(long thresholdMillis) {
+		WipeTimerTask(long thresholdMillis, int batchSize, int limit) {
 			this.thresholdMillis = thresholdMillis;
+			this.batchSize = batchSize;
+			this.limit = limit;
 		}
 
 		@Override
@@ -467,10 +697,28 @@ public class PostgresDatabase extends AbstractDatabase {
 			}
 		}
 
+		/**
+		 * Deletes the expired records in batches, oldest first, at most
+		 * {@code limit} records per run.
+		 */
 		private int wipe() throws SQLException, IOException {
 			LOGGER.debug(databaseName + " Postgres wiper, checking for records older than {} ms", thresholdMillis);
+			Timestamp threshold = new Timestamp(System.currentTimeMillis() - thresholdMillis);
+			int deletedRecordsCount = 0;
+			int foundRecordsCount = 0;
+			while (foundRecordsCount < limit) {
+				List<String> oldRecords = findOldRecords(threshold, Math.min(batchSize, limit - foundRecordsCount));
+				if (oldRecords.isEmpty()) {
+					break;
+				}
+				foundRecordsCount += oldRecords.size();
+				deletedRecordsCount += wipe(oldRecords);
+			}
+			return deletedRecordsCount;
+		}
+
+		private int wipe(List<String> oldRecords) throws SQLException, IOException {
 			int deletedRecordsCount = 0;
-			List<String> oldRecords = findOldRecords();
 			if (!SAVE_RESULTS_TO_DB) {
 				for (String recordId : oldRecords) {
 					if (recordId.toLowerCase(Locale.US).contains("output")) {
@@ -479,11 +727,23 @@ public class PostgresDatabase extends AbstractDatabase {
 				}
 			}
 			if (!oldRecords.isEmpty()) {
+				if (!SAVE_RESULTS_TO_DB) {
+					releaseBlobs(oldRecords);
+				}
 				deletedRecordsCount = deleteRecords(oldRecords);
 			}
 			return deletedRecordsCount;
 		}
 
+		private void releaseBlobs(List<String> recordIds) throws SQLException, IOException {
+			synchronized (storeResponseSerialNumberLock) {
+				try (BlobLock lock = lockBlobs();
+						Connection connection = connectionHandler.getConnection()) {
+					ResultBlobs.release(connection, BASE_DIRECTORY.resolve(BLOB_DIRECTORY), recordIds);
+				}
+			}
+		}
+
 		private int deleteRecords(List<String> recordIds) throws SQLException {
 			int deletedRecordsCount;
 			try (Connection connection = connectionHandler.getConnection(); PreparedStatement deleteStatement = connection.prepareStatement(DELETE_STATEMENT)) {
@@ -493,11 +753,11 @@ public class PostgresDatabase extends AbstractDatabase {
 			return deletedRecordsCount;
 		}
 
-		private List<String> findOldRecords() throws SQLException {
+		private List<String> findOldRecords(Timestamp threshold, int maxRecords) throws SQLException {
 			List<String> matchingRecords = new ArrayList<>();
 			try (Connection connection = connectionHandler.getConnection(); PreparedStatement lookupStatement = connection.prepareStatement(LOOKUP_STATEMENT)) {
-				long ageMillis = System.currentTimeMillis() - thresholdMillis;
-				lookupStatement.setLong(LOOKUP_STATEMENT_TIMESTAMP_PARAM_INDEX, ageMillis);
+				lookupStatement.setTimestamp(LOOKUP_STATEMENT_TIMESTAMP_PARAM_INDEX, threshold);
+				lookupStatement.setInt(LOOKUP_STATEMENT_LIMIT_PARAM_INDEX, maxRecords);
 				try (ResultSet rs = lookupStatement.executeQuery()) {
 					while (rs.next()) {
 						matchingRecords.add(rs.getString(LOOKUP_STATEMENT_REQUEST_ID_COLUMN_INDEX));
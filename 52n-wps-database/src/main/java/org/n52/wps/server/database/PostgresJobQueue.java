@@ -0,0 +1,171 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.n52.wps.server.database.connection.ConnectionHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Job queue of the {@link PostgresDatabase}. Workers claim jobs with
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, so concurrent claims of several
+ * instances neither block each other nor hand out a job twice. Lease times are
+ * taken from the clock of the database.
+ */
+final class PostgresJobQueue implements IJobQueue {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PostgresJobQueue.class);
+
+	private static final String CREATE_JOBS_TABLE_PSQL
+			= "CREATE TABLE JOBS ("
+			+ "JOB_ID VARCHAR(100) NOT NULL PRIMARY KEY, "
+			+ "ENQUEUED TIMESTAMP NOT NULL, "
+			+ "LEASE_OWNER VARCHAR(200), "
+			+ "LEASE_EXPIRES TIMESTAMP, "
+			+ "ATTEMPTS INTEGER NOT NULL)";
+
+	private static final String CREATE_JOBS_INDEX_PSQL
+			= "CREATE INDEX JOBS_ENQUEUED ON JOBS (ENQUEUED)";
+
+	private static final String ENQUEUE_STATEMENT
+			= "INSERT INTO JOBS (JOB_ID, ENQUEUED, ATTEMPTS) VALUES (?, now(), 0)";
+
+	private static final String CLAIM_STATEMENT
+			= "UPDATE JOBS SET LEASE_OWNER = ?, LEASE_EXPIRES = now() + ? * INTERVAL '1 millisecond', ATTEMPTS = ATTEMPTS + 1 "
+			+ "WHERE JOB_ID = (SELECT JOB_ID FROM JOBS WHERE LEASE_OWNER IS NULL OR LEASE_EXPIRES <= now() "
+			+ "ORDER BY ENQUEUED LIMIT 1 FOR UPDATE SKIP LOCKED) "
+			+ "RETURNING JOB_ID, ATTEMPTS";
+
+	private static final String RENEW_STATEMENT
+			= "UPDATE JOBS SET LEASE_EXPIRES = now() + ? * INTERVAL '1 millisecond' WHERE JOB_ID = ? AND LEASE_OWNER = ?";
+
+	private static final String COMPLETE_STATEMENT
+			= "DELETE FROM JOBS WHERE JOB_ID = ? AND LEASE_OWNER = ?";
+
+	private static final String RELEASE_STATEMENT
+			= "UPDATE JOBS SET LEASE_OWNER = NULL, LEASE_EXPIRES = NULL, ATTEMPTS = ATTEMPTS - 1 WHERE JOB_ID = ? AND LEASE_OWNER = ?";
+
+	private static final String SIZE_STATEMENT = "SELECT COUNT(*) FROM JOBS";
+
+	private final ConnectionHandler connectionHandler;
+
+	PostgresJobQueue(ConnectionHandler connectionHandler) throws SQLException {
+		this.connectionHandler = connectionHandler;
+		try (Connection connection = connectionHandler.getConnection();
+				ResultSet rs = connection.getMetaData().getTables(null, null, "jobs", new String[]{"TABLE"})) {
+			if (!rs.next()) {
+				LOGGER.debug("Table JOBS does not yet exist, creating it.");
+				try (Statement st = connection.createStatement()) {
+					st.executeUpdate(CREATE_JOBS_TABLE_PSQL);
+					st.executeUpdate(CREATE_JOBS_INDEX_PSQL);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void enqueue(String jobId) throws IOException {
+		try (Connection connection = connectionHandler.getConnection();
+				PreparedStatement statement = connection.prepareStatement(ENQUEUE_STATEMENT)) {
+			statement.setString(1, jobId);
+			statement.executeUpdate();
+		} catch (SQLException ex) {
+			throw new IOException("Could not enqueue job " + jobId, ex);
+		}
+	}
+
+	@Override
+	public JobLease claim(String owner, long leaseMillis) throws IOException {
+		try (Connection connection = connectionHandler.getConnection();
+				PreparedStatement statement = connection.prepareStatement(CLAIM_STATEMENT)) {
+			statement.setString(1, owner);
+			statement.setLong(2, leaseMillis);
+			try (ResultSet rs = statement.executeQuery()) {
+				return rs.next() ? new JobLease(rs.getString(1), owner, rs.getInt(2)) : null;
+			}
+		} catch (SQLException ex) {
+			throw new IOException("Could not claim a job", ex);
+		}
+	}
+
+	@Override
+	public boolean renew(JobLease lease, long leaseMillis) throws IOException {
+		try (Connection connection = connectionHandler.getConnection();
+				PreparedStatement statement = connection.prepareStatement(RENEW_STATEMENT)) {
+			statement.setLong(1, leaseMillis);
+			statement.setString(2, lease.getJobId());
+			statement.setString(3, lease.getOwner());
+			return statement.executeUpdate() == 1;
+		} catch (SQLException ex) {
+			throw new IOException("Could not renew " + lease, ex);
+		}
+	}
+
+	@Override
+	public void complete(JobLease lease) throws IOException {
+		try (Connection connection = connectionHandler.getConnection();
+				PreparedStatement statement = connection.prepareStatement(COMPLETE_STATEMENT)) {
+			statement.setString(1, lease.getJobId());
+			statement.setString(2, lease.getOwner());
+			statement.executeUpdate();
+		} catch (SQLException ex) {
+			throw new IOException("Could not complete " + lease, ex);
+		}
+	}
+
+	@Override
+	public void release(JobLease lease) throws IOException {
+		try (Connection connection = connectionHandler.getConnection();
+				PreparedStatement statement = connection.prepareStatement(RELEASE_STATEMENT)) {
+			statement.setString(1, lease.getJobId());
+			statement.setString(2, lease.getOwner());
+			statement.executeUpdate();
+		} catch (SQLException ex) {
+			throw new IOException("Could not release " + lease, ex);
+		}
+	}
+
+	@Override
+	public int size() throws IOException {
+		try (Connection connection = connectionHandler.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery(SIZE_STATEMENT)) {
+			return rs.next() ? rs.getInt(1) : 0;
+		} catch (SQLException ex) {
+			throw new IOException("Could not count jobs", ex);
+		}
+	}
+}
@@ -0,0 +1,107 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The references of the results of a {@link PostgresDatabase} to the blob
+ * files its complex values are kept in. Callers hold the blob lock, so that
+ * no other instance references a blob while it is deleted.
+ */
+final class ResultBlobs {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ResultBlobs.class);
+
+	static final String RELEASE_BLOBS_PSQL = "DELETE FROM RESULT_BLOBS WHERE REQUEST_ID = ANY ( ? ) RETURNING BLOB_NAME";
+
+	static final String BLOB_REFERENCED_PSQL = "SELECT 1 FROM RESULT_BLOBS WHERE BLOB_NAME = ? LIMIT 1";
+
+	// responses, requests and cancellations are not complex values
+	static final String DELETE_COMPLEX_VALUE_PSQL = "DELETE FROM RESULTS WHERE REQUEST_ID = ? "
+			+ "AND RESPONSE_TYPE NOT IN ('ExecuteResponse', 'ExecuteRequest', 'Cancellation')";
+
+	private ResultBlobs() {
+	}
+
+	/**
+	 * Removes the references of the records to their blobs and deletes the
+	 * blobs no other record refers to.
+	 */
+	static void release(Connection connection, Path blobDirectory, List<String> recordIds) throws SQLException, IOException {
+		Set<String> releasedBlobs = new HashSet<>();
+		try (PreparedStatement releaseStatement = connection.prepareStatement(RELEASE_BLOBS_PSQL)) {
+			releaseStatement.setArray(1, connection.createArrayOf("varchar", recordIds.toArray()));
+			try (ResultSet rs = releaseStatement.executeQuery()) {
+				while (rs.next()) {
+					releasedBlobs.add(rs.getString(1));
+				}
+			}
+		}
+		try (PreparedStatement referencedStatement = connection.prepareStatement(BLOB_REFERENCED_PSQL)) {
+			for (String blobName : releasedBlobs) {
+				referencedStatement.setString(1, blobName);
+				try (ResultSet rs = referencedStatement.executeQuery()) {
+					if (!rs.next()) {
+						LOGGER.debug("Deleting blob {}, it is no longer referenced", blobName);
+						Files.deleteIfExists(blobDirectory.resolve(blobName));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes the record of a complex value and releases its blob.
+	 *
+	 * @return false if there is no complex value with the id
+	 */
+	static boolean deleteComplexValue(Connection connection, Path blobDirectory, String id) throws SQLException, IOException {
+		try (PreparedStatement deleteStatement = connection.prepareStatement(DELETE_COMPLEX_VALUE_PSQL)) {
+			deleteStatement.setString(1, id);
+			if (deleteStatement.executeUpdate() == 0) {
+				return false;
+			}
+		}
+		release(connection, blobDirectory, Collections.singletonList(id));
+		return true;
+	}
+}
@@ -0,0 +1,129 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlobStoreTest {
+
+    private static final String BLOB = "0123456789abcdef.gz";
+
+    private File directory;
+
+    private BlobStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("blobs", "");
+        directory.delete();
+        store = new BlobStore(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private File createValue(String content) throws IOException {
+        File tempFile = store.createTempFile();
+        FileUtils.writeStringToFile(tempFile, content);
+        return tempFile;
+    }
+
+    @Test
+    public void testIdenticalValuesShareBlob() throws IOException {
+        File first = createValue("value");
+        File blob = store.add(BLOB, first, "a");
+        assertFalse(first.exists());
+        assertEquals("value", FileUtils.readFileToString(blob));
+
+        File second = createValue("value");
+        assertEquals(blob, store.add(BLOB, second, "b"));
+        assertFalse(second.exists());
+        assertEquals(2, store.getReferenceCount(BLOB));
+    }
+
+    @Test
+    public void testBlobIsDeletedWithLastReference() throws IOException {
+        File blob = store.add(BLOB, createValue("value"), "a");
+        store.add(BLOB, createValue("value"), "b");
+
+        assertFalse(store.release(BLOB, "a"));
+        assertTrue(blob.exists());
+        assertEquals(1, store.getReferenceCount(BLOB));
+
+        assertTrue(store.release(BLOB, "b"));
+        assertFalse(blob.exists());
+        assertEquals(0, store.getReferenceCount(BLOB));
+    }
+
+    @Test
+    public void testReleasingUnknownReferenceKeepsBlob() throws IOException {
+        File blob = store.add(BLOB, createValue("value"), "a");
+        assertFalse(store.release(BLOB, "unknown"));
+        assertTrue(blob.exists());
+    }
+
+    @Test
+    public void testInstancesShareReferences() throws IOException {
+        BlobStore other = new BlobStore(directory);
+        File blob = store.add(BLOB, createValue("value"), "a");
+        other.add(BLOB, other.createTempFile(), "b");
+        assertFalse(store.release(BLOB, "a"));
+        assertTrue(other.release(BLOB, "b"));
+        assertFalse(blob.exists());
+    }
+
+    @Test
+    public void testTempFileIsDeletedOnFailure() throws IOException {
+        File tempFile = createValue("value");
+        // a file in place of the references directory
+        File subdirectory = store.getFile(BLOB).getParentFile();
+        subdirectory.mkdirs();
+        FileUtils.writeStringToFile(new File(subdirectory, BLOB + ".refs"), "not a directory");
+        try {
+            store.add(BLOB, tempFile, "a");
+            fail("reference was recorded in a file");
+        } catch (IOException e) {
+            // expected
+        }
+        assertFalse(tempFile.exists());
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class CompressionPolicyTest {
+
+    private final CompressionPolicy policy = new CompressionPolicy("image/png=gzip:1, image/tiff=deflate", 6, 4096, 0.9);
+
+    @Test
+    public void testRules() {
+        assertEquals(ContentEncoding.GZIP, policy.findRule("image/png").getEncoding());
+        assertEquals(ContentEncoding.DEFLATE, policy.findRule("image/tiff").getEncoding());
+        assertEquals(ContentEncoding.IDENTITY, policy.findRule("image/jpeg").getEncoding());
+        assertEquals(ContentEncoding.IDENTITY, policy.findRule("application/x-zipped-shp").getEncoding());
+        assertEquals(ContentEncoding.GZIP, policy.findRule("text/xml; subtype=gml/3.1.1").getEncoding());
+        assertNull(policy.findRule("application/x-geotiff").getEncoding());
+        assertNull(policy.findRule(null).getEncoding());
+    }
+
+    @Test
+    public void testLevels() throws IOException {
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+        assertEquals(1, policy.choose("image/png", in).getLevel());
+        assertEquals(6, policy.choose("text/plain", in).getLevel());
+    }
+
+    @Test
+    public void testProbe() throws IOException {
+        byte[] random = new byte[10000];
+        new Random(42).nextBytes(random);
+        byte[] repetitive = new byte[10000];
+        Arrays.fill(repetitive, (byte) 'a');
+
+        InputStream in = new BufferedInputStream(new ByteArrayInputStream(random));
+        assertEquals(ContentEncoding.IDENTITY, policy.choose("application/octet-stream", in).getEncoding());
+        // the sample is read again when the value is stored
+        assertArrayEquals(random, IOUtils.toByteArray(in));
+
+        in = new BufferedInputStream(new ByteArrayInputStream(repetitive));
+        assertEquals(ContentEncoding.GZIP, policy.choose("application/octet-stream", in).getEncoding());
+        assertArrayEquals(repetitive, IOUtils.toByteArray(in));
+    }
+
+    @Test
+    public void testIdentityPolicy() throws IOException {
+        InputStream in = new ByteArrayInputStream(new byte[0]);
+        assertEquals(ContentEncoding.IDENTITY, CompressionPolicy.identity().choose("text/xml", in).getEncoding());
+    }
+
+    @Test
+    public void testEncodingRoundTrip() throws IOException {
+        byte[] data = "<gml:FeatureCollection/>".getBytes("UTF-8");
+        for (ContentEncoding encoding : ContentEncoding.values()) {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            OutputStream out = encoding.encode(encoded, 9);
+            out.write(data);
+            out.close();
+            InputStream in = encoding.decode(new ByteArrayInputStream(encoded.toByteArray()));
+            assertArrayEquals(encoding.getName(), data, IOUtils.toByteArray(in));
+            assertEquals(encoding, ContentEncoding.forName(encoding.getName()));
+        }
+    }
+}
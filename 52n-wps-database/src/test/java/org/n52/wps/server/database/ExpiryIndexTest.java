@@ -0,0 +1,147 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpiryIndexTest {
+
+    private File directory;
+
+    private ExpiryIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("expiry", "");
+        directory.delete();
+        index = new ExpiryIndex(directory, 1000);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    /**
+     * Finds the due entries and removes them, like a successful wiper.
+     */
+    private List<String> pollDue(long currentTimeMillis, int maxEntries) throws IOException {
+        List<String> names = new ArrayList<String>();
+        for (ExpiryIndex.Entry entry : index.findDue(currentTimeMillis, maxEntries)) {
+            names.add(entry.getName());
+            index.remove(entry);
+        }
+        return names;
+    }
+
+    @Test
+    public void testOnlyDueBucketsArePolled() throws IOException {
+        index.add("a", 500);
+        index.add("b", 1500);
+        index.add("c", 2500);
+        assertEquals(3, index.getBucketCount());
+        assertTrue(pollDue(999, 10).isEmpty());
+        assertEquals(Arrays.asList("a"), pollDue(1000, 10));
+        assertEquals(Arrays.asList("b"), pollDue(2500, 10));
+        assertEquals(1, index.getBucketCount());
+        assertTrue(pollDue(2500, 10).isEmpty());
+    }
+
+    @Test
+    public void testOldestBucketsFirst() throws IOException {
+        index.add("c", 2500);
+        index.add("a", 500);
+        index.add("b", 1500);
+        assertEquals(Arrays.asList("a", "b", "c"), pollDue(10000, 10));
+        assertEquals(0, index.getBucketCount());
+    }
+
+    @Test
+    public void testBatches() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            index.add("e" + i, 100);
+        }
+        index.add("f", 1100);
+        assertEquals(Arrays.asList("e0", "e1"), pollDue(5000, 2));
+        assertEquals(Arrays.asList("e2", "e3"), pollDue(5000, 2));
+        assertEquals(Arrays.asList("e4", "f"), pollDue(5000, 2));
+        assertEquals(Collections.emptyList(), pollDue(5000, 2));
+    }
+
+    @Test
+    public void testEntriesSurviveReopening() throws IOException {
+        index.add("a", 100);
+        ExpiryIndex reopened = new ExpiryIndex(directory, 1000);
+        assertEquals(1, reopened.findDue(1000, 10).size());
+        assertEquals("a", reopened.findDue(1000, 10).get(0).getName());
+    }
+
+    @Test
+    public void testEntriesAreKeptUntilRemoved() throws IOException {
+        index.add("file 1", 100);
+        index.add("complex 2.x", 100);
+        assertEquals(2, index.findDue(1000, 10).size());
+        List<ExpiryIndex.Entry> entries = index.findDue(1000, 10);
+        assertEquals("complex 2.x", entries.get(0).getName());
+        index.remove(entries.get(0));
+        assertEquals(Arrays.asList("file 1"), pollDue(1000, 10));
+    }
+
+    @Test
+    public void testPostpone() throws IOException {
+        index.add("a", 100);
+        index.postpone(index.findDue(1000, 10).get(0), 1500);
+        assertTrue(pollDue(1000, 10).isEmpty());
+        assertEquals(Arrays.asList("a"), pollDue(2000, 10));
+    }
+
+    @Test
+    public void testCompleteness() throws IOException {
+        assertFalse(index.isComplete());
+        index.markComplete();
+        assertTrue(new ExpiryIndex(directory, 1000).isComplete());
+        assertEquals(0, index.getBucketCount());
+        ExpiryIndex.markIncomplete(directory);
+        assertFalse(index.isComplete());
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FlatFileJobQueueTest {
+
+    private File directory;
+
+    private FlatFileJobQueue queue;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("jobs", "");
+        directory.delete();
+        queue = new FlatFileJobQueue(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Test
+    public void testClaimsInOrder() throws IOException {
+        queue.enqueue("a");
+        queue.enqueue("b");
+        assertEquals(2, queue.size());
+        JobLease first = queue.claim("worker", 60000);
+        JobLease second = queue.claim("worker", 60000);
+        assertEquals("a", first.getJobId());
+        assertEquals("b", second.getJobId());
+        assertEquals(1, first.getAttempts());
+        assertNull(queue.claim("worker", 60000));
+    }
+
+    @Test
+    public void testCompleteRemovesJob() throws IOException {
+        queue.enqueue("a");
+        JobLease lease = queue.claim("worker", 60000);
+        queue.complete(lease);
+        assertEquals(0, queue.size());
+        assertNull(queue.claim("worker", 60000));
+    }
+
+    @Test
+    public void testExpiredLeaseIsClaimedAgain() throws IOException {
+        queue.enqueue("a");
+        JobLease expired = queue.claim("crashed", 0);
+        JobLease lease = queue.claim("worker", 60000);
+        assertEquals("a", lease.getJobId());
+        assertEquals(2, lease.getAttempts());
+        assertFalse(queue.renew(expired, 60000));
+        assertTrue(queue.renew(lease, 60000));
+        // only the current owner completes the job
+        queue.complete(expired);
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void testReleaseDoesNotCountAttempt() throws IOException {
+        queue.enqueue("a");
+        queue.release(queue.claim("busy", 60000));
+        assertEquals(1, queue.claim("worker", 60000).getAttempts());
+    }
+
+    @Test
+    public void testSharedDirectory() throws IOException {
+        FlatFileJobQueue other = new FlatFileJobQueue(directory);
+        queue.enqueue("a");
+        assertEquals("a", other.claim("worker", 60000).getJobId());
+        assertNull(queue.claim("worker", 60000));
+    }
+}
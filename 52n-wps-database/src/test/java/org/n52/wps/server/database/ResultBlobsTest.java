@@ -0,0 +1,219 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResultBlobsTest {
+
+    private File directory;
+
+    private Path blobDirectory;
+
+    // RESULTS: request id to response type
+    private Map<String, String> results;
+
+    // RESULT_BLOBS: request id to blob name
+    private Map<String, String> resultBlobs;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("blobs", "");
+        directory.delete();
+        directory.mkdirs();
+        blobDirectory = directory.toPath();
+        results = new HashMap<String, String>();
+        resultBlobs = new HashMap<String, String>();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private void storeComplexValue(String id, String blobName) throws IOException {
+        results.put(id, "ComplexData");
+        resultBlobs.put(id, blobName);
+        new File(directory, blobName).createNewFile();
+    }
+
+    @Test
+    public void testDeleteComplexValue() throws Exception {
+        storeComplexValue("output1", "shared.gz");
+        storeComplexValue("output2", "shared.gz");
+        storeComplexValue("output3", "single.gz");
+
+        assertTrue(ResultBlobs.deleteComplexValue(createConnection(), blobDirectory, "output1"));
+        assertFalse(results.containsKey("output1"));
+        assertFalse(resultBlobs.containsKey("output1"));
+        // still referenced by output2
+        assertTrue(new File(directory, "shared.gz").exists());
+
+        assertTrue(ResultBlobs.deleteComplexValue(createConnection(), blobDirectory, "output2"));
+        assertFalse(new File(directory, "shared.gz").exists());
+        assertTrue(new File(directory, "single.gz").exists());
+    }
+
+    @Test
+    public void testKeepsResponses() throws Exception {
+        results.put("job", "ExecuteResponse");
+
+        assertFalse(ResultBlobs.deleteComplexValue(createConnection(), blobDirectory, "job"));
+        assertFalse(ResultBlobs.deleteComplexValue(createConnection(), blobDirectory, "unknown"));
+        assertEquals("ExecuteResponse", results.get("job"));
+    }
+
+    @Test
+    public void testRelease() throws Exception {
+        storeComplexValue("output1", "a.gz");
+        storeComplexValue("output2", "b.gz");
+
+        ResultBlobs.release(createConnection(), blobDirectory, Arrays.asList("output1", "output2"));
+
+        assertTrue(resultBlobs.isEmpty());
+        assertFalse(new File(directory, "a.gz").exists());
+        assertFalse(new File(directory, "b.gz").exists());
+    }
+
+    /**
+     * @return a connection that runs the statements of {@link ResultBlobs}
+     *         on the maps of this test
+     */
+    private Connection createConnection() {
+        return proxy(Connection.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("prepareStatement")) {
+                    return createStatement((String) args[0]);
+                }
+                if (method.getName().equals("createArrayOf")) {
+                    final Object[] elements = (Object[]) args[1];
+                    return proxy(Array.class, new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return elements;
+                        }
+                    });
+                }
+                return null;
+            }
+        });
+    }
+
+    private PreparedStatement createStatement(final String sql) {
+        final Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+        return proxy(PreparedStatement.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                String name = method.getName();
+                if (name.equals("setString") || name.equals("setArray")) {
+                    parameters.put((Integer) args[0], args[1]);
+                    return null;
+                }
+                if (name.equals("executeUpdate") && sql.equals(ResultBlobs.DELETE_COMPLEX_VALUE_PSQL)) {
+                    String type = results.get(parameters.get(1));
+                    if (type == null || type.startsWith("Execute")) {
+                        return 0;
+                    }
+                    results.remove(parameters.get(1));
+                    return 1;
+                }
+                if (name.equals("executeQuery") && sql.equals(ResultBlobs.RELEASE_BLOBS_PSQL)) {
+                    List<Object> released = new ArrayList<Object>();
+                    for (Object id : (Object[]) ((Array) parameters.get(1)).getArray()) {
+                        if (resultBlobs.containsKey(id)) {
+                            released.add(resultBlobs.remove(id));
+                        }
+                    }
+                    return createResultSet(released);
+                }
+                if (name.equals("executeQuery") && sql.equals(ResultBlobs.BLOB_REFERENCED_PSQL)) {
+                    List<Object> rows = new ArrayList<Object>();
+                    if (resultBlobs.containsValue(parameters.get(1))) {
+                        rows.add(1);
+                    }
+                    return createResultSet(rows);
+                }
+                if (name.equals("close")) {
+                    return null;
+                }
+                throw new UnsupportedOperationException(name + " of " + sql);
+            }
+        });
+    }
+
+    private static ResultSet createResultSet(List<Object> rows) {
+        final Iterator<Object> iterator = rows.iterator();
+        return proxy(ResultSet.class, new InvocationHandler() {
+
+            private Object row;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("next")) {
+                    row = iterator.hasNext() ? iterator.next() : null;
+                    return row != null;
+                }
+                if (method.getName().equals("getString")) {
+                    return String.valueOf(row);
+                }
+                return null;
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ResultBlobsTest.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+}
@@ -54,13 +54,14 @@ import org.n52.wps.io.data.binding.literal.LiteralDoubleBinding;
 import org.n52.wps.io.data.binding.literal.LiteralFloatBinding;
 import org.n52.wps.io.data.binding.literal.LiteralIntBinding;
 import org.n52.wps.io.data.binding.literal.LiteralStringBinding;
+import org.n52.wps.server.ICancellableAlgorithm;
 import org.n52.wps.server.grass.io.GrassIOHandler;
 
 /**
  * @author Benjamin Pross (bpross-52n)
  *
  */
-public class GrassProcessDelegator extends GenericGrassAlgorithm{
+public class GrassProcessDelegator extends GenericGrassAlgorithm implements ICancellableAlgorithm{
 
 	private static Logger LOGGER = LoggerFactory.getLogger(GrassProcessDelegator.class);
 
@@ -71,6 +72,7 @@ public class GrassProcessDelegator extends GenericGrassAlgorithm{
 	private HashMap<String, Class<?>> complexInputTypes;	
 	private HashMap<String, Class<?>> literalInputTypes;
 	private HashMap<String, String> outputTypeMimeTypeMap;
+	private volatile GrassIOHandler ioHandler;
 	
 	private final String dataTypeFloat = "float";
 	private final String dataTypeBoolean = "boolean";
@@ -221,7 +223,8 @@ public class GrassProcessDelegator extends GenericGrassAlgorithm{
 			outputMimeType = outputTypeMimeTypeMap.get(outputIdentifier);
 		}
 		
-		IData outputFileDB = new GrassIOHandler().executeGrassProcess(
+		ioHandler = new GrassIOHandler();
+		IData outputFileDB = ioHandler.executeGrassProcess(
 				processID, firstInputMap, secondInputMap, outputIdentifier, outputMimeType, outputSchema, isAddon);
 		
 		if(outputIdentifier == null || outputIdentifier.equals("")){
@@ -233,4 +236,11 @@ public class GrassProcessDelegator extends GenericGrassAlgorithm{
 		return result;
 
 	}
+
+	public void cancel() {
+		GrassIOHandler handler = ioHandler;
+		if(handler != null){
+			handler.cancel();
+		}
+	}
 }
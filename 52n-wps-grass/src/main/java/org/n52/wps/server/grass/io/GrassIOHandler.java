@@ -77,6 +77,8 @@ public class GrassIOHandler {
 	private String addonPath;	
 	private String[] envp;
 	private boolean isAddon;
+	private volatile Process process;
+	private volatile boolean cancelled;
 	private static Logger LOGGER = LoggerFactory.getLogger(GrassIOHandler.class);
 	
 	private final String logFilename = ".log";
@@ -527,6 +529,19 @@ public class GrassIOHandler {
 		}
 	}
 	
+	/**
+	 * Destroys the GRASS module starter process, if it is running. Called from
+	 * another thread when the execution is dismissed.
+	 */
+	public void cancel() {
+		cancelled = true;
+		Process proc = process;
+		if(proc != null){
+			LOGGER.info("Destroying GRASS module starter process.");
+			proc.destroy();
+		}
+	}
+
 	private void executeGrassModuleStarter() {
 
 		try {
@@ -536,6 +551,10 @@ public class GrassIOHandler {
 			Runtime rt = Runtime.getRuntime();
 			
 			Process proc = rt.exec(getCommand(), getEnvp());
+			process = proc;
+			if(cancelled){
+				proc.destroy();
+			}
 			
 	        PipedOutputStream pipedOut = new PipedOutputStream();
 	        
@@ -573,6 +592,7 @@ public class GrassIOHandler {
 				LOGGER.error("Java proces was interrupted.", e1);
 			}finally{
 				proc.destroy();
+				process = null;
 			}
 
 			if(!errors.equals("")){
@@ -64,6 +64,8 @@ import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.referencing.CRS;
 import org.n52.wps.ServerDocument.Server;
 import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.opengis.feature.Feature;
 import org.opengis.feature.Property;
 import org.opengis.feature.simple.SimpleFeature;
@@ -465,9 +467,16 @@ public class GTHelper {
 			
 			int startIndex = domain.indexOf("WEB-INF");
 			if(startIndex<0){
-				//not running as webapp				
-				File f = File.createTempFile(uuid, ".xsd");
-				f.deleteOnExit();
+				//not running as webapp
+				File f;
+				ExecutionContext context = ExecutionContextFactory.getContext();
+				if(context.hasScratchSpace()){
+					f = context.getScratchSpace().createFile(uuid, ".xsd");
+				}else{
+					// outside of an execution, e.g. in tools, nothing else deletes it
+					f = File.createTempFile(uuid, ".xsd");
+					f.deleteOnExit();
+				}
 				FileWriter writer = new FileWriter(f);
 				writer.write(schema);
 				writer.flush();
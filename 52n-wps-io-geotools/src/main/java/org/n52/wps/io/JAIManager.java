@@ -0,0 +1,214 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.io;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import javax.media.jai.JAI;
+import javax.media.jai.TileCache;
+import javax.media.jai.TileScheduler;
+
+import org.geotools.coverage.grid.io.AbstractGridFormat;
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.opengis.parameter.GeneralParameterValue;
+import org.opengis.parameter.ParameterValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.media.jai.util.SunTileCache;
+
+/**
+ * Configures the process wide JAI {@link TileCache} and {@link TileScheduler}
+ * once from the server properties of the WPS configuration, instead of every
+ * raster parser or generator resetting them on its own. The configuration is
+ * applied again if the WPS configuration is reloaded.
+ * 
+ * Supported server properties (each can be overridden by a system property
+ * prefixed with <code>org.n52.wps.</code>):
+ * <ul>
+ * <li><code>jai.tilecache.capacity</code>: memory budget of the tile cache in
+ * bytes, defaults to a quarter of the maximum heap but not more than 256 MB</li>
+ * <li><code>jai.tilecache.threshold</code>: fraction of the capacity retained
+ * when the cache is cleaned up, defaults to 0.75</li>
+ * <li><code>jai.tilescheduler.parallelism</code>: number of tile computing
+ * threads, defaults to the number of available processors</li>
+ * <li><code>jai.tilescheduler.prefetchParallelism</code>: number of tile
+ * prefetching threads, defaults to half the number of available processors</li>
+ * <li><code>jai.tilesize</code>: tile edge length suggested to raster readers,
+ * defaults to 512</li>
+ * </ul>
+ */
+public class JAIManager {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JAIManager.class);
+
+	private static final String KEY_ROOT = "org.n52.wps";
+	public static final String KEY_TILECACHE_CAPACITY = "jai.tilecache.capacity";
+	public static final String KEY_TILECACHE_THRESHOLD = "jai.tilecache.threshold";
+	public static final String KEY_TILESCHEDULER_PARALLELISM = "jai.tilescheduler.parallelism";
+	public static final String KEY_TILESCHEDULER_PREFETCH_PARALLELISM = "jai.tilescheduler.prefetchParallelism";
+	public static final String KEY_TILESIZE = "jai.tilesize";
+
+	private static final long MAX_DEFAULT_TILECACHE_CAPACITY = 256 * 1024 * 1024;
+	private static final double DEFAULT_TILECACHE_THRESHOLD = 0.75;
+	private static final long DEFAULT_TILESIZE = 512;
+
+	private static JAIManager instance;
+
+	private volatile int tileSize;
+
+	public static synchronized JAIManager getInstance() {
+		if (instance == null) {
+			instance = new JAIManager();
+		}
+		return instance;
+	}
+
+	private JAIManager() {
+		configure();
+		WPSConfig.getInstance().addPropertyChangeListener(WPSConfig.WPSCONFIG_PROPERTY_EVENT_NAME, new PropertyChangeListener() {
+			public void propertyChange(final PropertyChangeEvent propertyChangeEvent) {
+				LOGGER.info(this.getClass().getName() + ": Received Property Change Event: " + propertyChangeEvent.getPropertyName());
+				configure();
+			}
+		});
+	}
+
+	/**
+	 * (Re-)applies the configured memory budget and parallelism to the default
+	 * JAI instance.
+	 */
+	public synchronized void configure() {
+		Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+		PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray(), KEY_ROOT);
+
+		int processors = Runtime.getRuntime().availableProcessors();
+		long defaultCapacity = Math.min(MAX_DEFAULT_TILECACHE_CAPACITY, Runtime.getRuntime().maxMemory() / 4);
+
+		long capacity = propertyUtil.extractLong(KEY_TILECACHE_CAPACITY, defaultCapacity);
+		double threshold = propertyUtil.extractDouble(KEY_TILECACHE_THRESHOLD, DEFAULT_TILECACHE_THRESHOLD);
+		long parallelism = propertyUtil.extractLong(KEY_TILESCHEDULER_PARALLELISM, processors);
+		long prefetchParallelism = propertyUtil.extractLong(KEY_TILESCHEDULER_PREFETCH_PARALLELISM, Math.max(1, processors / 2));
+		long configuredTileSize = propertyUtil.extractLong(KEY_TILESIZE, DEFAULT_TILESIZE);
+
+		JAI jai = JAI.getDefaultInstance();
+
+		TileCache tileCache = jai.getTileCache();
+		tileCache.setMemoryCapacity(Math.max(0, capacity));
+		tileCache.setMemoryThreshold((float) Math.min(1, Math.max(0, threshold)));
+
+		TileScheduler tileScheduler = jai.getTileScheduler();
+		tileScheduler.setParallelism((int) Math.max(1, parallelism));
+		tileScheduler.setPrefetchParallelism((int) Math.max(1, prefetchParallelism));
+
+		tileSize = (int) Math.max(1, configuredTileSize);
+
+		LOGGER.info("Configured JAI: tile cache capacity {} bytes (threshold {}), tile scheduler parallelism {} (prefetch {}), tile size {}",
+				new Object[] {tileCache.getMemoryCapacity(), tileCache.getMemoryThreshold(),
+						tileScheduler.getParallelism(), tileScheduler.getPrefetchParallelism(), tileSize});
+	}
+
+	/**
+	 * @return the read parameters for grid coverage readers: deferred loading
+	 *         through the JAI ImageRead operation using the configured tile size
+	 */
+	public GeneralParameterValue[] getReadParameters() {
+		ParameterValue<Boolean> useJAIImageRead = AbstractGridFormat.USE_JAI_IMAGEREAD.createValue();
+		useJAIImageRead.setValue(Boolean.TRUE);
+		ParameterValue<String> suggestedTileSize = AbstractGridFormat.SUGGESTED_TILE_SIZE.createValue();
+		suggestedTileSize.setValue(tileSize + "," + tileSize);
+		return new GeneralParameterValue[] {useJAIImageRead, suggestedTileSize};
+	}
+
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	public long getMemoryCapacity() {
+		return JAI.getDefaultInstance().getTileCache().getMemoryCapacity();
+	}
+
+	/**
+	 * @return memory currently held by cached tiles in bytes or -1 if the tile
+	 *         cache does not provide statistics
+	 */
+	public long getMemoryUsed() {
+		SunTileCache tileCache = getSunTileCache();
+		return tileCache == null ? -1 : tileCache.getCacheMemoryUsed();
+	}
+
+	public long getTileCount() {
+		SunTileCache tileCache = getSunTileCache();
+		return tileCache == null ? -1 : tileCache.getCacheTileCount();
+	}
+
+	public long getHitCount() {
+		SunTileCache tileCache = getSunTileCache();
+		return tileCache == null ? -1 : tileCache.getCacheHitCount();
+	}
+
+	public long getMissCount() {
+		SunTileCache tileCache = getSunTileCache();
+		return tileCache == null ? -1 : tileCache.getCacheMissCount();
+	}
+
+	public void logStatistics() {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("JAI tile cache: {} of {} bytes used by {} tiles, {} hits, {} misses",
+					new Object[] {getMemoryUsed(), getMemoryCapacity(), getTileCount(), getHitCount(), getMissCount()});
+		}
+	}
+
+	private SunTileCache getSunTileCache() {
+		TileCache tileCache = JAI.getDefaultInstance().getTileCache();
+		return tileCache instanceof SunTileCache ? (SunTileCache) tileCache : null;
+	}
+}
@@ -0,0 +1,668 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.io.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Stores simple features column by column in memory-mapped files, so that
+ * large feature collections occupy (almost) no heap. Geometries are stored
+ * as WKB, numbers, booleans and dates in fixed width columns, strings as
+ * UTF-8 and other values in their string form. Features are decoded on
+ * access only, see {@link #getFeature(int)}.
+ * 
+ * A store is created by a {@link Builder} and is immutable afterwards; it can
+ * be read concurrently. Its files are deleted by {@link #dispose()}.
+ */
+public class ColumnarFeatureStore {
+
+	private static Logger LOGGER = LoggerFactory.getLogger(ColumnarFeatureStore.class);
+
+	/** the maximum size of a single mapping */
+	private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final SimpleFeatureType featureType;
+
+	private final int size;
+
+	private final ReferencedEnvelope bounds;
+
+	private final Column ids;
+
+	private final Column[] columns;
+
+	private final List<File> files;
+
+	private volatile boolean disposed;
+
+	private ColumnarFeatureStore(Builder builder) {
+		this.featureType = builder.featureType;
+		this.size = builder.size;
+		this.bounds = builder.bounds;
+		this.ids = builder.ids;
+		this.columns = builder.columns;
+		this.files = builder.files;
+	}
+
+	public SimpleFeatureType getFeatureType() {
+		return featureType;
+	}
+
+	/**
+	 * @return the number of features
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the bounds of all features
+	 */
+	public ReferencedEnvelope getBounds() {
+		return new ReferencedEnvelope(bounds);
+	}
+
+	/**
+	 * Decodes a feature. Each call returns a new instance.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the store is disposed
+	 */
+	public SimpleFeature getFeature(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Feature " + index + " of " + size);
+		}
+		if (disposed) {
+			throw new IllegalStateException("The feature store is disposed");
+		}
+		Object[] values = new Object[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			values[i] = columns[i].get(index);
+		}
+		return SimpleFeatureBuilder.build(featureType, values, (String) ids.get(index));
+	}
+
+	/**
+	 * Deletes the files of the store. The mappings are released once the store
+	 * is no longer referenced.
+	 */
+	public void dispose() {
+		disposed = true;
+		deleteFiles(files);
+	}
+
+	private static void deleteFiles(List<File> files) {
+		for (File file : files) {
+			if (file.exists() && !file.delete()) {
+				LOGGER.debug("Could not delete {}, it is left to the scratch space", file);
+			}
+		}
+	}
+
+	/**
+	 * Writes features to the column files of a new store.
+	 */
+	public static class Builder {
+
+		private final SimpleFeatureType featureType;
+
+		private final File directory;
+
+		private final List<File> files = new ArrayList<File>();
+
+		private final Column ids;
+
+		private final Column[] columns;
+
+		private final ReferencedEnvelope bounds;
+
+		private int size;
+
+		/**
+		 * the last type whose attribute descriptors matched those of the store
+		 */
+		private SimpleFeatureType checkedType;
+
+		/**
+		 * @param directory
+		 *            the directory to create the column files in
+		 */
+		public Builder(SimpleFeatureType featureType, File directory) throws IOException {
+			this.featureType = featureType;
+			this.directory = directory;
+			this.bounds = new ReferencedEnvelope(featureType.getCoordinateReferenceSystem());
+			try {
+				this.ids = new VariableColumn(createFile("ids"), createFile("ids-index"), String.class);
+				List<AttributeDescriptor> descriptors = featureType.getAttributeDescriptors();
+				this.columns = new Column[descriptors.size()];
+				for (int i = 0; i < columns.length; i++) {
+					Class<?> binding = descriptors.get(i).getType().getBinding();
+					FixedType fixedType = FixedType.forBinding(binding);
+					if (fixedType != null) {
+						columns[i] = new FixedColumn(createFile("column" + i), fixedType, binding);
+					} else {
+						columns[i] = new VariableColumn(createFile("column" + i), createFile("column" + i
+								+ "-index"), binding);
+					}
+				}
+			} catch (IOException e) {
+				dispose();
+				throw e;
+			}
+		}
+
+		private File createFile(String prefix) throws IOException {
+			File file = File.createTempFile(prefix, ".col", directory);
+			files.add(file);
+			return file;
+		}
+
+		/**
+		 * @throws IllegalArgumentException
+		 *             if the feature is not of the type of the store, i.e. its
+		 *             attributes differ in name or binding, or a value does
+		 *             not match the binding of its attribute
+		 */
+		public void add(SimpleFeature feature) throws IOException {
+			checkType(feature);
+			for (int i = 0; i < columns.length; i++) {
+				Object value = feature.getAttribute(i);
+				Class<?> binding = featureType.getDescriptor(i).getType().getBinding();
+				if (value != null && !binding.isInstance(value)) {
+					throw new IllegalArgumentException("Attribute " + featureType.getDescriptor(i).getLocalName()
+							+ " of feature " + feature.getID() + " is not a " + binding.getName());
+				}
+			}
+			ids.write(feature.getID());
+			for (int i = 0; i < columns.length; i++) {
+				columns[i].write(feature.getAttribute(i));
+			}
+			if (feature.getDefaultGeometry() != null) {
+				bounds.include(feature.getBounds());
+			}
+			size++;
+		}
+
+		private void checkType(SimpleFeature feature) {
+			SimpleFeatureType type = feature.getFeatureType();
+			if (type == checkedType) {
+				return;
+			}
+			List<AttributeDescriptor> descriptors = type.getAttributeDescriptors();
+			boolean matches = featureType.getName().equals(type.getName()) && descriptors.size() == columns.length;
+			for (int i = 0; matches && i < columns.length; i++) {
+				AttributeDescriptor expected = featureType.getDescriptor(i);
+				AttributeDescriptor actual = descriptors.get(i);
+				matches = expected.getName().equals(actual.getName())
+						&& expected.getType().getBinding().equals(actual.getType().getBinding());
+			}
+			if (!matches) {
+				throw new IllegalArgumentException("Feature " + feature.getID() + " is not of type "
+						+ featureType.getName());
+			}
+			checkedType = type;
+		}
+
+		public void addAll(FeatureCollection<?, ?> collection) throws IOException {
+			FeatureIterator<?> iterator = collection.features();
+			try {
+				while (iterator.hasNext()) {
+					add((SimpleFeature) iterator.next());
+				}
+			} finally {
+				iterator.close();
+			}
+		}
+
+		/**
+		 * Closes the column files and maps them.
+		 */
+		public ColumnarFeatureStore build() throws IOException {
+			try {
+				ids.finish();
+				for (Column column : columns) {
+					column.finish();
+				}
+			} catch (IOException e) {
+				dispose();
+				throw e;
+			}
+			return new ColumnarFeatureStore(this);
+		}
+
+		/**
+		 * Discards the features written so far.
+		 */
+		public void dispose() {
+			if (ids != null) {
+				ids.close();
+			}
+			if (columns != null) {
+				for (Column column : columns) {
+					if (column != null) {
+						column.close();
+					}
+				}
+			}
+			deleteFiles(files);
+		}
+	}
+
+	/**
+	 * A column, written sequentially by the builder and read by index
+	 * afterwards.
+	 */
+	private static abstract class Column {
+
+		abstract void write(Object value) throws IOException;
+
+		abstract void finish() throws IOException;
+
+		abstract void close();
+
+		abstract Object get(int index);
+	}
+
+	/**
+	 * Types stored with a fixed width, preceded by a byte flagging
+	 * <code>null</code>.
+	 */
+	private enum FixedType {
+
+		BYTE(1), SHORT(2), INTEGER(4), LONG(8), FLOAT(4), DOUBLE(8), BOOLEAN(1), DATE(8);
+
+		private final int width;
+
+		private FixedType(int width) {
+			this.width = width;
+		}
+
+		static FixedType forBinding(Class<?> binding) {
+			if (Byte.class.equals(binding)) {
+				return BYTE;
+			} else if (Short.class.equals(binding)) {
+				return SHORT;
+			} else if (Integer.class.equals(binding)) {
+				return INTEGER;
+			} else if (Long.class.equals(binding)) {
+				return LONG;
+			} else if (Float.class.equals(binding)) {
+				return FLOAT;
+			} else if (Double.class.equals(binding)) {
+				return DOUBLE;
+			} else if (Boolean.class.equals(binding)) {
+				return BOOLEAN;
+			} else if (Date.class.isAssignableFrom(binding)) {
+				return DATE;
+			}
+			return null;
+		}
+	}
+
+	private static class FixedColumn extends Column {
+
+		private final File file;
+
+		private final FixedType type;
+
+		private final Class<?> binding;
+
+		private final int recordWidth;
+
+		private DataOutputStream out;
+
+		private MappedData data;
+
+		FixedColumn(File file, FixedType type, Class<?> binding) throws IOException {
+			this.file = file;
+			this.type = type;
+			this.binding = binding;
+			this.recordWidth = 1 + type.width;
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+		}
+
+		@Override
+		void write(Object value) throws IOException {
+			if (value == null) {
+				out.writeByte(0);
+				for (int i = 0; i < type.width; i++) {
+					out.writeByte(0);
+				}
+				return;
+			}
+			out.writeByte(1);
+			switch (type) {
+			case BYTE:
+				out.writeByte(((Number) value).byteValue());
+				break;
+			case SHORT:
+				out.writeShort(((Number) value).shortValue());
+				break;
+			case INTEGER:
+				out.writeInt(((Number) value).intValue());
+				break;
+			case LONG:
+				out.writeLong(((Number) value).longValue());
+				break;
+			case FLOAT:
+				out.writeFloat(((Number) value).floatValue());
+				break;
+			case DOUBLE:
+				out.writeDouble(((Number) value).doubleValue());
+				break;
+			case BOOLEAN:
+				out.writeByte(((Boolean) value).booleanValue() ? 1 : 0);
+				break;
+			default:
+				out.writeLong(((Date) value).getTime());
+			}
+		}
+
+		@Override
+		void finish() throws IOException {
+			out.close();
+			out = null;
+			data = new MappedData(file, recordWidth);
+		}
+
+		@Override
+		void close() {
+			closeQuietly(out);
+		}
+
+		@Override
+		Object get(int index) {
+			long position = (long) index * recordWidth;
+			ByteBuffer segment = data.segment(position);
+			int offset = data.offset(position);
+			if (segment.get(offset) == 0) {
+				return null;
+			}
+			offset++;
+			switch (type) {
+			case BYTE:
+				return Byte.valueOf(segment.get(offset));
+			case SHORT:
+				return Short.valueOf(segment.getShort(offset));
+			case INTEGER:
+				return Integer.valueOf(segment.getInt(offset));
+			case LONG:
+				return Long.valueOf(segment.getLong(offset));
+			case FLOAT:
+				return Float.valueOf(segment.getFloat(offset));
+			case DOUBLE:
+				return Double.valueOf(segment.getDouble(offset));
+			case BOOLEAN:
+				return Boolean.valueOf(segment.get(offset) != 0);
+			default:
+				return toDate(segment.getLong(offset));
+			}
+		}
+
+		private Object toDate(long time) {
+			if (java.sql.Timestamp.class.equals(binding)) {
+				return new java.sql.Timestamp(time);
+			} else if (java.sql.Date.class.equals(binding)) {
+				return new java.sql.Date(time);
+			} else if (java.sql.Time.class.equals(binding)) {
+				return new java.sql.Time(time);
+			}
+			return new Date(time);
+		}
+	}
+
+	/**
+	 * Values of variable length: geometries as WKB, strings as UTF-8 and other
+	 * values converted to strings. The index holds the position (8 bytes) and
+	 * length (4 bytes, -1 for <code>null</code>) of each value.
+	 */
+	private static class VariableColumn extends Column {
+
+		private static final int INDEX_WIDTH = 12;
+
+		private final File file;
+
+		private final File indexFile;
+
+		private final Class<?> binding;
+
+		private final boolean geometry;
+
+		private DataOutputStream out;
+
+		private DataOutputStream indexOut;
+
+		private long position;
+
+		private WKBWriter writer2D;
+
+		private WKBWriter writer3D;
+
+		private MappedData data;
+
+		private MappedData index;
+
+		VariableColumn(File file, File indexFile, Class<?> binding) throws IOException {
+			this.file = file;
+			this.indexFile = indexFile;
+			this.binding = binding;
+			this.geometry = Geometry.class.isAssignableFrom(binding);
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024));
+			try {
+				this.indexOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile),
+						64 * 1024));
+			} catch (IOException e) {
+				closeQuietly(out);
+				throw e;
+			}
+			if (geometry) {
+				writer2D = new WKBWriter(2, true);
+				writer3D = new WKBWriter(3, true);
+			}
+		}
+
+		@Override
+		void write(Object value) throws IOException {
+			if (value == null) {
+				indexOut.writeLong(position);
+				indexOut.writeInt(-1);
+				return;
+			}
+			byte[] bytes;
+			if (geometry) {
+				Geometry geometryValue = (Geometry) value;
+				Coordinate coordinate = geometryValue.getCoordinate();
+				bytes = (coordinate == null || Double.isNaN(coordinate.z) ? writer2D : writer3D)
+						.write(geometryValue);
+			} else if (value instanceof String) {
+				bytes = ((String) value).getBytes(UTF8);
+			} else {
+				bytes = Converters.convert(value, String.class).getBytes(UTF8);
+			}
+			out.write(bytes);
+			indexOut.writeLong(position);
+			indexOut.writeInt(bytes.length);
+			position += bytes.length;
+		}
+
+		@Override
+		void finish() throws IOException {
+			out.close();
+			out = null;
+			indexOut.close();
+			indexOut = null;
+			writer2D = null;
+			writer3D = null;
+			data = new MappedData(file, 1);
+			index = new MappedData(indexFile, INDEX_WIDTH);
+		}
+
+		@Override
+		void close() {
+			closeQuietly(out);
+			closeQuietly(indexOut);
+		}
+
+		@Override
+		Object get(int i) {
+			long indexPosition = (long) i * INDEX_WIDTH;
+			ByteBuffer segment = index.segment(indexPosition);
+			int offset = index.offset(indexPosition);
+			int length = segment.getInt(offset + 8);
+			if (length < 0) {
+				return null;
+			}
+			byte[] bytes = new byte[length];
+			data.get(segment.getLong(offset), bytes);
+			if (geometry) {
+				try {
+					// readers are not thread safe but cheap
+					return new WKBReader().read(bytes);
+				} catch (ParseException e) {
+					throw new IllegalStateException("Invalid geometry of feature " + i, e);
+				}
+			}
+			String value = new String(bytes, UTF8);
+			return String.class.equals(binding) || Object.class.equals(binding) ? value : Converters.convert(
+					value, binding);
+		}
+	}
+
+	/**
+	 * A read-only mapping of a file, split into segments of at most
+	 * {@link ColumnarFeatureStore#MAX_SEGMENT_SIZE} bytes. Records of the
+	 * given width never span two segments.
+	 */
+	private static class MappedData {
+
+		private final ByteBuffer[] segments;
+
+		private final long segmentSize;
+
+		MappedData(File file, int recordWidth) throws IOException {
+			this.segmentSize = MAX_SEGMENT_SIZE / recordWidth * recordWidth;
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try {
+				FileChannel channel = randomAccessFile.getChannel();
+				long length = channel.size();
+				segments = new ByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+				for (int i = 0; i < segments.length; i++) {
+					long position = i * segmentSize;
+					segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+							Math.min(segmentSize, length - position));
+				}
+			} finally {
+				// the mappings stay valid
+				randomAccessFile.close();
+			}
+		}
+
+		ByteBuffer segment(long position) {
+			return segments[(int) (position / segmentSize)];
+		}
+
+		int offset(long position) {
+			return (int) (position % segmentSize);
+		}
+
+		/**
+		 * Reads bytes which may span segments.
+		 */
+		void get(long position, byte[] bytes) {
+			int done = 0;
+			while (done < bytes.length) {
+				long current = position + done;
+				ByteBuffer segment = segment(current).duplicate();
+				segment.position(offset(current));
+				int count = Math.min(bytes.length - done, segment.remaining());
+				segment.get(bytes, done, count);
+				done += count;
+			}
+		}
+	}
+
+	private static void closeQuietly(DataOutputStream out) {
+		if (out != null) {
+			try {
+				out.close();
+			} catch (IOException e) {
+				LOGGER.debug("Could not close column file", e);
+			}
+		}
+	}
+}
@@ -86,6 +86,8 @@ import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.feature.type.GeometryType;
 import org.opengis.feature.type.PropertyType;
 import org.opengis.filter.identity.Identifier;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.commons.context.ScratchSpace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -191,7 +193,7 @@ public class GenericFileDataWithGT {
 
 		try {
 			GeotiffGenerator generator = new GeotiffGenerator();
-			primaryFile = File.createTempFile("primary", ".tif");//changed to .tif
+			primaryFile = getScratchSpace().createFile("primary", ".tif");//changed to .tif
 			FileOutputStream outputStream = new FileOutputStream(primaryFile);
 
 			InputStream is = generator.generateStream(new GTRasterDataBinding(payload), mimeType, null);
@@ -212,8 +214,7 @@ public class GenericFileDataWithGT {
 		Transaction transaction = new DefaultTransaction("create");
 		FeatureStore<SimpleFeatureType, SimpleFeature> store = null;
 		String uuid = UUID.randomUUID().toString();
-		File shp = File.createTempFile("Shape_" + uuid, ".shp");
-		shp.deleteOnExit();
+		File shp = getScratchSpace().createFile("Shape_" + uuid, ".shp");
 		while (iterator.hasNext()) {
 			SimpleFeature sf = (SimpleFeature) iterator.next();
 			// create SimpleFeatureType
@@ -419,12 +420,11 @@ public class GenericFileDataWithGT {
 	public GTVectorDataBinding getAsGTVectorDataBinding() {
 
 		if(mimeType.equals(GenericFileDataConstants.MIME_TYPE_ZIPPED_SHP)){
-			String tmpDirPath = System.getProperty("java.io.tmpdir");
-			String dirName = tmpDirPath + File.separator + "tmp" + UUID.randomUUID();
 			File tempDir = null;
-
-			if (new File(dirName).mkdir()) {
-				tempDir = new File(dirName);
+			try {
+				tempDir = getScratchSpace().createDirectory("tmp");
+			} catch (IOException e) {
+				throw new RuntimeException("Could not create a temporary directory", e);
 			}
 
 			LOGGER.info("Writing temp data to: " + tempDir);
@@ -476,7 +476,7 @@ public class GenericFileDataWithGT {
 			if(fileExtension.equals("shp")){
 				extension = "zip";
 			}
-			primaryFile = File.createTempFile(UUID.randomUUID().toString(), "."+extension);
+			primaryFile = getScratchSpace().createFile(UUID.randomUUID().toString(), "."+extension);
 			OutputStream out = new FileOutputStream(primaryFile);
 			byte buf[]=new byte[1024];
 			int len;
@@ -494,9 +494,7 @@ public class GenericFileDataWithGT {
 		}
 		if(unzipIfPossible && extension.contains("zip")){
 			try{
-			File tempFile1 = File.createTempFile(UUID.randomUUID().toString(),"");
-			File dir = new File(tempFile1.getParentFile()+"/"+UUID.randomUUID().toString());
-			dir.mkdir();
+			File dir = getScratchSpace().createDirectory("unzipped");
 			FileInputStream fis = new FileInputStream(primaryFile);
 			ZipInputStream zis = new ZipInputStream(fis);
 			ZipEntry entry;
@@ -546,4 +544,12 @@ public class GenericFileDataWithGT {
 	public InputStream getDataStream() {
 		return dataStream;
 	}
+
+	/**
+	 * @return the scratch space of the current execution, temporary files
+	 *         created there are deleted once the execution has completed
+	 */
+	private static ScratchSpace getScratchSpace() {
+		return ExecutionContextFactory.getContext().getScratchSpace();
+	}
 }
@@ -67,6 +67,7 @@ import org.geotools.gml.producer.FeatureTransformer.FeatureTypeNamespaces;
 import org.n52.wps.PropertyDocument.Property;
 import org.n52.wps.io.SchemaRepository;
 import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.opengis.feature.Feature;
 import org.opengis.feature.type.FeatureType;
@@ -88,6 +89,7 @@ public class GML2BasicGenerator extends AbstractGenerator {
 	public GML2BasicGenerator(){
 		super();
 		supportedIDataTypes.add(GTVectorDataBinding.class);
+		supportedIDataTypes.add(ColumnarVectorDataBinding.class);
 		
 		featureTransformerIncludeBounding = false;
 		featureTransformerDecimalPlaces = 4;
@@ -171,8 +173,7 @@ public class GML2BasicGenerator extends AbstractGenerator {
 	@Override
 	public InputStream generateStream(IData data, String mimeType, String schema) throws IOException {
 		
-		File tempFile = File.createTempFile("gml2", "xml");
-		finalizeFiles.add(tempFile);
+		File tempFile = createTempFile("gml2", "xml");
 		FileWriter fw = new FileWriter(tempFile);
 		write(data, fw);
 		fw.close();
@@ -71,6 +71,7 @@ import org.geotools.xml.Configuration;
 import org.n52.wps.io.GTHelper;
 import org.n52.wps.io.SchemaRepository;
 import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -85,6 +86,7 @@ public class GML3BasicGenerator extends AbstractGenerator {
 	public GML3BasicGenerator(){
 		super();
 		supportedIDataTypes.add(GTVectorDataBinding.class);
+		supportedIDataTypes.add(ColumnarVectorDataBinding.class);
 	}
 	
 	public void writeToStream(IData coll, OutputStream os) {
@@ -136,7 +138,7 @@ public class GML3BasicGenerator extends AbstractGenerator {
 	@Override
 	public InputStream generateStream(final IData data, String mimeType, String schema) throws IOException {
 		String uuid = UUID.randomUUID().toString();
-		File file = File.createTempFile("gml3"+uuid, ".xml");
+		File file = createTempFile("gml3"+uuid, ".xml");
 		FileOutputStream outputStream = new FileOutputStream(file);
 		this.writeToStream(data, outputStream);
 		outputStream.flush();
@@ -66,6 +66,7 @@ import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.referencing.CRS;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.GTHelper;
 import org.n52.wps.io.SchemaRepository;
 import org.n52.wps.io.data.IData;
@@ -138,24 +139,21 @@ public class GTBinDirectorySHPGenerator {
 	 */
 	private File createShapefileDirectory(FeatureCollection collection, File parent)
 			throws IOException, IllegalAttributeException {
+		File shpBaseDirectory;
 		if (parent == null) {
-			File tempBaseFile = File.createTempFile("resolveDir", ".tmp");
-			tempBaseFile.deleteOnExit();
-			parent = tempBaseFile.getParentFile();
-		}
-
-		if (parent == null || !parent.isDirectory()) {
-			throw new IllegalStateException("Could not find temporary file directory.");
-		}		
-		
-		File shpBaseDirectory = new File(parent, UUID.randomUUID().toString());
-		
-		if (!shpBaseDirectory.mkdir()) {
-			throw new IllegalStateException("Could not create temporary shp directory.");
+			// deleted with the scratch space of the execution
+			shpBaseDirectory = ExecutionContextFactory.getContext().getScratchSpace().createDirectory("shp");
+		} else {
+			if (!parent.isDirectory()) {
+				throw new IllegalStateException("Could not find temporary file directory.");
+			}
+			shpBaseDirectory = new File(parent, UUID.randomUUID().toString());
+			if (!shpBaseDirectory.mkdir()) {
+				throw new IllegalStateException("Could not create temporary shp directory.");
+			}
 		}
 		
 		File tempSHPfile = File.createTempFile("shp", ".shp", shpBaseDirectory);
-		tempSHPfile.deleteOnExit();
 		DataStoreFactorySpi dataStoreFactory = new ShapefileDataStoreFactory();
 		Map<String, Serializable> params = new HashMap<String, Serializable>();
 		params.put("url", tempSHPfile.toURI().toURL());
@@ -195,20 +193,6 @@ public class GTBinDirectorySHPGenerator {
 			transaction.close();
 		}
 
-		// Zip the shapefile
-		String path = tempSHPfile.getAbsolutePath();
-		String baseName = path.substring(0, path.length() - ".shp".length());
-		File shx = new File(baseName + ".shx");
-		File dbf = new File(baseName + ".dbf");
-		File prj = new File(baseName + ".prj");
-		
-		// mark created files for delete
-		tempSHPfile.deleteOnExit();
-		shx.deleteOnExit();
-		dbf.deleteOnExit();
-		prj.deleteOnExit();
-		shpBaseDirectory.deleteOnExit();
-		
 		return shpBaseDirectory;
 	}
 
@@ -54,6 +54,7 @@ import java.io.InputStream;
 
 import org.n52.wps.io.IOUtils;
 import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 
 /**
@@ -67,6 +68,7 @@ public class GTBinZippedSHPGenerator extends AbstractGenerator {
 	public GTBinZippedSHPGenerator(){
 		super();
 		supportedIDataTypes.add(GTVectorDataBinding.class);	
+		supportedIDataTypes.add(ColumnarVectorDataBinding.class);
 	}
 	
 	@Override
@@ -56,6 +56,7 @@ import org.geotools.data.simple.SimpleFeatureCollection;
 import org.geotools.geojson.feature.FeatureJSON;
 import org.geotools.geojson.geom.GeometryJSON;
 import org.n52.wps.io.data.IData;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.JTSGeometryBinding;
 
@@ -72,6 +73,7 @@ public class GeoJSONGenerator extends AbstractGenerator {
 		super();
 		supportedIDataTypes.add(JTSGeometryBinding.class);
 		supportedIDataTypes.add(GTVectorDataBinding.class);
+		supportedIDataTypes.add(ColumnarVectorDataBinding.class);
 	}
 	
 	@Override
@@ -81,8 +83,7 @@ public class GeoJSONGenerator extends AbstractGenerator {
 		if(data instanceof JTSGeometryBinding){
 			Geometry g = ((JTSGeometryBinding)data).getPayload();
 			
-			File tempFile = File.createTempFile("wps", "json");
-			finalizeFiles.add(tempFile); // mark for final delete
+			File tempFile = createTempFile("wps", "json");
 			
 			 new GeometryJSON().write(g, tempFile);
 					
@@ -93,8 +94,7 @@ public class GeoJSONGenerator extends AbstractGenerator {
 			
 			SimpleFeatureCollection f = (SimpleFeatureCollection)data.getPayload();
 			
-			File tempFile = File.createTempFile("wps", "json");
-			finalizeFiles.add(tempFile); // mark for final delete
+			File tempFile = createTempFile("wps", "json");
 			
 			 new FeatureJSON().writeFeatureCollection(f, tempFile);
 					
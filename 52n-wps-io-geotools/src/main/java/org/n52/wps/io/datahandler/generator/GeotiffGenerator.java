@@ -47,6 +47,7 @@
  */
 package org.n52.wps.io.datahandler.generator;
 
+import java.awt.image.RenderedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -54,8 +55,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.UUID;
 
-import javax.media.jai.JAI;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.geotools.coverage.grid.GridCoverage2D;
@@ -64,6 +63,7 @@ import org.geotools.coverage.grid.io.imageio.GeoToolsWriteParams;
 import org.geotools.gce.geotiff.GeoTiffFormat;
 import org.geotools.gce.geotiff.GeoTiffWriteParams;
 import org.geotools.gce.geotiff.GeoTiffWriter;
+import org.n52.wps.io.JAIManager;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.binding.complex.GTRasterDataBinding;
 import org.n52.wps.io.data.binding.complex.GeotiffBinding;
@@ -88,10 +88,7 @@ public class GeotiffGenerator  extends AbstractGenerator {
 			
 			GridCoverage coverage = ((GTRasterDataBinding)data).getPayload();
 			GeoTiffWriter geoTiffWriter = null;
-			String tmpDirPath = System.getProperty("java.io.tmpdir");			
-			String fileName = tmpDirPath + File.separatorChar + "temp" + UUID.randomUUID() + ".tmp";
-			File outputFile = new File(fileName);
-			this.finalizeFiles.add(outputFile); // mark file for final delete
+			File outputFile = createTempFile("temp" + UUID.randomUUID(), ".tmp");
 			
 			try {
 				geoTiffWriter = new GeoTiffWriter(outputFile);
@@ -124,15 +121,22 @@ public class GeotiffGenerator  extends AbstractGenerator {
 		wp.setCompressionMode(GeoTiffWriteParams.MODE_EXPLICIT);
 		wp.setCompressionType("LZW"); 
 		wp.setTilingMode(GeoToolsWriteParams.MODE_EXPLICIT);
-		int width = ((GridCoverage2D) coverage).getRenderedImage().getWidth();
-		int tileWidth = 1024;
-		if(width<2048){
-			tileWidth = new Double(Math.sqrt(width)).intValue();
+		RenderedImage image = ((GridCoverage2D) coverage).getRenderedImage();
+		int width = image.getWidth();
+		if(isTiledForGeotiff(image)){
+			// write the tiles of the image as they are, one at a time
+			wp.setTiling(image.getTileWidth(), image.getTileHeight());
+		}else{
+			int tileWidth = 1024;
+			if(width<2048){
+				tileWidth = new Double(Math.sqrt(width)).intValue();
+			}
+			wp.setTiling(tileWidth, tileWidth);
 		}
-		wp.setTiling(tileWidth, tileWidth);
 		ParameterValueGroup paramWrite = format.getWriteParameters();
 		paramWrite.parameter(AbstractGridFormat.GEOTOOLS_WRITE_PARAMS.getName().toString()).setValue(wp);
-		JAI.getDefaultInstance().getTileCache().setMemoryCapacity(256*1024*1024);
+		// make sure the globally managed tile cache is configured
+		JAIManager.getInstance();
 		
 		try {
 			geoTiffWriter.write(coverage, (GeneralParameterValue[])paramWrite.values().toArray(new
@@ -148,4 +152,15 @@ public class GeotiffGenerator  extends AbstractGenerator {
 		}
 	}
 	
+	/**
+	 * @return if the image is split into tiles which are valid GeoTIFF tiles,
+	 *         i.e. with a size of a multiple of 16 pixels
+	 */
+	private boolean isTiledForGeotiff(RenderedImage image){
+		int tileWidth = image.getTileWidth();
+		int tileHeight = image.getTileHeight();
+		return (tileWidth < image.getWidth() || tileHeight < image.getHeight())
+				&& tileWidth % 16 == 0 && tileHeight % 16 == 0;
+	}
+	
 }
@@ -101,8 +101,7 @@ public class SimpleGMLGenerator extends AbstractGenerator {
 		InputStream stream = null;
 		
 		try {
-			tempFile = File.createTempFile("gml", "xml");
-			this.finalizeFiles.add(tempFile);
+			tempFile = createTempFile("gml", "xml");
 			FileOutputStream outputStream = new FileOutputStream(tempFile);
 			this.writeToStream(data, outputStream);
 			outputStream.flush();
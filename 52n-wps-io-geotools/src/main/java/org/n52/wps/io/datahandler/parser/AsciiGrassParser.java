@@ -104,7 +104,7 @@ public class AsciiGrassParser extends AbstractParser {
 
 		BufferedInputStream bis = new BufferedInputStream(inputStream);
 
-		File outputFile = File.createTempFile("temp" + inputStream.hashCode(), "tmp");
+		File outputFile = createTempFile("temp" + inputStream.hashCode(), "tmp");
 
 		BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
 
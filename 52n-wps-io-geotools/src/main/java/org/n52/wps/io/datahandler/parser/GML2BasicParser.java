@@ -106,9 +106,8 @@ public class GML2BasicParser extends AbstractParser {
 
 		FileOutputStream fos = null;
 		try {
-			File tempFile = File.createTempFile(UUID.randomUUID().toString(),
+			File tempFile = createTempFile(UUID.randomUUID().toString(),
 					".gml2");
-			finalizeFiles.add(tempFile); // mark for final delete
 			fos = new FileOutputStream(tempFile);
 			int i = stream.read();
 			while (i != -1) {
@@ -68,13 +68,17 @@ import org.geotools.feature.DefaultFeatureCollections;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.GeometryAttributeImpl;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.feature.type.GeometryDescriptorImpl;
 import org.geotools.feature.type.GeometryTypeImpl;
 import org.geotools.filter.identity.GmlObjectIdImpl;
 import org.geotools.gml3.ApplicationSchemaConfiguration;
 import org.geotools.gml3.GMLConfiguration;
 import org.geotools.xml.Configuration;
+import org.geotools.xml.StreamingParser;
 import org.n52.wps.io.SchemaRepository;
+import org.n52.wps.io.data.ColumnarFeatureStore;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.opengis.feature.GeometryAttribute;
 import org.opengis.feature.Property;
@@ -97,9 +101,27 @@ public class GML3BasicParser extends AbstractParser {
 	
 	private static Logger LOGGER = LoggerFactory.getLogger(GML3BasicParser.class);
 	
+	/**
+	 * files of at least this many bytes are streamed into a
+	 * {@link ColumnarVectorDataBinding}, a negative value (the default)
+	 * disables streaming
+	 */
+	private long columnarThreshold = -1;
+	
 	public GML3BasicParser() {
 		super();
 		supportedIDataTypes.add(GTVectorDataBinding.class);
+		supportedIDataTypes.add(ColumnarVectorDataBinding.class);
+		
+		for(org.n52.wps.PropertyDocument.Property property : properties){
+			if(property.getName().equalsIgnoreCase("columnarThreshold") && property.getActive()){
+				columnarThreshold = Long.parseLong(property.getStringValue().trim());
+			}
+		}
+	}
+	
+	public void setColumnarThreshold(long columnarThreshold) {
+		this.columnarThreshold = columnarThreshold;
 	}
 	
 	@Override
@@ -107,8 +129,7 @@ public class GML3BasicParser extends AbstractParser {
 
 		FileOutputStream fos = null;
 		try{
-			File tempFile = File.createTempFile("wps", "tmp");
-			finalizeFiles.add(tempFile); // mark for final delete
+			File tempFile = createTempFile("wps", "tmp");
 			fos = new FileOutputStream(tempFile);
 			int i = stream.read();
 			while(i != -1){
@@ -132,6 +153,13 @@ public class GML3BasicParser extends AbstractParser {
 	
 	private GTVectorDataBinding parseXML(File file) {
 		
+		if(columnarThreshold >= 0 && file.length() >= columnarThreshold){
+			GTVectorDataBinding data = parseColumnar(file);
+			if(data != null){
+				return data;
+			}
+		}
+		
 		SimpleFeatureCollection fc = parseFeatureCollection(file);
 		
 		GTVectorDataBinding data = new GTVectorDataBinding(fc);
@@ -147,6 +175,91 @@ public class GML3BasicParser extends AbstractParser {
 	 * @return The parsed SimpleFeatureCollection
 	 */
 	public SimpleFeatureCollection parseFeatureCollection(File file){
+		Configuration configuration = determineConfiguration(file);
+		
+		//parse		
+		SimpleFeatureCollection fc = parseFeatureCollection(file, configuration, !(configuration instanceof GMLConfiguration));
+		
+		return fc;
+	}
+	
+	/**
+	 * Streams the features of a file into a {@link ColumnarFeatureStore}
+	 * located in the scratch space of the current execution.
+	 * 
+	 * @param file File containing a SimpleFeatureCollection
+	 * @return the binding, or <code>null</code> if the file does not contain
+	 *         features of a single type, which is left to the DOM parser
+	 */
+	private ColumnarVectorDataBinding parseColumnar(File file){
+		Configuration configuration = determineConfiguration(file);
+		
+		ColumnarFeatureStore.Builder builder = null;
+		InputStream in = null;
+		try {
+			in = new FileInputStream(file);
+			StreamingParser parser = new StreamingParser(configuration, in, SimpleFeature.class);
+			File directory = createTempDirectory("columnar");
+			
+			Object parsed;
+			while((parsed = parser.parse()) != null){
+				SimpleFeature feature = (SimpleFeature) parsed;
+				if(feature.getDefaultGeometry() == null){
+					setDefaultGeometry(feature);
+				}
+				if(builder == null){
+					builder = new ColumnarFeatureStore.Builder(getDefaultGeometryType(feature), directory);
+				}
+				builder.add(feature);
+			}
+			if(builder == null){
+				LOGGER.debug("No features streamed from {}, parsing the document.", file);
+				return null;
+			}
+			ColumnarFeatureStore store = builder.build();
+			builder = null;
+			LOGGER.info("Streamed {} features into a columnar store.", store.size());
+			return new ColumnarVectorDataBinding(store);
+		} catch (IllegalArgumentException e) {
+			LOGGER.info("Cannot stream {} into a columnar store, parsing the document. Reason: {}", file, e.getMessage());
+			return null;
+		} catch (Exception e) {
+			LOGGER.error("Exception while streaming GML.", e);
+			throw new RuntimeException(e);
+		} finally {
+			if(builder != null){
+				builder.dispose();
+			}
+			if(in != null) try { in.close(); } catch (IOException e) { }
+		}
+	}
+	
+	/**
+	 * @return the type of the feature with the default geometry of the
+	 *         feature, which differs from the type if it was set by
+	 *         {@link #setDefaultGeometry(SimpleFeature)}
+	 * @throws IllegalArgumentException
+	 *             if the default geometry is not a geometry attribute of the
+	 *             type
+	 */
+	private SimpleFeatureType getDefaultGeometryType(SimpleFeature feature){
+		SimpleFeatureType featureType = feature.getFeatureType();
+		GeometryAttribute defaultGeometry = feature.getDefaultGeometryProperty();
+		GeometryDescriptor typeGeometry = featureType.getGeometryDescriptor();
+		if(defaultGeometry == null || (typeGeometry != null && typeGeometry.getName().equals(defaultGeometry.getName()))){
+			return featureType;
+		}
+		SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+		typeBuilder.init(featureType);
+		typeBuilder.setDefaultGeometry(defaultGeometry.getName().getLocalPart());
+		return typeBuilder.buildFeatureType();
+	}
+	
+	/**
+	 * Determines the Configuration for the Parser from the schema and schema location of the file. 
+	 * The Parser should be set strict unless the Configuration is a GMLConfiguration.
+	 */
+	private Configuration determineConfiguration(File file){
 		QName schematypeTuple = determineFeatureTypeSchema(file);
 		
 		boolean schemaLocationIsRelative = false;
@@ -156,7 +269,6 @@ public class GML3BasicParser extends AbstractParser {
 		
 		Configuration configuration = null;
 		
-		boolean shouldSetParserStrict = true;
 		if(schematypeTuple != null) {
 			
 			String schemaLocation =  schematypeTuple.getLocalPart();
@@ -167,26 +279,17 @@ public class GML3BasicParser extends AbstractParser {
 			
 			if(schemaLocation.equals("http://schemas.opengis.net/gml/3.1.1/base/gml.xsd")){
 				configuration = new GMLConfiguration();
-				shouldSetParserStrict = false;
 			}else{			
 				if(schemaLocation!= null && schematypeTuple.getNamespaceURI()!=null){
 					SchemaRepository.registerSchemaLocation(schematypeTuple.getNamespaceURI(), schemaLocation);
 					configuration =  new ApplicationSchemaConfiguration(schematypeTuple.getNamespaceURI(), schemaLocation);
 				}else{
 					configuration = new GMLConfiguration();
-					shouldSetParserStrict = false;
 				}
 			}
 		}
 		
-		org.geotools.xml.Parser parser = new org.geotools.xml.Parser(configuration);
-		
-		parser.setStrict(shouldSetParserStrict);
-		
-		//parse		
-		SimpleFeatureCollection fc = parseFeatureCollection(file, configuration, shouldSetParserStrict);
-		
-		return fc;
+		return configuration;
 	}
 	
 	/**
@@ -262,26 +365,7 @@ public class GML3BasicParser extends AbstractParser {
 		while(featureIterator.hasNext()){
 			SimpleFeature feature = (SimpleFeature) featureIterator.next();
 			if(feature.getDefaultGeometry()==null){
-				Collection<org.opengis.feature.Property>properties = feature.getProperties();
-				for(org.opengis.feature.Property property : properties){
-					try{						
-						Geometry g = (Geometry)property.getValue();
-						if(g!=null){
-							GeometryAttribute oldGeometryDescriptor = feature.getDefaultGeometryProperty();
-							GeometryType type = new GeometryTypeImpl(property.getName(),(Class<?>)oldGeometryDescriptor.getType().getBinding(),oldGeometryDescriptor.getType().getCoordinateReferenceSystem(),oldGeometryDescriptor.getType().isIdentified(),oldGeometryDescriptor.getType().isAbstract(),oldGeometryDescriptor.getType().getRestrictions(),oldGeometryDescriptor.getType().getSuper(),oldGeometryDescriptor.getType().getDescription());
-																
-							GeometryDescriptor newGeometryDescriptor = new GeometryDescriptorImpl(type,property.getName(),0,1,true,null);
-							Identifier identifier = new GmlObjectIdImpl(feature.getID());
-							GeometryAttributeImpl geo = new GeometryAttributeImpl((Object)g,newGeometryDescriptor, identifier);
-							feature.setDefaultGeometryProperty(geo);
-							feature.setDefaultGeometry(g);
-							
-						}
-					}catch(ClassCastException e){
-						//do nothing
-					}
-					
-				}
+				setDefaultGeometry(feature);
 			}
 		}
 		} catch (Exception e) {
@@ -290,6 +374,32 @@ public class GML3BasicParser extends AbstractParser {
 		}
 		return fc;
 	}
+
+	/**
+	 * Uses the first geometry valued property of a feature without default geometry as its default geometry.
+	 */
+	private void setDefaultGeometry(SimpleFeature feature){
+		Collection<org.opengis.feature.Property>properties = feature.getProperties();
+		for(org.opengis.feature.Property property : properties){
+			try{						
+				Geometry g = (Geometry)property.getValue();
+				if(g!=null){
+					GeometryAttribute oldGeometryDescriptor = feature.getDefaultGeometryProperty();
+					GeometryType type = new GeometryTypeImpl(property.getName(),(Class<?>)oldGeometryDescriptor.getType().getBinding(),oldGeometryDescriptor.getType().getCoordinateReferenceSystem(),oldGeometryDescriptor.getType().isIdentified(),oldGeometryDescriptor.getType().isAbstract(),oldGeometryDescriptor.getType().getRestrictions(),oldGeometryDescriptor.getType().getSuper(),oldGeometryDescriptor.getType().getDescription());
+														
+					GeometryDescriptor newGeometryDescriptor = new GeometryDescriptorImpl(type,property.getName(),0,1,true,null);
+					Identifier identifier = new GmlObjectIdImpl(feature.getID());
+					GeometryAttributeImpl geo = new GeometryAttributeImpl((Object)g,newGeometryDescriptor, identifier);
+					feature.setDefaultGeometryProperty(geo);
+					feature.setDefaultGeometry(g);
+					
+				}
+			}catch(ClassCastException e){
+				//do nothing
+			}
+			
+		}
+	}
 		
 	private QName determineFeatureTypeSchema(File file) {
 		try {
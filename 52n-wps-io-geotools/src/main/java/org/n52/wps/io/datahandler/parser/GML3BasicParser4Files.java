@@ -78,8 +78,7 @@ public class GML3BasicParser4Files extends AbstractParser {
 		
 		FileOutputStream fos = null;
 		try{
-			File tempFile = File.createTempFile(UUID.randomUUID().toString(), ".gml3");
-			finalizeFiles.add(tempFile); // mark for final delete
+			File tempFile = createTempFile(UUID.randomUUID().toString(), ".gml3");
 			fos = new FileOutputStream(tempFile);
 			int i = stream.read();
 			while(i != -1){
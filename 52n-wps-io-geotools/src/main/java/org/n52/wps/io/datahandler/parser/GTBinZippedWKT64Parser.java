@@ -103,10 +103,7 @@ public class GTBinZippedWKT64Parser extends AbstractParser {
 	public GTVectorDataBinding parse(InputStream stream, String mimeType, String schema) {
 		try {
 			
-			String fileName = "tempfile" + UUID.randomUUID() + ".zip";
-			String tmpDirPath = System.getProperty("java.io.tmpdir");
-			File tempFile = new File(tmpDirPath + File.separatorChar + fileName);
-			finalizeFiles.add(tempFile); // mark tempFile for final delete
+			File tempFile = createTempFile("tempfile" + UUID.randomUUID(), ".zip");
 			try {
 				FileOutputStream outputStream = new FileOutputStream(tempFile);
 				byte buf[] = new byte[4096];
@@ -126,10 +123,8 @@ public class GTBinZippedWKT64Parser extends AbstractParser {
 				throw new RuntimeException(e);
 			}			
 			
-			finalizeFiles.add(tempFile); // mark for final delete
 			stream.close();
 			List<File> wktFiles = IOUtils.unzip(tempFile, "wkt");
-			finalizeFiles.addAll(wktFiles); // mark for final delete
 			
 			if (wktFiles == null || wktFiles.size() == 0) {
 				throw new RuntimeException(
@@ -47,6 +47,7 @@
  */
 package org.n52.wps.io.datahandler.parser;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -54,14 +55,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.UUID;
 
-import javax.media.jai.JAI;
-
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.data.DataSourceException;
 import org.geotools.factory.Hints;
 import org.geotools.gce.geotiff.GeoTiffReader;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.io.IOUtils;
+import org.n52.wps.io.JAIManager;
 import org.n52.wps.io.data.binding.complex.GTRasterDataBinding;
 
 public class GeotiffParser extends AbstractParser {
@@ -77,11 +80,22 @@ public class GeotiffParser extends AbstractParser {
 	@Override
 	public GTRasterDataBinding parse(InputStream input, String mimeType, String schema) {
 		
+		// inputs that are already local files (e.g. stored results) are read in place
+		File localFile = IOUtils.getLocalFile(input);
+		if (localFile != null) {
+			LOGGER.debug("Reading GeoTIFF in place from {}", localFile.getAbsolutePath());
+			try {
+				input.close();
+			} catch (IOException e) {
+				LOGGER.warn("Could not close input stream of {}", localFile.getAbsolutePath());
+			}
+			return parseTiff(localFile);
+		}
+		
 		File tempFile;
 		
 		try {
-            tempFile = File.createTempFile("tempfile" + UUID.randomUUID(),"tmp");
-            finalizeFiles.add(tempFile); // mark for final delete
+            tempFile = createTempFile("tempfile" + UUID.randomUUID(),"tmp");
 			FileOutputStream outputStream = new FileOutputStream(tempFile);
 			byte buf[] = new byte[4096];
 			int len;
@@ -105,14 +119,18 @@ public class GeotiffParser extends AbstractParser {
 	}
 	
 	private GTRasterDataBinding parseTiff(File file){
-		JAI.getDefaultInstance().getTileCache().setMemoryCapacity(256*1024*1024);
+		// tile cache and scheduler are configured globally, tiles are loaded on demand
+		JAIManager jaiManager = JAIManager.getInstance();
 		
 		Hints hints = new Hints(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER,
 				Boolean.TRUE);
-		GeoTiffReader reader;
+		GeoTiffReader reader = null;
 		try {
 			reader = new GeoTiffReader(file, hints);
-			GridCoverage2D coverage = (GridCoverage2D) reader.read(null);
+			GridCoverage2D coverage = (GridCoverage2D) reader.read(jaiManager.getReadParameters());
+			jaiManager.logStatistics();
+			disposeWithExecution(reader, file);
+			reader = null;
 			return new GTRasterDataBinding(coverage);
 		} catch (DataSourceException e) {
 			LOGGER.error(e.getMessage(), e);
@@ -120,6 +138,45 @@ public class GeotiffParser extends AbstractParser {
 		} catch (IOException e) {
 			LOGGER.error(e.getMessage(), e);
 			throw new RuntimeException(e);
+		} finally {
+			if (reader != null) {
+				reader.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Tiles are loaded on demand, so the reader keeps the file open until the
+	 * execution has completed and its scratch space is disposed. Outside of
+	 * an execution the reader is left to the garbage collector.
+	 */
+	static void disposeWithExecution(GeoTiffReader reader, File file) {
+		ExecutionContext context = ExecutionContextFactory.getContext();
+		if (!context.hasScratchSpace()) {
+			LOGGER.debug("Not within an execution, the GeoTIFF reader of {} is not disposed", file);
+			return;
+		}
+		context.getScratchSpace().register(new ReaderResource(reader, file));
+	}
+
+	private static class ReaderResource implements Closeable {
+
+		private final GeoTiffReader reader;
+
+		private final File file;
+
+		ReaderResource(GeoTiffReader reader, File file) {
+			this.reader = reader;
+			this.file = file;
+		}
+
+		public void close() {
+			reader.dispose();
+		}
+
+		@Override
+		public String toString() {
+			return "GeoTIFF reader of " + file;
 		}
 	}
 
@@ -58,6 +58,7 @@ import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.factory.Hints;
 import org.geotools.gce.geotiff.GeoTiffReader;
 import org.n52.wps.io.IOUtils;
+import org.n52.wps.io.JAIManager;
 import org.n52.wps.io.data.binding.complex.GTRasterDataBinding;
 
 public class GeotiffZippedParser extends AbstractParser {
@@ -75,10 +76,8 @@ public class GeotiffZippedParser extends AbstractParser {
 		File zippedFile;
 		try {
 			zippedFile = IOUtils.writeStreamToFile(input, "zip");
-			finalizeFiles.add(zippedFile); // mark for final delete
 		
 			List<File> files = IOUtils.unzipAll(zippedFile);
-			finalizeFiles.addAll(files); // mark for final delete
 			
 			for(File file : files){
 				if(file.getName().toLowerCase().endsWith(".tif") || file.getName().toLowerCase().endsWith(".tiff")){
@@ -95,15 +94,21 @@ public class GeotiffZippedParser extends AbstractParser {
 	private GTRasterDataBinding parseTiff(File file){
 		Hints hints = new Hints(Hints.FORCE_LONGITUDE_FIRST_AXIS_ORDER,
 				Boolean.TRUE);
-		GeoTiffReader reader;
+		GeoTiffReader reader = null;
 		try {
 			reader = new GeoTiffReader(file, hints);
-			GridCoverage2D coverage = (GridCoverage2D) reader.read(null);
+			GridCoverage2D coverage = (GridCoverage2D) reader.read(JAIManager.getInstance().getReadParameters());
+			GeotiffParser.disposeWithExecution(reader, file);
+			reader = null;
 			return new GTRasterDataBinding(coverage);
 		} catch (Exception e) {
 			LOGGER.error("Exception while trying to create GTRasterDataBinding out of tiff.", e);
 			throw new RuntimeException(e);
-		} 
+		} finally {
+			if (reader != null) {
+				reader.dispose();
+			}
+		}
 	}
 
 }
@@ -0,0 +1,219 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * As an exception to the terms of the GPL, you may copy, modify,
+ * propagate, and distribute a work formed by combining 52°North WPS
+ * GeoTools Modules with the Eclipse Libraries, or a work derivative of
+ * such a combination, even if such copying, modification, propagation, or
+ * distribution would otherwise violate the terms of the GPL. Nothing in
+ * this exception exempts you from complying with the GPL in all respects
+ * for all of the code used other than the Eclipse Libraries. You may
+ * include this exception and its grant of permissions when you distribute
+ * 52°North WPS GeoTools Modules. Inclusion of this notice with such a
+ * distribution constitutes a grant of such permissions. If you do not wish
+ * to grant these permissions, remove this paragraph from your
+ * distribution. "52°North WPS GeoTools Modules" means the 52°North WPS
+ * modules using GeoTools functionality - software licensed under version 2
+ * or any later version of the GPL, or a work based on such software and
+ * licensed under the GPL. "Eclipse Libraries" means Eclipse Modeling
+ * Framework Project and XML Schema Definition software distributed by the
+ * Eclipse Foundation and licensed under the Eclipse Public License Version
+ * 1.0 ("EPL"), or a work based on such software and licensed under the EPL.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.io.test.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Date;
+
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.n52.wps.io.data.ColumnarFeatureStore;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class ColumnarFeatureStoreTest {
+
+	private File directory;
+
+	private SimpleFeatureType type;
+
+	private GeometryFactory geometryFactory = new GeometryFactory();
+
+	@Before
+	public void setUp() throws IOException {
+		directory = File.createTempFile("columnar", "");
+		directory.delete();
+		directory.mkdir();
+
+		SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
+		builder.setName("test");
+		builder.add("the_geom", Point.class);
+		builder.add("name", String.class);
+		builder.add("count", Integer.class);
+		builder.add("value", Double.class);
+		builder.add("date", Date.class);
+		type = builder.buildFeatureType();
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+
+	private SimpleFeature createFeature(String id, Coordinate coordinate, String name, Integer count,
+			Double value, Date date) {
+		return SimpleFeatureBuilder.build(type,
+				new Object[] { geometryFactory.createPoint(coordinate), name, count, value, date }, id);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		ColumnarFeatureStore.Builder builder = new ColumnarFeatureStore.Builder(type, directory);
+		builder.add(createFeature("f1", new Coordinate(1, 2), "first", 1, 1.5, new Date(1000)));
+		builder.add(createFeature("f2", new Coordinate(3, 4, 5), "zweite ü", 2, -2.5, new Date(2000)));
+		ColumnarFeatureStore store = builder.build();
+
+		assertEquals(2, store.size());
+
+		SimpleFeature second = store.getFeature(1);
+		assertEquals("f2", second.getID());
+		assertEquals("zweite ü", second.getAttribute("name"));
+		assertEquals(2, second.getAttribute("count"));
+		assertEquals(-2.5, second.getAttribute("value"));
+		assertEquals(new Date(2000), second.getAttribute("date"));
+		Point point = (Point) second.getDefaultGeometry();
+		assertEquals(new Coordinate(3, 4, 5), point.getCoordinate());
+		assertEquals(5, point.getCoordinate().z, 0);
+
+		assertEquals("first", store.getFeature(0).getAttribute("name"));
+		store.dispose();
+	}
+
+	@Test
+	public void testNullValues() throws IOException {
+		ColumnarFeatureStore.Builder builder = new ColumnarFeatureStore.Builder(type, directory);
+		builder.add(createFeature("f1", new Coordinate(1, 2), null, null, null, null));
+		ColumnarFeatureStore store = builder.build();
+
+		SimpleFeature feature = store.getFeature(0);
+		assertNull(feature.getAttribute("name"));
+		assertNull(feature.getAttribute("count"));
+		assertNull(feature.getAttribute("value"));
+		assertNull(feature.getAttribute("date"));
+		store.dispose();
+	}
+
+	@Test
+	public void testBoundsAndCollection() throws IOException {
+		ColumnarFeatureStore.Builder builder = new ColumnarFeatureStore.Builder(type, directory);
+		for (int i = 0; i < 100; i++) {
+			builder.add(createFeature("f" + i, new Coordinate(i, -i), "feature " + i, i, (double) i, null));
+		}
+		ColumnarVectorDataBinding binding = new ColumnarVectorDataBinding(builder.build());
+
+		assertEquals(0, binding.getStore().getBounds().getMinX(), 0);
+		assertEquals(99, binding.getStore().getBounds().getMaxX(), 0);
+		assertEquals(-99, binding.getStore().getBounds().getMinY(), 0);
+		assertEquals(100, binding.getPayload().size());
+
+		int count = 0;
+		FeatureIterator<?> iterator = binding.getPayload().features();
+		try {
+			while (iterator.hasNext()) {
+				SimpleFeature feature = (SimpleFeature) iterator.next();
+				assertEquals("feature " + count, feature.getAttribute("name"));
+				count++;
+			}
+		} finally {
+			iterator.close();
+		}
+		assertEquals(100, count);
+
+		binding.dispose();
+		for (File file : directory.listFiles()) {
+			assertFalse(file.getName().endsWith(".col"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsOtherFeatureType() throws IOException {
+		SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+		typeBuilder.setName("other");
+		typeBuilder.add("the_geom", Point.class);
+		SimpleFeatureType otherType = typeBuilder.buildFeatureType();
+
+		ColumnarFeatureStore.Builder builder = new ColumnarFeatureStore.Builder(type, directory);
+		try {
+			builder.add(SimpleFeatureBuilder.build(otherType,
+					new Object[] { geometryFactory.createPoint(new Coordinate(0, 0)) }, "o1"));
+		} finally {
+			builder.dispose();
+			assertTrue(directory.list().length == 0);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsOtherAttributeBinding() throws IOException {
+		SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+		typeBuilder.setName("test");
+		typeBuilder.add("the_geom", Point.class);
+		typeBuilder.add("name", String.class);
+		typeBuilder.add("count", String.class);
+		typeBuilder.add("value", Double.class);
+		typeBuilder.add("date", Date.class);
+		SimpleFeatureType otherType = typeBuilder.buildFeatureType();
+
+		ColumnarFeatureStore.Builder builder = new ColumnarFeatureStore.Builder(type, directory);
+		try {
+			builder.add(SimpleFeatureBuilder.build(otherType,
+					new Object[] { geometryFactory.createPoint(new Coordinate(0, 0)), "name", "many", 1.0, null },
+					"o1"));
+		} finally {
+			builder.dispose();
+			assertTrue(directory.list().length == 0);
+		}
+	}
+}
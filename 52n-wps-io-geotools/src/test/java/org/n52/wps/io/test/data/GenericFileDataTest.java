@@ -54,6 +54,8 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.data.GenericFileDataWithGT;
 import org.n52.wps.io.data.GenericFileDataConstants;
 
@@ -61,6 +63,22 @@ import junit.framework.TestCase;
 
 public class GenericFileDataTest extends TestCase{
 
+	private ExecutionContext context;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		context = new ExecutionContext();
+		ExecutionContextFactory.registerContext(context);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ExecutionContextFactory.unregisterContext();
+		context.dispose();
+		super.tearDown();
+	}
+
 	public void testUnzipData(){
 
 		File f = new File(this.getClass().getProtectionDomain().getCodeSource()
@@ -54,9 +54,13 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 
+import org.geotools.feature.FeatureIterator;
+import org.n52.wps.io.data.binding.complex.ColumnarVectorDataBinding;
 import org.n52.wps.io.data.binding.complex.GTVectorDataBinding;
 import org.n52.wps.io.datahandler.parser.GML3BasicParser;
 import org.n52.wps.io.test.datahandler.AbstractTestCase;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.type.GeometryDescriptor;
 
 public class GML3BasicParserTest extends AbstractTestCase<GML3BasicParser> {
 
@@ -100,6 +104,41 @@ public class GML3BasicParserTest extends AbstractTestCase<GML3BasicParser> {
 
 	}
 
+	public void testStreamingParser() throws Exception {
+
+		if(!isDataHandlerActive()){
+			return;
+		}
+
+		String testFilePath = projectRoot
+				+ "/52n-wps-io-geotools/src/test/resources/spearfish_restricted_sites_gml3.xml";
+
+		testFilePath = URLDecoder.decode(testFilePath, "UTF-8");
+
+		dataHandler.setColumnarThreshold(0);
+		GTVectorDataBinding theBinding = dataHandler.parse(new FileInputStream(new File(testFilePath)),
+				"text/xml; subtype=gml/3.1.1",
+				"http://schemas.opengis.net/gml/3.1.1/base/feature.xsd");
+
+		assertTrue(theBinding instanceof ColumnarVectorDataBinding);
+		assertTrue(!theBinding.getPayload().isEmpty());
+
+		// the streamed features keep the default geometry of the parsed features
+		GeometryDescriptor geometryDescriptor = theBinding.getPayload().getSchema().getGeometryDescriptor();
+		assertNotNull(geometryDescriptor);
+		FeatureIterator<?> iterator = theBinding.getPayload().features();
+		try {
+			while(iterator.hasNext()){
+				SimpleFeature feature = (SimpleFeature) iterator.next();
+				assertNotNull(feature.getDefaultGeometry());
+				assertEquals(geometryDescriptor.getName(), feature.getDefaultGeometryProperty().getName());
+			}
+		} finally {
+			iterator.close();
+		}
+		theBinding.dispose();
+	}
+
 	@Override
 	protected void initializeDataHandler() {
 		dataHandler = new GML3BasicParser();
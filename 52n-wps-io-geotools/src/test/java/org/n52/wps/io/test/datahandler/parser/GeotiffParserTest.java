@@ -54,6 +54,8 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.io.LocalFileInputStream;
 import org.n52.wps.io.data.binding.complex.GTRasterDataBinding;
 import org.n52.wps.io.datahandler.parser.GeotiffParser;
 import org.n52.wps.io.test.datahandler.AbstractTestCase;
@@ -95,6 +97,51 @@ public class GeotiffParserTest extends AbstractTestCase<GeotiffParser> {
 
 	}
 
+	public void testParserLocalFile(){
+
+		if(!isDataHandlerActive()){
+			return;
+		}
+
+		String testFilePath = projectRoot + "/52n-wps-io-geotools/src/test/resources/6_UTM2GTIF.TIF";
+
+		try {
+			testFilePath = URLDecoder.decode(testFilePath, "UTF-8");
+		} catch (UnsupportedEncodingException e1) {
+			fail(e1.getMessage());
+		}
+
+		InputStream input = null;
+
+		try {
+			input = new LocalFileInputStream(new File(testFilePath));
+		} catch (FileNotFoundException e) {
+			fail(e.getMessage());
+		}
+
+		GTRasterDataBinding theBinding = dataHandler.parse(input, dataHandler.getSupportedFormats()[0], null);
+
+		assertTrue(theBinding.getPayload() != null);
+		assertTrue(new File(testFilePath).exists());
+
+	}
+
+	public void testParserOutsideOfExecution() throws Exception {
+
+		if(!isDataHandlerActive()){
+			return;
+		}
+
+		String testFilePath = URLDecoder.decode(projectRoot + "/52n-wps-io-geotools/src/test/resources/6_UTM2GTIF.TIF", "UTF-8");
+
+		// the default context has no scratch space
+		ExecutionContextFactory.unregisterContext();
+		GTRasterDataBinding theBinding = dataHandler.parse(new LocalFileInputStream(new File(testFilePath)),
+				dataHandler.getSupportedFormats()[0], null);
+
+		assertTrue(theBinding.getPayload() != null);
+	}
+
 	@Override
 	protected void initializeDataHandler() {
 		dataHandler = new GeotiffParser();
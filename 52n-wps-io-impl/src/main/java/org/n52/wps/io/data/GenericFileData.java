@@ -40,6 +40,8 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.commons.context.ScratchSpace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -212,7 +214,7 @@ public class GenericFileData {
 			if(fileExtension.equals("shp")){
 				extension = "zip";
 			}
-			primaryFile = File.createTempFile(UUID.randomUUID().toString(), "."+extension);
+			primaryFile = getScratchSpace().createFile(UUID.randomUUID().toString(), "."+extension);
 			OutputStream out = new FileOutputStream(primaryFile);
 			byte buf[]=new byte[1024];
 			int len;
@@ -230,9 +232,7 @@ public class GenericFileData {
 		}
 		if(unzipIfPossible && extension.contains("zip")){
 			try{
-			File tempFile1 = File.createTempFile(UUID.randomUUID().toString(),"");
-			File dir = new File(tempFile1.getParentFile()+"/"+UUID.randomUUID().toString());
-			dir.mkdir();
+			File dir = getScratchSpace().createDirectory("unzipped");
 			FileInputStream fis = new FileInputStream(primaryFile);
 			ZipInputStream zis = new ZipInputStream(fis);
 			ZipEntry entry;
@@ -282,4 +282,12 @@ public class GenericFileData {
 	public InputStream getDataStream() {
 		return dataStream;
 	}
+
+	/**
+	 * @return the scratch space of the current execution, temporary files
+	 *         created there are deleted once the execution has completed
+	 */
+	private static ScratchSpace getScratchSpace() {
+		return ExecutionContextFactory.getContext().getScratchSpace();
+	}
 }
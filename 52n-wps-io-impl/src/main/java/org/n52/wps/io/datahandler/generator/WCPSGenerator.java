@@ -65,8 +65,7 @@ public class WCPSGenerator extends AbstractGenerator {
 		
 		List<byte[]> wcpsoutput = ((ArrayDataBinding)data).getPayload();
 		
-		File tempFile = File.createTempFile("wcps", ".bin");
-		this.finalizeFiles.add(tempFile);
+		File tempFile = createTempFile("wcps", ".bin");
 		FileOutputStream fos = new FileOutputStream(tempFile);
 		
 		for (byte[] currentArray : wcpsoutput){
@@ -16,11 +16,14 @@
  */
 package org.n52.wps.io;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.n52.wps.FormatDocument.Format;
 import org.n52.wps.PropertyDocument.Property;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 
 
 /**
@@ -145,6 +148,27 @@ public abstract class AbstractIOHandler implements IOHandler {
 		
 		return true;
 	}
-	
+
+	/**
+	 * Creates a temporary file in the scratch space of the current execution.
+	 * It is deleted once the execution has completed, so the file may back
+	 * the parsed data or the generated stream until then.
+	 * 
+	 * @see org.n52.wps.commons.context.ScratchSpace#createFile(String, String)
+	 */
+	protected File createTempFile(String prefix, String suffix) throws IOException {
+		return ExecutionContextFactory.getContext().getScratchSpace().createFile(prefix, suffix);
+	}
+
+	/**
+	 * Creates a temporary directory in the scratch space of the current
+	 * execution.
+	 * 
+	 * @see #createTempFile(String, String)
+	 */
+	protected File createTempDirectory(String prefix) throws IOException {
+		return ExecutionContextFactory.getContext().getScratchSpace().createDirectory(prefix);
+	}
+
 }
 
@@ -38,6 +38,9 @@ import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
 import org.apache.commons.codec.binary.Base64InputStream;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.commons.context.ScratchSpace;
+import org.n52.wps.commons.context.ScratchSpaceManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.apache.xpath.XPathAPI;
@@ -67,10 +70,7 @@ public class IOUtils {
 	public static File writeBase64ToFile(InputStream input, String extension)
 			throws IOException {
 
-        File file = File.createTempFile(
-                "file" + UUID.randomUUID(),
-                "." + extension,
-                new File(System.getProperty("java.io.tmpdir")));
+        File file = getScratchSpace().createFile("file" + UUID.randomUUID(), "." + extension);
         OutputStream outputStream = null;
         try {
             outputStream = new FileOutputStream(file);
@@ -84,7 +84,7 @@ public class IOUtils {
 	
 	public static File writeStreamToFile(InputStream inputStream, String extension)
 	throws IOException {
-		File file = File.createTempFile("file" + UUID.randomUUID(), "." + extension);
+		File file = getScratchSpace().createFile("file" + UUID.randomUUID(), "." + extension);
 		return writeStreamToFile(inputStream, extension, file);
 	}
 
@@ -122,6 +122,25 @@ public class IOUtils {
         }
 	}
 
+	/**
+	 * Returns the local file backing the given stream, if any.
+	 * 
+	 * @param input
+	 *            the stream to inspect
+	 * @return the readable local file the stream is reading from or
+	 *         <code>null</code> if the stream is not backed by a local file
+	 * @see LocalFileStream
+	 */
+	public static File getLocalFile(InputStream input) {
+		if (input instanceof LocalFileStream) {
+			File file = ((LocalFileStream) input).getLocalFile();
+			if (file != null && file.isFile() && file.canRead()) {
+				return file;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Zip the files. Returns a zipped file and delete the specified files
 	 * 
@@ -132,7 +151,7 @@ public class IOUtils {
 	 *             if the zipping process fails.
 	 */
 	public static File zip(File... files) throws IOException {
-		File zip = File.createTempFile("zip" + UUID.randomUUID(), ".zip");
+		File zip = getScratchSpace().createFile("zip" + UUID.randomUUID(), ".zip");
 
 		ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
 
@@ -187,10 +206,7 @@ public class IOUtils {
 		ZipEntry entry;
 		File tempDir = directory;
 		if (tempDir == null || !directory.isDirectory()) {
-			tempDir = File.createTempFile("unzipped" + UUID.randomUUID(), "", new File(System
-					.getProperty("java.io.tmpdir")));
-			tempDir.delete();
-			tempDir.mkdir();
+			tempDir = getScratchSpace().createDirectory("unzipped");
 		}
 		while ((entry = zipInputStream.getNextEntry()) != null) {
 			int count;
@@ -225,10 +241,7 @@ public class IOUtils {
 		ZipInputStream zipInputStream = new ZipInputStream(
 				new BufferedInputStream(new FileInputStream(file)));
 		ZipEntry entry;
-		File tempDir = File.createTempFile("unzipped" + UUID.randomUUID(), "", new File(System
-				.getProperty("java.io.tmpdir")));
-		tempDir.delete();
-		tempDir.mkdir();
+		File tempDir = getScratchSpace().createDirectory("unzipped");
 		while ((entry = zipInputStream.getNextEntry()) != null) {
 			int count;
 			File entryFile = new File(tempDir, entry.getName());
@@ -262,8 +275,10 @@ public class IOUtils {
 	 *            the files to delete
 	 */
 	public static void deleteResources(File... files) {
+		String scratchDirectory = ScratchSpaceManager.getInstance().getBaseDirectory().getAbsolutePath();
 		for (File file : files) {
-			if (file != null) {
+			// scratch space files are deleted when the execution completes
+			if (file != null && !file.getAbsolutePath().startsWith(scratchDirectory)) {
 				if (file.getAbsolutePath().startsWith(
 						System.getProperty("java.io.tmpdir"))) {
 					delete(file);
@@ -278,6 +293,14 @@ public class IOUtils {
 		}
 	}
 
+	/**
+	 * @return the scratch space of the current execution, which holds all
+	 *         temporary files created here
+	 */
+	private static ScratchSpace getScratchSpace() {
+		return ExecutionContextFactory.getContext().getScratchSpace();
+	}
+
 	/**
 	 * Delete the given files and all the files with the same name but different
 	 * extension. If some file is <code>null</code> just doesn't process it and
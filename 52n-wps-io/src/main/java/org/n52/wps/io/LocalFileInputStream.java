@@ -0,0 +1,42 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+
+/**
+ * {@link FileInputStream} that keeps track of the file it reads from.
+ * 
+ * @see LocalFileStream
+ */
+public class LocalFileInputStream extends FileInputStream implements LocalFileStream {
+
+	private final File file;
+
+	public LocalFileInputStream(File file) throws FileNotFoundException {
+		super(file);
+		this.file = file;
+	}
+
+	@Override
+	public File getLocalFile() {
+		return file;
+	}
+
+}
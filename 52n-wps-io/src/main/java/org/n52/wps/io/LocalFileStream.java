@@ -0,0 +1,35 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.io;
+
+import java.io.File;
+
+/**
+ * Implemented by input streams whose content is backed by a file on the local
+ * file system. Parsers which work on files (e.g. raster readers) can use
+ * {@link IOUtils#getLocalFile(java.io.InputStream)} to read the file in place
+ * instead of copying the stream to a temporary file first.
+ */
+public interface LocalFileStream {
+
+	/**
+	 * @return the local file backing this stream or <code>null</code> if the
+	 *         content is not available as a local file
+	 */
+	File getLocalFile();
+
+}
@@ -0,0 +1,310 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A fully buffered output stream obtained from the {@link SpoolManager}. Data
+ * is written to pooled chunks in memory while the budget of the manager (and
+ * the in-memory limit of the buffer) allows, and to a spill file beyond. The
+ * spill file is written through its channel and read through memory-mapped
+ * regions, which only ever cover content already written, so the file never
+ * has to be truncated while it is mapped.
+ * <p>
+ * The content can be read by any number of readers, each through its own
+ * {@link #getInputStream()}, after the buffer has been closed. Call
+ * {@link #destroy()} when the content is no longer needed; this returns the
+ * chunks to the pool and deletes the spill file.
+ */
+public class SpoolBuffer extends OutputStream {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpoolBuffer.class);
+
+	/** Size of the regions of the spill file that readers map at once. */
+	static final int SPILL_REGION = 8 * 1024 * 1024;
+
+	/** Size of the buffer collecting writes to the spill file. */
+	static final int SPILL_BUFFER = 64 * 1024;
+
+	private final SpoolManager manager;
+
+	private final long maxInMemory;
+
+	private final List<byte[]> chunks = new ArrayList<byte[]>();
+
+	/** Number of bytes in the last chunk. */
+	private int lastCount;
+
+	private long memoryLength;
+
+	private File spillFile;
+
+	private RandomAccessFile spillAccess;
+
+	private ByteBuffer spillBuffer;
+
+	private long spillLength;
+
+	private boolean closed;
+
+	private boolean destroyed;
+
+	SpoolBuffer(SpoolManager manager, long maxInMemory) {
+		this.manager = manager;
+		this.maxInMemory = maxInMemory;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public synchronized void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Spool buffer is closed");
+		}
+		while (len > 0) {
+			int n;
+			if (spillFile == null) {
+				byte[] chunk = chunks.isEmpty() || lastCount == manager.getChunkSize() ? nextChunk() : chunks.get(chunks.size() - 1);
+				if (chunk == null) {
+					startSpill();
+					continue;
+				}
+				n = Math.min(chunk.length - lastCount, len);
+				System.arraycopy(b, off, chunk, lastCount, n);
+				lastCount += n;
+				memoryLength += n;
+			} else {
+				if (!spillBuffer.hasRemaining()) {
+					flushSpillBuffer();
+				}
+				n = Math.min(spillBuffer.remaining(), len);
+				spillBuffer.put(b, off, n);
+				spillLength += n;
+			}
+			off += n;
+			len -= n;
+		}
+	}
+
+	private byte[] nextChunk() {
+		if (memoryLength >= maxInMemory) {
+			return null;
+		}
+		byte[] chunk = manager.acquire();
+		if (chunk != null) {
+			chunks.add(chunk);
+			lastCount = 0;
+		}
+		return chunk;
+	}
+
+	private void startSpill() throws IOException {
+		spillFile = manager.createSpillFile();
+		LOGGER.debug("Spilling spool buffer to {} after {} bytes", spillFile, memoryLength);
+		spillAccess = new RandomAccessFile(spillFile, "rw");
+		spillBuffer = ByteBuffer.allocate(SPILL_BUFFER);
+	}
+
+	private void flushSpillBuffer() throws IOException {
+		spillBuffer.flip();
+		FileChannel channel = spillAccess.getChannel();
+		while (spillBuffer.hasRemaining()) {
+			channel.write(spillBuffer);
+		}
+		spillBuffer.clear();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (spillAccess != null) {
+			try {
+				flushSpillBuffer();
+			} finally {
+				spillBuffer = null;
+				spillAccess.close();
+				spillAccess = null;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	public synchronized long length() {
+		return memoryLength + spillLength;
+	}
+
+	/**
+	 * @return <code>true</code> if the content does not fit into memory
+	 */
+	public synchronized boolean isSpilled() {
+		return spillFile != null;
+	}
+
+	/**
+	 * Opens a new stream on the content. The buffer has to be closed first.
+	 */
+	public synchronized InputStream getInputStream() throws IOException {
+		if (!closed) {
+			throw new IOException("Spool buffer has not been closed");
+		}
+		if (destroyed) {
+			throw new IOException("Spool buffer has been destroyed");
+		}
+		return new SpoolInputStream();
+	}
+
+	/**
+	 * Sends the content to the given stream. The buffer has to be closed
+	 * first.
+	 */
+	public void writeTo(OutputStream os) throws IOException {
+		InputStream in = getInputStream();
+		try {
+			byte[] buffer = new byte[manager.getChunkSize()];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				os.write(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns the chunks to the pool and deletes the spill file. The buffer
+	 * cannot be used afterwards, streams still open on it must not be read.
+	 */
+	public synchronized void destroy() {
+		if (destroyed) {
+			return;
+		}
+		destroyed = true;
+		closed = true;
+		for (byte[] chunk : chunks) {
+			manager.release(chunk);
+		}
+		chunks.clear();
+		spillBuffer = null;
+		if (spillAccess != null) {
+			try {
+				spillAccess.close();
+			} catch (IOException e) {
+				LOGGER.debug("Could not close spill file {}", spillFile, e);
+			}
+			spillAccess = null;
+		}
+		if (spillFile != null && !spillFile.delete()) {
+			spillFile.deleteOnExit();
+		}
+	}
+
+	private class SpoolInputStream extends InputStream {
+
+		private long position;
+
+		private RandomAccessFile access;
+
+		private MappedByteBuffer region;
+
+		private long regionStart;
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position < memoryLength) {
+				int chunkSize = manager.getChunkSize();
+				byte[] chunk = chunks.get((int) (position / chunkSize));
+				int offset = (int) (position % chunkSize);
+				int n = (int) Math.min(Math.min(chunkSize - offset, memoryLength - position), len);
+				System.arraycopy(chunk, offset, b, off, n);
+				position += n;
+				return n;
+			}
+			long spillPosition = position - memoryLength;
+			if (spillPosition >= spillLength) {
+				return -1;
+			}
+			if (region == null || spillPosition < regionStart || spillPosition >= regionStart + region.capacity()) {
+				mapRegion(spillPosition - spillPosition % SPILL_REGION);
+			}
+			region.position((int) (spillPosition - regionStart));
+			int n = (int) Math.min(region.remaining(), len);
+			region.get(b, off, n);
+			position += n;
+			return n;
+		}
+
+		private void mapRegion(long start) throws IOException {
+			if (access == null) {
+				access = new RandomAccessFile(spillFile, "r");
+			}
+			long size = Math.min(SPILL_REGION, spillLength - start);
+			region = access.getChannel().map(FileChannel.MapMode.READ_ONLY, start, size);
+			regionStart = start;
+		}
+
+		@Override
+		public int available() {
+			return (int) Math.min(Integer.MAX_VALUE, length() - position);
+		}
+
+		@Override
+		public long skip(long n) {
+			long skipped = Math.max(0, Math.min(n, length() - position));
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			region = null;
+			if (access != null) {
+				access.close();
+				access = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.commons.context.ScratchSpaceManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out {@link SpoolBuffer}s for data that has to be buffered completely
+ * (e.g. a response read by several clients). The buffers keep their data in
+ * fixed-size chunks taken from a pool shared by the whole process; the chunks
+ * of all buffers together never exceed the configured memory budget. A
+ * buffer that cannot get another chunk continues in a memory-mapped spill
+ * file, its chunks go back to the pool when it is destroyed.
+ * 
+ * Chunks are allocated lazily and kept in the pool once allocated, so the
+ * heap used for buffering is bounded by the budget and does not churn.
+ */
+public class SpoolManager {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpoolManager.class);
+
+	public static final String PROPERTY_CHUNK_SIZE = "spool.chunkSize";
+
+	public static final String PROPERTY_MEMORY_BUDGET = "spool.memoryBudget";
+
+	public static final String PROPERTY_DIRECTORY = "spool.directory";
+
+	private static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+	private static final long DEFAULT_MEMORY_BUDGET = 64 * 1024 * 1024;
+
+	private static SpoolManager instance;
+
+	private final int chunkSize;
+
+	private final long maxChunks;
+
+	private final File spillDirectory;
+
+	private final Deque<byte[]> pool = new ArrayDeque<byte[]>();
+
+	private long allocatedChunks;
+
+	private long usedChunks;
+
+	private final AtomicLong spillCount = new AtomicLong();
+
+	public static synchronized SpoolManager getInstance() {
+		if (instance == null) {
+			int chunkSize = DEFAULT_CHUNK_SIZE;
+			long memoryBudget = Math.min(DEFAULT_MEMORY_BUDGET, Runtime.getRuntime().maxMemory() / 8);
+			String directory = null;
+			try {
+				Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+				PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+				chunkSize = (int) propertyUtil.extractLong(PROPERTY_CHUNK_SIZE, chunkSize);
+				memoryBudget = propertyUtil.extractLong(PROPERTY_MEMORY_BUDGET, memoryBudget);
+				directory = propertyUtil.extractString(PROPERTY_DIRECTORY, null);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not read spool configuration, using defaults: {}", e.getMessage());
+			}
+			File spillDirectory = directory != null ? new File(directory)
+					: new File(ScratchSpaceManager.getInstance().getBaseDirectory(), "spool");
+			instance = new SpoolManager(chunkSize, memoryBudget, spillDirectory);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param chunkSize
+	 *            size of the pooled chunks in bytes
+	 * @param memoryBudget
+	 *            number of bytes all buffers together may keep in memory
+	 * @param spillDirectory
+	 *            directory for the files of buffers that exceed the budget
+	 */
+	public SpoolManager(int chunkSize, long memoryBudget, File spillDirectory) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunk size must be positive: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+		this.maxChunks = Math.max(0, memoryBudget / chunkSize);
+		this.spillDirectory = spillDirectory;
+		LOGGER.info("Spool buffers use {} chunks of {} bytes, spilling to {}",
+				new Object[] { maxChunks, chunkSize, spillDirectory });
+	}
+
+	/**
+	 * Creates a buffer that keeps as much data in memory as the budget allows.
+	 */
+	public SpoolBuffer createBuffer() {
+		return new SpoolBuffer(this, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a buffer that keeps at most the given number of bytes in memory,
+	 * rounded up to whole chunks.
+	 */
+	public SpoolBuffer createBuffer(long maxInMemory) {
+		return new SpoolBuffer(this, maxInMemory);
+	}
+
+	/**
+	 * @return a chunk, or <code>null</code> if the budget is exhausted
+	 */
+	synchronized byte[] acquire() {
+		byte[] chunk = pool.pollFirst();
+		if (chunk == null) {
+			if (allocatedChunks >= maxChunks) {
+				return null;
+			}
+			chunk = new byte[chunkSize];
+			allocatedChunks++;
+		}
+		usedChunks++;
+		return chunk;
+	}
+
+	synchronized void release(byte[] chunk) {
+		usedChunks--;
+		pool.addFirst(chunk);
+	}
+
+	File createSpillFile() throws IOException {
+		if (!spillDirectory.isDirectory() && !spillDirectory.mkdirs() && !spillDirectory.isDirectory()) {
+			throw new IOException("Could not create spool directory " + spillDirectory);
+		}
+		spillCount.incrementAndGet();
+		return File.createTempFile("spool", ".buffer", spillDirectory);
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public long getMemoryBudget() {
+		return maxChunks * chunkSize;
+	}
+
+	/**
+	 * @return the number of bytes held by buffers
+	 */
+	public synchronized long getUsedBytes() {
+		return usedChunks * chunkSize;
+	}
+
+	/**
+	 * @return the number of bytes allocated for chunks, used or pooled
+	 */
+	public synchronized long getAllocatedBytes() {
+		return allocatedChunks * chunkSize;
+	}
+
+	/**
+	 * @return the number of buffers that spilled to a file so far
+	 */
+	public long getSpillCount() {
+		return spillCount.get();
+	}
+
+	public File getSpillDirectory() {
+		return spillDirectory;
+	}
+}
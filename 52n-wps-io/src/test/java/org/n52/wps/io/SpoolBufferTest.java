@@ -0,0 +1,146 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.n52.wps.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.UUID;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SpoolBufferTest {
+
+    private File spillDirectory;
+
+    private SpoolManager manager;
+
+    @Before
+    public void setUp() {
+        spillDirectory = new File(System.getProperty("java.io.tmpdir"), "spool-test-" + UUID.randomUUID());
+        manager = new SpoolManager(1024, 4096, spillDirectory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(spillDirectory);
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    @Test
+    public void testInMemory() throws IOException {
+        byte[] data = randomBytes(3000);
+        SpoolBuffer buffer = manager.createBuffer();
+        buffer.write(data, 0, 2999);
+        buffer.write(data[2999]);
+        buffer.close();
+
+        assertFalse(buffer.isSpilled());
+        assertEquals(3000, buffer.length());
+        assertEquals(3072, manager.getUsedBytes());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        buffer.writeTo(out);
+        assertArrayEquals(data, out.toByteArray());
+
+        buffer.destroy();
+        assertEquals(0, manager.getUsedBytes());
+    }
+
+    @Test
+    public void testSpillWhenBudgetIsExhausted() throws IOException {
+        byte[] data = randomBytes(SpoolBuffer.SPILL_REGION + 10000);
+        SpoolBuffer first = manager.createBuffer();
+        first.write(data, 0, 2048);
+        SpoolBuffer second = manager.createBuffer();
+        for (int offset = 0; offset < data.length; offset += 777) {
+            second.write(data, offset, Math.min(777, data.length - offset));
+        }
+        first.close();
+        second.close();
+
+        assertFalse(first.isSpilled());
+        assertTrue(second.isSpilled());
+        assertEquals(4096, manager.getUsedBytes());
+        // the spill file holds exactly the content beyond the chunks
+        File[] spillFiles = spillDirectory.listFiles();
+        assertEquals(1, spillFiles.length);
+        assertEquals(data.length - 2048, spillFiles[0].length());
+
+        // several readers can read the content independently
+        InputStream in1 = second.getInputStream();
+        InputStream in2 = second.getInputStream();
+        try {
+            assertArrayEquals(data, IOUtils.toByteArray(in1));
+            assertArrayEquals(data, IOUtils.toByteArray(in2));
+        } finally {
+            in1.close();
+            in2.close();
+        }
+
+        first.destroy();
+        second.destroy();
+        assertEquals(0, manager.getUsedBytes());
+        assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void testChunksAreReused() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            SpoolBuffer buffer = manager.createBuffer();
+            buffer.write(randomBytes(4096));
+            buffer.close();
+            assertFalse(buffer.isSpilled());
+            buffer.destroy();
+        }
+        assertEquals(4096, manager.getAllocatedBytes());
+        assertEquals(0, manager.getSpillCount());
+    }
+
+    @Test
+    public void testInMemoryLimit() throws IOException {
+        byte[] data = randomBytes(3000);
+        SpoolBuffer buffer = manager.createBuffer(1024);
+        buffer.write(data);
+        buffer.close();
+
+        assertTrue(buffer.isSpilled());
+        assertEquals(1024, manager.getUsedBytes());
+        InputStream in = buffer.getInputStream();
+        try {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        } finally {
+            in.close();
+        }
+        buffer.destroy();
+    }
+}
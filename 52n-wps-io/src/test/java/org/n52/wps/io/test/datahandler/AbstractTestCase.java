@@ -24,6 +24,8 @@ import org.slf4j.LoggerFactory;
 
 import org.n52.wps.commons.WPSConfig;
 import org.n52.wps.commons.WPSConfigTestUtil;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.AbstractIOHandler;
 
 import junit.framework.TestCase;
@@ -36,6 +38,8 @@ public abstract class AbstractTestCase<T  extends AbstractIOHandler> extends Tes
 
 	protected T dataHandler;
 
+	private ExecutionContext context;
+
 	public AbstractTestCase() {
         try {
             File f = new File(this.getClass().getProtectionDomain().getCodeSource()
@@ -52,6 +56,20 @@ public abstract class AbstractTestCase<T  extends AbstractIOHandler> extends Tes
 
     }
 
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		context = new ExecutionContext();
+		ExecutionContextFactory.registerContext(context);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		ExecutionContextFactory.unregisterContext();
+		context.dispose();
+		super.tearDown();
+	}
+
 	protected boolean isDataHandlerActive(){
 
 		if(dataHandler == null){
@@ -38,12 +38,17 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import net.opengis.wps.x100.ProcessDescriptionType;
 
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.server.AbstractObservableAlgorithm;
 import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.ICancellableAlgorithm;
 import org.n52.wps.server.r.metadata.RAnnotationParser;
 import org.n52.wps.server.r.metadata.RProcessDescriptionCreator;
 import org.n52.wps.server.r.syntax.RAnnotation;
@@ -59,7 +64,7 @@ import org.rosuda.REngine.Rserve.RserveException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class GenericRProcess extends AbstractObservableAlgorithm {
+public class GenericRProcess extends AbstractObservableAlgorithm implements ICancellableAlgorithm {
 
     private static Logger log = LoggerFactory.getLogger(GenericRProcess.class);
 
@@ -81,6 +86,12 @@ public class GenericRProcess extends AbstractObservableAlgorithm {
 
     private boolean shutdownRServerAfterRun = false;
 
+    /*
+     * instances may be shared between executions, the connection of an execution is found through its
+     * context
+     */
+    private ConcurrentMap<ExecutionContext, FilteredRConnection> connections = new ConcurrentHashMap<ExecutionContext, FilteredRConnection>();
+
     public GenericRProcess(String wellKnownName) {
         super(wellKnownName);
 
@@ -165,8 +176,11 @@ public class GenericRProcess extends AbstractObservableAlgorithm {
         log.info("Running {} \n\tInput data: {}", this.toString(), Arrays.toString(inputData.entrySet().toArray()));
 
         FilteredRConnection rCon = null;
+        ExecutionContext context = ExecutionContextFactory.getContext(false);
         try {
             rCon = config.openRConnection();
+            if (context != null)
+                this.connections.put(context, rCon);
             RLogger.logGenericRProcess(rCon,
                                        "Running algorithm with input "
                                                + Arrays.deepToString(inputData.entrySet().toArray()));
@@ -237,6 +251,8 @@ public class GenericRProcess extends AbstractObservableAlgorithm {
             throw new ExceptionReport(message, "R", "R_Connection", e);
         }
         finally {
+            if (context != null)
+                this.connections.remove(context);
             if (rCon != null) {
                 if (shutdownRServerAfterRun) {
                     log.debug("Shutting down R completely...");
@@ -256,6 +272,20 @@ public class GenericRProcess extends AbstractObservableAlgorithm {
         }
     }
 
+    /**
+     * Closes the Rserve connection of the execution registered on the calling thread, which ends the R
+     * session evaluating the script.
+     */
+    @Override
+    public void cancel() {
+        ExecutionContext context = ExecutionContextFactory.getContext(false);
+        FilteredRConnection rCon = context == null ? null : this.connections.get(context);
+        if (rCon != null) {
+            log.info("Cancelling {}, closing its R connection", getWellKnownName());
+            rCon.close();
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -28,7 +28,6 @@
  */
 package org.n52.wps.server;
 
-// import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
@@ -36,6 +35,7 @@ import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -50,26 +50,39 @@ import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.n52.wps.io.LargeBufferStream;
 
 
 class ResponseSizeInfoStream extends ServletOutputStream {
 	private OutputStream intStream;
-	private LargeBufferStream baStream;
 	private boolean closed = false;
 	private long streamSize = 0;
 	
 	public ResponseSizeInfoStream(OutputStream outStream) {
 		this.intStream = outStream;
-		// baStream = new ByteArrayOutputStream();
 	}
      
     public void write(int i) throws java.io.IOException {
     	this.streamSize++;
     	this.intStream.write(i);
     }
+
+    public void write(byte[] b, int off, int len) throws java.io.IOException {
+    	this.streamSize += len;
+    	this.intStream.write(b, off, len);
+    }
+
+    public void write(byte[] b) throws java.io.IOException {
+    	write(b, 0, b.length);
+    }
+
+    public void flush() throws java.io.IOException {
+    	this.intStream.flush();
+    }
      
     public void close() throws java.io.IOException {
     	if (!this.closed) {
@@ -78,31 +91,8 @@ class ResponseSizeInfoStream extends ServletOutputStream {
     	}
     }
     
-/*    public void flush() throws java.io.IOException {
-        if (baStream.size() != 0) {
-             if (! closed) {
-//              processStream();              // need to synchronize the flush!
-//              baStream = new ByteArrayOutputStream();
-              }
-           }
-        }
-*/
-    public void processStream() throws java.io.IOException {
-    	baStream.close();
-    	baStream.writeTo(intStream);
-    	this.intStream.flush();
-    }
-     
-    public byte []  countBytes(byte [] inBytes) {
-    	//streamSize = streamSize + inBytes.length;
-    	return inBytes;
-    }
-    
     public long getSize() {
-    	if(this.closed) {
-    		return streamSize;
-    	} else 
-    		return -1;
+    	return streamSize;
     }
 
 }
@@ -111,113 +101,158 @@ class ResponseSizeInfoWrapper extends HttpServletResponseWrapper {
     private PrintWriter tpWriter; 
     private ResponseSizeInfoStream tpStream;
 
-    public ResponseSizeInfoWrapper(ServletResponse inResp) throws java.io.IOException { 
+    public ResponseSizeInfoWrapper(ServletResponse inResp) { 
             super((HttpServletResponse) inResp);
-            tpStream = new ResponseSizeInfoStream(inResp.getOutputStream());
-            tpWriter = new PrintWriter(tpStream);
     }
 
     public ServletOutputStream getOutputStream() throws java.io.IOException {
-
+            if (tpStream == null) {
+                    tpStream = new ResponseSizeInfoStream(getResponse().getOutputStream());
+            }
             return tpStream;
      }
     public PrintWriter getWriter() throws java.io.IOException {
-
+            if (tpWriter == null) {
+                    tpWriter = new PrintWriter(getOutputStream());
+            }
             return tpWriter;
      }
+
+    public void close() throws java.io.IOException {
+            if (tpWriter != null) {
+                    tpWriter.close();
+            } else if (tpStream != null) {
+                    tpStream.close();
+            }
+    }
+
+    public long getSize() {
+            return tpStream == null ? 0 : tpStream.getSize();
+    }
 }
 
 class RequestSizeInfoStream extends ServletInputStream {
-    // private BufferedInputStream buStream;
     private boolean closed = false;
     private long streamSize = 0;
     private InputStream inputStream;
     
 	public RequestSizeInfoStream(InputStream inStream) {
 		this.inputStream = inStream;
-		// buStream = new BufferedInputStream(inStream);
 	}
 
     @Override
 	public int read() throws IOException {
-    	this.streamSize++;
-		return this.inputStream.read();
+    	int b = this.inputStream.read();
+    	if (b != -1) {
+    		this.streamSize++;
+    	}
+		return b;
 	}
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+    	int read = this.inputStream.read(b, off, len);
+    	if (read > 0) {
+    		this.streamSize += read;
+    	}
+    	return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+    	long skipped = this.inputStream.skip(n);
+    	this.streamSize += skipped;
+    	return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+    	return this.inputStream.available();
+    }
     
     public void close() throws java.io.IOException {
     	if (!this.closed) {
-    		// processStream();
         	this.inputStream.close();
         	this.closed = true;
         }
     }
-
- /*  public void processStream() throws IOException {
-	   byte[] bytes = new byte[8096];
-	   int length = buStream.read(bytes, 0 , 8096);
-	   while(length != -1) {
-		   length = buStream.read(bytes, 0 , 8096);
-		   streamSize = streamSize + length;
-	   }
-       
-   }*/
    
    public long getSize() {
-	   if(this.closed) {
-		   return this.streamSize;
-	   }
-	   else
-		   return -1;
+	   return this.streamSize;
    }
 }
 class RequestSizeInfoWrapper extends HttpServletRequestWrapper {
     private BufferedReader tpReader; 
     private RequestSizeInfoStream tpStream;
 
-    public RequestSizeInfoWrapper(ServletRequest req) throws java.io.IOException {
+    public RequestSizeInfoWrapper(ServletRequest req) {
     	super((HttpServletRequest) req);
-    	this.tpStream = new RequestSizeInfoStream(req.getInputStream());
-    	this.tpReader = new BufferedReader(new InputStreamReader(this.tpStream));
     }
 
     public ServletInputStream getInputStream() throws java.io.IOException {
+    	if (this.tpStream == null) {
+    		this.tpStream = new RequestSizeInfoStream(getRequest().getInputStream());
+    	}
     	return this.tpStream;
     }
 
 	public BufferedReader getReader() throws IOException {
+		if (this.tpReader == null) {
+			String encoding = getCharacterEncoding();
+			this.tpReader = new BufferedReader(encoding == null ?
+					new InputStreamReader(getInputStream()) : new InputStreamReader(getInputStream(), encoding));
+		}
 		return this.tpReader;
-	}   
+	}
+
+	public long getSize() {
+		return this.tpStream == null ? 0 : this.tpStream.getSize();
+	}
 }
 
-/** This class measures the payload of the post data
+/** This class measures the payload of the post data. The sizes are counted
+ * while the data passes through, without copying it. Only the share of the
+ * requests given by the server property
+ * <code>communicationSizeLog.samplingRate</code> (between 0 and 1, all by
+ * default) is measured.
  * 
  * @author foerster
  *
  */
 public final class CommunicationSizeLogFilter implements Filter {
 	private static Logger LOGGER = LoggerFactory.getLogger(CommunicationSizeLogFilter.class);
+
+	public static final String PROPERTY_SAMPLING_RATE = "communicationSizeLog.samplingRate";
+
+	private double samplingRate = 1;
+
     public void doFilter(ServletRequest request, ServletResponse response,
                          FilterChain chain)
 	throws IOException, ServletException {
+    	if (samplingRate < 1 && ThreadLocalRandom.current().nextDouble() >= samplingRate) {
+    		chain.doFilter(request, response);
+    		return;
+    	}
     	RequestSizeInfoWrapper myWrappedReq = new RequestSizeInfoWrapper(request);
     	ResponseSizeInfoWrapper myWrappedResp = new ResponseSizeInfoWrapper(response);
     	chain.doFilter(myWrappedReq,  myWrappedResp);
-    	myWrappedReq.getInputStream().close();
-    	myWrappedResp.getOutputStream().close();
-    	long requestSize = ((RequestSizeInfoStream)myWrappedReq.getInputStream()).getSize();
-    	long responseSize = ((ResponseSizeInfoStream)myWrappedResp.getOutputStream()).getSize();
+    	myWrappedResp.close();
+    	long requestSize = myWrappedReq.getSize();
+    	long responseSize = myWrappedResp.getSize();
     	if(requestSize == 0) {
     		return;
     	}
     	BigDecimal result = new BigDecimal((double)responseSize/(double)requestSize).setScale(4, BigDecimal.ROUND_HALF_UP);
     	result = result.movePointRight(2);
-    	LOGGER.info("Simplification ratio " + result);
+    	LOGGER.info("Request size {}, response size {}, simplification ratio {}", new Object[] { requestSize, responseSize, result });
     }
 
     public void destroy() {
     }
 
     public void init(FilterConfig filterConfig) {
+    	Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+    	samplingRate = new PropertyUtil(server.getPropertyArray()).extractDouble(PROPERTY_SAMPLING_RATE, 1);
+    	LOGGER.info("Logging the communication size of {}% of the requests", samplingRate * 100);
     }
 }
-
@@ -0,0 +1,179 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.n52.wps.io.SpoolManager;
+import org.n52.wps.server.handler.AdmissionController;
+import org.n52.wps.server.handler.JobQueueWorker;
+import org.n52.wps.server.metrics.ExecuteMetrics;
+import org.n52.wps.server.metrics.ExecutorStats;
+import org.n52.wps.server.metrics.PhaseTimer;
+
+/**
+ * Serves the figures collected by {@link ExecuteMetrics} and the state of the
+ * {@link AdmissionController} and {@link SpoolManager} as a JSON document,
+ * for monitoring systems that do not speak JMX. The servlet is not mapped by
+ * default, see the commented block in web.xml.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 4383452108217306157L;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        ExecuteMetrics metrics = ExecuteMetrics.getInstance();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        PrintWriter writer = response.getWriter();
+        writer.print("{\"enabled\":");
+        writer.print(metrics.isEnabled());
+        ExecutorStats executor = metrics.getExecutorStats();
+        if (executor != null) {
+            writer.print(",\"executor\":{\"queueSize\":");
+            writer.print(executor.getQueueSize());
+            writer.print(",\"remainingQueueCapacity\":");
+            writer.print(executor.getRemainingQueueCapacity());
+            writer.print(",\"activeCount\":");
+            writer.print(executor.getActiveCount());
+            writer.print(",\"poolSize\":");
+            writer.print(executor.getPoolSize());
+            writer.print(",\"largestPoolSize\":");
+            writer.print(executor.getLargestPoolSize());
+            writer.print(",\"completedTaskCount\":");
+            writer.print(executor.getCompletedTaskCount());
+            writer.print(",\"rejectedCount\":");
+            writer.print(executor.getRejectedCount());
+            writer.print('}');
+        }
+        AdmissionController admission = AdmissionController.getInstance();
+        if (admission.isEnabled()) {
+            writer.print(",\"admission\":{\"budget\":");
+            writer.print(admission.getBudget());
+            writer.print(",\"reserved\":");
+            writer.print(admission.getReserved());
+            writer.print(",\"waiting\":");
+            writer.print(admission.getWaiting());
+            writer.print(",\"admittedCount\":");
+            writer.print(admission.getAdmittedCount());
+            writer.print(",\"rejectedCount\":");
+            writer.print(admission.getRejectedCount());
+            writer.print('}');
+        }
+        JobQueueWorker jobQueue = JobQueueWorker.getInstance();
+        if (jobQueue.isEnabled()) {
+            writer.print(",\"jobQueue\":{\"size\":");
+            writer.print(jobQueue.getQueueSize());
+            writer.print(",\"claimedCount\":");
+            writer.print(jobQueue.getClaimedCount());
+            writer.print(",\"completedCount\":");
+            writer.print(jobQueue.getCompletedCount());
+            writer.print(",\"abandonedCount\":");
+            writer.print(jobQueue.getAbandonedCount());
+            writer.print('}');
+        }
+        SpoolManager spool = SpoolManager.getInstance();
+        writer.print(",\"spool\":{\"memoryBudget\":");
+        writer.print(spool.getMemoryBudget());
+        writer.print(",\"usedBytes\":");
+        writer.print(spool.getUsedBytes());
+        writer.print(",\"allocatedBytes\":");
+        writer.print(spool.getAllocatedBytes());
+        writer.print(",\"spillCount\":");
+        writer.print(spool.getSpillCount());
+        writer.print('}');
+        writer.print(",\"phases\":[");
+        boolean first = true;
+        for (PhaseTimer timer : metrics.getTimers()) {
+            if (!first) {
+                writer.print(',');
+            }
+            first = false;
+            writer.print("{\"phase\":");
+            writeString(writer, timer.getPhase());
+            writer.print(",\"process\":");
+            writeString(writer, timer.getProcess());
+            writer.print(",\"component\":");
+            writeString(writer, timer.getComponent());
+            writer.print(",\"count\":");
+            writer.print(timer.getCount());
+            writer.print(",\"failures\":");
+            writer.print(timer.getFailures());
+            writer.print(",\"totalMillis\":");
+            writer.print(timer.getTotalMillis());
+            writer.print(",\"meanMillis\":");
+            writer.print(timer.getMeanMillis());
+            writer.print(",\"maxMillis\":");
+            writer.print(timer.getMaxMillis());
+            writer.print(",\"bucketBoundsMillis\":");
+            writeArray(writer, timer.getBucketBoundsMillis());
+            writer.print(",\"bucketCounts\":");
+            writeArray(writer, timer.getBucketCounts());
+            writer.print('}');
+        }
+        writer.print("]}");
+        writer.flush();
+    }
+
+    private static void writeArray(PrintWriter writer, long[] values) {
+        writer.print('[');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.print(',');
+            }
+            writer.print(values[i]);
+        }
+        writer.print(']');
+    }
+
+    private static void writeString(PrintWriter writer, String value) {
+        writer.print('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.print('\\');
+                writer.print(c);
+            } else if (c < 0x20) {
+                writer.printf("\\u%04x", (int) c);
+            } else {
+                writer.print(c);
+            }
+        }
+        writer.print('"');
+    }
+
+}
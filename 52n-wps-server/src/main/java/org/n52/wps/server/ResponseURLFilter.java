@@ -30,7 +30,7 @@ package org.n52.wps.server;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -57,6 +57,8 @@ public class ResponseURLFilter implements Filter {
     
     public final static String PROP_responseURLFilterEnabled = "responseURLFilterEnabled";
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
     private String configURLString;
     private boolean enabled;
 
@@ -126,6 +128,7 @@ public class ResponseURLFilter implements Filter {
 
         private final String configURLString;
         public final String requestURLString;
+        private ServletOutputStream outputStream;
 
         public BaseURLFilterHttpServletResponse(HttpServletResponse response, String configURLString, String requestURLString) {
             super(response);
@@ -135,72 +138,135 @@ public class ResponseURLFilter implements Filter {
 
         @Override
         public ServletOutputStream getOutputStream() throws IOException {
-            String contentType = getResponse().getContentType();
-            if (contentType == null || contentType.startsWith("text/xml") || contentType.startsWith("application/xml")) {
-                LOGGER.info("Content-type: {}, response URL filtering enabled for response to {}", contentType, requestURLString);
-                return new ServletOutputStreamWrapper(
-                        getResponse().getOutputStream(),
-                        configURLString,
-                        requestURLString);
-            } else {
-                LOGGER.info("Content-type: {}, response URL filtering disabled for response to {}", contentType, requestURLString);
-                return getResponse().getOutputStream();
+            if (outputStream == null) {
+                if (configURLString.equals(requestURLString)) {
+                    // nothing to rewrite
+                    outputStream = getResponse().getOutputStream();
+                } else {
+                    outputStream = new ServletOutputStreamWrapper(this, configURLString, requestURLString);
+                }
             }
+            return outputStream;
         }
 
         @Override
         public PrintWriter getWriter() throws IOException {
             return new PrintWriter(getOutputStream()); 
         }
+
+        // the length of a response changes when its URLs are rewritten
+        @Override
+        public void setContentLength(int length) {
+            if (!mayBeRewritten()) {
+                super.setContentLength(length);
+            }
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (!"Content-Length".equalsIgnoreCase(name) || !mayBeRewritten()) {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (!"Content-Length".equalsIgnoreCase(name) || !mayBeRewritten()) {
+                super.addHeader(name, value);
+            }
+        }
+
+        private boolean mayBeRewritten() {
+            return !configURLString.equals(requestURLString) && isFilteredContentType(getContentType());
+        }
+
+        /**
+         * Decides whether the response is filtered once its first bytes are
+         * written, the content type may be set after the output stream was
+         * requested. Binary and compressed responses cannot contain the URL
+         * in plain text and are passed through.
+         */
+        boolean isFiltered() {
+            String contentType = getContentType();
+            boolean filtered = isFilteredContentType(contentType) && !containsHeader("Content-Encoding");
+            if (filtered) {
+                LOGGER.info("Content-type: {}, response URL filtering enabled for response to {}", contentType, requestURLString);
+            } else {
+                LOGGER.info("Content-type: {}, response URL filtering disabled for response to {}", contentType, requestURLString);
+            }
+            return filtered;
+        }
     }
 
-    private static class ServletOutputStreamWrapper extends ServletOutputStream {
+    private static boolean isFilteredContentType(String contentType) {
+        return contentType == null || contentType.startsWith("text/xml") || contentType.startsWith("application/xml");
+    }
 
-        private final ServletOutputStream outputStream;
+    /**
+     * Replaces the configured URL in the written bytes. Whole buffers are
+     * searched with the Knuth-Morris-Pratt automaton of the URL; the bytes of
+     * a partial match at the end of a buffer are held back until the next
+     * write decides whether they are part of the URL, so matches spanning
+     * buffers are replaced as well. Everything else is written in blocks.
+     */
+    static class ServletOutputStreamWrapper extends ServletOutputStream {
 
-        private ByteBuffer find;
-        private ByteBuffer replace;
-        private boolean match;
+        private final BaseURLFilterHttpServletResponse response;
 
-        public ServletOutputStreamWrapper(ServletOutputStream outputStream, String find, String replace) {
+        private ServletOutputStream outputStream;
+
+        private final byte[] find;
+        private final byte[] replace;
+        // failure[i] is the length of the longest proper border of find[0..i]
+        private final int[] failure;
+        // number of bytes of 'find' matched by the last bytes written, they are held back
+        private int matched;
+        private boolean filtered;
+        private final byte[] single = new byte[1];
+
+        ServletOutputStreamWrapper(BaseURLFilterHttpServletResponse response, String find, String replace) {
+            this.response = response;
+            this.find = find.getBytes(UTF_8);
+            this.replace = replace.getBytes(UTF_8);
+            this.failure = computeFailure(this.find);
+        }
+
+        /**
+         * Filters everything written to the given stream.
+         */
+        ServletOutputStreamWrapper(ServletOutputStream outputStream, String find, String replace) {
+            this((BaseURLFilterHttpServletResponse) null, find, replace);
             this.outputStream = outputStream;
-            this.find = ByteBuffer.wrap(find.getBytes());
-            this.replace = ByteBuffer.wrap(replace.getBytes());
+            this.filtered = this.find.length > 0;
         }
 
-        @Override
-        public void write(int i) throws IOException {
-            byte b = (byte)(i & 0xff);
-            if (match) {
-                if(find.get() == b) {
-                    if (!find.hasRemaining()) {
-                        // COMPLETE MATCH
-                        // 1) write out replacement buffer
-                        // 2) unset 'match' flag
-                        outputStream.write(replace.array());
-                        match = false;
-                    } // else { /* POTENTIAL MATCH ongoing, writes deferred */ } 
-                } else {
-                    // FAILED MATCH
-                    // 1) write out portion of 'find' buffer that matched
-                    // 2) write out the current byte that caused mismatch
-                    // 3) unset 'match' flag
-                    outputStream.write(find.array(), 0, find.position() - 1);
-                    outputStream.write(b);
-                    match = false;
+        static int[] computeFailure(byte[] pattern) {
+            int[] failure = new int[pattern.length];
+            int k = 0;
+            for (int i = 1; i < pattern.length; i++) {
+                while (k > 0 && pattern[k] != pattern[i]) {
+                    k = failure[k - 1];
                 }
-            } else {
-                if (b == find.get(0)) {
-                    // POTENTIAL MATCH started, write deferred
-                    // - set 'match' flag to true for next write call
-                    // - position 'find' buffer at next byte for next check
-                    match = true;
-                    find.position(1);
-                } else {
-                    // NO MATCH, just pass byte through to underlying outputstream
-                    outputStream.write(b);
+                if (pattern[k] == pattern[i]) {
+                    k++;
                 }
+                failure[i] = k;
+            }
+            return failure;
+        }
+
+        private ServletOutputStream getTarget() throws IOException {
+            if (outputStream == null) {
+                outputStream = response.getResponse().getOutputStream();
+                filtered = find.length > 0 && response.isFiltered();
             }
+            return outputStream;
+        }
+
+        @Override
+        public void write(int i) throws IOException {
+            single[0] = (byte) i;
+            write(single, 0, 1);
         }
 
         @Override
@@ -210,24 +276,72 @@ public class ResponseURLFilter implements Filter {
 
         @Override
         public void write(byte[] b, int o, int l) throws IOException {
-            for (int i = 0; i < l; ++i) { write(b[o + i]); }
+            ServletOutputStream target = getTarget();
+            if (!filtered) {
+                target.write(b, o, l);
+                return;
+            }
+            // the bytes held back from earlier writes are find[0..held)
+            int held = matched;
+            int from = o;
+            int q = matched;
+            int end = o + l;
+            for (int i = o; i < end; i++) {
+                byte c = b[i];
+                while (q > 0 && find[q] != c) {
+                    q = failure[q - 1];
+                }
+                if (find[q] == c) {
+                    q++;
+                }
+                if (q == find.length) {
+                    // COMPLETE MATCH, write everything before it and the replacement
+                    writeAllBut(target, held, b, from, i + 1, q);
+                    target.write(replace);
+                    held = 0;
+                    from = i + 1;
+                    q = 0;
+                }
+            }
+            // hold back a partial match at the end of the buffer
+            writeAllBut(target, held, b, from, end, q);
+            matched = q;
+        }
+
+        /**
+         * Writes the held bytes find[0..held) followed by b[from..to), except
+         * for the last keep bytes.
+         */
+        private void writeAllBut(ServletOutputStream target, int held, byte[] b, int from, int to, int keep) throws IOException {
+            int length = to - from;
+            if (keep <= length) {
+                if (held > 0) {
+                    target.write(find, 0, held);
+                }
+                if (length - keep > 0) {
+                    target.write(b, from, length - keep);
+                }
+            } else if (held + length - keep > 0) {
+                target.write(find, 0, held + length - keep);
+            }
         }
 
         @Override
         public void close() throws IOException {
-            if (match) {
+            ServletOutputStream target = getTarget();
+            if (matched > 0) {
                 // FAILED MATCH, complete deferred writes
-                outputStream.write(find.array(), 0, find.position());
-                match = false;
+                target.write(find, 0, matched);
+                matched = 0;
             }
             super.close();
-            outputStream.close();
+            target.close();
         }
 
         @Override
         public void flush() throws IOException {
             super.flush();
-            outputStream.flush();
+            getTarget().flush();
         }
     }
 }
@@ -28,6 +28,7 @@
  */
 package org.n52.wps.server;
 
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -45,7 +46,6 @@ import org.apache.commons.lang.StringUtils;
 import org.n52.wps.server.database.DatabaseFactory;
 import org.n52.wps.server.database.IDatabase;
 import org.n52.wps.commons.MIMEUtil;
-import org.n52.wps.commons.XMLUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,8 +55,6 @@ public class RetrieveResultServlet extends HttpServlet {
     private static final long serialVersionUID = -268198171054599696L;
     // This is required for URL generation for response documents.
     public final static String SERVLET_PATH = "RetrieveResultServlet";
-    // in future parameterize
-    private final boolean indentXML = false;
     
     private final int uuid_length = 36;
 
@@ -121,21 +119,30 @@ public class RetrieveResultServlet extends HttpServlet {
 
                     if ("xml".equals(suffix)) {
 
-                        // NOTE:  We don't set "Content-Length" header, xml may be modified
-
                         // need these to work around aggressive IE 8 caching.
                         response.addHeader("Cache-Control", "no-cache, no-store");
                         response.addHeader("Pragma", "no-cache");
                         response.addHeader("Expires", "-1");
 
+                        // status documents are stored in their final form, a newer
+                        // status is stored in a new file, so the length of the opened
+                        // file is the length of the response
+                        if (inputStream instanceof FileInputStream) {
+                            response.setHeader("Content-Length", Long.toString(((FileInputStream) inputStream).getChannel().size()));
+                        }
+
                         try {
                             outputStream = response.getOutputStream();
                         } catch (IOException e) {
                             throw new IOException("Error obtaining output stream for response", e);
                         }
-                        copyResponseAsXML(inputStream, outputStream, useAttachment || indentXML, id);
+                        copyResponseStream(inputStream, outputStream, id, -1);
                     } else {
 
+                        if (isNotModified(db.getDigestForStoreResponse(id), request, response)) {
+                            return;
+                        }
+
                         if (contentLength > -1) {
                             // Can't use response.setContentLength(...) as it accepts an int (max of 2^31 - 1) ?!
                             // response.setContentLength(contentLength);
@@ -161,6 +168,44 @@ public class RetrieveResultServlet extends HttpServlet {
         }
     }
 
+    /**
+     * Sets the entity tag of a stored value and answers a conditional request
+     * for it. Stored values never change, their digest is a strong validator.
+     * 
+     * @param digest
+     *            the digest of the stored value, or null if it is unknown
+     * @return true if the client's copy is current and the response is
+     *         complete
+     */
+    static boolean isNotModified(String digest, HttpServletRequest request, HttpServletResponse response) {
+        if (digest == null) {
+            return false;
+        }
+        String entityTag = '"' + digest + '"';
+        response.setHeader("ETag", entityTag);
+        if (matchesEntityTag(request.getHeader("If-None-Match"), entityTag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    static boolean matchesEntityTag(String ifNoneMatch, String entityTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(entityTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     protected void errorResponse(String error, HttpServletResponse response) throws IOException {
         response.setContentType("text/html");
         response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -192,18 +237,6 @@ public class RetrieveResultServlet extends HttpServlet {
         LOGGER.info("{} bytes written in response to id {}", contentWritten, id);
     }
 
-    protected void copyResponseAsXML(
-            InputStream inputStream,
-            OutputStream outputStream,
-            boolean indent,
-            String id) throws IOException {
-        try {
-            XMLUtil.copyXML(inputStream, outputStream, indent);
-        } catch (IOException e) {
-            throw new IOException("Error writing XML response for id " + id, e);
-        }
-    }
-
     private void logException(Exception exception) {
         StringBuilder errorBuilder = new StringBuilder(exception.getMessage());
         Throwable cause = getRootCause(exception);
@@ -242,7 +275,7 @@ public class RetrieveResultServlet extends HttpServlet {
     	}
     }
     
-	public boolean isUUIDValid(String uuid) {
+	public static boolean isUUIDValid(String uuid) {
 
 		// the following can be used to check whether the id is a valid UUID
 		try {
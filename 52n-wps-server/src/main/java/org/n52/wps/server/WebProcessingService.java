@@ -54,6 +54,7 @@ import org.n52.wps.commons.WPSConfig;
 import org.n52.wps.io.GeneratorFactory;
 import org.n52.wps.io.ParserFactory;
 import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.handler.JobQueueWorker;
 import org.n52.wps.server.handler.RequestHandler;
 import org.n52.wps.util.XMLBeansHelper;
 import org.slf4j.Logger;
@@ -172,6 +173,9 @@ public class WebProcessingService extends HttpServlet {
         // Get an instance of the database for initialization of the database
         DatabaseFactory.getDatabase();
 
+        // execute stored requests queued by any instance sharing the database
+        JobQueueWorker.getInstance().start();
+
         LOGGER.info("WPS up and running!");
 
         // FvK: added Property Change Listener support
@@ -352,6 +356,13 @@ public class WebProcessingService extends HttpServlet {
 
     private static void handleException(ExceptionReport exception, HttpServletResponse res) {
         res.setContentType(XML_CONTENT_TYPE);
+        if (exception instanceof ServerBusyException) {
+            long retryAfter = ((ServerBusyException) exception).getRetryAfterSeconds();
+            if (retryAfter > 0) {
+                // headers have to be set before the body is written
+                res.setHeader("Retry-After", Long.toString(retryAfter));
+            }
+        }
         try {
             LOGGER.debug(exception.toString());
             // DO NOT MIX getWriter and getOuputStream!
@@ -376,6 +387,7 @@ public class WebProcessingService extends HttpServlet {
     @Override
     public void destroy() {
         super.destroy();
+        JobQueueWorker.getInstance().stop();
         DatabaseFactory.getDatabase().shutdown();
     }
 }
\ No newline at end of file
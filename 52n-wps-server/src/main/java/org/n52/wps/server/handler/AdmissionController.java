@@ -0,0 +1,408 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.handler;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.opengis.wps.x100.DataInputsType;
+import net.opengis.wps.x100.InputReferenceType;
+import net.opengis.wps.x100.InputType;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.ServerBusyException;
+import org.n52.wps.server.request.ExecuteRequest;
+import org.n52.wps.server.request.strategy.LocalFileReferenceStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits Execute requests against a budget of heap memory. The memory a
+ * request needs is estimated from the size of its request document and the
+ * sizes of its referenced inputs, multiplied by an expansion factor
+ * for the decoded data (which can be set per process), plus a base cost.
+ * 
+ * A request whose estimate does not fit into what is left of the budget waits
+ * in line for up to <code>admission.maxWait</code>; if it is still not
+ * admitted it is rejected with a {@link ServerBusyException}. Requests are
+ * admitted in the order they arrived, so a large request is not starved by
+ * smaller ones. An estimate larger than the whole budget is capped, such a
+ * request runs when nothing else is admitted.
+ * 
+ * The estimate is made from the request alone: remote references count with
+ * <code>admission.defaultReferenceSize</code>, only local files (if
+ * <code>fileReferencesEnabled</code>) are measured.
+ */
+public class AdmissionController {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdmissionController.class);
+
+	public static final String PROPERTY_ENABLED = "admission.enabled";
+
+	public static final String PROPERTY_HEAP_BUDGET = "admission.heapBudget";
+
+	public static final String PROPERTY_BASE_COST = "admission.baseCost";
+
+	public static final String PROPERTY_EXPANSION_FACTOR = "admission.expansionFactor";
+
+	public static final String PROPERTY_PROCESS_FACTORS = "admission.processFactors";
+
+	public static final String PROPERTY_DEFAULT_REFERENCE_SIZE = "admission.defaultReferenceSize";
+
+	public static final String PROPERTY_MAX_WAIT = "admission.maxWait";
+
+	public static final String PROPERTY_RETRY_AFTER = "admission.retryAfter";
+
+	private static final Reservation NONE = new Reservation(null, 0);
+
+	private static AdmissionController instance;
+
+	private final boolean enabled;
+
+	private final long budget;
+
+	private final long baseCost;
+
+	private final double expansionFactor;
+
+	private final Map<String, Double> processFactors;
+
+	private final long defaultReferenceSize;
+
+	private final boolean fileReferencesEnabled;
+
+	private final long maxWait;
+
+	private final long retryAfter;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition changed = lock.newCondition();
+
+	private final Deque<Object> waiting = new ArrayDeque<Object>();
+
+	private long reserved;
+
+	private final AtomicLong admitted = new AtomicLong();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	public static synchronized AdmissionController getInstance() {
+		if (instance == null) {
+			Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+			PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+			instance = new AdmissionController(
+					propertyUtil.extractBoolean(PROPERTY_ENABLED, false),
+					propertyUtil.extractLong(PROPERTY_HEAP_BUDGET, Runtime.getRuntime().maxMemory() / 2),
+					propertyUtil.extractLong(PROPERTY_BASE_COST, 1024 * 1024),
+					propertyUtil.extractDouble(PROPERTY_EXPANSION_FACTOR, 4),
+					parseProcessFactors(propertyUtil.extractString(PROPERTY_PROCESS_FACTORS, null)),
+					propertyUtil.extractLong(PROPERTY_DEFAULT_REFERENCE_SIZE, 16 * 1024 * 1024),
+					propertyUtil.extractBoolean(LocalFileReferenceStrategy.PROP_fileReferencesEnabled, false),
+					propertyUtil.extractPeriodAsMillis(PROPERTY_MAX_WAIT, 30000),
+					propertyUtil.extractPeriodAsMillis(PROPERTY_RETRY_AFTER, 30000));
+		}
+		return instance;
+	}
+
+	/**
+	 * @param budget
+	 *            number of bytes that may be reserved at the same time
+	 * @param baseCost
+	 *            number of bytes reserved for every request
+	 * @param expansionFactor
+	 *            ratio of decoded to encoded input size for processes not
+	 *            listed in <code>processFactors</code>
+	 * @param processFactors
+	 *            expansion factors by process identifier
+	 * @param defaultReferenceSize
+	 *            number of bytes assumed for referenced inputs whose size is
+	 *            unknown
+	 * @param fileReferencesEnabled
+	 *            whether <code>file:</code> references may be read, and so
+	 *            measured
+	 * @param maxWaitMillis
+	 *            how long a request waits to be admitted before it is
+	 *            rejected
+	 * @param retryAfterMillis
+	 *            how long rejected clients are asked to wait before retrying
+	 */
+	public AdmissionController(boolean enabled, long budget, long baseCost, double expansionFactor,
+			Map<String, Double> processFactors, long defaultReferenceSize, boolean fileReferencesEnabled,
+			long maxWaitMillis, long retryAfterMillis) {
+		this.enabled = enabled;
+		this.budget = budget;
+		this.baseCost = baseCost;
+		this.expansionFactor = expansionFactor;
+		this.processFactors = processFactors == null ? Collections.<String, Double>emptyMap()
+				: new HashMap<String, Double>(processFactors);
+		this.defaultReferenceSize = defaultReferenceSize;
+		this.fileReferencesEnabled = fileReferencesEnabled;
+		this.maxWait = maxWaitMillis;
+		this.retryAfter = retryAfterMillis;
+	}
+
+	/**
+	 * Parses a list like <code>processA=8, processB=0.5</code>.
+	 */
+	static Map<String, Double> parseProcessFactors(String value) {
+		Map<String, Double> factors = new HashMap<String, Double>();
+		if (value == null) {
+			return factors;
+		}
+		for (String entry : value.split(",")) {
+			int separator = entry.lastIndexOf('=');
+			if (separator < 1) {
+				if (!entry.trim().isEmpty()) {
+					LOGGER.warn("Ignoring invalid process factor '{}'", entry);
+				}
+				continue;
+			}
+			try {
+				factors.put(entry.substring(0, separator).trim(),
+						Double.valueOf(entry.substring(separator + 1).trim()));
+			} catch (NumberFormatException e) {
+				LOGGER.warn("Ignoring invalid process factor '{}'", entry);
+			}
+		}
+		return factors;
+	}
+
+	/**
+	 * Reserves the estimated memory of the request, waiting for other
+	 * requests to release theirs if necessary.
+	 * 
+	 * @return the reservation, to be released when the request has been
+	 *         served
+	 * @throws ServerBusyException
+	 *             if the request could not be admitted in time
+	 */
+	public Reservation admit(ExecuteRequest request) throws ExceptionReport {
+		if (!enabled) {
+			return NONE;
+		}
+		long cost = estimate(request);
+		LOGGER.debug("Estimated {} bytes for execution of {}", cost, request.getAlgorithmIdentifier());
+		return reserve(request.getAlgorithmIdentifier(), cost);
+	}
+
+	/**
+	 * @return the estimated number of bytes needed to execute the request
+	 */
+	public long estimate(ExecuteRequest request) {
+		long inputSize = request.getContentLength();
+		DataInputsType dataInputs = request.getExecute().getDataInputs();
+		if (dataInputs != null) {
+			for (InputType input : dataInputs.getInputArray()) {
+				if (input.isSetReference()) {
+					inputSize += getReferenceSize(input.getReference());
+				}
+			}
+		}
+		return estimate(request.getAlgorithmIdentifier(), inputSize);
+	}
+
+	long estimate(String process, long inputSize) {
+		Double factor = process == null ? null : processFactors.get(process);
+		return baseCost + (long) ((factor == null ? expansionFactor : factor.doubleValue()) * inputSize);
+	}
+
+	/**
+	 * @return the size of the referenced local file, or the default size for
+	 *         any other reference
+	 */
+	long getReferenceSize(InputReferenceType reference) {
+		String href = reference.getHref();
+		if (!fileReferencesEnabled || reference.isSetBody() || reference.isSetBodyReference()
+				|| href == null || !href.startsWith("file:")) {
+			// remote inputs are not fetched twice just to learn their size
+			return defaultReferenceSize;
+		}
+		try {
+			File file = new File(new URI(href));
+			return file.isFile() ? file.length() : defaultReferenceSize;
+		} catch (Exception e) {
+			LOGGER.debug("Could not determine the size of {}", href, e);
+			return defaultReferenceSize;
+		}
+	}
+
+	/**
+	 * Reserves the given number of bytes, waiting in line if they are not
+	 * available.
+	 * 
+	 * @throws ServerBusyException
+	 *             if the bytes could not be reserved in time
+	 */
+	public Reservation reserve(String process, long cost) throws ExceptionReport {
+		long granted = Math.max(0, Math.min(cost, budget));
+		long remaining = TimeUnit.MILLISECONDS.toNanos(maxWait);
+		Object ticket = new Object();
+		lock.lock();
+		try {
+			if (waiting.isEmpty() && fits(granted)) {
+				return grant(process, granted);
+			}
+			waiting.addLast(ticket);
+			try {
+				while (waiting.peekFirst() != ticket || !fits(granted)) {
+					if (remaining <= 0) {
+						rejected.incrementAndGet();
+						LOGGER.info("Rejecting execution of {}, {} of {} bytes reserved, {} requested",
+								new Object[] { process, reserved, budget, granted });
+						throw new ServerBusyException("The server does not have enough memory to execute "
+								+ process + " at the moment.", getRetryAfterSeconds());
+					}
+					remaining = changed.awaitNanos(remaining);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ExceptionReport("Interrupted while waiting for admission.",
+						ExceptionReport.NO_APPLICABLE_CODE, e);
+			} finally {
+				waiting.remove(ticket);
+				// the next request in line may fit now
+				changed.signalAll();
+			}
+			return grant(process, granted);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private boolean fits(long bytes) {
+		// a request always fits if nothing else is running
+		return reserved == 0 || reserved + bytes <= budget;
+	}
+
+	private Reservation grant(String process, long bytes) {
+		reserved += bytes;
+		admitted.incrementAndGet();
+		LOGGER.debug("Reserved {} bytes for {}, {} of {} bytes in use", new Object[] { bytes, process, reserved, budget });
+		return new Reservation(this, bytes);
+	}
+
+	private void release(long bytes) {
+		lock.lock();
+		try {
+			reserved -= bytes;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public long getBudget() {
+		return budget;
+	}
+
+	public long getReserved() {
+		lock.lock();
+		try {
+			return reserved;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int getWaiting() {
+		lock.lock();
+		try {
+			return waiting.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getAdmittedCount() {
+		return admitted.get();
+	}
+
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	/**
+	 * @return the number of seconds rejected clients should wait before
+	 *         retrying
+	 */
+	public long getRetryAfterSeconds() {
+		return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfter));
+	}
+
+	/**
+	 * Memory reserved for a single request.
+	 */
+	public static class Reservation {
+
+		private final AdmissionController controller;
+
+		private final long bytes;
+
+		private boolean released;
+
+		private Reservation(AdmissionController controller, long bytes) {
+			this.controller = controller;
+			this.bytes = bytes;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		/**
+		 * Gives the memory back. Only the first call has an effect.
+		 */
+		public void release() {
+			synchronized (this) {
+				if (released || controller == null) {
+					return;
+				}
+				released = true;
+			}
+			controller.release(bytes);
+		}
+	}
+}
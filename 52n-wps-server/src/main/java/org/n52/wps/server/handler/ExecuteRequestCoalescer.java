@@ -0,0 +1,426 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.handler;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.io.IOUtils;
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.io.SpoolBuffer;
+import org.n52.wps.io.SpoolManager;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.IAlgorithm;
+import org.n52.wps.server.RepositoryManager;
+import org.n52.wps.server.request.ExecuteRequest;
+import org.n52.wps.server.response.ExecuteResponse;
+import org.n52.wps.server.response.ExecuteResponseCache;
+import org.n52.wps.server.response.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Collapses identical synchronous Execute requests that are in flight at the
+ * same time into a single execution. Requests are identical if their
+ * canonical hashes match (see {@link ExecuteRequest#getCanonicalHash()}).
+ * The first request is submitted to the {@link RequestExecutor}, later ones
+ * wait for its outcome without occupying a worker thread or a queue slot.
+ * 
+ * If requests joined an execution, its response is encoded once into a
+ * {@link SpoolBuffer} (in pooled memory up to a threshold, to a spill file
+ * beyond), and every
+ * request gets its own response reading the spooled copy. The spool is
+ * destroyed once every request has closed its response stream or given up
+ * waiting.
+ * 
+ * Only requests for deterministic processes are coalesced (see
+ * {@link ExecuteResponseCache#isDeterministic(String, IAlgorithm)}), as
+ * others may have side effects or answer differently each time. Requests
+ * that store their response are never coalesced, as their documents refer
+ * to the request itself. Coalescing is disabled by default.
+ */
+public class ExecuteRequestCoalescer {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteRequestCoalescer.class);
+
+	public static final String PROPERTY_ENABLED = "requestCoalescing.enabled";
+
+	public static final String PROPERTY_SPOOL_THRESHOLD = "requestCoalescing.spoolThreshold";
+
+	private static ExecuteRequestCoalescer instance;
+
+	private final boolean enabled;
+
+	private final int spoolThreshold;
+
+	private final Map<String, Flight> flights = new HashMap<String, Flight>();
+
+	public static synchronized ExecuteRequestCoalescer getInstance() {
+		if (instance == null) {
+			Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+			PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+			instance = new ExecuteRequestCoalescer(
+					propertyUtil.extractBoolean(PROPERTY_ENABLED, false),
+					(int) propertyUtil.extractLong(PROPERTY_SPOOL_THRESHOLD, 1024 * 1024));
+		}
+		return instance;
+	}
+
+	/**
+	 * @param spoolThreshold
+	 *            number of bytes of a shared response kept in memory before
+	 *            it is spilled to a file, if the {@link SpoolManager} budget
+	 *            allows
+	 */
+	public ExecuteRequestCoalescer(boolean enabled, int spoolThreshold) {
+		this.enabled = enabled;
+		this.spoolThreshold = spoolThreshold;
+	}
+
+	/**
+	 * Executes the request on the given pool or joins an identical execution
+	 * already in progress, and waits for the result.
+	 * 
+	 * Synchronous requests that start an execution are admitted by the
+	 * {@link AdmissionController} first, requests joining one are not.
+	 * 
+	 * @return the response for the given request
+	 * @throws RejectedExecutionException
+	 *             if the pool did not accept the execution
+	 * @throws ExecutionException
+	 *             if the execution failed or was not admitted
+	 */
+	public Response execute(ExecuteRequest request, ExecutorService pool) throws InterruptedException, ExecutionException {
+		if (!isCoalescable(request)) {
+			if (!request.isStoreResponse()) {
+				admit(request);
+			}
+			return pool.submit(request).get();
+		}
+		String hash = request.getCanonicalHash();
+		Flight flight;
+		boolean leader = false;
+		synchronized (flights) {
+			flight = flights.get(hash);
+			if (flight == null) {
+				flight = new Flight(new Execution(hash, request));
+				flights.put(hash, flight);
+				leader = true;
+			} else {
+				flight.execution.participants++;
+			}
+		}
+		if (leader) {
+			try {
+				admit(request);
+				pool.execute(flight);
+			} catch (ExecutionException e) {
+				synchronized (flights) {
+					flights.remove(hash);
+				}
+				flight.fail(e.getCause());
+				throw e;
+			} catch (RejectedExecutionException e) {
+				// let the requests that already joined fail the same way
+				synchronized (flights) {
+					flights.remove(hash);
+				}
+				flight.fail(e);
+				throw e;
+			}
+		} else {
+			LOGGER.info("Joining in-flight execution of {}", request.getAlgorithmIdentifier());
+		}
+
+		Outcome outcome;
+		try {
+			outcome = flight.get();
+		} catch (InterruptedException e) {
+			abandon(flight);
+			throw e;
+		}
+		if (outcome.response != null) {
+			// nobody joined, the response is not shared
+			return outcome.response;
+		}
+		try {
+			return new SharedExecuteResponse(request, outcome.spool);
+		} catch (ExceptionReport e) {
+			outcome.spool.release();
+			throw new ExecutionException(e);
+		}
+	}
+
+	private boolean isCoalescable(ExecuteRequest request) {
+		if (!enabled || request.isStoreResponse()) {
+			return false;
+		}
+		String identifier = request.getAlgorithmIdentifier();
+		IAlgorithm algorithm = RepositoryManager.getInstance().getAlgorithm(identifier);
+		return ExecuteResponseCache.getInstance().isDeterministic(identifier, algorithm);
+	}
+
+	/**
+	 * Withdraws a request that stopped waiting for the execution it takes part
+	 * in, so that a shared response is not kept for it.
+	 */
+	private void abandon(Flight flight) {
+		synchronized (flights) {
+			if (flights.get(flight.execution.hash) == flight) {
+				// not completed yet, the response is shared by the others only
+				flight.execution.participants--;
+				return;
+			}
+		}
+		flight.abandon();
+	}
+
+	private Outcome complete(Execution execution, Response response) throws ExceptionReport {
+		int participants;
+		synchronized (flights) {
+			// no request can join after this point
+			flights.remove(execution.hash);
+			participants = execution.participants;
+		}
+		if (participants <= 1) {
+			// nobody joined, or everybody else has given up waiting
+			return new Outcome(response, null);
+		}
+		LOGGER.info("Sharing response of {} with {} requests", execution.request.getAlgorithmIdentifier(), participants - 1);
+		String mimeType = response instanceof ExecuteResponse ? ((ExecuteResponse) response).getMimeType() : null;
+		SpoolBuffer out = SpoolManager.getInstance().createBuffer(spoolThreshold);
+		ExecutionContext context = execution.request.getExecutionContext();
+		if (context != null) {
+			ExecutionContextFactory.registerContext(context);
+		}
+		InputStream in = null;
+		try {
+			in = response.getAsStream();
+			IOUtils.copy(in, out);
+		} catch (IOException e) {
+			out.destroy();
+			throw new ExceptionReport("Could not read from response stream.", ExceptionReport.NO_APPLICABLE_CODE, e);
+		} finally {
+			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(out);
+			if (context != null) {
+				ExecutionContextFactory.unregisterContext();
+			}
+		}
+		return new Outcome(null, new Spool(out, mimeType, participants));
+	}
+
+
+	private static void admit(ExecuteRequest request) throws ExecutionException {
+		try {
+			request.setAdmission(AdmissionController.getInstance().admit(request));
+		} catch (ExceptionReport e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	/**
+	 * A single execution shared by all identical requests that arrive while
+	 * it is queued or running.
+	 */
+	private class Execution implements Callable<Outcome> {
+
+		private final String hash;
+
+		private final ExecuteRequest request;
+
+		/** guarded by {@link ExecuteRequestCoalescer#flights} */
+		private int participants = 1;
+
+		Execution(String hash, ExecuteRequest request) {
+			this.hash = hash;
+			this.request = request;
+		}
+
+		@Override
+		public Outcome call() throws Exception {
+			Response response;
+			boolean succeeded = false;
+			try {
+				response = request.call();
+				succeeded = true;
+			} finally {
+				if (!succeeded) {
+					synchronized (flights) {
+						flights.remove(hash);
+					}
+				}
+			}
+			return complete(this, response);
+		}
+	}
+
+	private static class Flight extends FutureTask<Outcome> {
+
+		private final Execution execution;
+
+		/** requests that gave up after their share had been counted */
+		private int abandoned;
+
+		Flight(Execution execution) {
+			super(execution);
+			this.execution = execution;
+		}
+
+		void fail(Throwable t) {
+			setException(t);
+		}
+
+		/**
+		 * Releases the share of a request that will not read the outcome, now
+		 * or once it is available.
+		 */
+		synchronized void abandon() {
+			if (isDone()) {
+				release();
+			} else {
+				abandoned++;
+			}
+		}
+
+		@Override
+		protected synchronized void done() {
+			for (; abandoned > 0; abandoned--) {
+				release();
+			}
+		}
+
+		private void release() {
+			Outcome outcome;
+			try {
+				outcome = get();
+			} catch (Exception e) {
+				// failed, nothing was spooled
+				return;
+			}
+			if (outcome.spool != null) {
+				outcome.spool.release();
+			}
+		}
+	}
+
+	private static class Outcome {
+
+		private final Response response;
+
+		private final Spool spool;
+
+		Outcome(Response response, Spool spool) {
+			this.response = response;
+			this.spool = spool;
+		}
+	}
+
+	/**
+	 * An encoded response read by several requests, deleted once the last one
+	 * has been served.
+	 */
+	private static class Spool {
+
+		private final SpoolBuffer data;
+
+		private final String mimeType;
+
+		private int references;
+
+		Spool(SpoolBuffer data, String mimeType, int references) {
+			this.data = data;
+			this.mimeType = mimeType;
+			this.references = references;
+		}
+
+		InputStream open() throws IOException {
+			return new FilterInputStream(data.getInputStream()) {
+
+				private boolean closed;
+
+				@Override
+				public void close() throws IOException {
+					try {
+						super.close();
+					} finally {
+						if (!closed) {
+							closed = true;
+							release();
+						}
+					}
+				}
+			};
+		}
+
+		synchronized void release() {
+			if (--references == 0) {
+				data.destroy();
+			}
+		}
+	}
+
+	private static class SharedExecuteResponse extends ExecuteResponse {
+
+		private final Spool spool;
+
+		SharedExecuteResponse(ExecuteRequest request, Spool spool) throws ExceptionReport {
+			super(request);
+			this.spool = spool;
+		}
+
+		@Override
+		public InputStream getAsStream() throws ExceptionReport {
+			try {
+				return spool.open();
+			} catch (IOException e) {
+				spool.release();
+				throw new ExceptionReport("Could not read from response stream.", ExceptionReport.NO_APPLICABLE_CODE, e);
+			}
+		}
+
+		@Override
+		public String getMimeType() {
+			return spool.mimeType != null ? spool.mimeType : super.getMimeType();
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.handler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.server.IAlgorithm;
+import org.n52.wps.server.ICancellableAlgorithm;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.request.ExecuteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of the stored requests executing in this instance, so that a
+ * dismissed request can be stopped. Dismissing a request marks it as
+ * cancelled in the database, which instances that have not started it yet
+ * check before executing it; if it is executing here, its algorithm is
+ * cancelled (if it is an {@link ICancellableAlgorithm}) and the executing
+ * thread is interrupted.
+ */
+public class ExecutionRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecutionRegistry.class);
+
+	private static ExecutionRegistry instance;
+
+	private final ConcurrentMap<String, Execution> executions = new ConcurrentHashMap<String, Execution>();
+
+	public static synchronized ExecutionRegistry getInstance() {
+		if (instance == null) {
+			instance = new ExecutionRegistry();
+		}
+		return instance;
+	}
+
+	/**
+	 * Registers a request executed by the calling thread.
+	 */
+	public Execution register(ExecuteRequest request) {
+		Execution execution = new Execution(request, Thread.currentThread());
+		executions.put(execution.getId(), execution);
+		return execution;
+	}
+
+	/**
+	 * Unregisters a request once it has finished, it is not interrupted
+	 * afterwards.
+	 */
+	public void unregister(Execution execution) {
+		execution.finish();
+		executions.remove(execution.getId(), execution);
+	}
+
+	/**
+	 * @return whether the request is executing in this instance
+	 */
+	public boolean isExecuting(String id) {
+		return executions.containsKey(id);
+	}
+
+	/**
+	 * Dismisses a request wherever it is queued or executing.
+	 * 
+	 * @return false if it is executing here and has succeeded already
+	 */
+	public boolean cancel(String id) {
+		Execution execution = executions.get(id);
+		if (execution != null && !execution.cancel() && execution.isFinished()) {
+			LOGGER.info("Not cancelling {}, it has succeeded", id);
+			return false;
+		}
+		DatabaseFactory.getDatabase().markCancelled(id);
+		return true;
+	}
+
+	/**
+	 * Stops a request if it is executing in this instance.
+	 * 
+	 * @return whether it was executing here
+	 */
+	public boolean cancelLocal(String id) {
+		Execution execution = executions.get(id);
+		return execution != null && execution.cancel();
+	}
+
+	/**
+	 * The execution of a stored request by a thread of this instance.
+	 */
+	public static class Execution {
+
+		private final ExecuteRequest request;
+
+		private final Thread thread;
+
+		private IAlgorithm algorithm;
+
+		private boolean cancelled;
+
+		private boolean finished;
+
+		Execution(ExecuteRequest request, Thread thread) {
+			this.request = request;
+			this.thread = thread;
+		}
+
+		public String getId() {
+			return request.getUniqueId().toString();
+		}
+
+		/**
+		 * Sets the algorithm once it is known, so that it can be cancelled.
+		 */
+		public synchronized void setAlgorithm(IAlgorithm algorithm) {
+			this.algorithm = algorithm;
+			if (cancelled) {
+				cancelAlgorithm();
+			}
+		}
+
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		synchronized boolean isFinished() {
+			return finished;
+		}
+
+		/**
+		 * Marks the execution as finished before its success is stored, it
+		 * cannot be cancelled afterwards.
+		 * 
+		 * @return false if it has been cancelled already
+		 */
+		public synchronized boolean succeed() {
+			if (cancelled) {
+				return false;
+			}
+			finished = true;
+			return true;
+		}
+
+		/**
+		 * Marks the execution as cancelled, cancels its algorithm and
+		 * interrupts the executing thread.
+		 * 
+		 * @return false if it has finished or is cancelled already
+		 */
+		public synchronized boolean cancel() {
+			if (finished || cancelled) {
+				return false;
+			}
+			LOGGER.info("Cancelling execution of {}", getId());
+			cancelled = true;
+			cancelAlgorithm();
+			thread.interrupt();
+			return true;
+		}
+
+		synchronized void finish() {
+			finished = true;
+		}
+
+		private void cancelAlgorithm() {
+			if (!(algorithm instanceof ICancellableAlgorithm)) {
+				return;
+			}
+			// lets instances shared by executions find the cancelled one
+			ExecutionContext context = request.getExecutionContext();
+			boolean registered = context != null && ExecutionContextFactory.getContext(false) == null;
+			if (registered) {
+				ExecutionContextFactory.registerContext(context);
+			}
+			try {
+				((ICancellableAlgorithm) algorithm).cancel();
+			} catch (RuntimeException e) {
+				LOGGER.warn("Cancelling the algorithm of " + getId() + " failed", e);
+			} finally {
+				if (registered) {
+					ExecutionContextFactory.unregisterContext();
+				}
+			}
+		}
+	}
+}
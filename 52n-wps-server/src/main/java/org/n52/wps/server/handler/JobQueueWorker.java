@@ -0,0 +1,332 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.handler;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.ServerBusyException;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.IJobQueue;
+import org.n52.wps.server.database.JobLease;
+import org.n52.wps.server.request.ExecuteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes stored requests through the job queue of the database instead of
+ * the local {@link RequestExecutor} queue, so that queued requests survive a
+ * restart and are shared by all instances using the same database.
+ * 
+ * An accepted request is only enqueued. Each instance polls the queue while
+ * its executor has idle threads, claims a job with a lease and renews the
+ * lease while executing it. The job of an instance that stops renewing, e.g.
+ * because it crashed, is claimed again by another instance once the lease
+ * expired; a job is given up after <code>jobQueue.maxAttempts</code> claims.
+ * A job that is not admitted for lack of memory keeps its lease until it
+ * expires, so it is retried a lease later and given up like any other.
+ */
+public class JobQueueWorker {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(JobQueueWorker.class);
+
+	public static final String PROPERTY_ENABLED = "jobQueue.enabled";
+
+	public static final String PROPERTY_LEASE = "jobQueue.lease";
+
+	public static final String PROPERTY_POLL_INTERVAL = "jobQueue.pollInterval";
+
+	public static final String PROPERTY_MAX_ATTEMPTS = "jobQueue.maxAttempts";
+
+	private static JobQueueWorker instance;
+
+	private final boolean enabled;
+
+	private final long leaseMillis;
+
+	private final long pollIntervalMillis;
+
+	private final int maxAttempts;
+
+	private final String owner;
+
+	private final AtomicLong claimed = new AtomicLong();
+
+	private final AtomicLong completed = new AtomicLong();
+
+	private final AtomicLong abandoned = new AtomicLong();
+
+	private ScheduledExecutorService scheduler;
+
+	private ThreadPoolExecutor pool;
+
+	public static synchronized JobQueueWorker getInstance() {
+		if (instance == null) {
+			Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+			PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+			instance = new JobQueueWorker(
+					propertyUtil.extractBoolean(PROPERTY_ENABLED, false),
+					propertyUtil.extractPeriodAsMillis(PROPERTY_LEASE, 60000),
+					propertyUtil.extractPeriodAsMillis(PROPERTY_POLL_INTERVAL, 5000),
+					(int) propertyUtil.extractLong(PROPERTY_MAX_ATTEMPTS, 3));
+		}
+		return instance;
+	}
+
+	JobQueueWorker(boolean enabled, long leaseMillis, long pollIntervalMillis, int maxAttempts) {
+		this.enabled = enabled;
+		this.leaseMillis = leaseMillis;
+		this.pollIntervalMillis = pollIntervalMillis;
+		this.maxAttempts = maxAttempts;
+		this.owner = getHostName() + "/" + UUID.randomUUID();
+	}
+
+	private static String getHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (UnknownHostException e) {
+			return "unknown";
+		}
+	}
+
+	/**
+	 * @return whether stored requests are executed through the job queue
+	 */
+	public boolean isEnabled() {
+		return enabled && getQueue() != null;
+	}
+
+	private IJobQueue getQueue() {
+		return DatabaseFactory.getDatabase().getJobQueue();
+	}
+
+	/**
+	 * Enqueues a stored request, which has been inserted into the database
+	 * when it was created.
+	 */
+	public void enqueue(ExecuteRequest request) throws ExceptionReport {
+		try {
+			getQueue().enqueue(request.getUniqueId().toString());
+		} catch (IOException e) {
+			throw new ExceptionReport("The request could not be queued.",
+					ExceptionReport.NO_APPLICABLE_CODE, e);
+		}
+	}
+
+	/**
+	 * Starts polling the queue for jobs to execute with the executor of the
+	 * {@link RequestHandler}.
+	 */
+	public synchronized void start() {
+		if (!isEnabled() || scheduler != null) {
+			return;
+		}
+		pool = RequestHandler.pool;
+		scheduler = Executors.newScheduledThreadPool(1, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "JobQueueWorker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		scheduler.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				poll();
+			}
+		}, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+		LOGGER.info("Started job queue worker {}; lease {} ms, poll interval {} ms",
+				new Object[] { owner, leaseMillis, pollIntervalMillis });
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Claims jobs as long as the executor has idle threads, jobs queued
+	 * locally could not be claimed by other instances.
+	 */
+	private void poll() {
+		try {
+			IJobQueue queue = getQueue();
+			while (pool.getActiveCount() + pool.getQueue().size() < pool.getMaximumPoolSize()) {
+				JobLease lease = queue.claim(owner, leaseMillis);
+				if (lease == null) {
+					return;
+				}
+				claimed.incrementAndGet();
+				try {
+					pool.execute(new Job(queue, lease, scheduler));
+				} catch (RejectedExecutionException e) {
+					queue.release(lease);
+					return;
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Could not poll the job queue", e);
+		} catch (RuntimeException e) {
+			// an exception would cancel the polling
+			LOGGER.error("Unexpected error polling the job queue", e);
+		}
+	}
+
+	/**
+	 * @return the number of queued and claimed jobs of all instances, or -1
+	 *         if the queue cannot be read
+	 */
+	public int getQueueSize() {
+		try {
+			return getQueue().size();
+		} catch (IOException e) {
+			LOGGER.warn("Could not read the size of the job queue", e);
+			return -1;
+		}
+	}
+
+	public long getClaimedCount() {
+		return claimed.get();
+	}
+
+	public long getCompletedCount() {
+		return completed.get();
+	}
+
+	public long getAbandonedCount() {
+		return abandoned.get();
+	}
+
+	/**
+	 * Executes a claimed job while renewing its lease.
+	 */
+	private class Job implements Runnable {
+
+		private final IJobQueue queue;
+
+		private final JobLease lease;
+
+		private final ScheduledExecutorService renewals;
+
+		Job(IJobQueue queue, JobLease lease, ScheduledExecutorService renewals) {
+			this.queue = queue;
+			this.lease = lease;
+			this.renewals = renewals;
+		}
+
+		@Override
+		public void run() {
+			ScheduledFuture<?> renewal = scheduleRenewal();
+			try {
+				ExecuteRequest request = ExecuteRequest.restore(lease.getJobId());
+				if (lease.getAttempts() > maxAttempts) {
+					LOGGER.warn("Giving up job {} after {} attempts", lease.getJobId(), maxAttempts);
+					request.updateStatusError("The process was not completed after " + maxAttempts + " attempts.");
+					abandoned.incrementAndGet();
+				} else {
+					try {
+						request.setAdmission(AdmissionController.getInstance().admit(request));
+					} catch (ServerBusyException e) {
+						// the lease is left to expire, so the job is claimed
+						// again after it, by any instance, as another attempt
+						LOGGER.info("Postponing job {} for the lease of {} ms, {}",
+								new Object[] { lease.getJobId(), leaseMillis, e.getMessage() });
+						return;
+					}
+					try {
+						request.call();
+					} catch (ExceptionReport e) {
+						// the failure is stored as status of the request
+						LOGGER.debug("Job {} failed", lease.getJobId(), e);
+					}
+				}
+				complete();
+			} catch (ExceptionReport e) {
+				LOGGER.error("Could not restore job " + lease.getJobId() + ", discarding it", e);
+				complete();
+			} finally {
+				if (renewal != null) {
+					renewal.cancel(false);
+				}
+			}
+		}
+
+		private ScheduledFuture<?> scheduleRenewal() {
+			long period = Math.max(1, leaseMillis / 3);
+			try {
+				return renewals.scheduleWithFixedDelay(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							if (!queue.renew(lease, leaseMillis)) {
+								LOGGER.warn("Lost the lease of job {}, it may be executed again", lease.getJobId());
+							}
+							// the dismissal may have been received by another instance
+							if (DatabaseFactory.getDatabase().isCancelled(lease.getJobId())) {
+								ExecutionRegistry.getInstance().cancelLocal(lease.getJobId());
+							}
+						} catch (IOException e) {
+							LOGGER.warn("Could not renew the lease of job " + lease.getJobId(), e);
+						}
+					}
+				}, period, period, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// the worker is stopping, the job is claimed again elsewhere
+				return null;
+			}
+		}
+
+		private void complete() {
+			try {
+				queue.complete(lease);
+				completed.incrementAndGet();
+			} catch (IOException e) {
+				LOGGER.error("Could not complete job " + lease.getJobId(), e);
+			}
+		}
+
+	}
+}
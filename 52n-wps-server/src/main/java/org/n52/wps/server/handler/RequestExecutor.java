@@ -29,11 +29,14 @@
 package org.n52.wps.server.handler;
 
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.n52.wps.ServerDocument.Server;
 import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.metrics.ExecuteMetrics;
 
 /**
  * After the client Request is accepted, it should be executed. To prevent
@@ -56,7 +59,25 @@ public class RequestExecutor extends ThreadPoolExecutor {
 	public RequestExecutor() {
 		super(serverConfig.getMinPoolSize().intValue(), serverConfig.getMaxPoolSize().intValue(), serverConfig.getKeepAliveSeconds().intValue(),
 				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
-						serverConfig.getMaxQueuedTasks().intValue()));
+						serverConfig.getMaxQueuedTasks().intValue()), new CountingAbortPolicy());
+		ExecuteMetrics.getInstance().registerExecutor(this, ((CountingAbortPolicy) getRejectedExecutionHandler()).rejected);
+	}
+
+	/**
+	 * Rejects like the default policy, but keeps count for the metrics.
+	 */
+	private static class CountingAbortPolicy implements RejectedExecutionHandler {
+
+		private final AtomicLong rejected = new AtomicLong();
+
+		private final RejectedExecutionHandler delegate = new ThreadPoolExecutor.AbortPolicy();
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+			rejected.incrementAndGet();
+			delegate.rejectedExecution(r, executor);
+		}
+
 	}
 
 }
\ No newline at end of file
@@ -41,12 +41,17 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.commons.collections.map.CaseInsensitiveMap;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.ServerBusyException;
 import org.n52.wps.server.WebProcessingService;
 import org.n52.wps.server.request.CapabilitiesRequest;
 import org.n52.wps.server.request.DescribeProcessRequest;
+import org.n52.wps.server.request.DismissRequest;
 import org.n52.wps.server.request.ExecuteRequest;
 import org.n52.wps.server.request.Request;
 import org.n52.wps.server.request.RetrieveResultRequest;
@@ -148,6 +153,9 @@ public class RequestHandler {
 		else if (requestType.equalsIgnoreCase("RetrieveResult")) {
 			req = new RetrieveResultRequest(ciMap);
 		} 
+		else if (requestType.equalsIgnoreCase("Dismiss")) {
+			req = new DismissRequest(ciMap);
+		}
 		else {
 			throw new ExceptionReport(
 					"The requested Operation is not supported or not applicable to the specification: "
@@ -176,6 +184,8 @@ public class RequestHandler {
 		this.os = os;
 		
 		boolean isCapabilitiesNode = false;
+		// the size of the request document is part of its admission cost
+		CountingInputStream countingStream = new CountingInputStream(is);
 		
 		try {
 			System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl");
@@ -184,7 +194,7 @@ public class RequestHandler {
 			fac.setNamespaceAware(true);
 
 			// parse the InputStream to create a Document
-			doc = fac.newDocumentBuilder().parse(is);
+			doc = fac.newDocumentBuilder().parse(countingStream);
 			
 			// Get the first non-comment child.
 			Node child = doc.getFirstChild();
@@ -251,6 +261,7 @@ public class RequestHandler {
 		// get the request type
 		if (nodeURI.equals(WebProcessingService.WPS_NAMESPACE) && localName.equals("Execute")) {
 			req = new ExecuteRequest(doc);
+			((ExecuteRequest) req).setContentLength(countingStream.getByteCount());
 			setResponseMimeType((ExecuteRequest)req);
 		}else if (nodeURI.equals(WebProcessingService.WPS_NAMESPACE) && localName.equals("GetCapabilities")){
 			req = new CapabilitiesRequest(doc);
@@ -259,6 +270,9 @@ public class RequestHandler {
 			req = new DescribeProcessRequest(doc);
 			this.responseMimeType = "text/xml";
 			
+		} else if (nodeURI.equals(WebProcessingService.WPS_NAMESPACE) && localName.equals("Dismiss")) {
+			req = new DismissRequest(doc);
+			this.responseMimeType = "text/xml";
 		}  else if(!localName.equals("Execute")){
 			throw new ExceptionReport("The requested Operation not supported or not applicable to the specification: "
 					+ nodeName, ExceptionReport.OPERATION_NOT_SUPPORTED, localName);
@@ -287,24 +301,44 @@ public class RequestHandler {
 			// cast the request to an executerequest
 			ExecuteRequest execReq = (ExecuteRequest) req;
 			
+			// queued requests are admitted by the instance executing them
+			boolean queued = execReq.isQueued();
+			if (execReq.isStoreResponse() && !queued) {
+				// reserve before the request is accepted, synchronous
+				// requests are admitted when they are about to be executed
+				execReq.setAdmission(AdmissionController.getInstance().admit(execReq));
+			}
 			execReq.updateStatusAccepted();
 			
 			ExceptionReport exceptionReport = null;
 			try {
 				if (execReq.isStoreResponse()) {
+					if (queued) {
+						// fails before the client is told it was accepted
+						JobQueueWorker.getInstance().enqueue(execReq);
+					}
 					resp = new ExecuteResponse(execReq);
 					InputStream is = resp.getAsStream();
-					IOUtils.copy(is, os);
-					is.close();
-                    pool.submit(execReq);
+					try {
+						IOUtils.copy(is, os);
+					} finally {
+						IOUtils.closeQuietly(is);
+					}
+					if (!queued) {
+						pool.submit(execReq);
+					}
 					return;
 				}
 				try {
 					// retrieve status with timeout enabled
 					try {
-						resp = pool.submit(execReq).get();
+						resp = ExecuteRequestCoalescer.getInstance().execute(execReq, pool);
 					}
 					catch (ExecutionException ee) {
+						if (ee.getCause() instanceof RejectedExecutionException) {
+							// the execution this request joined was rejected
+							throw (RejectedExecutionException) ee.getCause();
+						}
 						LOGGER.warn("exception while handling ExecuteRequest.");
 						// the computation threw an error
 						// probably the client input is not valid
@@ -339,34 +373,62 @@ public class RequestHandler {
 						throw new ExceptionReport("Problem with handling threads in RequestHandler", ExceptionReport.NO_APPLICABLE_CODE);
 					}
 					if(!execReq.isStoreResponse()) {
-						InputStream is = resp.getAsStream();
-						IOUtils.copy(is, os);
-						is.close();
+						// raw outputs are generated while being written, keep
+						// their temporary files in the scratch space of the request
+						ExecutionContext context = execReq.getExecutionContext();
+						if (context != null) {
+							ExecutionContextFactory.registerContext(context);
+						}
+						InputStream is = null;
+						try {
+							is = resp.getAsStream();
+							IOUtils.copy(is, os);
+						} finally {
+							// releases a response shared by coalesced requests,
+							// also if the client has gone away
+							IOUtils.closeQuietly(is);
+							if (context != null) {
+								ExecutionContextFactory.unregisterContext();
+							}
+						}
 						LOGGER.info("Served ExecuteRequest.");
 					}
 				}
 			} catch (RejectedExecutionException ree) {
                 LOGGER.warn("exception handling ExecuteRequest.", ree);
+				execReq.releaseAdmission();
 				// server too busy?
-				throw new ExceptionReport(
+				throw new ServerBusyException(
 						"The requested process was rejected. Maybe the server is flooded with requests.",
-						ExceptionReport.SERVER_BUSY);
+						AdmissionController.getInstance().getRetryAfterSeconds());
 			} catch (Exception e) {
                 LOGGER.error("exception handling ExecuteRequest.", e);
+				// a stored request that failed here was never submitted
+				execReq.releaseAdmission();
                 if (e instanceof ExceptionReport) {
                     throw (ExceptionReport)e;
                 }
                 throw new ExceptionReport("Could not read from response stream.", ExceptionReport.NO_APPLICABLE_CODE);
+			} finally {
+				// stored responses are cleaned up by the request itself
+				if (!execReq.isStoreResponse()) {
+					execReq.releaseAdmission();
+					if (execReq.getExecutionContext() != null) {
+						execReq.getExecutionContext().dispose();
+					}
+				}
 			}
 		} else {
 			// for GetCapabilities and DescribeProcess:
 			resp = req.call();
+			InputStream is = null;
 			try {
-				InputStream is = resp.getAsStream();
+				is = resp.getAsStream();
 				IOUtils.copy(is, os);
-				is.close();
 			} catch (IOException e) {
 				throw new ExceptionReport("Could not read from response stream.", ExceptionReport.NO_APPLICABLE_CODE);
+			} finally {
+				IOUtils.closeQuietly(is);
 			}
 			
 		}
@@ -0,0 +1,230 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects latency and throughput of the phases of the Execute pipeline per
+ * process and per parser, generator or database implementation. Every timer
+ * and the request pool are registered as MBeans under the
+ * <code>org.n52.wps</code> domain, the same figures are served as JSON by the
+ * optional {@link org.n52.wps.server.MetricsServlet}.
+ * 
+ * A phase is timed by
+ * 
+ * <pre>
+ * ExecuteMetrics.Timing timing = ExecuteMetrics.getInstance().start(ExecutePhase.PARSE, processId, parser);
+ * try {
+ *     data = parser.parse(stream, mimeType, schema);
+ * } catch (RuntimeException e) {
+ *     timing.fail();
+ *     throw e;
+ * } finally {
+ *     timing.stop();
+ * }
+ * </pre>
+ */
+public class ExecuteMetrics {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteMetrics.class);
+
+	public static final String PROPERTY_ENABLED = "metrics.enabled";
+
+	public static final String PROPERTY_JMX = "metrics.jmx";
+
+	public static final String DOMAIN = "org.n52.wps";
+
+	private static final String NONE = "-";
+
+	private static ExecuteMetrics instance;
+
+	private final boolean enabled;
+
+	private final MBeanServer mbeanServer;
+
+	private final ConcurrentMap<String, PhaseTimer> timers = new ConcurrentHashMap<String, PhaseTimer>();
+
+	private volatile ExecutorStats executorStats;
+
+	public static synchronized ExecuteMetrics getInstance() {
+		if (instance == null) {
+			Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+			PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+			boolean enabled = propertyUtil.extractBoolean(PROPERTY_ENABLED, true);
+			boolean jmx = propertyUtil.extractBoolean(PROPERTY_JMX, true);
+			instance = new ExecuteMetrics(enabled, enabled && jmx ? ManagementFactory.getPlatformMBeanServer() : null);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param mbeanServer
+	 *            the server to register the timers at, or <code>null</code>
+	 *            to keep them private
+	 */
+	public ExecuteMetrics(boolean enabled, MBeanServer mbeanServer) {
+		this.enabled = enabled;
+		this.mbeanServer = mbeanServer;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Starts timing a phase.
+	 * 
+	 * @param process
+	 *            the identifier of the executed process, may be
+	 *            <code>null</code>
+	 * @param component
+	 *            the parser, generator, algorithm or database doing the work,
+	 *            may be <code>null</code>
+	 */
+	public Timing start(ExecutePhase phase, String process, Object component) {
+		return new Timing(phase, process, component == null ? null : component.getClass().getName());
+	}
+
+	public void record(ExecutePhase phase, String process, String component, long nanos, boolean failed) {
+		if (!enabled) {
+			return;
+		}
+		getTimer(phase, process == null ? NONE : process, component == null ? NONE : component).record(nanos, failed);
+	}
+
+	private PhaseTimer getTimer(ExecutePhase phase, String process, String component) {
+		String key = phase.name() + '|' + process + '|' + component;
+		PhaseTimer timer = timers.get(key);
+		if (timer == null) {
+			PhaseTimer newTimer = new PhaseTimer(phase, process, component);
+			timer = timers.putIfAbsent(key, newTimer);
+			if (timer == null) {
+				timer = newTimer;
+				register(newTimer, "type=ExecuteMetrics,phase=" + phase.name() + ",process=" + ObjectName.quote(process) + ",component="
+						+ ObjectName.quote(component));
+			}
+		}
+		return timer;
+	}
+
+	/**
+	 * Publishes the state of the request pool. The handler of the pool is
+	 * expected to count rejections into <code>rejected</code>.
+	 */
+	public void registerExecutor(ThreadPoolExecutor executor, AtomicLong rejected) {
+		ExecutorStats stats = new ExecutorStats(executor, rejected);
+		this.executorStats = stats;
+		if (enabled) {
+			register(stats, "type=RequestExecutor");
+		}
+	}
+
+	private void register(Object mbean, String properties) {
+		if (mbeanServer == null) {
+			return;
+		}
+		try {
+			ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+			if (mbeanServer.isRegistered(name)) {
+				mbeanServer.unregisterMBean(name);
+			}
+			mbeanServer.registerMBean(mbean, name);
+		} catch (Exception e) {
+			LOGGER.warn("Could not register MBean " + properties, e);
+		}
+	}
+
+	public Collection<PhaseTimer> getTimers() {
+		return new ArrayList<PhaseTimer>(timers.values());
+	}
+
+	/**
+	 * @return the state of the request pool, or <code>null</code> if none has
+	 *         been created yet
+	 */
+	public ExecutorStats getExecutorStats() {
+		return executorStats;
+	}
+
+	/**
+	 * A running measurement. Only the first call to {@link #stop()} or
+	 * {@link #fail()} is recorded.
+	 */
+	public class Timing {
+
+		private final ExecutePhase phase;
+
+		private final String process;
+
+		private final String component;
+
+		private final long start = System.nanoTime();
+
+		private boolean done;
+
+		private Timing(ExecutePhase phase, String process, String component) {
+			this.phase = phase;
+			this.process = process;
+			this.component = component;
+		}
+
+		public void stop() {
+			finish(false);
+		}
+
+		public void fail() {
+			finish(true);
+		}
+
+		private void finish(boolean failed) {
+			if (!done) {
+				done = true;
+				record(phase, process, component, System.nanoTime() - start, failed);
+			}
+		}
+
+	}
+
+}
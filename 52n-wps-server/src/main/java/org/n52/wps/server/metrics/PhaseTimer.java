@@ -0,0 +1,155 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts and times the executions of one phase for one process and
+ * component. Durations are kept in a fixed histogram so that recording never
+ * allocates or locks.
+ */
+public class PhaseTimer implements PhaseTimerMBean {
+
+	static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000, 300000 };
+
+	private static final long[] BUCKET_BOUNDS_NANOS = new long[BUCKET_BOUNDS_MILLIS.length];
+
+	static {
+		for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+			BUCKET_BOUNDS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS_MILLIS[i]);
+		}
+	}
+
+	private final ExecutePhase phase;
+
+	private final String process;
+
+	private final String component;
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong failures = new AtomicLong();
+
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MILLIS.length + 1);
+
+	public PhaseTimer(ExecutePhase phase, String process, String component) {
+		this.phase = phase;
+		this.process = process;
+		this.component = component;
+	}
+
+	public void record(long nanos, boolean failed) {
+		count.incrementAndGet();
+		if (failed) {
+			failures.incrementAndGet();
+		}
+		totalNanos.addAndGet(nanos);
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+		buckets.incrementAndGet(bucketOf(nanos));
+	}
+
+	static int bucketOf(long nanos) {
+		for (int i = 0; i < BUCKET_BOUNDS_NANOS.length; i++) {
+			if (nanos <= BUCKET_BOUNDS_NANOS[i]) {
+				return i;
+			}
+		}
+		return BUCKET_BOUNDS_NANOS.length;
+	}
+
+	public ExecutePhase getExecutePhase() {
+		return phase;
+	}
+
+	@Override
+	public String getPhase() {
+		return phase.name();
+	}
+
+	@Override
+	public String getProcess() {
+		return process;
+	}
+
+	@Override
+	public String getComponent() {
+		return component;
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public long getFailures() {
+		return failures.get();
+	}
+
+	@Override
+	public double getTotalMillis() {
+		return totalNanos.get() / 1e6;
+	}
+
+	@Override
+	public double getMeanMillis() {
+		long n = count.get();
+		return n == 0 ? 0 : getTotalMillis() / n;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return maxNanos.get() / 1e6;
+	}
+
+	@Override
+	public long[] getBucketBoundsMillis() {
+		return BUCKET_BOUNDS_MILLIS.clone();
+	}
+
+	@Override
+	public long[] getBucketCounts() {
+		long[] counts = new long[buckets.length()];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = buckets.get(i);
+		}
+		return counts;
+	}
+
+}
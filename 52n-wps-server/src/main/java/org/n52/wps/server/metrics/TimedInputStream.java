@@ -0,0 +1,97 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Times the consumption of a lazily generated stream. The {@link
+ * ExecuteMetrics.Timing} is stopped when the stream is read to its end or
+ * closed, and failed if reading it fails, so that a phase like
+ * {@link ExecutePhase#GENERATE} covers the work done while the stream is
+ * read and not only the call returning it.
+ */
+public class TimedInputStream extends FilterInputStream {
+
+	private final ExecuteMetrics.Timing timing;
+
+	public TimedInputStream(InputStream in, ExecuteMetrics.Timing timing) {
+		super(in);
+		this.timing = timing;
+	}
+
+	@Override
+	public int read() throws IOException {
+		try {
+			int b = super.read();
+			if (b < 0) {
+				timing.stop();
+			}
+			return b;
+		} catch (IOException | RuntimeException e) {
+			timing.fail();
+			throw e;
+		}
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		try {
+			int n = super.read(b, off, len);
+			if (n < 0) {
+				timing.stop();
+			}
+			return n;
+		} catch (IOException | RuntimeException e) {
+			timing.fail();
+			throw e;
+		}
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		try {
+			return super.skip(n);
+		} catch (IOException e) {
+			timing.fail();
+			throw e;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			timing.stop();
+		}
+	}
+}
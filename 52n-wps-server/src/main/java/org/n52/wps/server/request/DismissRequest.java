@@ -0,0 +1,153 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import net.opengis.wps.x100.ExecuteResponseDocument;
+import net.opengis.wps.x100.StatusType;
+
+import org.apache.commons.collections.map.CaseInsensitiveMap;
+import org.apache.commons.io.IOUtils;
+import org.apache.xmlbeans.XmlException;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.RetrieveResultServlet;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.handler.ExecutionRegistry;
+import org.n52.wps.server.response.DismissResponse;
+import org.n52.wps.server.response.Response;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Dismisses an asynchronous execution. The execution is marked as cancelled,
+ * interrupted if it is running on this server and its partial outputs are
+ * deleted. A request that has been accepted but not started is failed right
+ * away. The response is the stored status of the execution.
+ * Dismiss is not part of WPS 1.0.0, the operation is borrowed from WPS 2.0.
+ */
+public class DismissRequest extends Request {
+
+	/**
+	 * Creates a DismissRequest based on a Map (HTTP_GET)
+	 * @param ciMap The client input
+	 * @throws ExceptionReport
+	 */
+	public DismissRequest(CaseInsensitiveMap ciMap) throws ExceptionReport {
+		super(ciMap);
+	}
+
+	/**
+	 * Creates a DismissRequest based on a Document (HTTP_POST)
+	 * @param doc The client input
+	 * @throws ExceptionReport
+	 */
+	public DismissRequest(Document doc) throws ExceptionReport {
+		super(doc);
+		map = new CaseInsensitiveMap();
+		NodeList nList = doc.getDocumentElement().getChildNodes();
+		for (int i = 0; i < nList.getLength(); i++) {
+			Node n = nList.item(i);
+			if (n.getLocalName() != null && n.getLocalName().equalsIgnoreCase("JobID")) {
+				map.put("jobId", new String[]{n.getTextContent().trim()});
+			}
+		}
+	}
+
+	/**
+	 * Actually serves the Request.
+	 * @throws ExceptionReport
+	 */
+	public Response call() throws ExceptionReport {
+		if (validate()) {
+			String jobId = getJobId();
+			ExecutionRegistry registry = ExecutionRegistry.getInstance();
+			boolean executing = registry.isExecuting(jobId);
+			registry.cancel(jobId);
+			if (!executing) {
+				StatusType status = getStoredStatus(jobId);
+				if (status != null && status.isSetProcessAccepted()) {
+					// nobody is going to update the status of a queued request
+					// before it is started, which it will not be
+					ExecuteRequest.restore(jobId).updateStatusDismissed();
+				}
+			}
+			return new DismissResponse(this);
+		}
+		return null;
+	}
+
+	/**
+	 * Validates the client input
+	 * @return True if the execution is known, otherwise an ExceptionReport is thrown
+	 */
+	public boolean validate() throws ExceptionReport {
+		String jobId = getJobId();
+		if (!RetrieveResultServlet.isUUIDValid(jobId)) {
+			throw new ExceptionReport("The value of parameter <jobId> is not valid.", ExceptionReport.INVALID_PARAMETER_VALUE, "jobId");
+		}
+		// stored outputs have ids too, but only executions have a status
+		if (!ExecutionRegistry.getInstance().isExecuting(jobId) && getStoredStatus(jobId) == null) {
+			throw new ExceptionReport("No execution with the id " + jobId + " is known.", ExceptionReport.INVALID_PARAMETER_VALUE, "jobId");
+		}
+		return true;
+	}
+
+	/**
+	 * @return the stored status of the execution, or null if the id does not
+	 *         refer to a stored status document
+	 */
+	private static StatusType getStoredStatus(String jobId) {
+		InputStream stored = DatabaseFactory.getDatabase().lookupResponse(jobId);
+		if (stored == null) {
+			return null;
+		}
+		try {
+			ExecuteResponseDocument document = ExecuteResponseDocument.Factory.parse(stored);
+			return document.getExecuteResponse().getStatus();
+		} catch (XmlException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		} finally {
+			IOUtils.closeQuietly(stored);
+		}
+	}
+
+	public String getJobId() throws ExceptionReport {
+		return getMapValue("jobId", true);
+	}
+
+	public Object getAttachedResult() {
+		return null;
+	}
+
+}
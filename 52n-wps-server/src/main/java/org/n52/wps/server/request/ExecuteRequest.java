@@ -28,20 +28,26 @@
  */
 package org.n52.wps.server.request;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
 import java.math.BigInteger;
 import java.net.URLDecoder;
+import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 
 import net.opengis.ows.x11.BoundingBoxType;
 import net.opengis.ows.x11.ExceptionType;
@@ -75,16 +81,24 @@ import org.n52.wps.server.ExceptionReport;
 import org.n52.wps.server.IAlgorithm;
 import org.n52.wps.server.RepositoryManager;
 import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.IDatabase;
+import org.n52.wps.server.handler.AdmissionController;
+import org.n52.wps.server.handler.ExecutionRegistry;
+import org.n52.wps.server.handler.JobQueueWorker;
+import org.n52.wps.server.metrics.ExecuteMetrics;
+import org.n52.wps.server.metrics.ExecutePhase;
 import org.n52.wps.server.observerpattern.IObserver;
 import org.n52.wps.server.observerpattern.ISubject;
 import org.n52.wps.server.response.ExecuteResponse;
 import org.n52.wps.server.response.ExecuteResponseBuilder;
+import org.n52.wps.server.response.ExecuteResponseCache;
 import org.n52.wps.server.response.Response;
 import org.n52.wps.util.XMLBeansHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
 
 /**
  * Handles an ExecuteRequest
@@ -92,9 +106,14 @@ import org.w3c.dom.Node;
 public class ExecuteRequest extends Request implements IObserver {
 
 	private static Logger LOGGER = LoggerFactory.getLogger(ExecuteRequest.class);
+	private static final String DISMISSED_MESSAGE = "The process was dismissed.";
 	private ExecuteDocument execDom;
 	private Map<String, IData> returnResults;
 	private ExecuteResponseBuilder execRespType;
+	private String canonicalHash;
+	private ExecutionContext context;
+	private long contentLength;
+	private AdmissionController.Reservation admission;
 	
 	
 
@@ -106,7 +125,12 @@ public class ExecuteRequest extends Request implements IObserver {
 	 * @throws ExceptionReport
 	 */
 	public ExecuteRequest(Document doc) throws ExceptionReport {
+		this(doc, null);
+	}
+
+	private ExecuteRequest(Document doc, UUID id) throws ExceptionReport {
 		super(doc);
+		this.id = id;
 		try {
 			XmlOptions option = new XmlOptions();
 			option.setLoadTrimTextBuffer();
@@ -127,7 +151,10 @@ public class ExecuteRequest extends Request implements IObserver {
 		// create an initial response
 		execRespType = new ExecuteResponseBuilder(this);
         
-        storeRequest(execDom);
+		// restored requests have been stored already
+		if (id == null) {
+			storeRequest(execDom);
+		}
 	}
 
 	/*
@@ -136,7 +163,12 @@ public class ExecuteRequest extends Request implements IObserver {
 	 * ExceptionReport
 	 */
 	public ExecuteRequest(CaseInsensitiveMap ciMap) throws ExceptionReport {
+		this(ciMap, null);
+	}
+
+	private ExecuteRequest(CaseInsensitiveMap ciMap, UUID id) throws ExceptionReport {
 		super(ciMap);
+		this.id = id;
 		initForGET(ciMap);
 		// validate the client input
 		validate();
@@ -144,7 +176,51 @@ public class ExecuteRequest extends Request implements IObserver {
 		// create an initial response
 		execRespType = new ExecuteResponseBuilder(this);
 
-        storeRequest(ciMap);
+		if (id == null) {
+			storeRequest(ciMap);
+		}
+	}
+
+	/**
+	 * Restores a request from the form it has been inserted into the database
+	 * with, so that it can be executed by any instance sharing the database.
+	 * 
+	 * @param id
+	 *            the id of the stored request
+	 * @throws ExceptionReport
+	 *             if the request is not stored or cannot be parsed
+	 */
+	public static ExecuteRequest restore(String id) throws ExceptionReport {
+		InputStream is = DatabaseFactory.getDatabase().lookupRequest(id);
+		if (is == null) {
+			throw new ExceptionReport("Request " + id + " is not stored",
+					ExceptionReport.NO_APPLICABLE_CODE);
+		}
+		try {
+			byte[] request = IOUtils.toByteArray(is);
+			UUID uuid = UUID.fromString(id);
+			if (isXML(request)) {
+				DocumentBuilderFactory fac = DocumentBuilderFactory.newInstance();
+				fac.setNamespaceAware(true);
+				Document doc = fac.newDocumentBuilder().parse(new ByteArrayInputStream(request));
+				return new ExecuteRequest(doc, uuid);
+			}
+			return new ExecuteRequest(decodeKVP(request), uuid);
+		} catch (IOException | SAXException | ParserConfigurationException | IllegalArgumentException e) {
+			throw new ExceptionReport("Could not restore request " + id,
+					ExceptionReport.NO_APPLICABLE_CODE, e);
+		} finally {
+			IOUtils.closeQuietly(is);
+		}
+	}
+
+	private static boolean isXML(byte[] request) {
+		for (byte b : request) {
+			if (!Character.isWhitespace(b)) {
+				return b == '<';
+			}
+		}
+		return false;
 	}
 	
 	public void getKVPDataInputs(){
@@ -636,8 +712,18 @@ public class ExecuteRequest extends Request implements IObserver {
 	public Response call() throws ExceptionReport {
         IAlgorithm algorithm = null;
         Map<String, List<IData>> inputMap = null;
+        boolean cacheable = false;
+        Response cachedResponse = null;
+        ExecutionRegistry.Execution execution = null;
 		try {
-			ExecutionContext context;
+			if (isStoreResponse()) {
+				// stored requests can be dismissed while they are executed
+				execution = ExecutionRegistry.getInstance().register(this);
+				if (DatabaseFactory.getDatabase().isCancelled(getUniqueId().toString())) {
+					execution.cancel();
+					checkCancelled(execution);
+				}
+			}
 			if (getExecute().isSetResponseForm()) {
 				context = getExecute().getResponseForm().isSetRawDataOutput() ?
 	                    new ExecutionContext(getExecute().getResponseForm().getRawDataOutput()) :
@@ -653,6 +739,24 @@ public class ExecuteRequest extends Request implements IObserver {
 			LOGGER.debug("started with execution");
             
 			updateStatusStarted();
+
+			algorithm = RepositoryManager.getInstance().getAlgorithm(getAlgorithmIdentifier());
+			if (execution != null) {
+				execution.setAlgorithm(algorithm);
+				checkCancelled(execution);
+			}
+
+			// deterministic processes may already have answered this request
+			cacheable = ExecuteResponseCache.getInstance().isCacheable(this, algorithm);
+			if (cacheable) {
+				Response cached = ExecuteResponseCache.getInstance().get(this);
+				if (cached != null) {
+					// the cached document carries the outputs, the builder
+					// only needs to know that the process has succeeded
+					getExecuteResponseBuilder().setStatus(createStatusSuccess());
+					return cached;
+				}
+			}
             
 			// parse the input
 			InputType[] inputs = new InputType[0];
@@ -662,7 +766,7 @@ public class ExecuteRequest extends Request implements IObserver {
 			InputHandler parser = new InputHandler.Builder(inputs, getAlgorithmIdentifier()).build();
 			
 			// we got so far:
-			// get the algorithm, and run it with the clients input
+			// run the algorithm with the clients input
 		
 			/*
 			 * IAlgorithm algorithm =
@@ -670,7 +774,6 @@ public class ExecuteRequest extends Request implements IObserver {
 			 * returnResults = algorithm.run((Map)parser.getParsedInputLayers(),
 			 * (Map)parser.getParsedInputParameters());
 			 */
-			algorithm = RepositoryManager.getInstance().getAlgorithm(getAlgorithmIdentifier());
 			
 			if(algorithm instanceof ISubject){
 				ISubject subject = (ISubject) algorithm;
@@ -678,12 +781,21 @@ public class ExecuteRequest extends Request implements IObserver {
 				
 			}
 			
-			if(algorithm instanceof AbstractTransactionalAlgorithm){
-				returnResults = ((AbstractTransactionalAlgorithm)algorithm).run(execDom);
-			} else {
-				inputMap = parser.getParsedInputData();
-				returnResults = algorithm.run(inputMap);
-			} 
+			ExecuteMetrics.Timing runTiming = ExecuteMetrics.getInstance().start(ExecutePhase.RUN, getAlgorithmIdentifier(), algorithm);
+			try {
+				if(algorithm instanceof AbstractTransactionalAlgorithm){
+					returnResults = ((AbstractTransactionalAlgorithm)algorithm).run(execDom);
+				} else {
+					inputMap = parser.getParsedInputData();
+					returnResults = algorithm.run(inputMap);
+				}
+			} catch (Throwable e) {
+				runTiming.fail();
+				throw e;
+			} finally {
+				runTiming.stop();
+			}
+			checkCancelled(execution);
 
             List<String> errorList = algorithm.getErrors();
             if (errorList != null && !errorList.isEmpty()) {
@@ -691,11 +803,25 @@ public class ExecuteRequest extends Request implements IObserver {
                 LOGGER.error("Error reported while handling ExecuteRequest for " + getAlgorithmIdentifier() + ": " + errorMessage);
                 updateStatusError(errorMessage);
             } else {
+                // once succeeded, the execution is not dismissed anymore
+                if (execution != null && !execution.succeed()) {
+                    checkCancelled(execution);
+                }
                 updateStatusSuccess();
+                if (cacheable) {
+                    // the outputs are disposed below, so encode them now
+                    cachedResponse = ExecuteResponseCache.getInstance().put(this, new ExecuteResponse(this));
+                }
             }
 		} catch(Throwable e) {
             String errorMessage = null;
-            if (algorithm != null && algorithm.getErrors() != null && !algorithm.getErrors().isEmpty()) {
+            if (execution != null && execution.isCancelled()) {
+                // the interrupt has served its purpose, storing the status
+                // must not be interrupted
+                Thread.interrupted();
+                errorMessage = DISMISSED_MESSAGE;
+                getExecuteResponseBuilder().discardStoredOutputs();
+            } else if (algorithm != null && algorithm.getErrors() != null && !algorithm.getErrors().isEmpty()) {
                 errorMessage = algorithm.getErrors().get(0);
             }
             if (errorMessage == null) {
@@ -716,6 +842,11 @@ public class ExecuteRequest extends Request implements IObserver {
                 throw new ExceptionReport("Error while executing the embedded process for: " + getAlgorithmIdentifier(), ExceptionReport.NO_APPLICABLE_CODE, e);
             }
         } finally {
+			if (execution != null) {
+				ExecutionRegistry.getInstance().unregister(execution);
+				// a dismissal may have come after the last check
+				Thread.interrupted();
+			}
 			//  you ***MUST*** call this or else you will have a PermGen ClassLoader memory leak due to ThreadLocal use
 			ExecutionContextFactory.unregisterContext();
             if (algorithm instanceof ISubject) {
@@ -736,14 +867,31 @@ public class ExecuteRequest extends Request implements IObserver {
                         ((IComplexData)d).dispose();
                     }
                 }
+            }
+            // synchronous responses are still encoded by the RequestHandler,
+            // which disposes the context afterwards
+            if (isStoreResponse()) {
+                if (context != null) {
+                    context.dispose();
+                }
+                releaseAdmission();
             }
 		}
 		
+		if (cachedResponse != null) {
+			return cachedResponse;
+		}
 		ExecuteResponse response = new ExecuteResponse(this);
         return response;
 	}
     
 
+	private static void checkCancelled(ExecutionRegistry.Execution execution) throws ExceptionReport {
+		if (execution != null && execution.isCancelled()) {
+			throw new ExceptionReport(DISMISSED_MESSAGE, ExceptionReport.NO_APPLICABLE_CODE);
+		}
+	}
+
 	/**
 	 * Gets the identifier of the algorithm the client requested
 	 * 
@@ -757,6 +905,20 @@ public class ExecuteRequest extends Request implements IObserver {
 		return null;
 	}
 	
+	/**
+	 * Gets the canonical hash of this request, identical for requests that
+	 * compute the same outputs in the same formats.
+	 * 
+	 * @return A hex encoded hash
+	 * @see ExecuteRequestHash
+	 */
+	public synchronized String getCanonicalHash() {
+		if (canonicalHash == null) {
+			canonicalHash = ExecuteRequestHash.compute(getExecute());
+		}
+		return canonicalHash;
+	}
+
 	/**
 	 * Gets the Execute that is associated with this Request
 	 * 
@@ -792,6 +954,44 @@ public class ExecuteRequest extends Request implements IObserver {
 				.getStatus();
 	}
 
+	/**
+	 * @return the context of the execution or <code>null</code> if it has not
+	 *         been started
+	 */
+	public ExecutionContext getExecutionContext() {
+		return context;
+	}
+
+	/**
+	 * @return the size in bytes of the request document, or 0 if it is not
+	 *         known (e.g. for KVP requests)
+	 */
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	public void setContentLength(long contentLength) {
+		this.contentLength = contentLength;
+	}
+
+	/**
+	 * Attaches the memory reserved for this request, it is released when the
+	 * request has been served.
+	 */
+	public void setAdmission(AdmissionController.Reservation admission) {
+		this.admission = admission;
+	}
+
+	/**
+	 * Releases the memory reserved for this request, if any. Can be called
+	 * more than once.
+	 */
+	public void releaseAdmission() {
+		if (admission != null) {
+			admission.release();
+		}
+	}
+
 	public ExecuteResponseBuilder getExecuteResponseBuilder() {
 		return this.execRespType;
 	}
@@ -836,11 +1036,24 @@ public class ExecuteRequest extends Request implements IObserver {
     }
 	
     public void updateStatusSuccess() {
+        updateStatus(createStatusSuccess());
+    }	
+
+    private static StatusType createStatusSuccess() {
         StatusType status = StatusType.Factory.newInstance();
         status.setProcessSucceeded("Process successful");
-        updateStatus(status);
-    }	
+        return status;
+    }
+
     
+    /**
+     * Stores the failed status of a dismissed request that has not been
+     * started.
+     */
+    public void updateStatusDismissed() {
+        updateStatusError(DISMISSED_MESSAGE);
+    }
+
     public void updateStatusError(String errorMessage) {
 		StatusType status = StatusType.Factory.newInstance();
 		net.opengis.ows.x11.ExceptionReportDocument.ExceptionReport excRep = status
@@ -859,11 +1072,17 @@ public class ExecuteRequest extends Request implements IObserver {
             if (isStoreResponse()) {
                 ExecuteResponse executeResponse = new ExecuteResponse(this);
                 InputStream is = null;
+                IDatabase database = DatabaseFactory.getDatabase();
+                ExecuteMetrics.Timing storeTiming = ExecuteMetrics.getInstance().start(ExecutePhase.STORE, getAlgorithmIdentifier(), database);
                 try {
                     is = executeResponse.getAsStream();
-                    DatabaseFactory.getDatabase().storeResponse(
+                    database.storeResponse(
                             getUniqueId().toString(), is);
+                } catch (RuntimeException e) {
+                    storeTiming.fail();
+                    throw e;
                 } finally {
+                    storeTiming.stop();
                     IOUtils.closeQuietly(is);
                 }
             }
@@ -873,48 +1092,84 @@ public class ExecuteRequest extends Request implements IObserver {
         }
 	}
     
-    private void storeRequest(ExecuteDocument executeDocument) {
+    /**
+     * @return whether the request is executed through the job queue, i.e.
+     *         restored from its stored form
+     */
+    public boolean isQueued() {
+        return isStoreResponse() && JobQueueWorker.getInstance().isEnabled();
+    }
+    
+    /**
+     * Stores the request, the stored form is what a job is restored from.
+     * Failing to store a request is fatal only if it is going to be queued.
+     */
+    private void storeRequest(ExecuteDocument executeDocument) throws ExceptionReport {
         InputStream is = null;
         try {
             is = executeDocument.newInputStream();
             DatabaseFactory.getDatabase().insertRequest(
                     getUniqueId().toString(), is, true);
         } catch (Exception e) {
-            LOGGER.error("Exception storing ExecuteRequest", e);
+            handleStoreRequestFailure(e);
         } finally {
             IOUtils.closeQuietly(is);
         }
     }
     
-    private void storeRequest(CaseInsensitiveMap map) {
-  
-        BufferedWriter w = null;
-        ByteArrayOutputStream os = null;
-        ByteArrayInputStream is = null;
+    private void storeRequest(CaseInsensitiveMap map) throws ExceptionReport {
         try {
-            os = new ByteArrayOutputStream();
-            w = new BufferedWriter(new OutputStreamWriter(os));
-            for (Object key : map.keySet()) {
-                Object value = map.get(key);
-                String valueString = "";                
-                if(value instanceof String[]){
-                	valueString = ((String[])value)[0];
-                }else{
-                	valueString = value.toString();
-                }
-                w.append(key.toString()).append('=').append(valueString);
-                w.newLine();
-            }
-            w.flush();
-            is = new ByteArrayInputStream(os.toByteArray());
             DatabaseFactory.getDatabase().insertRequest(
-                    getUniqueId().toString(), is, false);
+                    getUniqueId().toString(), new ByteArrayInputStream(encodeKVP(map)), false);
         } catch (Exception e) {
-            LOGGER.error("Exception storing ExecuteRequest", e);
-        } finally {
-            IOUtils.closeQuietly(w);
-            IOUtils.closeQuietly(os);
-            IOUtils.closeQuietly(is);
+            handleStoreRequestFailure(e);
+        }
+    }
+    
+    /**
+     * Encodes the first value of each parameter as a line
+     * <code>key=value</code>, both URL encoded with UTF-8 so that any value
+     * is restored unchanged by {@link #decodeKVP(byte[])}.
+     */
+    static byte[] encodeKVP(Map<?, ?> map) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        BufferedWriter w = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            String valueString = "";
+            if(value instanceof String[]){
+            	valueString = ((String[])value)[0];
+            }else{
+            	valueString = value.toString();
+            }
+            w.append(URLEncoder.encode(entry.getKey().toString(), "UTF-8")).append('=')
+                    .append(URLEncoder.encode(valueString, "UTF-8"));
+            w.newLine();
+        }
+        w.flush();
+        return os.toByteArray();
+    }
+    
+    static CaseInsensitiveMap decodeKVP(byte[] request) throws IOException {
+        CaseInsensitiveMap ciMap = new CaseInsensitiveMap();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(request), "UTF-8"));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int position = line.indexOf('=');
+            if (position > 0) {
+                ciMap.put(URLDecoder.decode(line.substring(0, position), "UTF-8"),
+                        new String[] { URLDecoder.decode(line.substring(position + 1), "UTF-8") });
+            }
+        }
+        return ciMap;
+    }
+    
+    private void handleStoreRequestFailure(Exception e) throws ExceptionReport {
+        if (isQueued()) {
+            throw new ExceptionReport("The request could not be stored.",
+                    ExceptionReport.NO_APPLICABLE_CODE, e);
         }
+        LOGGER.error("Exception storing ExecuteRequest", e);
     }
-}
\ No newline at end of file
+}
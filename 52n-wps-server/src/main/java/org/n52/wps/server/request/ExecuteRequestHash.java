@@ -0,0 +1,194 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.opengis.ows.x11.BoundingBoxType;
+import net.opengis.wps.x100.ComplexDataType;
+import net.opengis.wps.x100.DataType;
+import net.opengis.wps.x100.DocumentOutputDefinitionType;
+import net.opengis.wps.x100.ExecuteDocument.Execute;
+import net.opengis.wps.x100.InputReferenceType;
+import net.opengis.wps.x100.InputType;
+import net.opengis.wps.x100.LiteralDataType;
+import net.opengis.wps.x100.OutputDefinitionType;
+import net.opengis.wps.x100.ResponseDocumentType;
+import net.opengis.wps.x100.ResponseFormType;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Computes a canonical hash of an Execute request. Two requests have the same
+ * hash if they address the same process with the same inputs and request the
+ * same outputs in the same formats, regardless of whether they were sent as
+ * KVP or XML and, for raw data outputs, of the order of differently named
+ * inputs.
+ * 
+ * The hash only covers what influences the computed outputs and their
+ * encoding; whether the response is stored or status updates are requested
+ * is not part of it.
+ */
+public final class ExecuteRequestHash {
+
+	private static final Comparator<InputType> INPUT_COMPARATOR = new Comparator<InputType>() {
+		@Override
+		public int compare(InputType o1, InputType o2) {
+			return identifier(o1).compareTo(identifier(o2));
+		}
+	};
+
+	private ExecuteRequestHash() {
+	}
+
+	/**
+	 * @return the hex encoded SHA-256 hash of the canonical form of the
+	 *         request
+	 */
+	public static String compute(Execute execute) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		put(hasher, execute.getIdentifier() != null ? execute.getIdentifier().getStringValue().trim() : null);
+
+		List<InputType> inputs = new ArrayList<InputType>();
+		if (execute.getDataInputs() != null) {
+			inputs.addAll(Arrays.asList(execute.getDataInputs().getInputArray()));
+		}
+		// response documents may echo the inputs, so their order only does
+		// not matter for raw data; the sort is stable, inputs with the same
+		// identifier keep their order
+		if (isRawData(execute)) {
+			Collections.sort(inputs, INPUT_COMPARATOR);
+		}
+		hasher.putInt(inputs.size());
+		for (InputType input : inputs) {
+			putInput(hasher, input);
+		}
+
+		putResponseForm(hasher, execute.isSetResponseForm() ? execute.getResponseForm() : null);
+		return hasher.hash().toString();
+	}
+
+	private static boolean isRawData(Execute execute) {
+		return execute.isSetResponseForm() && execute.getResponseForm().isSetRawDataOutput();
+	}
+
+	private static String identifier(InputType input) {
+		return input.getIdentifier() != null ? input.getIdentifier().getStringValue().trim() : "";
+	}
+
+	private static void putInput(Hasher hasher, InputType input) {
+		put(hasher, identifier(input));
+		if (input.isSetReference()) {
+			InputReferenceType reference = input.getReference();
+			put(hasher, "reference");
+			put(hasher, reference.getHref());
+			put(hasher, reference.getMimeType());
+			put(hasher, reference.getEncoding());
+			put(hasher, reference.getSchema());
+			put(hasher, reference.isSetMethod() ? reference.getMethod().toString() : null);
+			InputReferenceType.Header[] headers = reference.getHeaderArray();
+			hasher.putInt(headers.length);
+			for (InputReferenceType.Header header : headers) {
+				put(hasher, header.getKey());
+				put(hasher, header.getValue());
+			}
+			put(hasher, reference.isSetBody() ? reference.getBody().xmlText() : null);
+			put(hasher, reference.isSetBodyReference() ? reference.getBodyReference().getHref() : null);
+		} else if (input.isSetData()) {
+			DataType data = input.getData();
+			if (data.isSetLiteralData()) {
+				LiteralDataType literal = data.getLiteralData();
+				put(hasher, "literal");
+				put(hasher, literal.getStringValue());
+				put(hasher, literal.getDataType());
+				put(hasher, literal.getUom());
+			} else if (data.isSetBoundingBoxData()) {
+				BoundingBoxType bbox = data.getBoundingBoxData();
+				put(hasher, "bbox");
+				put(hasher, bbox.getCrs());
+				put(hasher, bbox.isSetDimensions() ? bbox.getDimensions().toString() : null);
+				put(hasher, String.valueOf(bbox.getLowerCorner()));
+				put(hasher, String.valueOf(bbox.getUpperCorner()));
+			} else if (data.isSetComplexData()) {
+				ComplexDataType complex = data.getComplexData();
+				put(hasher, "complex");
+				put(hasher, complex.getMimeType());
+				put(hasher, complex.getEncoding());
+				put(hasher, complex.getSchema());
+				put(hasher, complex.xmlText());
+			}
+		}
+	}
+
+	private static void putResponseForm(Hasher hasher, ResponseFormType responseForm) {
+		if (responseForm == null) {
+			put(hasher, "default");
+		} else if (responseForm.isSetRawDataOutput()) {
+			put(hasher, "raw");
+			putOutput(hasher, responseForm.getRawDataOutput());
+		} else if (responseForm.isSetResponseDocument()) {
+			ResponseDocumentType document = responseForm.getResponseDocument();
+			put(hasher, "document");
+			hasher.putBoolean(document.getLineage());
+			DocumentOutputDefinitionType[] outputs = document.getOutputArray();
+			hasher.putInt(outputs.length);
+			for (DocumentOutputDefinitionType output : outputs) {
+				putOutput(hasher, output);
+				hasher.putBoolean(output.getAsReference());
+			}
+		}
+	}
+
+	private static void putOutput(Hasher hasher, OutputDefinitionType output) {
+		put(hasher, output.getIdentifier() != null ? output.getIdentifier().getStringValue().trim() : null);
+		put(hasher, output.getMimeType());
+		put(hasher, output.getEncoding());
+		put(hasher, output.getSchema());
+		put(hasher, output.getUom());
+	}
+
+	/**
+	 * Adds a length prefixed value, so that adjacent values cannot be
+	 * confused.
+	 */
+	private static void put(Hasher hasher, String value) {
+		if (value == null) {
+			hasher.putInt(-1);
+		} else {
+			hasher.putInt(value.length());
+			hasher.putString(value, Charsets.UTF_8);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xmlbeans.XmlObject;
+
+/**
+ * Streams the text content of an inline complex value holding base64 encoded
+ * data. The characters are copied chunk wise from the XMLBeans store through
+ * a StAX reader, so the (still encoded) payload is never materialized as a
+ * <code>String</code>. Base64 only uses ASCII characters, each character is
+ * returned as one byte; decoding is left to
+ * {@link org.n52.wps.io.IParser#parseBase64(InputStream, String, String)}.
+ */
+public class InlineBase64InputStream extends InputStream {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final XMLStreamReader reader;
+
+	private final char[] buffer = new char[BUFFER_SIZE];
+
+	private int length;
+
+	private int position;
+
+	/** offset of the next characters to copy from the current text event */
+	private int textOffset = -1;
+
+	public InlineBase64InputStream(XmlObject complexValue) {
+		this.reader = complexValue.newXMLStreamReader();
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return buffer[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int count = Math.min(len, length - position);
+		for (int i = 0; i < count; i++) {
+			b[off + i] = (byte) buffer[position + i];
+		}
+		position += count;
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return length - position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			reader.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * @return <code>false</code> if the end of the content has been reached
+	 */
+	private boolean fill() throws IOException {
+		try {
+			while (position >= length) {
+				if (textOffset >= 0) {
+					length = reader.getTextCharacters(textOffset, buffer, 0, BUFFER_SIZE);
+					position = 0;
+					if (length < BUFFER_SIZE) {
+						// current text event is exhausted
+						textOffset = -1;
+					} else {
+						textOffset += length;
+					}
+					continue;
+				}
+				if (!reader.hasNext()) {
+					return false;
+				}
+				int event = reader.next();
+				if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+					textOffset = 0;
+				}
+			}
+			return true;
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+}
@@ -29,15 +29,12 @@
 package org.n52.wps.server.request;
 
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactoryConfigurationError;
@@ -53,7 +50,7 @@ import net.opengis.wps.x100.InputReferenceType;
 import net.opengis.wps.x100.InputType;
 import net.opengis.wps.x100.ProcessDescriptionType;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.n52.wps.commons.XMLUtil;
 import org.n52.wps.io.BasicXMLTypeFactory;
@@ -74,12 +71,15 @@ import org.n52.wps.server.RepositoryManager;
 import org.n52.wps.server.handler.DataInputInterceptors;
 import org.n52.wps.server.handler.DataInputInterceptors.DataInputInterceptorImplementations;
 import org.n52.wps.server.handler.DataInputInterceptors.InterceptorInstance;
+import org.n52.wps.server.metrics.ExecuteMetrics;
+import org.n52.wps.server.metrics.ExecutePhase;
 import org.n52.wps.server.request.strategy.ReferenceInputStream;
 import org.n52.wps.server.request.strategy.ReferenceStrategyRegister;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Node;
 
+import com.google.common.base.Charsets;
 import com.google.common.primitives.Doubles;
 
 /**
@@ -303,7 +303,6 @@ public class InputHandler {
                 dataEncoding = data.getEncoding();
 
                 complexValueNode =  input.getData().getComplexData().getDomNode();
-                complexValue = getComplexValueNodeString(complexValueNode);
 
                 //select parser
 		//1. mimeType set?
@@ -515,7 +514,14 @@ public class InputHandler {
                     throw new ExceptionReport("Error. No applicable parser found for " + formatSchema + "," + dataMimeType + "," + formatEncoding, ExceptionReport.NO_APPLICABLE_CODE);
 		}
 
-		IData collection = parseComplexValue(formatEncoding, complexValue, dataMimeType, formatSchema, parser);
+		IData collection;
+		if (IOHandler.ENCODING_BASE64.equalsIgnoreCase(formatEncoding)) {
+			// stream inline base64 data instead of serializing the node
+			collection = getBase64EncodedData(data, parser, dataMimeType, formatSchema);
+		} else {
+			complexValue = getComplexValueNodeString(complexValueNode);
+			collection = parseComplexValue(formatEncoding, complexValue, dataMimeType, formatSchema, parser);
+		}
 
 		//enable maxoccurs of parameters with the same name.
                 List<IData> list = new ArrayList<IData>();
@@ -571,7 +577,15 @@ public class InputHandler {
 				if(!complexValueCopy.contains("xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"")){
                                     complexValueCopy = complexValueCopy.replace("xsi:schemaLocation", "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:schemaLocation");
 				}
-				idata = parser.parse(new ByteArrayInputStream(complexValueCopy.getBytes()), dataMimeType, formatSchema);
+				ExecuteMetrics.Timing timing = ExecuteMetrics.getInstance().start(ExecutePhase.PARSE, algorithmIdentifier, parser);
+				try {
+					idata = parser.parse(new ByteArrayInputStream(complexValueCopy.getBytes()), dataMimeType, formatSchema);
+				} catch(RuntimeException e) {
+					timing.fail();
+					throw e;
+				} finally {
+					timing.stop();
+				}
 			} catch(RuntimeException e) {
 				throw new ExceptionReport("Error occured, while XML parsing", ExceptionReport.NO_APPLICABLE_CODE, e);
 			}
@@ -585,31 +599,43 @@ public class InputHandler {
                 return idata;
          }
 
-    //TODO-- Needs testing
     protected IData getBase64EncodedData(String complexValue, IParser parser, String dataMimeType, String formatSchema) throws ExceptionReport {
-        File f = null;
         String complexValueCopy = complexValue.toString();
 
-        try {
-            f = File.createTempFile("wps" + UUID.randomUUID(), "tmp");
-
-            if (complexValueCopy.startsWith("<xml-fragment")) {
-                int startIndex = complexValueCopy.indexOf(">");
-                complexValueCopy = complexValueCopy.substring(startIndex + 1);
-
-                int endIndex = complexValueCopy.indexOf("</xml-fragment");
-                complexValueCopy = complexValueCopy.substring(0, endIndex);
-            }
+        if (complexValueCopy.startsWith("<xml-fragment")) {
+            int startIndex = complexValueCopy.indexOf(">");
+            complexValueCopy = complexValueCopy.substring(startIndex + 1);
 
-            FileUtils.write(f, complexValueCopy);
+            int endIndex = complexValueCopy.indexOf("</xml-fragment");
+            complexValueCopy = complexValueCopy.substring(0, endIndex);
+        }
 
-            return parser.parseBase64(new FileInputStream(f), dataMimeType, formatSchema);
+        ExecuteMetrics.Timing timing = ExecuteMetrics.getInstance().start(ExecutePhase.PARSE, algorithmIdentifier, parser);
+        try {
+            return parser.parseBase64(new ByteArrayInputStream(complexValueCopy.getBytes(Charsets.US_ASCII)), dataMimeType, formatSchema);
+        } catch (RuntimeException e) {
+            timing.fail();
+            throw new ExceptionReport("Error occured, while Base64 extracting", ExceptionReport.NO_APPLICABLE_CODE, e);
+        } finally {
+            timing.stop();
+        }
+    }
 
-        } catch (IOException e) {
+    /**
+     * Decodes inline base64 data while reading it from the request document,
+     * without creating a string or a temporary file of the payload.
+     */
+    protected IData getBase64EncodedData(ComplexDataType complexData, IParser parser, String dataMimeType, String formatSchema) throws ExceptionReport {
+        InputStream stream = new InlineBase64InputStream(complexData);
+        ExecuteMetrics.Timing timing = ExecuteMetrics.getInstance().start(ExecutePhase.PARSE, algorithmIdentifier, parser);
+        try {
+            return parser.parseBase64(stream, dataMimeType, formatSchema);
+        } catch (RuntimeException e) {
+            timing.fail();
             throw new ExceptionReport("Error occured, while Base64 extracting", ExceptionReport.NO_APPLICABLE_CODE, e);
         } finally {
-            FileUtils.deleteQuietly(f);
-            System.gc();
+            timing.stop();
+            IOUtils.closeQuietly(stream);
         }
     }
 
@@ -772,7 +798,16 @@ public class InputHandler {
 		String inputID = input.getIdentifier().getStringValue();
 
 		ReferenceStrategyRegister register = ReferenceStrategyRegister.getInstance();
-		ReferenceInputStream stream = register.resolveReference(input);
+		ReferenceInputStream stream;
+		ExecuteMetrics.Timing fetchTiming = ExecuteMetrics.getInstance().start(ExecutePhase.FETCH, algorithmIdentifier, null);
+		try {
+			stream = register.resolveReference(input);
+		} catch (ExceptionReport e) {
+			fetchTiming.fail();
+			throw e;
+		} finally {
+			fetchTiming.stop();
+		}
 
 		String dataURLString = input.getReference().getHref();
 		//dataURLString = URLDecoder.decode(dataURLString);
@@ -1196,7 +1231,17 @@ public class InputHandler {
 
 
 
-			IData parsedInputData = parser.parse(stream, mimeType, schema);
+			// the reference is read while parsing, so this includes the transfer
+			IData parsedInputData;
+			ExecuteMetrics.Timing parseTiming = ExecuteMetrics.getInstance().start(ExecutePhase.PARSE, algorithmIdentifier, parser);
+			try {
+				parsedInputData = parser.parse(stream, mimeType, schema);
+			} catch (RuntimeException e) {
+				parseTiming.fail();
+				throw e;
+			} finally {
+				parseTiming.stop();
+			}
 
 			//enable maxxoccurs of parameters with the same name.
 			if(inputData.containsKey(inputID)) {
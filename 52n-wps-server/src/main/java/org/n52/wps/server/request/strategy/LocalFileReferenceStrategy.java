@@ -0,0 +1,169 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request.strategy;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import net.opengis.wps.x100.InputType;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.io.LocalFileInputStream;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.database.ContentEncoding;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.FlatFileDatabase;
+import org.n52.wps.server.database.IDatabase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resolves references that point to data already present on this machine
+ * without going through HTTP: results stored by this server (references to the
+ * RetrieveResultServlet) and, if enabled in the configuration, <code>file:</code>
+ * URLs. The returned stream exposes the local file so that file based parsers
+ * can read the data in place.
+ * 
+ * @see org.n52.wps.io.IOUtils#getLocalFile(InputStream)
+ */
+public class LocalFileReferenceStrategy implements IReferenceStrategy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LocalFileReferenceStrategy.class);
+
+	public static final String PROP_fileReferencesEnabled = "fileReferencesEnabled";
+
+	private static final String FILE_SCHEME = "file:";
+
+	private static final String SUFFIX_GZIP = ".gz";
+
+	private final boolean fileReferencesEnabled;
+
+	public LocalFileReferenceStrategy() {
+		Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+		PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+		fileReferencesEnabled = propertyUtil.extractBoolean(PROP_fileReferencesEnabled, false);
+	}
+
+	@Override
+	public boolean isApplicable(InputType input) {
+		if (input.getReference().isSetBody() || input.getReference().isSetBodyReference()) {
+			return false;
+		}
+		String href = input.getReference().getHref();
+		if (href == null) {
+			return false;
+		}
+		if (fileReferencesEnabled && href.startsWith(FILE_SCHEME)) {
+			return true;
+		}
+		return getStoredResultId(href) != null;
+	}
+
+	@Override
+	public ReferenceInputStream fetchData(InputType input) throws ExceptionReport {
+		String href = input.getReference().getHref();
+		String mimeType = input.getReference().getMimeType();
+
+		try {
+			if (href.startsWith(FILE_SCHEME)) {
+				File file = new File(new URI(href));
+				LOGGER.debug("Reading referenced file {} in place", file.getAbsolutePath());
+				return new ReferenceInputStream(new LocalFileInputStream(file), mimeType, null);
+			}
+
+			String id = getStoredResultId(href);
+			IDatabase database = DatabaseFactory.getDatabase();
+			if (mimeType == null) {
+				mimeType = database.getMimeTypeForStoreResponse(id);
+			}
+			File file = database.lookupResponseAsFile(id);
+			if (file != null && file.isFile() && isStoredAsIs(database, id, file)) {
+				LOGGER.debug("Reading stored result {} in place from {}", id, file.getAbsolutePath());
+				return new ReferenceInputStream(new LocalFileInputStream(file), mimeType, null);
+			}
+			InputStream stream = database.lookupResponse(id);
+			if (stream != null) {
+				return new ReferenceInputStream(stream, mimeType, null);
+			}
+		} catch (URISyntaxException e) {
+			throw new ExceptionReport("The inputURL of the execute is wrong: inputID: "
+					+ input.getIdentifier().getStringValue() + " | dataURL: " + href,
+					ExceptionReport.INVALID_PARAMETER_VALUE, e);
+		} catch (IllegalArgumentException e) {
+			throw new ExceptionReport("The inputURL of the execute is wrong: inputID: "
+					+ input.getIdentifier().getStringValue() + " | dataURL: " + href,
+					ExceptionReport.INVALID_PARAMETER_VALUE, e);
+		} catch (FileNotFoundException e) {
+			throw new ExceptionReport("Error occured while receiving the complexReferenceURL: inputID: "
+					+ input.getIdentifier().getStringValue() + " | dataURL: " + href,
+					ExceptionReport.INVALID_PARAMETER_VALUE, e);
+		}
+
+		// not (or no longer) stored locally, let the server answer
+		LOGGER.debug("Stored result for {} not found locally, falling back to HTTP", href);
+		return new DefaultReferenceStrategy().fetchData(input);
+	}
+
+	/**
+	 * @return <code>true</code> if the file holds the stored value itself
+	 *         rather than a compressed copy
+	 */
+	private static boolean isStoredAsIs(IDatabase database, String id, File file) {
+		if (database instanceof FlatFileDatabase) {
+			return ((FlatFileDatabase) database).getContentEncodingForStoreResponse(id) == ContentEncoding.IDENTITY;
+		}
+		return !file.getName().endsWith(SUFFIX_GZIP);
+	}
+
+	/**
+	 * @return the id of the stored result the given href refers to or
+	 *         <code>null</code> if it does not point to this server's results
+	 */
+	private String getStoredResultId(String href) {
+		IDatabase database = DatabaseFactory.getDatabase();
+		if (database == null) {
+			return null;
+		}
+		String baseResultURL = database.generateRetrieveResultURL("");
+		if (baseResultURL == null || !href.startsWith(baseResultURL)) {
+			return null;
+		}
+		String id = href.substring(baseResultURL.length());
+		int parameterIndex = id.indexOf('&');
+		if (parameterIndex >= 0) {
+			id = id.substring(0, parameterIndex);
+		}
+		return id.isEmpty() ? null : id;
+	}
+}
@@ -28,14 +28,17 @@
  */
 package org.n52.wps.server.request.strategy;
 
+import java.io.File;
 import java.io.FilterInputStream;
 import java.io.InputStream;
 
+import org.n52.wps.io.LocalFileStream;
+
 /**
  *
  * @author tkunicki
  */
-public class ReferenceInputStream extends FilterInputStream {
+public class ReferenceInputStream extends FilterInputStream implements LocalFileStream {
     
     private final String mimeType;
     private final String encoding;
@@ -53,4 +56,9 @@ public class ReferenceInputStream extends FilterInputStream {
     public String getEncoding() {
         return encoding;
     }
+
+    @Override
+    public File getLocalFile() {
+        return in instanceof LocalFileStream ? ((LocalFileStream) in).getLocalFile() : null;
+    }
 }
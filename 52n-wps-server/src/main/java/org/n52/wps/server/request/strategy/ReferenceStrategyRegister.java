@@ -52,6 +52,7 @@ public class ReferenceStrategyRegister {
 	private ReferenceStrategyRegister(){
 		registeredStrategies = new ArrayList<IReferenceStrategy>();
 		registeredStrategies.add(new WCS111XMLEmbeddedBase64OutputReferenceStrategy());
+		registeredStrategies.add(new LocalFileReferenceStrategy());
 	}
 	
 	protected void registerStrategy(IReferenceStrategy strategy){
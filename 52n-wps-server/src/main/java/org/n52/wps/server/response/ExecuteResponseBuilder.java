@@ -29,7 +29,10 @@
 package org.n52.wps.server.response;
 
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
@@ -41,6 +44,7 @@ import net.opengis.wps.x100.DocumentOutputDefinitionType;
 import net.opengis.wps.x100.ExecuteResponseDocument;
 import net.opengis.wps.x100.ExecuteResponseDocument.ExecuteResponse;
 import net.opengis.wps.x100.OutputDefinitionType;
+import net.opengis.wps.x100.OutputDataType;
 import net.opengis.wps.x100.OutputDescriptionType;
 import net.opengis.wps.x100.ProcessDescriptionType;
 import net.opengis.wps.x100.StatusType;
@@ -57,6 +61,7 @@ import org.n52.wps.server.ExceptionReport;
 import org.n52.wps.server.RepositoryManager;
 import org.n52.wps.server.WebProcessingService;
 import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.IDatabase;
 import org.n52.wps.server.request.ExecuteRequest;
 import org.n52.wps.server.request.Request;
 import org.n52.wps.util.XMLBeansHelper;
@@ -80,6 +85,8 @@ public class ExecuteResponseBuilder {
 	private ProcessDescriptionType description;
 	private static Logger LOGGER = LoggerFactory.getLogger(ExecuteResponseBuilder.class);
 	private Calendar creationTime;
+	// the outputs of the response document in the requested order
+	private List<PendingOutput> pendingOutputs = new ArrayList<PendingOutput>();
 
 	public ExecuteResponseBuilder(ExecuteRequest request) throws ExceptionReport{
 		this.request = request;
@@ -179,6 +186,7 @@ public class ExecuteResponseBuilder {
 						throw new ExceptionReport("Requested type not supported: BBOX", ExceptionReport.INVALID_PARAMETER_VALUE);
 					}
 				}
+				addPendingOutputs();
 			}
 			else {
 				LOGGER.info("OutputDefinitions are not stated explicitly in request");
@@ -203,6 +211,7 @@ public class ExecuteResponseBuilder {
 						generateLiteralDataOutput(d[i].getIdentifier().getStringValue(), doc, false, d[i].getLiteralOutput().getDataType().getReference(), null, null, null, d[i].getTitle());
 					}
 				}
+				addPendingOutputs();
 			}
 		} else if(request.isStoreResponse()) {
 			responseElem.setStatusLocation(DatabaseFactory.getDatabase().generateRetrieveResultURL((request.getUniqueId()).toString()));
@@ -316,44 +325,128 @@ public class ExecuteResponseBuilder {
 		return mimeType;
 	}
 
-	private void generateComplexDataOutput(String responseID, boolean asReference, boolean rawData, String schema, String mimeType, String encoding, LanguageStringType title) throws ExceptionReport{
+	private void generateComplexDataOutput(String responseID, boolean asReference, boolean rawData, String schema, final String mimeType, String encoding, LanguageStringType title) throws ExceptionReport{
 		IData obj = request.getAttachedResult().get(responseID);
 		if(rawData) {
 			rawDataHandler = new RawData(obj, responseID, schema, encoding, mimeType, this.identifier, description);
 		}
 		else {
-			OutputDataItem handler = new OutputDataItem(obj, responseID, schema, encoding, mimeType, title, this.identifier, description);
+			final OutputDataItem handler = new OutputDataItem(obj, responseID, schema, encoding, mimeType, title, this.identifier, description);
+			final String reqID = request.getUniqueId().toString();
 			if(asReference) {
-				handler.updateResponseAsReference(doc, (request.getUniqueId()).toString(),mimeType);
+				pendingOutputs.add(new PendingOutput(true) {
+					void generate() throws ExceptionReport {
+						handler.generateReference(reqID);
+					}
+					void addTo(ExecuteResponseDocument res) {
+						handler.addReference(res, mimeType);
+					}
+				});
 			}
 			else {
-				handler.updateResponseForInlineComplexData(doc);
+				pendingOutputs.add(new PendingOutput(true) {
+					void generate() throws ExceptionReport {
+						handler.generateInlineComplexData();
+					}
+					void addTo(ExecuteResponseDocument res) {
+						handler.addInlineComplexData(res);
+					}
+				});
 			}
 		}
 
 	}
 
-	private void generateLiteralDataOutput(String responseID, ExecuteResponseDocument res, boolean rawData, String dataTypeReference, String schema, String mimeType, String encoding, LanguageStringType title) throws ExceptionReport {
+	private void generateLiteralDataOutput(String responseID, ExecuteResponseDocument res, boolean rawData, final String dataTypeReference, String schema, String mimeType, String encoding, LanguageStringType title) throws ExceptionReport {
 		IData obj = request.getAttachedResult().get(responseID);
 		if(rawData) {
 			rawDataHandler = new RawData(obj, responseID, schema, encoding, mimeType, this.identifier, description);
 		}else{
-			OutputDataItem handler = new OutputDataItem(obj, responseID, schema, encoding, mimeType, title, this.identifier, description);
-			handler.updateResponseForLiteralData(res, dataTypeReference);
+			final OutputDataItem handler = new OutputDataItem(obj, responseID, schema, encoding, mimeType, title, this.identifier, description);
+			pendingOutputs.add(new PendingOutput(false) {
+				void addTo(ExecuteResponseDocument res) {
+					handler.updateResponseForLiteralData(res, dataTypeReference);
+				}
+			});
 		}
 	}
 
 	private void generateBBOXOutput(String responseID, ExecuteResponseDocument res, boolean rawData, LanguageStringType title) throws ExceptionReport {
-        IBBOXData obj = (IBBOXData) request.getAttachedResult().get(responseID);
+        final IBBOXData obj = (IBBOXData) request.getAttachedResult().get(responseID);
 		if(rawData) {
 			rawDataHandler = new RawData(obj, responseID, null, null, null, this.identifier, description);
 		}else{
-			OutputDataItem handler = new OutputDataItem(obj, responseID, null, null, null, title, this.identifier, description);
-			handler.updateResponseForBBOXData(res, obj);
+			final OutputDataItem handler = new OutputDataItem(obj, responseID, null, null, null, title, this.identifier, description);
+			pendingOutputs.add(new PendingOutput(false) {
+				void addTo(ExecuteResponseDocument res) {
+					handler.updateResponseForBBOXData(res, obj);
+				}
+			});
 		}
 
 	}
 
+	/**
+	 * Generates and stores the complex outputs concurrently, then adds all
+	 * outputs to the response in the requested order. The outputs generated
+	 * before a failure are added as well, so that their stored values can be
+	 * discarded.
+	 */
+	private void addPendingOutputs() throws ExceptionReport {
+		List<PendingOutput> complexOutputs = new ArrayList<PendingOutput>();
+		for (PendingOutput output : pendingOutputs) {
+			if (output.isGenerated()) {
+				complexOutputs.add(output);
+			}
+		}
+		try {
+			OutputExecutor.getInstance().invokeAll(complexOutputs);
+		} finally {
+			for (PendingOutput output : pendingOutputs) {
+				if (output.isDone()) {
+					output.addTo(doc);
+				}
+			}
+			pendingOutputs.clear();
+		}
+	}
+
+	/**
+	 * An output that is added to the response once all outputs are generated.
+	 * Complex outputs override {@link #generate()} to generate (and store)
+	 * their value without touching the response.
+	 */
+	private abstract static class PendingOutput implements Callable<Void> {
+
+		private final boolean generated;
+
+		private volatile boolean done;
+
+		PendingOutput(boolean generated) {
+			this.generated = generated;
+			this.done = !generated;
+		}
+
+		public final Void call() throws ExceptionReport {
+			generate();
+			done = true;
+			return null;
+		}
+
+		boolean isGenerated() {
+			return generated;
+		}
+
+		boolean isDone() {
+			return done;
+		}
+
+		void generate() throws ExceptionReport {
+		}
+
+		abstract void addTo(ExecuteResponseDocument res);
+	}
+
 	public InputStream getAsStream() throws ExceptionReport{
 		if(request.isRawData() && rawDataHandler != null) {
 			return rawDataHandler.getAsStream();
@@ -371,6 +464,33 @@ public class ExecuteResponseBuilder {
 		}
 	}
 
+	/**
+	 * Deletes the complex values already stored for the outputs of this
+	 * response and removes the outputs from the response. Used when the
+	 * execution is dismissed after some of its outputs have been stored.
+	 */
+	public void discardStoredOutputs() {
+		ExecuteResponse responseElem = doc.getExecuteResponse();
+		if (!responseElem.isSetProcessOutputs()) {
+			return;
+		}
+		IDatabase database = DatabaseFactory.getDatabase();
+		String baseURL = database.generateRetrieveResultURL("");
+		for (OutputDataType output : responseElem.getProcessOutputs().getOutputArray()) {
+			if (!output.isSetReference()) {
+				continue;
+			}
+			String href = output.getReference().getHref().replace("%23", "#");
+			if (href.startsWith(baseURL)) {
+				String id = href.substring(baseURL.length());
+				if (!database.deleteStoredResponse(id)) {
+					LOGGER.warn("Could not delete the stored output {}", id);
+				}
+			}
+		}
+		responseElem.unsetProcessOutputs();
+	}
+
 	public void setStatus(StatusType status) {
 		//workaround, should be generated either at the creation of the document or when the process has been finished.
 		status.setCreationTime(creationTime);
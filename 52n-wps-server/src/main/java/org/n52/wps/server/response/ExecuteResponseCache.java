@@ -0,0 +1,325 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.response;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import net.opengis.wps.x100.DocumentOutputDefinitionType;
+import net.opengis.wps.x100.ResponseFormType;
+
+import org.apache.commons.io.IOUtils;
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.AbstractDescriptorAlgorithm;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.IAlgorithm;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.IDatabase;
+import org.n52.wps.server.request.ExecuteRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memoizes the responses of synchronous Execute requests for deterministic
+ * processes. Entries are keyed by the canonical hash of the request (see
+ * {@link org.n52.wps.server.request.ExecuteRequestHash}); the encoded
+ * responses themselves are kept in the configured {@link IDatabase}, only a
+ * small LRU index is held in memory. Responses are stored under a random id
+ * known only to the index, as the hash can be computed by anyone who knows
+ * the request and stored responses can be retrieved by their id.
+ * 
+ * A process is deterministic if it is annotated with
+ * <code>@Algorithm(deterministic = true)</code> or listed in the
+ * <code>resultCache.deterministicProcesses</code> server property. The cache
+ * is disabled by default.
+ */
+public class ExecuteResponseCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ExecuteResponseCache.class);
+
+	public static final String PROPERTY_ENABLED = "resultCache.enabled";
+
+	public static final String PROPERTY_TTL = "resultCache.ttl";
+
+	public static final String PROPERTY_MAX_ENTRIES = "resultCache.maxEntries";
+
+	public static final String PROPERTY_MAX_BYTES = "resultCache.maxBytes";
+
+	public static final String PROPERTY_DETERMINISTIC_PROCESSES = "resultCache.deterministicProcesses";
+
+	private static final String TYPE = "ExecuteResponse";
+
+	private static ExecuteResponseCache instance;
+
+	private final boolean enabled;
+
+	private final long ttl;
+
+	private final int maxEntries;
+
+	private final long maxBytes;
+
+	private final Set<String> deterministicProcesses;
+
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private long bytes;
+
+	public static synchronized ExecuteResponseCache getInstance() {
+		if (instance == null) {
+			Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+			PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+			Set<String> processes = new HashSet<String>();
+			for (String process : propertyUtil.extractString(PROPERTY_DETERMINISTIC_PROCESSES, "").split(",")) {
+				if (!process.trim().isEmpty()) {
+					processes.add(process.trim());
+				}
+			}
+			instance = new ExecuteResponseCache(
+					propertyUtil.extractBoolean(PROPERTY_ENABLED, false),
+					propertyUtil.extractPeriodAsMillis(PROPERTY_TTL, 60 * 60 * 1000),
+					(int) propertyUtil.extractLong(PROPERTY_MAX_ENTRIES, 1000),
+					propertyUtil.extractLong(PROPERTY_MAX_BYTES, 256 * 1024 * 1024),
+					processes);
+		}
+		return instance;
+	}
+
+	/**
+	 * @param ttl
+	 *            time in milliseconds a response is served from the cache
+	 * @param maxEntries
+	 *            maximum number of cached responses
+	 * @param maxBytes
+	 *            maximum summed size of the cached responses
+	 * @param deterministicProcesses
+	 *            identifiers of processes that are deterministic in addition
+	 *            to the annotated ones
+	 */
+	public ExecuteResponseCache(boolean enabled, long ttl, int maxEntries, long maxBytes, Set<String> deterministicProcesses) {
+		this.enabled = enabled;
+		this.ttl = ttl;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.deterministicProcesses = deterministicProcesses;
+		if (enabled) {
+			LOGGER.info("Result cache enabled, ttl {} ms, at most {} entries and {} bytes", ttl, maxEntries, maxBytes);
+		}
+	}
+
+	/**
+	 * Responses can only be cached if they do not refer to the request that
+	 * produced them: stored responses contain a status location and outputs
+	 * returned as reference point to results stored for that request, so
+	 * both are excluded.
+	 * 
+	 * @return <code>true</code> if the response to the given request may be
+	 *         served from and stored in the cache
+	 */
+	public boolean isCacheable(ExecuteRequest request, IAlgorithm algorithm) {
+		if (!enabled || request.isStoreResponse()) {
+			return false;
+		}
+		if (!isDeterministic(request.getAlgorithmIdentifier(), algorithm)) {
+			return false;
+		}
+		ResponseFormType responseForm = request.getExecute().getResponseForm();
+		if (responseForm != null && responseForm.isSetResponseDocument()) {
+			for (DocumentOutputDefinitionType output : responseForm.getResponseDocument().getOutputArray()) {
+				if (output.getAsReference()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether a process is deterministic, regardless of whether the
+	 * cache is enabled.
+	 * 
+	 * @return <code>true</code> if the algorithm is annotated as deterministic
+	 *         or its identifier is listed in the
+	 *         <code>resultCache.deterministicProcesses</code> property
+	 */
+	public boolean isDeterministic(String identifier, IAlgorithm algorithm) {
+		return deterministicProcesses.contains(identifier)
+				|| (algorithm instanceof AbstractDescriptorAlgorithm && ((AbstractDescriptorAlgorithm) algorithm).isDeterministic());
+	}
+
+	/**
+	 * @return the cached response for the request or <code>null</code> if
+	 *         there is none or it has expired
+	 */
+	public Response get(ExecuteRequest request) throws ExceptionReport {
+		String hash = request.getCanonicalHash();
+		Entry entry;
+		Entry expired = null;
+		synchronized (this) {
+			entry = entries.get(hash);
+			if (entry != null && System.currentTimeMillis() - entry.created > ttl) {
+				expired = remove(hash);
+				entry = null;
+			}
+		}
+		if (entry == null) {
+			delete(expired);
+			return null;
+		}
+		InputStream stream = DatabaseFactory.getDatabase().lookupResponse(entry.storedId);
+		if (stream == null) {
+			// wiped from the database in the meantime
+			synchronized (this) {
+				if (entries.get(hash) == entry) {
+					entries.remove(hash);
+					bytes -= Math.max(entry.length, 0);
+				}
+			}
+			return null;
+		}
+		LOGGER.debug("Serving response for {} from the result cache", request.getAlgorithmIdentifier());
+		return new CachedExecuteResponse(request, stream, entry.mimeType);
+	}
+
+	/**
+	 * Stores the encoded response of the request.
+	 * 
+	 * @return the stored copy of the response or <code>null</code> if it could
+	 *         not be stored, in which case the caller has to create the
+	 *         response again
+	 */
+	public Response put(ExecuteRequest request, ExecuteResponse response) {
+		IDatabase database = DatabaseFactory.getDatabase();
+		String hash = request.getCanonicalHash();
+		String mimeType = response.getMimeType();
+		InputStream stream = null;
+		try {
+			stream = response.getAsStream();
+			String url = database.storeComplexValue(UUID.randomUUID().toString(), stream, TYPE, mimeType);
+			String storedId = getStoredId(url);
+			if (storedId == null) {
+				return null;
+			}
+			long length = database.getContentLengthForStoreResponse(storedId);
+			List<Entry> released = new ArrayList<Entry>();
+			synchronized (this) {
+				Entry replaced = remove(hash);
+				if (replaced != null && !replaced.storedId.equals(storedId)) {
+					released.add(replaced);
+				}
+				entries.put(hash, new Entry(storedId, mimeType, System.currentTimeMillis(), length));
+				bytes += Math.max(length, 0);
+				evict(released);
+			}
+			// deleting may take a while, so it is done outside of the lock
+			for (Entry entry : released) {
+				delete(entry);
+			}
+			InputStream stored = database.lookupResponse(storedId);
+			return stored == null ? null : new CachedExecuteResponse(request, stored, mimeType);
+		} catch (Exception e) {
+			LOGGER.warn("Could not cache response for " + request.getAlgorithmIdentifier(), e);
+			return null;
+		} finally {
+			IOUtils.closeQuietly(stream);
+		}
+	}
+
+	private String getStoredId(String url) {
+		String baseResultURL = DatabaseFactory.getDatabase().generateRetrieveResultURL("");
+		if (url == null || baseResultURL == null || !url.startsWith(baseResultURL)) {
+			LOGGER.warn("Cannot resolve stored response {}, not caching it", url);
+			return null;
+		}
+		return url.substring(baseResultURL.length());
+	}
+
+	/**
+	 * Removes the eldest entries until the limits are met. Must hold the lock,
+	 * the evicted entries are added to the given list for deletion.
+	 */
+	private void evict(List<Entry> evicted) {
+		Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+		while ((entries.size() > maxEntries || bytes > maxBytes) && iterator.hasNext()) {
+			Entry eldest = iterator.next().getValue();
+			iterator.remove();
+			bytes -= Math.max(eldest.length, 0);
+			evicted.add(eldest);
+		}
+	}
+
+	/**
+	 * Removes an entry from the index. Must hold the lock.
+	 * 
+	 * @return the removed entry, whose stored response is still to be deleted
+	 */
+	private Entry remove(String hash) {
+		Entry entry = entries.remove(hash);
+		if (entry != null) {
+			bytes -= Math.max(entry.length, 0);
+		}
+		return entry;
+	}
+
+	/**
+	 * Deletes the stored response of a removed entry. Must not hold the lock.
+	 */
+	private void delete(Entry entry) {
+		if (entry != null) {
+			DatabaseFactory.getDatabase().deleteStoredResponse(entry.storedId);
+		}
+	}
+
+	private static class Entry {
+
+		private final String storedId;
+
+		private final String mimeType;
+
+		private final long created;
+
+		private final long length;
+
+		Entry(String storedId, String mimeType, long created, long length) {
+			this.storedId = storedId;
+			this.mimeType = mimeType;
+			this.created = created;
+			this.length = length;
+		}
+	}
+}
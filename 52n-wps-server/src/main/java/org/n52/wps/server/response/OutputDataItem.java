@@ -63,6 +63,9 @@ import org.n52.wps.io.data.binding.literal.AbstractLiteralDataBinding;
 import org.n52.wps.server.ExceptionReport;
 import org.n52.wps.server.database.DatabaseFactory;
 import org.n52.wps.server.database.IDatabase;
+import org.n52.wps.server.metrics.ExecuteMetrics;
+import org.n52.wps.server.metrics.ExecutePhase;
+import org.n52.wps.server.metrics.TimedInputStream;
 
 import com.google.common.primitives.Doubles;
 
@@ -75,6 +78,9 @@ public class OutputDataItem extends ResponseData {
 	private static final Logger LOGGER = LoggerFactory.getLogger(OutputDataItem.class);
 	private static final String COMPLEX_DATA_TYPE = "ComplexDataResponse";
 	private LanguageStringType title;
+	// the generated output until it is added to the response
+	private XmlObject complexValue;
+	private String storeReference;
 
 	/**
 	 *
@@ -100,12 +106,22 @@ public class OutputDataItem extends ResponseData {
 	 * @throws ExceptionReport
 	 */
 	public void updateResponseForInlineComplexData(ExecuteResponseDocument res) throws ExceptionReport {
-		OutputDataType output = prepareOutput(res);
-		prepareGenerator();
-		ComplexDataType complexData = null;
+		generateInlineComplexData();
+		addInlineComplexData(res);
+	}
 
+	/**
+	 * Generates the inline complex value without touching the response, so
+	 * that several outputs can be generated concurrently.
+	 * 
+	 * @throws ExceptionReport
+	 */
+	public void generateInlineComplexData() throws ExceptionReport {
+		prepareGenerator();
 
 
+		// the generated stream is read lazily, so time it until it is consumed
+		ExecuteMetrics.Timing timing = ExecuteMetrics.getInstance().start(ExecutePhase.GENERATE, algorithmIdentifier, generator);
 		try {
 			// CHECKING IF STORE IS TRUE AND THEN PROCESSING.... SOMEHOW!
 			// CREATING A COMPLEXVALUE
@@ -131,9 +147,8 @@ public class OutputDataItem extends ResponseData {
 			else {
 				throw new ExceptionReport("Unable to generate encoding " + encoding, ExceptionReport.NO_APPLICABLE_CODE);
 			}
-			complexData = output.addNewData().addNewComplexData();
 			if(mimeType.contains("xml") || mimeType.contains("XML")){
-				complexData.set(XmlObject.Factory.parse(stream));
+				complexValue = XmlObject.Factory.parse(stream);
 				stream.close();
 			}else{
 				DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
@@ -144,21 +159,42 @@ public class OutputDataItem extends ResponseData {
 				String text = baos.toString();
 				baos.close();
 				Node dataNode = document.createTextNode(text);
-				complexData.set(XmlObject.Factory.parse(dataNode));
+				complexValue = XmlObject.Factory.parse(dataNode);
 			}
 
 		} catch(RuntimeException e) {
+			timing.fail();
 			LOGGER.error(e.getMessage(), e);
 			throw new ExceptionReport("Could not create Inline Complex Data from the process result", ExceptionReport.NO_APPLICABLE_CODE, e);
 		} catch (IOException e) {
+			timing.fail();
 			LOGGER.error(e.getMessage(), e);
 			throw new ExceptionReport("Could not create Inline Complex Data from the process result", ExceptionReport.NO_APPLICABLE_CODE, e);
 		} catch (XmlException e) {
+			timing.fail();
 			LOGGER.error(e.getMessage(), e);
 			throw new ExceptionReport("Could not create Inline Complex Data from the process result. Check encoding (base64 for inline binary data or UTF-8 for XML based data)", ExceptionReport.NO_APPLICABLE_CODE, e);
 		} catch (ParserConfigurationException e) {
+			timing.fail();
 			LOGGER.error(e.getMessage(), e);
 			throw new ExceptionReport("Could not create Inline Base64 Complex Data from the process result", ExceptionReport.NO_APPLICABLE_CODE, e);
+		} finally {
+			timing.stop();
+		}
+	}
+
+	/**
+	 * Adds the complex value generated by {@link #generateInlineComplexData()}
+	 * to the response.
+	 * 
+	 * @param res
+	 */
+	public void addInlineComplexData(ExecuteResponseDocument res) {
+		OutputDataType output = prepareOutput(res);
+		ComplexDataType complexData = null;
+		if (complexValue != null) {
+			complexData = output.addNewData().addNewComplexData();
+			complexData.set(complexValue);
 		}
 
 		if (complexData != null) {
@@ -192,23 +228,28 @@ public class OutputDataItem extends ResponseData {
 	}
 
 	public void updateResponseAsReference(ExecuteResponseDocument res, String reqID, String mimeType) throws ExceptionReport {
+		generateReference(reqID);
+		addReference(res, mimeType);
+	}
+
+	/**
+	 * Generates the complex value and stores it in the database without
+	 * touching the response, so that several outputs can be generated and
+	 * stored concurrently.
+	 * 
+	 * @param reqID
+	 * @throws ExceptionReport
+	 */
+	public void generateReference(String reqID) throws ExceptionReport {
 		prepareGenerator();
-		OutputDataType output = prepareOutput(res);
 		InputStream stream;
 
-		OutputReferenceType outReference = output.addNewReference();
-		if (schema != null) {
-			outReference.setSchema(schema);
-		}
-		if (encoding != null) {
-			outReference.setEncoding(encoding);
-		}
-		if (mimeType != null) {
-			outReference.setMimeType(mimeType);
-		}
 		IDatabase db = DatabaseFactory.getDatabase();
 		String storeID = reqID + "" + id;
 
+		// the generated stream may be produced lazily while it is stored, so
+		// the generation is timed until the database has consumed it
+		ExecuteMetrics.Timing generateTiming = ExecuteMetrics.getInstance().start(ExecutePhase.GENERATE, algorithmIdentifier, generator);
 		try {
 			if (encoding == null || encoding.equals("") || encoding.equalsIgnoreCase(IOHandler.DEFAULT_ENCODING)){
 				stream = generator.generateStream(super.obj, mimeType, schema);
@@ -220,17 +261,56 @@ public class OutputDataItem extends ResponseData {
 			}
 
 			else {
+				generateTiming.fail();
 				throw new ExceptionReport("Unable to generate encoding " + encoding, ExceptionReport.NO_APPLICABLE_CODE);
 			}
 		}
 		catch (IOException e){
+			generateTiming.fail();
 			LOGGER.error(e.getMessage(), e);
 			throw new ExceptionReport("Error while generating Complex Data out of the process result", ExceptionReport.NO_APPLICABLE_CODE, e);
 		}
+		catch (RuntimeException e){
+			generateTiming.fail();
+			throw e;
+		}
+		stream = new TimedInputStream(stream, generateTiming);
 
-		String storeReference = db.storeComplexValue(storeID, stream, COMPLEX_DATA_TYPE, mimeType);
-		storeReference = storeReference.replace("#", "%23");
-		outReference.setHref(storeReference);
+		// includes the remainder of the generation if the generator streams lazily
+		ExecuteMetrics.Timing storeTiming = ExecuteMetrics.getInstance().start(ExecutePhase.STORE, algorithmIdentifier, db);
+		try {
+			storeReference = db.storeComplexValue(storeID, stream, COMPLEX_DATA_TYPE, mimeType);
+		} catch (RuntimeException e) {
+			storeTiming.fail();
+			generateTiming.fail();
+			throw e;
+		} finally {
+			storeTiming.stop();
+			// databases that do not read the stream to its end or close it
+			generateTiming.stop();
+		}
+	}
+
+	/**
+	 * Adds the reference stored by {@link #generateReference(String)} to the
+	 * response.
+	 * 
+	 * @param res
+	 * @param mimeType
+	 */
+	public void addReference(ExecuteResponseDocument res, String mimeType) {
+		OutputDataType output = prepareOutput(res);
+		OutputReferenceType outReference = output.addNewReference();
+		if (schema != null) {
+			outReference.setSchema(schema);
+		}
+		if (encoding != null) {
+			outReference.setEncoding(encoding);
+		}
+		if (mimeType != null) {
+			outReference.setMimeType(mimeType);
+		}
+		outReference.setHref(storeReference.replace("#", "%23"));
 		// MSS:  05-02-2009 changed default output type to text/xml to be certain that the calling application doesn't
 		// serve the wrong type as it is a reference in this case.
 		this.mimeType = "text/xml";
@@ -0,0 +1,197 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.n52.wps.ServerDocument.Server;
+import org.n52.wps.commons.PropertyUtil;
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.server.ExceptionReport;
+
+/**
+ * Generates and stores the outputs of an Execute response concurrently, so
+ * that a process with several large outputs is answered in about the time of
+ * its slowest output. The pool is shared by all requests and bounded by the
+ * <code>outputs.threads</code> server property; when its queue is full, the
+ * requesting thread generates the output itself.
+ */
+public class OutputExecutor extends ThreadPoolExecutor {
+
+	public static final String PROPERTY_THREADS = "outputs.threads";
+
+	private static OutputExecutor instance;
+
+	private final int threads;
+
+	public static synchronized OutputExecutor getInstance() {
+		if (instance == null) {
+			Server server = WPSConfig.getInstance().getWPSConfig().getServer();
+			PropertyUtil propertyUtil = new PropertyUtil(server.getPropertyArray());
+			instance = new OutputExecutor((int) propertyUtil.extractLong(PROPERTY_THREADS,
+					Runtime.getRuntime().availableProcessors()));
+		}
+		return instance;
+	}
+
+	/**
+	 * @param threads
+	 *            maximum number of outputs generated at a time, 1 generates
+	 *            them one after another on the requesting thread
+	 */
+	public OutputExecutor(int threads) {
+		super(Math.max(1, threads), Math.max(1, threads), 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(Math.max(1, threads) * 4),
+				new GeneratorThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+		this.threads = threads;
+		allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Runs the tasks concurrently with the execution context of the calling
+	 * thread and waits for all of them. The first task is run by the calling
+	 * thread.
+	 * 
+	 * @throws ExceptionReport
+	 *             the failure of the first failed task in the given order
+	 */
+	public void invokeAll(List<? extends Callable<Void>> tasks) throws ExceptionReport {
+		if (threads <= 1 || tasks.size() <= 1) {
+			for (Callable<Void> task : tasks) {
+				call(task);
+			}
+			return;
+		}
+		ExecutionContext context = ExecutionContextFactory.getContext(false);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>(tasks.size());
+		for (Callable<Void> task : tasks.subList(1, tasks.size())) {
+			futures.add(submit(new ContextCallable(task, context)));
+		}
+		ExceptionReport failure = null;
+		try {
+			call(tasks.get(0));
+		} catch (ExceptionReport e) {
+			failure = e;
+		}
+		try {
+			for (Future<Void> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = toExceptionReport(e.getCause());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			for (Future<Void> future : futures) {
+				future.cancel(true);
+			}
+			Thread.currentThread().interrupt();
+			throw new ExceptionReport("Interrupted while generating the outputs", ExceptionReport.NO_APPLICABLE_CODE, e);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static void call(Callable<Void> task) throws ExceptionReport {
+		try {
+			task.call();
+		} catch (Exception e) {
+			throw toExceptionReport(e);
+		}
+	}
+
+	private static ExceptionReport toExceptionReport(Throwable t) {
+		if (t instanceof ExceptionReport) {
+			return (ExceptionReport) t;
+		}
+		return new ExceptionReport("Could not generate the output", ExceptionReport.NO_APPLICABLE_CODE, t);
+	}
+
+	/**
+	 * Registers the execution context of the request on the pool thread, the
+	 * generators may depend on it.
+	 */
+	private static class ContextCallable implements Callable<Void> {
+
+		private final Callable<Void> task;
+
+		private final ExecutionContext context;
+
+		ContextCallable(Callable<Void> task, ExecutionContext context) {
+			this.task = task;
+			this.context = context;
+		}
+
+		@Override
+		public Void call() throws Exception {
+			// the calling thread runs the task itself when the queue is full
+			ExecutionContext previous = ExecutionContextFactory.getContext(false);
+			boolean registered = context != null && previous != context;
+			if (registered) {
+				ExecutionContextFactory.registerContext(context);
+			}
+			try {
+				return task.call();
+			} finally {
+				if (registered && previous != null) {
+					ExecutionContextFactory.registerContext(previous);
+				} else if (registered) {
+					ExecutionContextFactory.unregisterContext();
+				}
+			}
+		}
+	}
+
+	private static class GeneratorThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "OutputGenerator-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
@@ -40,6 +40,9 @@ import org.n52.wps.io.data.IComplexData;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.io.data.ILiteralData;
 import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.metrics.ExecuteMetrics;
+import org.n52.wps.server.metrics.ExecutePhase;
+import org.n52.wps.server.metrics.TimedInputStream;
 import org.n52.wps.util.XMLBeansHelper;
 
 import com.google.common.base.Charsets;
@@ -100,12 +103,19 @@ public class RawData extends ResponseData {
                 return new ByteArrayInputStream(builder.toString().getBytes(Charsets.UTF_8));
             }
             //complexdata
-            if(encoding == null || "".equals(encoding) || encoding.equalsIgnoreCase(IOHandler.DEFAULT_ENCODING)){
-                return generator.generateStream(obj, mimeType, schema);
-            }
-            else if(encoding.equalsIgnoreCase(IOHandler.ENCODING_BASE64)){
-                return generator.generateBase64Stream(obj, mimeType, schema);
+            // the generated stream may be produced lazily, so it is timed until it is consumed
+            ExecuteMetrics.Timing timing = ExecuteMetrics.getInstance().start(ExecutePhase.GENERATE, algorithmIdentifier, generator);
+            try {
+                if(encoding == null || "".equals(encoding) || encoding.equalsIgnoreCase(IOHandler.DEFAULT_ENCODING)){
+                    return new TimedInputStream(generator.generateStream(obj, mimeType, schema), timing);
+                }
+                else if(encoding.equalsIgnoreCase(IOHandler.ENCODING_BASE64)){
+                    return new TimedInputStream(generator.generateBase64Stream(obj, mimeType, schema), timing);
 
+                }
+            } catch (IOException | RuntimeException e) {
+                timing.fail();
+                throw e;
             }
         } catch (IOException e) {
             throw new ExceptionReport("Error while generating Complex Data out of the process result", ExceptionReport.NO_APPLICABLE_CODE, e);
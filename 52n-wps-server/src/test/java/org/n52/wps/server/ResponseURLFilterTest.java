@@ -0,0 +1,105 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.servlet.ServletOutputStream;
+
+import org.junit.Test;
+
+public class ResponseURLFilterTest {
+
+    private static final String CONFIG_URL = "http://localhost:8080/wps";
+
+    private static final String REQUEST_URL = "https://example.org/processing/wps";
+
+    private static String filter(String content, int chunkSize) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ServletOutputStream target = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        };
+        ResponseURLFilter.ServletOutputStreamWrapper stream = new ResponseURLFilter.ServletOutputStreamWrapper(target, CONFIG_URL, REQUEST_URL);
+        byte[] data = content.getBytes("UTF-8");
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            stream.write(data, offset, Math.min(chunkSize, data.length - offset));
+        }
+        stream.close();
+        return bytes.toString("UTF-8");
+    }
+
+    private static String expected(String content) {
+        return content.replace(CONFIG_URL, REQUEST_URL);
+    }
+
+    @Test
+    public void testMatchesSpanningBuffers() throws IOException {
+        String content = "<a href=\"" + CONFIG_URL + "/RetrieveResultServlet?id=1\"/>" + CONFIG_URL + CONFIG_URL;
+        for (int chunkSize = 1; chunkSize <= content.length(); chunkSize++) {
+            assertEquals("chunk size " + chunkSize, expected(content), filter(content, chunkSize));
+        }
+    }
+
+    @Test
+    public void testPartialMatches() throws IOException {
+        // prefixes of the URL that restart a match, and a prefix at the end
+        String content = "hhttp://http://localhost:8080/wpshttp://localhost:8080/wphttp://localhost:8080/wps/x http://local";
+        for (int chunkSize = 1; chunkSize <= content.length(); chunkSize++) {
+            assertEquals("chunk size " + chunkSize, expected(content), filter(content, chunkSize));
+        }
+    }
+
+    @Test
+    public void testRandomContent() throws IOException {
+        Random random = new Random(42);
+        String[] parts = { CONFIG_URL, "http://", "http://localhost:8080/", "h", "<x/>", "wps" };
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            content.append(parts[random.nextInt(parts.length)]);
+        }
+        for (int chunkSize : new int[] { 1, 7, 64, 8192 }) {
+            assertEquals(expected(content.toString()), filter(content.toString(), chunkSize));
+        }
+    }
+
+    @Test
+    public void testFailureFunction() {
+        int[] failure = ResponseURLFilter.ServletOutputStreamWrapper.computeFailure("abacabab".getBytes());
+        assertEquals("[0, 0, 1, 0, 1, 2, 3, 2]", Arrays.toString(failure));
+    }
+
+}
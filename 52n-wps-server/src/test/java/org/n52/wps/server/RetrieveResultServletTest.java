@@ -0,0 +1,116 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+public class RetrieveResultServletTest {
+
+    private static HttpServletRequest createRequest(final String ifNoneMatch) {
+        return (HttpServletRequest) Proxy.newProxyInstance(RetrieveResultServletTest.class.getClassLoader(),
+                new Class< ? >[] {HttpServletRequest.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getHeader") && "If-None-Match".equals(args[0])) {
+                            return ifNoneMatch;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * @return a response recording its headers, and its status as header
+     *         "status"
+     */
+    private static HttpServletResponse createResponse(final Map<String, String> headers) {
+        return (HttpServletResponse) Proxy.newProxyInstance(RetrieveResultServletTest.class.getClassLoader(),
+                new Class< ? >[] {HttpServletResponse.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("setHeader")) {
+                            headers.put((String) args[0], (String) args[1]);
+                        } else if (method.getName().equals("setStatus")) {
+                            headers.put("status", String.valueOf(args[0]));
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    @Test
+    public void testNotModified() {
+        Map<String, String> headers = new HashMap<String, String>();
+        assertTrue(RetrieveResultServlet.isNotModified("abc", createRequest("\"abc\""), createResponse(headers)));
+        assertEquals("\"abc\"", headers.get("ETag"));
+        assertEquals("304", headers.get("status"));
+    }
+
+    @Test
+    public void testModified() {
+        Map<String, String> headers = new HashMap<String, String>();
+        assertFalse(RetrieveResultServlet.isNotModified("abc", createRequest("\"def\""), createResponse(headers)));
+        assertEquals("\"abc\"", headers.get("ETag"));
+        assertNull(headers.get("status"));
+
+        headers.clear();
+        assertFalse(RetrieveResultServlet.isNotModified("abc", createRequest(null), createResponse(headers)));
+        assertEquals("\"abc\"", headers.get("ETag"));
+        assertNull(headers.get("status"));
+    }
+
+    @Test
+    public void testUnknownDigest() {
+        Map<String, String> headers = new HashMap<String, String>();
+        assertFalse(RetrieveResultServlet.isNotModified(null, createRequest("*"), createResponse(headers)));
+        assertTrue(headers.isEmpty());
+    }
+
+    @Test
+    public void testMatchesEntityTag() {
+        assertTrue(RetrieveResultServlet.matchesEntityTag("\"x\", \"abc\"", "\"abc\""));
+        assertTrue(RetrieveResultServlet.matchesEntityTag("W/\"abc\"", "\"abc\""));
+        assertTrue(RetrieveResultServlet.matchesEntityTag("*", "\"abc\""));
+        assertFalse(RetrieveResultServlet.matchesEntityTag("\"ab\"", "\"abc\""));
+    }
+}
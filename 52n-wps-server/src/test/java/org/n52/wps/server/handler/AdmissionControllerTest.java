@@ -0,0 +1,145 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.opengis.wps.x100.InputReferenceType;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.n52.wps.server.ServerBusyException;
+
+public class AdmissionControllerTest {
+
+    private static AdmissionController createController(long budget, long maxWait) {
+        Map<String, Double> factors = Collections.singletonMap("heavy", 10.0);
+        return new AdmissionController(true, budget, 100, 2, factors, 1000, false, maxWait, 5000);
+    }
+
+    @Test
+    public void testEstimate() {
+        AdmissionController controller = createController(10000, 0);
+        assertEquals(100 + 2 * 50, controller.estimate("light", 50));
+        assertEquals(100 + 10 * 50, controller.estimate("heavy", 50));
+    }
+
+    @Test
+    public void testReferenceSize() throws Exception {
+        File file = File.createTempFile("admission", ".xml");
+        try {
+            FileUtils.writeByteArrayToFile(file, new byte[42]);
+            InputReferenceType reference = InputReferenceType.Factory.newInstance();
+            reference.setHref(file.toURI().toString());
+            Map<String, Double> factors = Collections.emptyMap();
+            assertEquals(1000, createController(10000, 0).getReferenceSize(reference));
+            assertEquals(42, new AdmissionController(true, 10000, 100, 2, factors, 1000, true, 0, 5000)
+                    .getReferenceSize(reference));
+
+            reference.setHref("http://localhost:1/input.xml");
+            assertEquals(1000, createController(10000, 0).getReferenceSize(reference));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testProcessFactors() {
+        Map<String, Double> factors = AdmissionController.parseProcessFactors("a=2, b = 0.5,invalid,c=x");
+        assertEquals(2, factors.size());
+        assertEquals(2.0, factors.get("a"), 0);
+        assertEquals(0.5, factors.get("b"), 0);
+    }
+
+    @Test
+    public void testRejectWhenBudgetIsExhausted() throws Exception {
+        AdmissionController controller = createController(1000, 0);
+        AdmissionController.Reservation first = controller.reserve("p", 600);
+        try {
+            controller.reserve("p", 600);
+            fail("request exceeding the budget was admitted");
+        } catch (ServerBusyException e) {
+            assertEquals(5, e.getRetryAfterSeconds());
+            assertEquals(503, e.getHTTPStatusCode());
+        }
+        assertEquals(1, controller.getRejectedCount());
+
+        first.release();
+        first.release();
+        assertEquals(0, controller.getReserved());
+        controller.reserve("p", 600).release();
+    }
+
+    @Test
+    public void testOversizedRequestRunsAlone() throws Exception {
+        AdmissionController controller = createController(1000, 0);
+        AdmissionController.Reservation reservation = controller.reserve("p", 5000);
+        assertEquals(1000, reservation.getBytes());
+        reservation.release();
+    }
+
+    @Test
+    public void testWaitForRelease() throws Exception {
+        final AdmissionController controller = createController(1000, TimeUnit.SECONDS.toMillis(10));
+        AdmissionController.Reservation first = controller.reserve("p", 800);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<AdmissionController.Reservation> second = executor.submit(new Callable<AdmissionController.Reservation>() {
+                @Override
+                public AdmissionController.Reservation call() throws Exception {
+                    return controller.reserve("p", 800);
+                }
+            });
+            long deadline = System.currentTimeMillis() + 5000;
+            while (controller.getWaiting() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, controller.getWaiting());
+            assertTrue(!second.isDone());
+
+            first.release();
+            second.get(5, TimeUnit.SECONDS).release();
+            assertEquals(0, controller.getReserved());
+            assertEquals(2, controller.getAdmittedCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class ExecuteMetricsTest {
+
+    @Test
+    public void testTimerHistogram() {
+        PhaseTimer timer = new PhaseTimer(ExecutePhase.RUN, "process", "component");
+        timer.record(TimeUnit.MICROSECONDS.toNanos(500), false);
+        timer.record(TimeUnit.MILLISECONDS.toNanos(3), false);
+        timer.record(TimeUnit.MINUTES.toNanos(10), true);
+
+        assertEquals(3, timer.getCount());
+        assertEquals(1, timer.getFailures());
+        assertEquals(600000.0, timer.getMaxMillis(), 0.001);
+        long[] counts = timer.getBucketCounts();
+        assertEquals(PhaseTimer.BUCKET_BOUNDS_MILLIS.length + 1, counts.length);
+        assertEquals(1, counts[0]);
+        assertEquals(1, counts[2]);
+        assertEquals(1, counts[counts.length - 1]);
+    }
+
+    @Test
+    public void testTimingsAreRegisteredOnce() throws Exception {
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ExecuteMetrics metrics = new ExecuteMetrics(true, mbeanServer);
+        ExecuteMetrics.Timing timing = metrics.start(ExecutePhase.PARSE, "test:process", this);
+        timing.fail();
+        timing.stop();
+        metrics.start(ExecutePhase.PARSE, "test:process", this).stop();
+
+        assertEquals(1, metrics.getTimers().size());
+        PhaseTimer timer = metrics.getTimers().iterator().next();
+        assertEquals(2, timer.getCount());
+        assertEquals(1, timer.getFailures());
+
+        ObjectName name = new ObjectName(ExecuteMetrics.DOMAIN + ":type=ExecuteMetrics,phase=PARSE,process="
+                + ObjectName.quote("test:process") + ",component=" + ObjectName.quote(getClass().getName()));
+        assertTrue(mbeanServer.isRegistered(name));
+        assertEquals(2L, mbeanServer.getAttribute(name, "Count"));
+        mbeanServer.unregisterMBean(name);
+    }
+
+    @Test
+    public void testTimedStreamStopsWhenConsumed() throws Exception {
+        ExecuteMetrics metrics = new ExecuteMetrics(true, null);
+        InputStream stream = new TimedInputStream(new ByteArrayInputStream(new byte[1000]),
+                metrics.start(ExecutePhase.GENERATE, "process", this));
+        assertEquals(100, stream.read(new byte[100]));
+        assertTrue(metrics.getTimers().isEmpty());
+
+        while (stream.read(new byte[100]) >= 0) {
+            // consume
+        }
+        stream.close();
+        assertEquals(1, metrics.getTimers().size());
+        PhaseTimer timer = metrics.getTimers().iterator().next();
+        assertEquals(1, timer.getCount());
+        assertEquals(0, timer.getFailures());
+    }
+
+    @Test
+    public void testDisabled() {
+        ExecuteMetrics metrics = new ExecuteMetrics(false, null);
+        metrics.start(ExecutePhase.RUN, "process", this).stop();
+        assertTrue(metrics.getTimers().isEmpty());
+    }
+
+}
@@ -0,0 +1,188 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import net.opengis.wps.x100.ExecuteResponseDocument;
+import net.opengis.wps.x100.StatusType;
+
+import org.apache.commons.collections.map.CaseInsensitiveMap;
+import org.apache.commons.io.IOUtils;
+import org.apache.xmlbeans.XmlException;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+import org.n52.wps.commons.WPSConfig;
+import org.n52.wps.server.ExceptionReport;
+import org.n52.wps.server.database.DatabaseFactory;
+import org.n52.wps.server.database.IDatabase;
+import org.n52.wps.server.handler.ExecutionRegistry;
+import org.n52.wps.server.response.Response;
+
+public class DismissRequestTest {
+
+    private DocumentBuilderFactory fac;
+
+    @BeforeClass
+    public static void setUpClass()
+            throws XmlException, IOException {
+        WPSConfig.forceInitialization("src/test/resources/org/n52/wps/io/test/inputhandler/generator/wps_config.xml");
+    }
+
+    @Before
+    public void setUp(){
+        System.setProperty("javax.xml.parsers.DocumentBuilderFactory", "org.apache.xerces.jaxp.DocumentBuilderFactoryImpl");
+
+        fac = DocumentBuilderFactory.newInstance();
+        fac.setNamespaceAware(true);
+    }
+
+    private ExecuteRequest createStoredRequest() throws ExceptionReport, IOException, SAXException, ParserConfigurationException {
+        FileInputStream fis = new FileInputStream(new File("src/test/resources/LRDTCCorruptInputResponseDocStatusTrue.xml"));
+        try {
+            return new ExecuteRequest(fac.newDocumentBuilder().parse(fis));
+        } finally {
+            IOUtils.closeQuietly(fis);
+        }
+    }
+
+    private static Response dismiss(String jobId) throws ExceptionReport {
+        CaseInsensitiveMap map = new CaseInsensitiveMap();
+        map.put("jobId", new String[] {jobId});
+        return new DismissRequest(map).call();
+    }
+
+    private static StatusType getStatus(Response response) throws ExceptionReport, XmlException, IOException {
+        InputStream is = response.getAsStream();
+        try {
+            return ExecuteResponseDocument.Factory.parse(is).getExecuteResponse().getStatus();
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    @Test
+    public void testDismissQueued() throws Exception {
+        ExecuteRequest request = createStoredRequest();
+        request.updateStatusAccepted();
+        String jobId = request.getUniqueId().toString();
+
+        StatusType status = getStatus(dismiss(jobId));
+
+        assertTrue(status.isSetProcessFailed());
+        assertEquals("The process was dismissed.",
+                status.getProcessFailed().getExceptionReport().getExceptionArray(0).getExceptionTextArray(0));
+        assertTrue(DatabaseFactory.getDatabase().isCancelled(jobId));
+    }
+
+    @Test
+    public void testDismissRunning() throws Exception {
+        ExecuteRequest request = createStoredRequest();
+        request.updateStatusStarted();
+        String jobId = request.getUniqueId().toString();
+        ExecutionRegistry.Execution execution = ExecutionRegistry.getInstance().register(request);
+        try {
+            StatusType status = getStatus(dismiss(jobId));
+
+            // the executing thread stores the failure once it notices
+            assertTrue(status.isSetProcessStarted());
+            assertTrue(execution.isCancelled());
+            assertTrue(DatabaseFactory.getDatabase().isCancelled(jobId));
+        } finally {
+            ExecutionRegistry.getInstance().unregister(execution);
+            // the execution was run by this thread
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    public void testDismissSucceeded() throws Exception {
+        ExecuteRequest request = createStoredRequest();
+        request.updateStatusStarted();
+        String jobId = request.getUniqueId().toString();
+        ExecutionRegistry.Execution execution = ExecutionRegistry.getInstance().register(request);
+        try {
+            assertTrue(execution.succeed());
+
+            dismiss(jobId);
+
+            assertFalse(execution.isCancelled());
+            assertFalse(DatabaseFactory.getDatabase().isCancelled(jobId));
+            assertFalse(Thread.interrupted());
+        } finally {
+            ExecutionRegistry.getInstance().unregister(execution);
+        }
+    }
+
+    @Test
+    public void testDismissUnknown() {
+        String jobId = UUID.randomUUID().toString();
+        try {
+            dismiss(jobId);
+            fail("unknown execution was dismissed");
+        } catch (ExceptionReport e) {
+            assertEquals(ExceptionReport.INVALID_PARAMETER_VALUE,
+                    e.getExceptionDocument().getExceptionReport().getExceptionArray(0).getExceptionCode());
+        }
+        assertFalse(DatabaseFactory.getDatabase().isCancelled(jobId));
+    }
+
+    @Test
+    public void testDismissResult() {
+        IDatabase database = DatabaseFactory.getDatabase();
+        String url = database.storeComplexValue(UUID.randomUUID().toString(),
+                new ByteArrayInputStream("value".getBytes()), "ComplexData", "text/plain");
+        String resultId = url.substring(url.indexOf("id=") + 3);
+        try {
+            dismiss(resultId);
+            fail("stored output was dismissed");
+        } catch (ExceptionReport e) {
+            assertEquals(ExceptionReport.INVALID_PARAMETER_VALUE,
+                    e.getExceptionDocument().getExceptionReport().getExceptionArray(0).getExceptionCode());
+        }
+        assertFalse(database.isCancelled(resultId));
+        assertTrue(database.lookupResponseAsFile(resultId).isFile());
+    }
+}
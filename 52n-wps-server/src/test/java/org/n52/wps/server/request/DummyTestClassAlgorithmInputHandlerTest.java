@@ -49,6 +49,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.data.binding.bbox.BoundingBoxData;
 import org.n52.wps.server.ExceptionReport;
 
@@ -65,6 +67,7 @@ public class DummyTestClassAlgorithmInputHandlerTest {
     private static ExecuteDocument execDoc = null;
     private static InputType[] inputArray = null;
     private static File projectRoot = null;
+    private ExecutionContext context;
 
     @BeforeClass
     public static void setupClass() {
@@ -78,6 +81,9 @@ public class DummyTestClassAlgorithmInputHandlerTest {
 
     @Before
     public void setUp() throws XmlException, IOException {
+        context = new ExecutionContext();
+        ExecutionContextFactory.registerContext(context);
+
         WPSConfigTestUtil.generateMockConfig(getClass(), "/org/n52/wps/io/test/inputhandler/generator/wps_config.xml");
 
         execDoc = ExecuteDocument.Factory.parse(sampleFile);
@@ -89,6 +95,8 @@ public class DummyTestClassAlgorithmInputHandlerTest {
 
     @After
     public void tearDown() {
+        ExecutionContextFactory.unregisterContext();
+        context.dispose();
     }
 
     @Test(expected = ExceptionReport.class)
@@ -0,0 +1,118 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import net.opengis.wps.x100.DataInputsType;
+import net.opengis.wps.x100.ExecuteDocument;
+import net.opengis.wps.x100.ExecuteDocument.Execute;
+import net.opengis.wps.x100.InputType;
+import net.opengis.wps.x100.OutputDefinitionType;
+
+import org.junit.Test;
+
+public class ExecuteRequestHashTest {
+
+    private static final String PROCESS = "org.n52.wps.server.algorithm.test.DummyTestClass";
+
+    @Test
+    public void testInputOrderIsIgnored() {
+        String first = ExecuteRequestHash.compute(createExecute("text/xml", "A", "1", "B", "2"));
+        String second = ExecuteRequestHash.compute(createExecute("text/xml", "B", "2", "A", "1"));
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void testInputOrderIsSignificantForResponseDocuments() {
+        Execute first = createExecute(null, "A", "1", "B", "2");
+        first.getResponseForm().unsetRawDataOutput();
+        first.getResponseForm().addNewResponseDocument().addNewOutput().addNewIdentifier().setStringValue("RESULT");
+        Execute second = createExecute(null, "B", "2", "A", "1");
+        second.getResponseForm().unsetRawDataOutput();
+        second.getResponseForm().addNewResponseDocument().addNewOutput().addNewIdentifier().setStringValue("RESULT");
+        assertFalse(ExecuteRequestHash.compute(first).equals(ExecuteRequestHash.compute(second)));
+    }
+
+    @Test
+    public void testOrderOfRepeatedInputIsSignificant() {
+        String first = ExecuteRequestHash.compute(createExecute("text/xml", "A", "1", "A", "2"));
+        String second = ExecuteRequestHash.compute(createExecute("text/xml", "A", "2", "A", "1"));
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void testLiteralValueIsSignificant() {
+        String first = ExecuteRequestHash.compute(createExecute("text/xml", "A", "1"));
+        String second = ExecuteRequestHash.compute(createExecute("text/xml", "A", "11"));
+        assertFalse(first.equals(second));
+    }
+
+    @Test
+    public void testOutputFormatIsSignificant() {
+        String first = ExecuteRequestHash.compute(createExecute("text/xml", "A", "1"));
+        String second = ExecuteRequestHash.compute(createExecute("application/json", "A", "1"));
+        assertFalse(first.equals(second));
+
+        Execute execute = createExecute("text/xml", "A", "1");
+        execute.getResponseForm().getRawDataOutput().setUom("m");
+        assertFalse(first.equals(ExecuteRequestHash.compute(execute)));
+    }
+
+    @Test
+    public void testStatusIsIgnored() {
+        Execute document = createExecute(null, "A", "1");
+        document.getResponseForm().unsetRawDataOutput();
+        document.getResponseForm().addNewResponseDocument().addNewOutput().addNewIdentifier().setStringValue("RESULT");
+        String expected = ExecuteRequestHash.compute(document);
+        document.getResponseForm().getResponseDocument().setStatus(true);
+        document.getResponseForm().getResponseDocument().setStoreExecuteResponse(true);
+        assertEquals(expected, ExecuteRequestHash.compute(document));
+    }
+
+    private Execute createExecute(String mimeType, String... inputs) {
+        Execute execute = ExecuteDocument.Factory.newInstance().addNewExecute();
+        execute.setService("WPS");
+        execute.setVersion("1.0.0");
+        execute.addNewIdentifier().setStringValue(PROCESS);
+        DataInputsType dataInputs = execute.addNewDataInputs();
+        for (int i = 0; i < inputs.length; i += 2) {
+            InputType input = dataInputs.addNewInput();
+            input.addNewIdentifier().setStringValue(inputs[i]);
+            input.addNewData().addNewLiteralData().setStringValue(inputs[i + 1]);
+        }
+        OutputDefinitionType output = execute.addNewResponseForm().addNewRawDataOutput();
+        output.addNewIdentifier().setStringValue("RESULT");
+        if (mimeType != null) {
+            output.setMimeType(mimeType);
+        }
+        return execute;
+    }
+}
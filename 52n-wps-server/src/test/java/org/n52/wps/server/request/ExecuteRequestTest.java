@@ -28,6 +28,7 @@
  */
 package org.n52.wps.server.request;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -42,6 +43,7 @@ import javax.xml.parsers.ParserConfigurationException;
 import net.opengis.wps.x100.ExecuteResponseDocument;
 import net.opengis.wps.x100.StatusType;
 
+import org.apache.commons.collections.map.CaseInsensitiveMap;
 import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlOptions;
 import org.apache.xmlbeans.XmlValidationError;
@@ -103,6 +105,19 @@ public class ExecuteRequestTest {
 
     }
 
+    @Test
+    public void testKVPRoundTrip() throws IOException {
+        CaseInsensitiveMap map = new CaseInsensitiveMap();
+        map.put("Identifier", new String[] {"org.n52.wps.server.algorithm.test.DummyTestClass"});
+        map.put("DataInputs", new String[] {"LiteralInputData=first line\nsecond line;Name=Grüße & 100%+1"});
+
+        CaseInsensitiveMap restored = ExecuteRequest.decodeKVP(ExecuteRequest.encodeKVP(map));
+
+        assertTrue(restored.size() == 2);
+        assertArrayEquals((String[]) map.get("identifier"), (String[]) restored.get("identifier"));
+        assertArrayEquals((String[]) map.get("datainputs"), (String[]) restored.get("datainputs"));
+    }
+
     private boolean validateExecuteResponse(ExecuteResponseDocument responseDoc) {
         XmlOptions xmlOptions = new XmlOptions();
         List<XmlValidationError> xmlValidationErrorList = new ArrayList<XmlValidationError>();
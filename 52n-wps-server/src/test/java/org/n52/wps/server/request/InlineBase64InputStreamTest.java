@@ -0,0 +1,74 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.request;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import net.opengis.wps.x100.ComplexDataType;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64InputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class InlineBase64InputStreamTest {
+
+    @Test
+    public void testDecodesLargePayload() throws IOException {
+        byte[] payload = new byte[100000];
+        new Random(42).nextBytes(payload);
+        ComplexDataType complexData = ComplexDataType.Factory.newInstance();
+        complexData.setEncoding("base64");
+        // chunked, so that the text contains line breaks
+        complexData.newCursor().setTextValue(new String(Base64.encodeBase64Chunked(payload), "US-ASCII"));
+
+        InputStream stream = new Base64InputStream(new InlineBase64InputStream(complexData));
+        try {
+            assertArrayEquals(payload, IOUtils.toByteArray(stream));
+        } finally {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void testEmptyContent() throws IOException {
+        ComplexDataType complexData = ComplexDataType.Factory.newInstance();
+        InputStream stream = new InlineBase64InputStream(complexData);
+        try {
+            assertEquals(-1, stream.read());
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -43,6 +43,8 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
 import static org.hamcrest.Matchers.*;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.server.ExceptionReport;
 import org.n52.wps.server.handler.DataInputInterceptors.InterceptorInstance;
 
@@ -58,6 +60,7 @@ public class InputHandlerTest {
     private static ExecuteDocument dummyTestClassAlgorithmExecDoc = null;
     private static InputType[] simpleBufferAlgorithmInputArray = null;
     private static InputType[] dummyTestClassAlgorithmInputArray = null;
+    private ExecutionContext context;
 
     @BeforeClass
     public static void setupClass() throws XmlException, IOException {
@@ -70,6 +73,9 @@ public class InputHandlerTest {
 
     @Before
     public void setUp() throws XmlException, IOException {
+        context = new ExecutionContext();
+        ExecutionContextFactory.registerContext(context);
+
         simpleBufferAlgorithmFile = new File("src/test/resources/SimpleBufferAlgorithm.xml");
         simpleBufferAlgorithmExecDoc = ExecuteDocument.Factory.parse(simpleBufferAlgorithmFile);
         simpleBufferAlgorithmInputArray = simpleBufferAlgorithmExecDoc.getExecute().getDataInputs().getInputArray();
@@ -81,6 +87,8 @@ public class InputHandlerTest {
 
     @After
     public void tearDown() {
+        ExecutionContextFactory.unregisterContext();
+        context.dispose();
     }
 
     @Test
@@ -51,6 +51,8 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
 import org.n52.wps.io.data.IData;
 import org.n52.wps.server.ExceptionReport;
 
@@ -65,6 +67,7 @@ public class SimpleBufferAlgorithmInputHandlerTest {
     private static ExecuteDocument execDoc = null;
     private static InputType[] inputArray = null;
     private static File projectRoot = null;
+    private ExecutionContext context;
 
     @BeforeClass
     public static void setupClass() throws XmlException, IOException {
@@ -82,12 +85,17 @@ public class SimpleBufferAlgorithmInputHandlerTest {
 
     @Before
     public void setUp() throws XmlException, IOException {
+        context = new ExecutionContext();
+        ExecutionContextFactory.registerContext(context);
+
         File f = new File(getClass().getProtectionDomain().getCodeSource().getLocation().getFile());
         projectRoot = new File(f.getParentFile().getParentFile().getParent());
     }
 
     @After
     public void tearDown() {
+        ExecutionContextFactory.unregisterContext();
+        context.dispose();
     }
 
     @Test(expected = ExceptionReport.class)
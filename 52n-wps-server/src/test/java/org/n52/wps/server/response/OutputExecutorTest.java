@@ -0,0 +1,128 @@
+/**
+ * ﻿Copyright (C) 2007 - 2014 52°North Initiative for Geospatial Open Source
+ * Software GmbH
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 as published
+ * by the Free Software Foundation.
+ *
+ * If the program is linked with libraries which are licensed under one of
+ * the following licenses, the combination of the program with the linked
+ * library is not considered a "derivative work" of the program:
+ *
+ *       • Apache License, version 2.0
+ *       • Apache Software License, version 1.0
+ *       • GNU Lesser General Public License, version 3
+ *       • Mozilla Public License, versions 1.0, 1.1 and 2.0
+ *       • Common Development and Distribution License (CDDL), version 1.0
+ *
+ * Therefore the distribution of the program linked with libraries licensed
+ * under the aforementioned licenses, is permitted by the copyright holders
+ * if the distribution is compliant with both the GNU General Public
+ * License version 2 and the aforementioned licenses.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General
+ * Public License for more details.
+ */
+package org.n52.wps.server.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.n52.wps.commons.context.ExecutionContext;
+import org.n52.wps.commons.context.ExecutionContextFactory;
+import org.n52.wps.server.ExceptionReport;
+
+public class OutputExecutorTest {
+
+    private OutputExecutor executor = new OutputExecutor(4);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+        ExecutionContextFactory.unregisterContext();
+    }
+
+    @Test
+    public void testOutputsAreGeneratedConcurrently() throws Exception {
+        final CountDownLatch started = new CountDownLatch(3);
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < 3; i++) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    started.countDown();
+                    // only completes if all outputs are generated at the same time
+                    assertTrue(started.await(5, TimeUnit.SECONDS));
+                    return null;
+                }
+            });
+        }
+        executor.invokeAll(tasks);
+    }
+
+    @Test
+    public void testFirstFailureInOrderIsThrown() throws Exception {
+        final ExceptionReport first = new ExceptionReport("first", ExceptionReport.NO_APPLICABLE_CODE);
+        final CountDownLatch secondFailed = new CountDownLatch(1);
+        Callable<Void> ok = new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        };
+        Callable<Void> failsLate = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                secondFailed.await(5, TimeUnit.SECONDS);
+                throw first;
+            }
+        };
+        Callable<Void> failsEarly = new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                secondFailed.countDown();
+                throw new IllegalStateException("second");
+            }
+        };
+        try {
+            executor.invokeAll(Arrays.asList(ok, failsLate, failsEarly));
+            fail("the failure was not thrown");
+        } catch (ExceptionReport e) {
+            assertSame(first, e);
+        }
+    }
+
+    @Test
+    public void testContextIsRegisteredOnPoolThreads() throws Exception {
+        final ExecutionContext context = new ExecutionContext();
+        ExecutionContextFactory.registerContext(context);
+        final List<ExecutionContext> seen = new ArrayList<ExecutionContext>();
+        Callable<Void> task = new Callable<Void>() {
+            @Override
+            public Void call() {
+                synchronized (seen) {
+                    seen.add(ExecutionContextFactory.getContext(false));
+                }
+                return null;
+            }
+        };
+        executor.invokeAll(Arrays.asList(task, task, task));
+        assertEquals(Arrays.asList(context, context, context), seen);
+        assertSame(context, ExecutionContextFactory.getContext(false));
+    }
+
+}